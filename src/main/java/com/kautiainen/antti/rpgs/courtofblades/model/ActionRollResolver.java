@@ -0,0 +1,391 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * The resolver of the action rolls advancing clocks.
+ *
+ * An action roll rolls a pool of six-sided dice, and the highest die decides the
+ * outcome. A six is a full success, and two or more sixes are a critical success.
+ * A four or a five is a partial success, and a lower die is a failure. A pool of
+ * zero dice rolls two dice, and takes the lowest of them, so it never gets a critical.
+ *
+ * A success advances the target clock by the ticks of the effect level of the roll.
+ * A critical success increases the effect level by one, and a failure does not
+ * advance the clock.
+ *
+ * The random streams of the resolver are identified by a stream identifier, and the
+ * stream of an identifier is always the same for the same seed. Giving each thread
+ * its own stream identifier keeps the rolls reproducible under concurrency.
+ */
+public class ActionRollResolver {
+
+    /**
+     * The effect levels of the actions.
+     */
+    public enum EffectLevel {
+        /**
+         * The action has no effect.
+         */
+        ZERO(0),
+        /**
+         * The action has limited effect.
+         */
+        LIMITED(1),
+        /**
+         * The action has standard effect.
+         */
+        STANDARD(2),
+        /**
+         * The action has great effect.
+         */
+        GREAT(3),
+        /**
+         * The action has extreme effect.
+         */
+        EXTREME(5);
+
+        /**
+         * The number of ticks the effect advances a clock.
+         */
+        private final int ticks;
+
+        /**
+         * Create a new effect level.
+         * @param ticks The number of ticks of the effect.
+         */
+        EffectLevel(int ticks) {
+            this.ticks = ticks;
+        }
+
+        /**
+         * Get the ticks of the effect level.
+         * @return The number of ticks the effect advances a clock.
+         */
+        public int getTicks() {
+            return this.ticks;
+        }
+
+        /**
+         * Get the increased effect level.
+         * @return The effect level one higher, or the extreme effect level, if the
+         * effect level is already extreme.
+         */
+        public EffectLevel increased() {
+            return this == EXTREME ? EXTREME : values()[ordinal() + 1];
+        }
+
+        /**
+         * Get the reduced effect level.
+         * @return The effect level one lower, or the zero effect level, if the
+         * effect level is already zero.
+         */
+        public EffectLevel reduced() {
+            return this == ZERO ? ZERO : values()[ordinal() - 1];
+        }
+    }
+
+    /**
+     * The outcomes of the action rolls.
+     */
+    public enum RollOutcome {
+        /**
+         * The highest die was from one to three.
+         */
+        FAILURE,
+        /**
+         * The highest die was a four or a five.
+         */
+        PARTIAL_SUCCESS,
+        /**
+         * The highest die was a single six.
+         */
+        FULL_SUCCESS,
+        /**
+         * The roll had several sixes.
+         */
+        CRITICAL_SUCCESS;
+
+        /**
+         * Is the outcome a success.
+         * @return True, if and only if the outcome advances the clock.
+         */
+        public boolean isSuccess() {
+            return this != FAILURE;
+        }
+    }
+
+    /**
+     * The outcomes in the order of the ordinals.
+     */
+    private static final RollOutcome[] OUTCOMES = RollOutcome.values();
+
+    /**
+     * The seed of the resolver.
+     */
+    private final long seed;
+
+    /**
+     * Create a resolver with a seed.
+     * @param seed The seed of the random streams.
+     */
+    public ActionRollResolver(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Get the seed of the resolver.
+     * @return The seed of the random streams.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Create a random stream of the resolver.
+     * @param streamId The stream identifier.
+     * @return The random stream of the identifier. The streams of the same seed and
+     * identifier produce the same rolls.
+     */
+    public SplittableRandom createStream(long streamId) {
+        // The identifier is mixed with the seed, so adjacent identifiers give unrelated streams.
+        long mixed = seed + streamId * 0x9E3779B97F4A7C15L;
+        mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        return new SplittableRandom(mixed ^ (mixed >>> 31));
+    }
+
+    /**
+     * Roll an action roll.
+     * @param dice The number of dice in the pool.
+     * @param random The random stream.
+     * @return The outcome of the roll.
+     * @throws IllegalArgumentException The number of dice was negative.
+     */
+    public static RollOutcome roll(int dice, SplittableRandom random) throws IllegalArgumentException {
+        return OUTCOMES[rollOrdinal(dice, random)];
+    }
+
+    /**
+     * Roll an action roll.
+     * @param dice The number of dice in the pool.
+     * @param random The random stream.
+     * @return The ordinal of the outcome of the roll.
+     * @throws IllegalArgumentException The number of dice was negative.
+     */
+    private static int rollOrdinal(int dice, SplittableRandom random) throws IllegalArgumentException {
+        if (dice < 0) throw new IllegalArgumentException("Invalid dice pool",
+        new IllegalArgumentException("Negative number of dice"));
+        if (dice == 0) {
+            // The lowest of two dice never gives a critical.
+            return outcomeOfHighest(Math.min(random.nextInt(6), random.nextInt(6)) + 1);
+        }
+        int highest = 0;
+        int sixes = 0;
+        for (int i = 0; i < dice; i++) {
+            int die = random.nextInt(6) + 1;
+            if (die == 6) {
+                if (++sixes > 1) return RollOutcome.CRITICAL_SUCCESS.ordinal();
+            }
+            highest = Math.max(highest, die);
+        }
+        return outcomeOfHighest(highest);
+    }
+
+    /**
+     * Get the outcome of a roll without several sixes.
+     * @param highest The highest die of the roll.
+     * @return The ordinal of the outcome.
+     */
+    private static int outcomeOfHighest(int highest) {
+        if (highest == 6) return RollOutcome.FULL_SUCCESS.ordinal();
+        return highest >= 4 ? RollOutcome.PARTIAL_SUCCESS.ordinal() : RollOutcome.FAILURE.ordinal();
+    }
+
+    /**
+     * Get the ticks of an outcome.
+     * @param outcome The outcome of the roll.
+     * @param effect The effect level of the action.
+     * @return The number of ticks the outcome advances the clock.
+     */
+    public static int ticks(RollOutcome outcome, EffectLevel effect) {
+        return ticks(outcome.ordinal(), effect);
+    }
+
+    /**
+     * Get the ticks of an outcome ordinal.
+     * @param outcome The ordinal of the outcome of the roll.
+     * @param effect The effect level of the action.
+     * @return The number of ticks the outcome advances the clock.
+     */
+    private static int ticks(int outcome, EffectLevel effect) {
+        switch (OUTCOMES[outcome]) {
+            case FAILURE:
+                return 0;
+            case CRITICAL_SUCCESS:
+                return effect.increased().getTicks();
+            default:
+                return effect.getTicks();
+        }
+    }
+
+    /**
+     * Resolve action rolls into advancement amounts.
+     * @param pools The dice pools of the rolls.
+     * @param effects The effect levels of the rolls.
+     * @param amounts The array receiving the advancement amounts of the rolls.
+     * @param count The number of the resolved rolls.
+     * @param random The random stream.
+     * @return The number of successful rolls.
+     * @throws IllegalArgumentException Any of the given parameters was invalid.
+     */
+    public static int resolve(int[] pools, EffectLevel[] effects, int[] amounts, int count, SplittableRandom random)
+    throws IllegalArgumentException {
+        return resolve(pools, effects, amounts, null, count, random);
+    }
+
+    /**
+     * Resolve action rolls into advancement amounts and outcomes.
+     * @param pools The dice pools of the rolls.
+     * @param effects The effect levels of the rolls.
+     * @param amounts The array receiving the advancement amounts of the rolls.
+     * @param outcomes The array receiving the ordinals of the outcomes of the rolls. An
+     * undefined value ignores the outcomes.
+     * @param count The number of the resolved rolls.
+     * @param random The random stream.
+     * @return The number of successful rolls.
+     * @throws IllegalArgumentException Any of the given parameters was invalid.
+     */
+    public static int resolve(int[] pools, EffectLevel[] effects, int[] amounts, byte[] outcomes, int count,
+        SplittableRandom random) throws IllegalArgumentException {
+        if (pools == null || effects == null || amounts == null || random == null) {
+            throw new IllegalArgumentException("Invalid rolls",
+            new NullPointerException("Pools, effects, amounts, and random stream must be specified"));
+        }
+        if (count < 0 || count > pools.length || count > effects.length || count > amounts.length
+            || (outcomes != null && count > outcomes.length)) {
+            throw new IllegalArgumentException("Invalid rolls",
+            new IndexOutOfBoundsException("Count exceeds the given arrays"));
+        }
+        int successes = 0;
+        for (int i = 0; i < count; i++) {
+            EffectLevel effect = effects[i];
+            if (effect == null) throw new IllegalArgumentException("Invalid rolls",
+            new NullPointerException("Effect must be specified"));
+            int outcome = rollOrdinal(pools[i], random);
+            amounts[i] = ticks(outcome, effect);
+            if (outcomes != null) outcomes[i] = (byte)outcome;
+            if (outcome != RollOutcome.FAILURE.ordinal()) successes++;
+        }
+        return successes;
+    }
+
+    /**
+     * Resolve action rolls, and advance their target clocks in one pass.
+     * @param targets The target clocks of the rolls.
+     * @param pools The dice pools of the rolls.
+     * @param effects The effect levels of the rolls.
+     * @param count The number of the resolved rolls.
+     * @param random The random stream.
+     * @return The clock events of the advanced clocks.
+     * @throws IllegalArgumentException Any of the given parameters was invalid.
+     */
+    public static List<ClockEvent> resolveAndApply(Clock[] targets, int[] pools, EffectLevel[] effects, int count,
+        SplittableRandom random) throws IllegalArgumentException {
+        if (targets == null || count > targets.length) throw new IllegalArgumentException("Invalid targets",
+        new IllegalArgumentException("Each roll requires a target clock"));
+        int[] amounts = new int[Math.max(0, count)];
+        resolve(pools, effects, amounts, count, random);
+        return apply(targets, amounts, count);
+    }
+
+    /**
+     * Advance the target clocks by the resolved amounts in one pass.
+     * The rolls without advancement are skipped.
+     * @param targets The target clocks of the rolls.
+     * @param amounts The advancement amounts of the rolls.
+     * @param count The number of the applied rolls.
+     * @return The clock events of the advanced clocks.
+     * @throws IllegalArgumentException Any of the given parameters was invalid.
+     */
+    public static List<ClockEvent> apply(Clock[] targets, int[] amounts, int count) throws IllegalArgumentException {
+        if (targets == null || amounts == null) throw new IllegalArgumentException("Invalid rolls",
+        new NullPointerException("Targets and amounts must be specified"));
+        if (count < 0 || count > targets.length || count > amounts.length) {
+            throw new IllegalArgumentException("Invalid rolls",
+            new IndexOutOfBoundsException("Count exceeds the given arrays"));
+        }
+        ClockBatch batch = new ClockBatch(count);
+        for (int i = 0; i < count; i++) {
+            if (amounts[i] != 0) {
+                batch.add(targets[i], amounts[i]);
+            }
+        }
+        return batch.apply();
+    }
+
+    /**
+     * Get the exact probability of an outcome.
+     * @param dice The number of dice in the pool.
+     * @param outcome The outcome.
+     * @return The probability of the outcome with the dice pool.
+     * @throws IllegalArgumentException The number of dice was negative, or the
+     * outcome was undefined.
+     */
+    public static double getProbability(int dice, RollOutcome outcome) throws IllegalArgumentException {
+        if (dice < 0) throw new IllegalArgumentException("Invalid dice pool",
+        new IllegalArgumentException("Negative number of dice"));
+        if (outcome == null) throw new IllegalArgumentException("Invalid outcome",
+        new NullPointerException("Outcome must be specified"));
+        if (dice == 0) {
+            // The lowest of two dice.
+            switch (outcome) {
+                case FULL_SUCCESS:
+                    return 1.0 / 36;
+                case PARTIAL_SUCCESS:
+                    return 8.0 / 36;
+                case FAILURE:
+                    return 27.0 / 36;
+                default:
+                    return 0.0;
+            }
+        }
+        double noSix = Math.pow(5.0 / 6, dice);
+        double oneSix = dice * Math.pow(5.0 / 6, dice - 1) / 6;
+        double failure = Math.pow(0.5, dice);
+        switch (outcome) {
+            case CRITICAL_SUCCESS:
+                return Math.max(0.0, 1.0 - noSix - oneSix);
+            case FULL_SUCCESS:
+                return oneSix;
+            case PARTIAL_SUCCESS:
+                return noSix - failure;
+            case FAILURE:
+            default:
+                return failure;
+        }
+    }
+
+    /**
+     * Create the exact distribution of the advancement amounts of an action roll.
+     * The distribution is suitable for {@link ClockSimulation}.
+     * @param dice The number of dice in the pool.
+     * @param effect The effect level of the action.
+     * @return The distribution of the ticks the roll advances a clock.
+     * @throws IllegalArgumentException The number of dice was negative, or the
+     * effect level was undefined.
+     */
+    public static ClockSimulation.RollDistribution distribution(int dice, EffectLevel effect)
+    throws IllegalArgumentException {
+        if (effect == null) throw new IllegalArgumentException("Invalid effect",
+        new NullPointerException("Effect must be specified"));
+        int[] amounts = new int[OUTCOMES.length];
+        double[] weights = new double[OUTCOMES.length];
+        for (RollOutcome outcome: OUTCOMES) {
+            amounts[outcome.ordinal()] = ticks(outcome, effect);
+            weights[outcome.ordinal()] = getProbability(dice, outcome);
+        }
+        return ClockSimulation.RollDistribution.of(amounts, weights);
+    }
+}
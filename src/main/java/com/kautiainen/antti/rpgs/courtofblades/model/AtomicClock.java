@@ -0,0 +1,320 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A lock-free clock.
+ *
+ * The current position, the maximum, and the enabled status of the clock are
+ * packed into a single word updated with compare-and-set. The accessors never
+ * take the monitor of the clock, and the advancement retries until it succeeds.
+ *
+ * The maximum of the clock must be non-negative, as the maximum shares the word
+ * with the current position and the enabled status.
+ */
+public class AtomicClock extends Clock {
+
+    /**
+     * The bit of the enabled status.
+     */
+    private static final long ENABLED_BIT = 1L << 63;
+
+    /**
+     * The mask of the maximum after shifting.
+     */
+    private static final long MAXIMUM_MASK = 0x7FFFFFFFL;
+
+    /**
+     * The updater of the clock state.
+     */
+    private static final AtomicLongFieldUpdater<AtomicClock> STATE =
+        AtomicLongFieldUpdater.newUpdater(AtomicClock.class, "state");
+
+    /**
+     * The packed state of the clock.
+     * The field has no initializer as the super constructor sets the state.
+     */
+    private volatile long state;
+
+    /**
+     * The type of the clock.
+     * The field has no initializer as the super constructor sets the type.
+     */
+    private volatile ClockType type;
+
+    /**
+     * Create a progress clock with a name, a current position,
+     * and a full position.
+     * @param name The name of the clock.
+     * @param current The current position of the clock.
+     * @param max The maximum position of a full clock.
+     * @throws IllegalArgumentException The maximum was negative.
+     */
+    public AtomicClock(String name, int current, int max) throws IllegalArgumentException {
+        super(name, current, max);
+    }
+
+    /**
+     * Create a clock with a name, a current position,
+     * a maximum number of ticks, and a type.
+     * The clock will be enabled unless it is either completed
+     * or depleted.
+     * @param name The name of the clock.
+     * @param current The current position of the clock.
+     * @param max The maximum position of a full clock.
+     * @param type The type of the clock.
+     * @throws IllegalArgumentException Any of hte given parameters were invalid.
+     */
+    public AtomicClock(String name, int current, int max, ClockType type) throws IllegalArgumentException {
+        super(name, current, max, type);
+    }
+
+    /**
+     * Create a clock with a name, a current position,
+     * a maximum number of ticks, a type, and an enabled status.
+     * @param name The name of the clock.
+     * @param current The current position of the clock.
+     * @param max The maximum position of a full clock.
+     * @param type The type of the clock.
+     * @param enabled Is the clock enabled.
+     * @throws IllegalArgumentException Any of hte given parameters were invalid.
+     */
+    @JsonCreator
+    public AtomicClock(
+        @JsonProperty("name") String name,
+        @JsonProperty("current") int current,
+        @JsonProperty("max") int max,
+        @JsonProperty("type") ClockType type,
+        @JsonProperty("enabled") boolean enabled) throws IllegalArgumentException {
+        super(name, current, max, type, enabled);
+    }
+
+    /**
+     * Create a lock-free copy of a clock.
+     * @param clock The copied clock.
+     * @throws IllegalArgumentException The clock was invalid.
+     */
+    public AtomicClock(Clock clock) throws IllegalArgumentException {
+        this(clock.getName(), clock.getCurrent(), clock.getMaximum(), clock.getType(), clock.isEnabled());
+    }
+
+    /**
+     * Pack the clock state into a word.
+     * @param current The current position.
+     * @param max The maximum.
+     * @param enabled The enabled status.
+     * @return The packed state.
+     */
+    static long pack(int current, int max, boolean enabled) {
+        return (current & 0xFFFFFFFFL) | ((max & MAXIMUM_MASK) << 32) | (enabled ? ENABLED_BIT : 0L);
+    }
+
+    /**
+     * Get the current position of a packed state.
+     * @param state The packed state.
+     * @return The current position.
+     */
+    static int current(long state) {
+        return (int)state;
+    }
+
+    /**
+     * Get the maximum of a packed state.
+     * @param state The packed state.
+     * @return The maximum.
+     */
+    static int maximum(long state) {
+        return (int)((state >>> 32) & MAXIMUM_MASK);
+    }
+
+    /**
+     * Get the enabled status of a packed state.
+     * @param state The packed state.
+     * @return True, if and only if the state is enabled.
+     */
+    static boolean enabled(long state) {
+        return (state & ENABLED_BIT) != 0;
+    }
+
+    @Override
+    public ClockType getType() {
+        return this.type;
+    }
+
+    @Override
+    public void setType(ClockType type) throws IllegalArgumentException {
+        if (type == null) throw new IllegalArgumentException("Invalid clock type",
+        new NullPointerException("Type must be specified"));
+        this.type = type;
+    }
+
+    @Override
+    public int getCurrent() {
+        return current(this.state);
+    }
+
+    @Override
+    public void setCurrent(int current) {
+        long old;
+        do {
+            old = this.state;
+        } while (!STATE.compareAndSet(this, old, pack(current, maximum(old), enabled(old))));
+        publishChange(current(old), current, maximum(old), getEventBus());
+    }
+
+    @Override
+    public int getMaximum() {
+        return maximum(this.state);
+    }
+
+    /**
+     * Set the maximum of the clock.
+     * @param maximum The maximum of the clock.
+     * @throws IllegalArgumentException The maximum was negative.
+     */
+    @Override
+    public void setMaximum(int maximum) throws IllegalArgumentException {
+        if (maximum < 0) throw new IllegalArgumentException("Invalid maximum",
+        new IllegalArgumentException("Negative maximum"));
+        long old;
+        do {
+            old = this.state;
+        } while (!STATE.compareAndSet(this, old, pack(current(old), maximum, enabled(old))));
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled(this.state);
+    }
+
+    @Override
+    public boolean isDisabled() {
+        return !enabled(this.state);
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        long old;
+        do {
+            old = this.state;
+        } while (!STATE.compareAndSet(this, old, pack(current(old), maximum(old), enabled)));
+    }
+
+    @Override
+    public boolean hasCompleted() {
+        long snapshot = this.state;
+        return current(snapshot) >= maximum(snapshot);
+    }
+
+    @Override
+    public boolean advanceBeyondMaximum() {
+        return false;
+    }
+
+    @Override
+    public boolean regressBeyondMinimum() {
+        return false;
+    }
+
+    @Override
+    public int getMinimum() {
+        return 0;
+    }
+
+    /**
+     * Advance the clock, and push the events of the advancement into a sink.
+     * @param amount The advancement amount. If value
+     * is negative, the clock regresses.
+     * @param sink The sink receiving the events of the advancement. An undefined
+     * sink ignores the events.
+     * @return The amount of advancement not used.
+     * @implNote The advancement is retried until the compare-and-set of the
+     * state succeeds.
+     */
+    @Override
+    public int advance(int amount, ClockEventSink sink) {
+        final int minimum = getMinimum();
+        final boolean beyondMaximum = advanceBeyondMaximum();
+        final boolean beyondMinimum = regressBeyondMinimum();
+        long old;
+        long result;
+        do {
+            old = this.state;
+            result = computeAdvance(current(old), amount, minimum, maximum(old), beyondMaximum, beyondMinimum);
+        } while (!STATE.compareAndSet(this, old, pack(advancedCurrent(result), maximum(old), enabled(old))));
+        publishChange(current(old), advancedCurrent(result), maximum(old), sink);
+        return unusedAmount(result);
+    }
+
+    /**
+     * Is a state of the clock completed.
+     * @param state The packed state.
+     * @return True, if and only if the state is completed.
+     */
+    private boolean isCompleted(long state) {
+        return getType().hasAnyTrait(ClockType.COMPLETING_TRAITS)
+            && current(state) >= maximum(state);
+    }
+
+    /**
+     * Is a state of the clock depleted.
+     * @param state The packed state.
+     * @return True, if and only if the state is depleted.
+     */
+    private boolean isDepleted(long state) {
+        return getType().hasAnyTrait(ClockType.DEPLETING_TRAITS)
+            && current(state) <= getMinimum();
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return isCompleted(this.state);
+    }
+
+    @Override
+    public boolean isDepleted() {
+        return isDepleted(this.state);
+    }
+
+    /**
+     * Push the clock events the current clock state causes into a sink.
+     * @param sink The sink receiving the events.
+     * @throws IllegalArgumentException The sink was undefined.
+     * @implNote The events are generated from a single read of the state.
+     */
+    @Override
+    public void emitClockEvents(ClockEventSink sink) throws IllegalArgumentException {
+        if (sink == null) throw new IllegalArgumentException("Invalid sink",
+        new NullPointerException("Sink must be specified"));
+        long snapshot = this.state;
+        if (isCompleted(snapshot)) {
+            sink.completed(this, current(snapshot) - maximum(snapshot));
+        } else if (isDepleted(snapshot)) {
+            sink.depleted(this, current(snapshot) - getMinimum());
+        }
+    }
+
+    /**
+     * Generate the clock events the current clock state causes.
+     * @return The list of clock events the current clock causes.
+     * @implNote The events are generated from a single read of the state.
+     */
+    @Override
+    protected List<ClockEvent> getClockEvents() {
+        long snapshot = this.state;
+        if (isCompleted(snapshot)) {
+            return Collections.singletonList(
+                ClockEvent.completedClock(this, getName(), current(snapshot) - maximum(snapshot)));
+        } else if (isDepleted(snapshot)) {
+            return Collections.singletonList(
+                ClockEvent.depletedClock(this, getName(), current(snapshot) + getMinimum()));
+        } else {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,946 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.HealerType;
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.Resource;
+
+/**
+ * The compact binary encoding of the model.
+ *
+ * A document starts with the magic number and the format version, and it is
+ * followed by any number of encoded values. The integers are written as variable
+ * length integers, and the signed integers are zigzag encoded first. A string is
+ * written once per document, and its later occurrences refer to the string table
+ * of the document. The enumerations are written as ordinals, and a set of resources
+ * as a bit mask of the ordinals. An optional value or collection is prefixed with
+ * a presence marker.
+ *
+ * A clock type registered in the {@link ClockTypeDictionary} is written as its
+ * name, which does not depend on the order of the registrations. The other clock
+ * types are written once per document, and their later occurrences refer to the
+ * document reference of the type. The decoded clock types equal to a registered
+ * type are replaced with the registered type. The documents of the format version 1
+ * contain every clock type in full, and the documents of the format version 2 refer
+ * to the registered types by their identifiers in the dictionary of the running
+ * process.
+ *
+ * The encoder and the decoder stream the values through a byte buffer. The encoder
+ * writes a full buffer into its channel, or grows the buffer, if it has no channel.
+ * The decoder reads more data from its channel when the buffer runs out.
+ *
+ * The decoder checks every length and count against the bytes left in its buffer,
+ * or against the {@link #MAX_DOCUMENT_SIZE} when it reads a channel, before using it,
+ * so a corrupted document cannot make the decoder allocate more than the document
+ * provides.
+ */
+public final class BinaryModelCodec {
+
+    /**
+     * The magic number starting a document.
+     */
+    public static final int MAGIC = 0x434F4244;
+
+    /**
+     * The current format version.
+     */
+    public static final int FORMAT_VERSION = 3;
+
+    /**
+     * The default size of the buffers.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    /**
+     * The maximum size of a document read from a channel.
+     */
+    public static final int MAX_DOCUMENT_SIZE = 64 << 20;
+
+    /**
+     * The marker of an undefined string.
+     */
+    private static final int NULL_STRING = 0;
+
+    /**
+     * The marker of a new string.
+     */
+    private static final int NEW_STRING = 1;
+
+    /**
+     * The offset of the string table references.
+     */
+    private static final int STRING_REFERENCE = 2;
+
+    /**
+     * The kind of a special ability.
+     */
+    private static final int SPECIAL_ABILITY = 1;
+
+    /**
+     * The kind of a coterie ability.
+     */
+    private static final int COTERIE_ABILITY = 2;
+
+    /**
+     * The flag of an enabled clock.
+     */
+    private static final int CLOCK_ENABLED = 1;
+
+    /**
+     * The flag of a clock with a type in the format version 1.
+     */
+    private static final int CLOCK_TYPED = 2;
+
+    /**
+     * The marker of a new clock type.
+     */
+    private static final int NEW_TYPE = 1;
+
+    /**
+     * The marker of a registered clock type followed by its name.
+     */
+    private static final int NAMED_TYPE = 2;
+
+    /**
+     * The offset of the registered clock type identifiers of the format version 2.
+     * The identifiers are shifted left by one bit, and the lowest bit is clear.
+     */
+    private static final int TYPE_ID = 2;
+
+    /**
+     * The offset of the document clock type references. The references are
+     * shifted left by one bit, and the lowest bit is set.
+     */
+    private static final int TYPE_REFERENCE = 3;
+
+    /**
+     * The resources in the order of the ordinals.
+     */
+    private static final Resource[] RESOURCES = Resource.values();
+
+    /**
+     * The healer types in the order of the ordinals.
+     */
+    private static final HealerType[] HEALER_TYPES = HealerType.values();
+
+    /**
+     * The codec has only static members.
+     */
+    private BinaryModelCodec() {
+    }
+
+    /**
+     * The encoder writing a document.
+     * The encoder is not thread-safe.
+     */
+    public static class Encoder implements Flushable {
+
+        /**
+         * The channel receiving the full buffers, or an undefined value, if the
+         * buffer grows instead.
+         */
+        private final WritableByteChannel channel;
+
+        /**
+         * The buffer of the encoded data.
+         */
+        private ByteBuffer buffer;
+
+        /**
+         * The string table of the document.
+         */
+        private final Map<String, Integer> strings = new HashMap<>();
+
+        /**
+         * The clock type references of the document.
+         */
+        private final ClockTypeDictionary.DocumentTypes types = new ClockTypeDictionary.DocumentTypes();
+
+        /**
+         * Create an encoder writing into a buffer.
+         * The buffer is replaced with a larger buffer, when it runs out of space.
+         * @param buffer The buffer receiving the document.
+         * @throws IllegalArgumentException The buffer was undefined.
+         */
+        public Encoder(ByteBuffer buffer) throws IllegalArgumentException {
+            if (buffer == null) throw new IllegalArgumentException("Invalid buffer",
+            new NullPointerException("Buffer must be specified"));
+            this.channel = null;
+            this.buffer = buffer;
+            writeHeader();
+        }
+
+        /**
+         * Create an encoder writing into a channel.
+         * @param channel The channel receiving the document.
+         * @param bufferSize The size of the buffer.
+         * @throws IllegalArgumentException The channel or the buffer size was invalid.
+         */
+        public Encoder(WritableByteChannel channel, int bufferSize) throws IllegalArgumentException {
+            if (channel == null) throw new IllegalArgumentException("Invalid channel",
+            new NullPointerException("Channel must be specified"));
+            if (bufferSize < 16) throw new IllegalArgumentException("Invalid buffer size",
+            new IllegalArgumentException("Buffer size must be at least 16 bytes"));
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(bufferSize);
+            writeHeader();
+        }
+
+        /**
+         * Write the document header.
+         */
+        private void writeHeader() {
+            buffer.putInt(MAGIC);
+            buffer.put((byte)FORMAT_VERSION);
+        }
+
+        /**
+         * Get the buffer of the encoder.
+         * @return The buffer containing the data not yet written into the channel.
+         */
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * Ensure the buffer has space for bytes.
+         * @param size The number of the bytes.
+         * @throws IOException The writing of the channel failed.
+         */
+        private void ensure(int size) throws IOException {
+            if (buffer.remaining() >= size) return;
+            if (channel != null) {
+                flush();
+            }
+            if (buffer.remaining() < size) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + size));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+
+        /**
+         * Write the buffered data into the channel.
+         * An encoder without channel keeps the data in its buffer.
+         * @throws IOException The writing failed.
+         */
+        @Override
+        public void flush() throws IOException {
+            if (channel == null) return;
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Write an unsigned variable length integer.
+         * @param value The written value.
+         * @throws IOException The writing failed.
+         */
+        public void writeVarInt(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte)((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte)value);
+        }
+
+        /**
+         * Write a signed variable length integer.
+         * @param value The written value.
+         * @throws IOException The writing failed.
+         */
+        public void writeSignedVarInt(int value) throws IOException {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        /**
+         * Write a string.
+         * @param value The written string, or an undefined value.
+         * @throws IOException The writing failed.
+         */
+        public void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(NULL_STRING);
+                return;
+            }
+            Integer id = strings.get(value);
+            if (id != null) {
+                writeVarInt(STRING_REFERENCE + id);
+                return;
+            }
+            strings.put(value, strings.size());
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(NEW_STRING);
+            writeVarInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        /**
+         * Write the presence marker of an optional value.
+         * @param value The optional value.
+         * @return True, if and only if the value is present.
+         * @throws IOException The writing failed.
+         */
+        private boolean writePresence(Object value) throws IOException {
+            writeVarInt(value == null ? 0 : 1);
+            return value != null;
+        }
+
+        /**
+         * Write the size of an optional collection.
+         * @param value The optional collection.
+         * @return True, if and only if the collection is present.
+         * @throws IOException The writing failed.
+         */
+        private boolean writeSize(Collection<?> value) throws IOException {
+            writeVarInt(value == null ? 0 : value.size() + 1);
+            return value != null;
+        }
+
+        /**
+         * Write a named and described value without presence marker.
+         * @param value The written value.
+         * @throws IOException The writing failed.
+         */
+        private void writeNamedAndDescribed(NamedAndDescribed value) throws IOException {
+            writeString(value.getName());
+            writeString(value.getDescription());
+        }
+
+        /**
+         * Write a clock type.
+         * @param type The written type.
+         * @throws IOException The writing failed.
+         */
+        public void writeClockType(ClockType type) throws IOException {
+            if (type == null) {
+                writeVarInt(0);
+                return;
+            }
+            String key = ClockTypeDictionary.getKey(type);
+            if (key != null) {
+                writeVarInt(NAMED_TYPE);
+                writeString(key);
+                return;
+            }
+            int reference = types.getWritten(type);
+            if (reference >= 0) {
+                writeVarInt((reference << 1) + TYPE_REFERENCE);
+                return;
+            }
+            types.addWritten(type);
+            writeVarInt(NEW_TYPE);
+            writeNamedAndDescribed(type);
+            Set<String> traits = type.getTraits();
+            writeVarInt(traits.size());
+            for (String trait: traits) {
+                writeString(trait);
+            }
+        }
+
+        /**
+         * Write a clock.
+         * @param clock The written clock.
+         * @throws IOException The writing failed.
+         */
+        public void writeClock(Clock clock) throws IOException {
+            if (!writePresence(clock)) return;
+            String name;
+            int current;
+            int max;
+            ClockType type;
+            boolean enabled;
+            synchronized (clock) {
+                name = clock.getName();
+                current = clock.getCurrent();
+                max = clock.getMaximum();
+                type = clock.getType();
+                enabled = clock.isEnabled();
+            }
+            writeVarInt(enabled ? CLOCK_ENABLED : 0);
+            writeString(name);
+            writeSignedVarInt(current);
+            writeSignedVarInt(max);
+            writeClockType(type);
+        }
+
+        /**
+         * Write a special ability.
+         * The coterie abilities are decoded as coterie abilities.
+         * @param ability The written ability.
+         * @throws IOException The writing failed.
+         */
+        public void writeSpecialAbility(SpecialAbility ability) throws IOException {
+            if (ability == null) {
+                writeVarInt(0);
+            } else {
+                writeVarInt(ability instanceof CoterieAbility ? COTERIE_ABILITY : SPECIAL_ABILITY);
+                writeNamedAndDescribed(ability);
+            }
+        }
+
+        /**
+         * Write a coterie upgrade.
+         * @param upgrade The written upgrade.
+         * @throws IOException The writing failed.
+         */
+        public void writeCoterieUpgrade(CoterieUpgrade upgrade) throws IOException {
+            if (writePresence(upgrade)) {
+                writeNamedAndDescribed(upgrade);
+                writeVarInt(upgrade.getCost());
+            }
+        }
+
+        /**
+         * Write coterie upgrades.
+         * @param upgrades The written upgrades.
+         * @throws IOException The writing failed.
+         */
+        private void writeCoterieUpgrades(Collection<? extends CoterieUpgrade> upgrades) throws IOException {
+            if (writeSize(upgrades)) {
+                for (CoterieUpgrade upgrade: upgrades) {
+                    writeCoterieUpgrade(upgrade);
+                }
+            }
+        }
+
+        /**
+         * Write special abilities.
+         * @param abilities The written abilities.
+         * @throws IOException The writing failed.
+         */
+        private void writeSpecialAbilities(Collection<? extends SpecialAbility> abilities) throws IOException {
+            if (writeSize(abilities)) {
+                for (SpecialAbility ability: abilities) {
+                    writeSpecialAbility(ability);
+                }
+            }
+        }
+
+        /**
+         * Write a house.
+         * @param house The written house.
+         * @throws IOException The writing failed.
+         */
+        public void writeHouse(HouseModel house) throws IOException {
+            if (!writePresence(house)) return;
+            writeString(house.getName());
+            Set<Resource> strengths = house.getStrengths();
+            if (strengths == null) {
+                writeVarInt(0);
+            } else {
+                int mask = 0;
+                for (Resource resource: strengths) {
+                    if (resource != null) mask |= 1 << resource.ordinal();
+                }
+                // The lowest bit marks the presence of the set.
+                writeVarInt((mask << 1) | 1);
+            }
+            writeVarInt(house.getHealer() == null ? 0 : house.getHealer().ordinal() + 1);
+            XpTrigger trigger = house.getUniqueXpTrigger();
+            if (writePresence(trigger)) {
+                writeNamedAndDescribed(trigger);
+            }
+            SpecialFeature feature = house.getSpecialFeature();
+            if (writePresence(feature)) {
+                writeNamedAndDescribed(feature);
+            }
+            writeSpecialAbilities(house.getSpecialAbilities());
+            writeCoterieUpgrades(house.getCoterieUpgrades());
+        }
+
+        /**
+         * Write a coterie type.
+         * @param type The written type.
+         * @throws IOException The writing failed.
+         */
+        public void writeCoterieType(CoterieType type) throws IOException {
+            if (writePresence(type)) {
+                writeString(type.getName());
+                writeCoterieUpgrades(type.getCoterieUpgrades());
+            }
+        }
+
+        /**
+         * Write a coterie.
+         * @param coterie The written coterie.
+         * @throws IOException The writing failed.
+         */
+        public void writeCoterie(Coterie coterie) throws IOException {
+            if (!writePresence(coterie)) return;
+            writeString(coterie.getName());
+            writeCoterieType(coterie.getType());
+            writeHouse(coterie.getHouse());
+            writeCoterieUpgrades(coterie.getUpgrades());
+            writeSpecialAbilities(coterie.getSpecialAbilities());
+        }
+    }
+
+    /**
+     * The decoder reading a document.
+     * The decoded catalog objects are the canonical instances of the
+     * {@link CatalogInterner}.
+     * The decoder is not thread-safe.
+     */
+    public static class Decoder {
+
+        /**
+         * The channel providing more data, or an undefined value, if the buffer
+         * contains the whole document.
+         */
+        private final ReadableByteChannel channel;
+
+        /**
+         * The buffer of the encoded data.
+         */
+        private ByteBuffer buffer;
+
+        /**
+         * The string table of the document.
+         */
+        private final List<String> strings = new ArrayList<>();
+
+        /**
+         * The clock type references of the document.
+         */
+        private final ClockTypeDictionary.DocumentTypes types = new ClockTypeDictionary.DocumentTypes();
+
+        /**
+         * The format version of the document.
+         */
+        private final int version;
+
+        /**
+         * Create a decoder reading a buffer.
+         * @param buffer The buffer containing the document.
+         * @throws IllegalArgumentException The buffer was undefined.
+         * @throws IOException The document header was invalid.
+         */
+        public Decoder(ByteBuffer buffer) throws IllegalArgumentException, IOException {
+            if (buffer == null) throw new IllegalArgumentException("Invalid buffer",
+            new NullPointerException("Buffer must be specified"));
+            this.channel = null;
+            this.buffer = buffer;
+            this.version = readHeader();
+        }
+
+        /**
+         * Create a decoder reading a channel.
+         * @param channel The channel providing the document.
+         * @param bufferSize The size of the buffer.
+         * @throws IllegalArgumentException The channel or the buffer size was invalid.
+         * @throws IOException The reading failed, or the document header was invalid.
+         */
+        public Decoder(ReadableByteChannel channel, int bufferSize) throws IllegalArgumentException, IOException {
+            if (channel == null) throw new IllegalArgumentException("Invalid channel",
+            new NullPointerException("Channel must be specified"));
+            if (bufferSize < 16) throw new IllegalArgumentException("Invalid buffer size",
+            new IllegalArgumentException("Buffer size must be at least 16 bytes"));
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(bufferSize);
+            this.buffer.flip();
+            this.version = readHeader();
+        }
+
+        /**
+         * Read the document header.
+         * @return The format version of the document.
+         * @throws IOException The header was invalid.
+         */
+        private int readHeader() throws IOException {
+            ensure(5);
+            if (buffer.getInt() != MAGIC) throw new StreamCorruptedException("Not a model document");
+            int result = buffer.get() & 0xFF;
+            if (result < 1 || result > FORMAT_VERSION) {
+                throw new StreamCorruptedException("Unsupported format version " + result);
+            }
+            return result;
+        }
+
+        /**
+         * Get the format version of the document.
+         * @return The format version.
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * Does the document have more data.
+         * @return True, if and only if the document has data not yet decoded.
+         * @throws IOException The reading failed.
+         */
+        public boolean hasRemaining() throws IOException {
+            return buffer.hasRemaining() || fill();
+        }
+
+        /**
+         * Read more data from the channel.
+         * @return True, if and only if data was read.
+         * @throws IOException The reading failed.
+         */
+        private boolean fill() throws IOException {
+            if (channel == null) return false;
+            buffer.compact();
+            try {
+                return channel.read(buffer) > 0;
+            } finally {
+                buffer.flip();
+            }
+        }
+
+        /**
+         * Ensure the buffer contains bytes.
+         * @param size The number of the bytes.
+         * @throws IOException The document ended, or the reading failed.
+         */
+        private void ensure(int size) throws IOException {
+            if (buffer.remaining() >= size) return;
+            if (channel == null) throw new EOFException("Unexpected end of document");
+            while (buffer.remaining() < size) {
+                if (buffer.remaining() == buffer.capacity()) {
+                    // The buffer grows only when it is full, so its size follows the data actually read.
+                    ByteBuffer grown = ByteBuffer.allocate((int)Math.min(size, 2L * buffer.capacity()));
+                    grown.put(buffer);
+                    grown.flip();
+                    buffer = grown;
+                }
+                buffer.compact();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read < 0) throw new EOFException("Unexpected end of document");
+            }
+        }
+
+        /**
+         * Read an unsigned variable length integer.
+         * @return The read value.
+         * @throws IOException The reading failed, or the value was invalid.
+         */
+        public int readVarInt() throws IOException {
+            int result = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                ensure(1);
+                byte value = buffer.get();
+                result |= (value & 0x7F) << shift;
+                if (value >= 0) return result;
+            }
+            throw new StreamCorruptedException("Invalid variable length integer");
+        }
+
+        /**
+         * Read a signed variable length integer.
+         * @return The read value.
+         * @throws IOException The reading failed, or the value was invalid.
+         */
+        public int readSignedVarInt() throws IOException {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Read a length or a count.
+         * @return The read length.
+         * @throws IOException The reading failed, or the length was invalid.
+         */
+        private int readLength() throws IOException {
+            return checkLength(readVarInt());
+        }
+
+        /**
+         * Check a length or a count before it is used as a size.
+         * A malformed variable length integer may decode to a negative or a huge value.
+         * Each counted value takes at least one byte, so neither a length nor a count
+         * may exceed the bytes left in the document.
+         * @param length The checked length.
+         * @return The given length.
+         * @throws StreamCorruptedException The length was negative, or it exceeded the
+         * document.
+         */
+        private int checkLength(int length) throws StreamCorruptedException {
+            int max = channel == null ? buffer.remaining() : MAX_DOCUMENT_SIZE;
+            if (length < 0 || length > max) throw new StreamCorruptedException("Invalid length " + length);
+            return length;
+        }
+
+        /**
+         * Read a string.
+         * @return The read string, or an undefined value.
+         * @throws IOException The reading failed, or the value was invalid.
+         */
+        public String readString() throws IOException {
+            int marker = readVarInt();
+            if (marker == NULL_STRING) return null;
+            if (marker == NEW_STRING) {
+                int length = readLength();
+                ensure(length);
+                String result;
+                if (buffer.hasArray()) {
+                    result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                        StandardCharsets.UTF_8);
+                    buffer.position(buffer.position() + length);
+                } else {
+                    byte[] bytes = new byte[length];
+                    buffer.get(bytes);
+                    result = new String(bytes, StandardCharsets.UTF_8);
+                }
+                strings.add(result);
+                return result;
+            }
+            int id = marker - STRING_REFERENCE;
+            if (id < 0 || id >= strings.size()) throw new StreamCorruptedException("Invalid string reference");
+            return strings.get(id);
+        }
+
+        /**
+         * Read the presence marker of an optional value.
+         * @return True, if and only if the value is present.
+         * @throws IOException The reading failed.
+         */
+        private boolean readPresence() throws IOException {
+            return readVarInt() != 0;
+        }
+
+        /**
+         * Read the size of an optional collection.
+         * @return The size of the collection, or -1, if the collection is undefined.
+         * @throws IOException The reading failed, or the size was invalid.
+         */
+        private int readSize() throws IOException {
+            int result = readVarInt();
+            return result == 0 ? -1 : checkLength(result - 1);
+        }
+
+        /**
+         * Read the content of a clock type.
+         * @return The canonical type with the content.
+         * @throws IOException The reading failed.
+         */
+        private ClockType readClockTypeContent() throws IOException {
+            String name = readString();
+            String description = readString();
+            int count = readLength();
+            List<String> traits = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                traits.add(readString());
+            }
+            return ClockTypeDictionary.canonical(name, description, traits);
+        }
+
+        /**
+         * Read a clock type.
+         * @return The read type, or an undefined value.
+         * @throws IOException The reading failed, or the type reference was invalid.
+         */
+        public ClockType readClockType() throws IOException {
+            int tag = readVarInt();
+            if (version == 1) {
+                return tag == 0 ? null : readClockTypeContent();
+            }
+            try {
+                if (tag == 0) {
+                    return null;
+                } else if (tag == NEW_TYPE) {
+                    ClockType result = readClockTypeContent();
+                    types.addRead(result);
+                    return result;
+                } else if (version >= 3 && tag == NAMED_TYPE) {
+                    return ClockTypeDictionary.get(readString());
+                } else if ((tag & 1) == 0) {
+                    if (version >= 3) throw new StreamCorruptedException("Invalid clock type tag " + tag);
+                    return ClockTypeDictionary.get((tag - TYPE_ID) >>> 1);
+                } else {
+                    return types.getRead((tag - TYPE_REFERENCE) >>> 1);
+                }
+            } catch (IllegalArgumentException e) {
+                throw new StreamCorruptedException("Invalid clock type: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Read a clock.
+         * @return The read clock, or an undefined value.
+         * @throws IOException The reading failed, or the clock was invalid.
+         */
+        public Clock readClock() throws IOException {
+            if (!readPresence()) return null;
+            int flags = readVarInt();
+            String name = readString();
+            int current = readSignedVarInt();
+            int max = readSignedVarInt();
+            ClockType type;
+            if (version == 1) {
+                type = (flags & CLOCK_TYPED) != 0 ? readClockTypeContent() : null;
+            } else {
+                type = readClockType();
+            }
+            if (type == null) type = ClockType.PROGRESS_CLOCK;
+            try {
+                return new Clock(name, current, max, type, (flags & CLOCK_ENABLED) != 0);
+            } catch (IllegalArgumentException e) {
+                throw new StreamCorruptedException("Invalid clock: " + e.getMessage());
+            }
+        }
+
+        /**
+         * Read a special ability.
+         * @return The read ability, or an undefined value.
+         * @throws IOException The reading failed, or the ability was invalid.
+         */
+        public SpecialAbility readSpecialAbility() throws IOException {
+            int kind = readVarInt();
+            if (kind == 0) return null;
+            String name = readString();
+            String description = readString();
+            switch (kind) {
+                case SPECIAL_ABILITY:
+                    return CatalogInterner.getDefault().intern(new SpecialAbility(name, description));
+                case COTERIE_ABILITY:
+                    return CatalogInterner.getDefault().intern(new CoterieAbility(name, description));
+                default:
+                    throw new StreamCorruptedException("Invalid special ability kind " + kind);
+            }
+        }
+
+        /**
+         * Read a coterie upgrade.
+         * @return The read upgrade, or an undefined value.
+         * @throws IOException The reading failed, or the upgrade was invalid.
+         */
+        public CoterieUpgrade readCoterieUpgrade() throws IOException {
+            if (!readPresence()) return null;
+            CoterieUpgrade result = new CoterieUpgrade(readString(), readString());
+            result.setCost(readVarInt());
+            return CatalogInterner.getDefault().intern(result);
+        }
+
+        /**
+         * Read coterie upgrades into a collection.
+         * @param result The collection receiving the upgrades.
+         * @param size The number of the upgrades.
+         * @return The given collection.
+         * @throws IOException The reading failed.
+         */
+        private <T extends Collection<CoterieUpgrade>> T readCoterieUpgrades(T result, int size) throws IOException {
+            for (int i = 0; i < size; i++) {
+                result.add(readCoterieUpgrade());
+            }
+            return result;
+        }
+
+        /**
+         * Read special abilities into a collection.
+         * @param result The collection receiving the abilities.
+         * @param size The number of the abilities.
+         * @return The given collection.
+         * @throws IOException The reading failed.
+         */
+        private <T extends Collection<SpecialAbility>> T readSpecialAbilities(T result, int size) throws IOException {
+            for (int i = 0; i < size; i++) {
+                result.add(readSpecialAbility());
+            }
+            return result;
+        }
+
+        /**
+         * Read a house.
+         * @return The read house, or an undefined value.
+         * @throws IOException The reading failed, or the house was invalid.
+         */
+        public HouseModel readHouse() throws IOException {
+            if (!readPresence()) return null;
+            HouseModel result = new HouseModel();
+            result.setName(readString());
+            int strengths = readVarInt();
+            if ((strengths & 1) != 0) {
+                Set<Resource> set = new HashSet<>();
+                for (Resource resource: RESOURCES) {
+                    if ((strengths >>> (resource.ordinal() + 1) & 1) != 0) set.add(resource);
+                }
+                result.setStrengths(set);
+            }
+            int healer = readVarInt();
+            if (healer < 0 || healer > HEALER_TYPES.length) throw new StreamCorruptedException("Invalid healer type");
+            result.setHealer(healer == 0 ? null : HEALER_TYPES[healer - 1]);
+            if (readPresence()) {
+                result.setUniqueXpTrigger(CatalogInterner.getDefault().intern(
+                    new XpTrigger(readString(), readString())));
+            }
+            if (readPresence()) {
+                result.setSpecialFeature(CatalogInterner.getDefault().intern(
+                    new SpecialFeature(readString(), readString())));
+            }
+            int size = readSize();
+            if (size >= 0) {
+                result.setSpecialAbilities(readSpecialAbilities(new HashSet<>(), size));
+            }
+            size = readSize();
+            if (size >= 0) {
+                result.setCoterieUpgrades(readCoterieUpgrades(new HashSet<>(), size));
+            }
+            return result;
+        }
+
+        /**
+         * Read a coterie type.
+         * @return The read type, or an undefined value.
+         * @throws IOException The reading failed, or the type was invalid.
+         */
+        public CoterieType readCoterieType() throws IOException {
+            if (!readPresence()) return null;
+            CoterieType result = new CoterieType();
+            result.setName(readString());
+            int size = readSize();
+            if (size >= 0) {
+                result.setCoterieUpgrades(readCoterieUpgrades(new HashSet<>(), size));
+            }
+            return result;
+        }
+
+        /**
+         * Read a coterie.
+         * @return The read coterie, or an undefined value.
+         * @throws IOException The reading failed, or the coterie was invalid.
+         */
+        public Coterie readCoterie() throws IOException {
+            if (!readPresence()) return null;
+            Coterie result = new Coterie(readString());
+            result.setType(readCoterieType());
+            result.setHouse(readHouse());
+            int size = readSize();
+            if (size >= 0) {
+                result.setUpgrades(readCoterieUpgrades(new ArrayList<>(), size));
+            }
+            size = readSize();
+            try {
+                for (int i = 0; i < size; i++) {
+                    result.addSpecialAbility(readSpecialAbility());
+                }
+            } catch (IllegalArgumentException e) {
+                throw new StreamCorruptedException("Invalid coterie ability: " + e.getMessage());
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,521 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * The newline delimited JSON archive of a campaign.
+ *
+ * Each line of the archive contains a single entity as an object with one field.
+ * The name of the field is the key of the {@link EntityKind} of the entity, and
+ * its value is the entity. The clocks are written with the {@link ClockJsonModule},
+ * and each line is a document of its own, so the custom clock types are repeated
+ * on each line using them. The empty lines are skipped.
+ *
+ * The writer and the reader keep only a bounded number of lines in memory. The
+ * parallel import parses and validates batches of lines in the threads of an
+ * executor, and passes the entities to the consumer in the calling thread.
+ */
+public class CampaignArchive {
+
+    /**
+     * The default number of lines in a batch of the parallel import.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    /**
+     * The kinds of the archived entities.
+     */
+    public enum EntityKind {
+        /**
+         * The clock.
+         */
+        CLOCK("clock", Clock.class),
+        /**
+         * The coterie.
+         */
+        COTERIE("coterie", Coterie.class),
+        /**
+         * The house.
+         */
+        HOUSE("house", HouseModel.class);
+
+        /**
+         * The key of the kind in the archive.
+         */
+        private final String key;
+
+        /**
+         * The type of the entities of the kind.
+         */
+        private final Class<?> type;
+
+        /**
+         * Create an entity kind.
+         * @param key The key of the kind in the archive.
+         * @param type The type of the entities.
+         */
+        EntityKind(String key, Class<?> type) {
+            this.key = key;
+            this.type = type;
+        }
+
+        /**
+         * Get the key of the kind.
+         * @return The key of the kind in the archive.
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Get the type of the entities.
+         * @return The type of the entities of the kind.
+         */
+        public Class<?> getType() {
+            return type;
+        }
+
+        /**
+         * Get the kind of a key.
+         * @param key The key of the kind.
+         * @return The kind with the key, or an undefined value, if no kind has the key.
+         */
+        public static EntityKind of(String key) {
+            for (EntityKind kind: values()) {
+                if (kind.key.equals(key)) return kind;
+            }
+            return null;
+        }
+
+        /**
+         * Get the kind of an entity.
+         * @param entity The entity.
+         * @return The kind of the entity, or an undefined value, if the entity is
+         * not archived.
+         */
+        public static EntityKind of(Object entity) {
+            for (EntityKind kind: values()) {
+                if (kind.type.isInstance(entity)) return kind;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The deserializer of the coteries.
+     * The coterie upgrades, the type, and the house are read with the deserializers
+     * of their types, and the abilities are read as coterie abilities. The upgrades
+     * and the abilities are the canonical instances of the {@link CatalogInterner}.
+     * The null values written for the undefined type, house, and upgrades are read
+     * as undefined values, and the null abilities are skipped.
+     */
+    public static class CoterieDeserializer extends StdDeserializer<Coterie> {
+
+        /**
+         * The serial version of the deserializer.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new coterie deserializer.
+         */
+        public CoterieDeserializer() {
+            super(Coterie.class);
+        }
+
+        @Override
+        public Coterie deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            Coterie result = new Coterie();
+            try {
+                for (JsonToken token = ClockJsonModule.startObject(parser, context); token == JsonToken.FIELD_NAME;
+                    token = parser.nextToken()) {
+                    String field = parser.getCurrentName();
+                    token = parser.nextToken();
+                    switch (field) {
+                        case "name":
+                            result.setName(parser.getValueAsString());
+                            break;
+                        case "type":
+                            result.setType(token == JsonToken.VALUE_NULL ? null
+                                : context.readValue(parser, CoterieType.class));
+                            break;
+                        case "house":
+                            result.setHouse(token == JsonToken.VALUE_NULL ? null
+                                : context.readValue(parser, HouseModel.class));
+                            break;
+                        case "upgrades":
+                            if (token == JsonToken.START_ARRAY) {
+                                List<CoterieUpgrade> upgrades = new ArrayList<>();
+                                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                                    upgrades.add(token == JsonToken.VALUE_NULL ? null
+                                        : CatalogInterner.getDefault().intern(
+                                            context.readValue(parser, CoterieUpgrade.class)));
+                                }
+                                result.setUpgrades(upgrades);
+                            } else if (token != JsonToken.VALUE_NULL) {
+                                throw context.mappingException("Expected an array of upgrades");
+                            }
+                            break;
+                        case "abilities":
+                            if (token == JsonToken.START_ARRAY) {
+                                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                                    if (token == JsonToken.VALUE_NULL) continue;
+                                    result.addSpecialAbility(context.readValue(parser, CoterieAbility.class));
+                                }
+                            } else if (token != JsonToken.VALUE_NULL) {
+                                throw context.mappingException("Expected an array of abilities");
+                            }
+                            break;
+                        default:
+                            parser.skipChildren();
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw context.mappingException(e.getMessage());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Create the object mapper of the archives.
+     * @return The object mapper reading and writing the archived entities.
+     */
+    public static ObjectMapper createMapper() {
+        SimpleModule module = new SimpleModule("CampaignArchive", Version.unknownVersion());
+        module.addDeserializer(Coterie.class, new CoterieDeserializer());
+        return new ObjectMapper().registerModule(new ClockJsonModule()).registerModule(module);
+    }
+
+    /**
+     * The writer of an archive.
+     */
+    public static class Writer implements Closeable, Flushable {
+
+        /**
+         * The object writer of the entities.
+         */
+        private final ObjectWriter writer;
+
+        /**
+         * The generator of the archive.
+         */
+        private final JsonGenerator generator;
+
+        /**
+         * The number of the written entities.
+         */
+        private long count = 0;
+
+        /**
+         * Create an archive writer with the default mapper.
+         * @param output The output stream receiving the archive.
+         * @throws IllegalArgumentException The output stream was undefined.
+         * @throws IOException The creation of the generator failed.
+         */
+        public Writer(OutputStream output) throws IllegalArgumentException, IOException {
+            this(output, createMapper());
+        }
+
+        /**
+         * Create an archive writer.
+         * @param output The output stream receiving the archive.
+         * @param mapper The mapper writing the entities.
+         * @throws IllegalArgumentException The output stream or the mapper was undefined.
+         * @throws IOException The creation of the generator failed.
+         */
+        public Writer(OutputStream output, ObjectMapper mapper) throws IllegalArgumentException, IOException {
+            if (output == null) throw new IllegalArgumentException("Invalid output",
+            new NullPointerException("Output must be specified"));
+            if (mapper == null) throw new IllegalArgumentException("Invalid mapper",
+            new NullPointerException("Mapper must be specified"));
+            this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            this.generator = mapper.getFactory().createGenerator(output);
+            this.generator.setRootValueSeparator(null);
+        }
+
+        /**
+         * Write an entity on its own line.
+         * @param entity The written entity.
+         * @throws IllegalArgumentException The entity was not an archived entity.
+         * @throws IOException The writing failed.
+         */
+        public synchronized void write(Object entity) throws IllegalArgumentException, IOException {
+            EntityKind kind = EntityKind.of(entity);
+            if (kind == null) throw new IllegalArgumentException("Invalid entity",
+            entity == null ? new NullPointerException("Entity must be specified")
+            : new IllegalArgumentException("Unsupported entity type " + entity.getClass().getName()));
+            generator.writeStartObject();
+            generator.writeFieldName(kind.getKey());
+            writer.writeValue(generator, entity);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+            count++;
+        }
+
+        /**
+         * Get the number of the written entities.
+         * @return The number of the entities written into the archive.
+         */
+        public synchronized long getCount() {
+            return count;
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            generator.close();
+        }
+    }
+
+    /**
+     * Parse a line of an archive.
+     * @param mapper The mapper reading the entities.
+     * @param line The line.
+     * @param number The line number.
+     * @return The entity of the line, or an undefined value, if the line was empty.
+     * @throws IOException The line was invalid.
+     */
+    static Object parseLine(ObjectMapper mapper, String line, long number) throws IOException {
+        if (line.trim().isEmpty()) return null;
+        try (JsonParser parser = mapper.getFactory().createParser(line)) {
+            return readEntity(mapper, parser);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IOException("Invalid entity at line " + number + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the entity of a line.
+     * @param mapper The mapper reading the entities.
+     * @param parser The parser of the line.
+     * @return The entity of the line.
+     * @throws IOException The line was invalid.
+     */
+    private static Object readEntity(ObjectMapper mapper, JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT || parser.nextToken() != JsonToken.FIELD_NAME) {
+            throw new IOException("Expected an object with an entity");
+        }
+        EntityKind kind = EntityKind.of(parser.getCurrentName());
+        if (kind == null) throw new IOException("Unknown entity kind " + parser.getCurrentName());
+        parser.nextToken();
+        Object result = mapper.readValue(parser, kind.getType());
+        if (parser.nextToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+            throw new IOException("Expected a single entity");
+        }
+        return result;
+    }
+
+    /**
+     * Create a reader of an archive.
+     * @param input The input stream of the archive.
+     * @return The reader of the lines of the archive.
+     * @throws IllegalArgumentException The input stream was undefined.
+     */
+    private static BufferedReader createReader(InputStream input) throws IllegalArgumentException {
+        if (input == null) throw new IllegalArgumentException("Invalid input",
+        new NullPointerException("Input must be specified"));
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Import the entities of an archive in the calling thread.
+     * @param input The input stream of the archive.
+     * @param mapper The mapper reading the entities.
+     * @param consumer The consumer of the entities in the archive order.
+     * @return The number of the imported entities.
+     * @throws IllegalArgumentException Any argument was undefined.
+     * @throws IOException The reading failed, or a line was invalid.
+     */
+    public static long importEntities(InputStream input, ObjectMapper mapper, Consumer<Object> consumer)
+    throws IllegalArgumentException, IOException {
+        if (mapper == null) throw new IllegalArgumentException("Invalid mapper",
+        new NullPointerException("Mapper must be specified"));
+        if (consumer == null) throw new IllegalArgumentException("Invalid consumer",
+        new NullPointerException("Consumer must be specified"));
+        BufferedReader reader = createReader(input);
+        long result = 0;
+        long number = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            Object entity = parseLine(mapper, line, ++number);
+            if (entity != null) {
+                consumer.accept(entity);
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Import the entities of an archive in the archive order, and parse the lines
+     * in parallel batches of the default size.
+     * @param input The input stream of the archive.
+     * @param mapper The mapper reading the entities.
+     * @param consumer The consumer of the entities. The consumer is called in the
+     * calling thread.
+     * @param pool The executor parsing the batches of lines.
+     * @return The number of the imported entities.
+     * @throws IllegalArgumentException Any argument was undefined.
+     * @throws IOException The reading failed, or a line was invalid.
+     */
+    public static long importEntities(InputStream input, ObjectMapper mapper, Consumer<Object> consumer,
+        ExecutorService pool) throws IllegalArgumentException, IOException {
+        return importEntities(input, mapper, consumer, pool, DEFAULT_BATCH_SIZE, true);
+    }
+
+    /**
+     * Import the entities of an archive, and parse the lines in parallel.
+     * At most two batches per available processor are parsed or waiting for the
+     * consumer at any time.
+     * @param input The input stream of the archive.
+     * @param mapper The mapper reading the entities.
+     * @param consumer The consumer of the entities. The consumer is called in the
+     * calling thread.
+     * @param pool The executor parsing the batches of lines.
+     * @param batchSize The number of lines in a batch.
+     * @param ordered Does the consumer receive the entities in the archive order.
+     * An unordered import passes the batches in the order they complete, while
+     * the entities of a batch remain in the archive order.
+     * @return The number of the imported entities.
+     * @throws IllegalArgumentException Any argument was invalid.
+     * @throws IOException The reading failed, or a line was invalid.
+     */
+    public static long importEntities(InputStream input, ObjectMapper mapper, Consumer<Object> consumer,
+        ExecutorService pool, int batchSize, boolean ordered) throws IllegalArgumentException, IOException {
+        if (mapper == null) throw new IllegalArgumentException("Invalid mapper",
+        new NullPointerException("Mapper must be specified"));
+        if (consumer == null) throw new IllegalArgumentException("Invalid consumer",
+        new NullPointerException("Consumer must be specified"));
+        if (pool == null) throw new IllegalArgumentException("Invalid pool",
+        new NullPointerException("Pool must be specified"));
+        if (batchSize < 1) throw new IllegalArgumentException("Invalid batch size",
+        new IllegalArgumentException("Batch size must be positive"));
+        BufferedReader reader = createReader(input);
+        int maxPending = 2 * Runtime.getRuntime().availableProcessors();
+        Deque<Future<List<Object>>> pending = new ArrayDeque<>(maxPending);
+        long result = 0;
+        long number = 0;
+        try {
+            List<String> batch = new ArrayList<>(batchSize);
+            long first = 1;
+            for (String line = reader.readLine(); ; line = reader.readLine()) {
+                if (line != null) {
+                    batch.add(line);
+                    number++;
+                }
+                if (batch.size() == batchSize || (line == null && !batch.isEmpty())) {
+                    pending.addLast(pool.submit(parseBatch(mapper, batch, first)));
+                    batch = new ArrayList<>(batchSize);
+                    first = number + 1;
+                }
+                while (pending.size() >= maxPending || (line == null && !pending.isEmpty())) {
+                    result += deliver(takeCompleted(pending, ordered), consumer);
+                }
+                if (line == null) break;
+            }
+        } finally {
+            for (Future<?> future: pending) {
+                future.cancel(true);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create the task parsing a batch of lines.
+     * @param mapper The mapper reading the entities.
+     * @param lines The lines of the batch.
+     * @param first The line number of the first line.
+     * @return The task returning the entities of the batch.
+     */
+    private static Callable<List<Object>> parseBatch(ObjectMapper mapper, List<String> lines, long first) {
+        return () -> {
+            List<Object> result = new ArrayList<>(lines.size());
+            long number = first;
+            for (String line: lines) {
+                Object entity = parseLine(mapper, line, number++);
+                if (entity != null) result.add(entity);
+            }
+            return result;
+        };
+    }
+
+    /**
+     * Remove a completed batch from the pending batches, and wait for it.
+     * @param pending The pending batches.
+     * @param ordered Is the oldest batch taken.
+     * @return The entities of the taken batch.
+     * @throws IOException The parsing of the batch failed, or the waiting was interrupted.
+     */
+    private static List<Object> takeCompleted(Deque<Future<List<Object>>> pending, boolean ordered)
+    throws IOException {
+        Future<List<Object>> taken = null;
+        if (!ordered) {
+            for (Future<List<Object>> future: pending) {
+                if (future.isDone()) {
+                    taken = future;
+                    break;
+                }
+            }
+        }
+        if (taken == null) {
+            taken = pending.peekFirst();
+        }
+        pending.remove(taken);
+        try {
+            return taken.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException)cause;
+            throw new IOException("Invalid archive", cause);
+        }
+    }
+
+    /**
+     * Pass the entities of a batch to the consumer.
+     * @param entities The entities.
+     * @param consumer The consumer.
+     * @return The number of the entities.
+     */
+    private static int deliver(List<Object> entities, Consumer<Object> consumer) {
+        for (Object entity: entities) {
+            consumer.accept(entity);
+        }
+        return entities.size();
+    }
+}
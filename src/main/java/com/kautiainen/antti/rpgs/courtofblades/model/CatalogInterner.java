@@ -0,0 +1,254 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The canonicalizing registry of the catalog objects.
+ *
+ * The interner replaces a named and described catalog object with the canonical
+ * instance of the same class, name, description, and cost of a coterie upgrade, so
+ * the coteries and the houses share the same special abilities, coterie upgrades,
+ * experience triggers, and special features. The registry refers to the canonical
+ * instances weakly, and an instance no longer used elsewhere is removed from the
+ * registry by the garbage collector. The canonical instance is a frozen copy of the
+ * first interned object, so the shared instances reject the modifications with an
+ * {@link UnsupportedOperationException}, and their keys in the registry stay valid,
+ * while the interned object itself stays modifiable for its caller. The mutable
+ * objects held by a single owner are not interned.
+ *
+ * The interner counts the replaced duplicates, and estimates the heap the shared
+ * instances save from the shallow sizes of the duplicates and their strings.
+ */
+public final class CatalogInterner {
+
+    /**
+     * The estimated size of a catalog object.
+     */
+    private static final int OBJECT_SIZE = 24;
+
+    /**
+     * The estimated size of a string without its characters.
+     */
+    private static final int STRING_SIZE = 40;
+
+    /**
+     * The default interner.
+     */
+    private static final CatalogInterner DEFAULT = new CatalogInterner();
+
+    /**
+     * The identity of a catalog object.
+     */
+    private static final class Key {
+
+        /**
+         * The class of the object.
+         */
+        private final Class<?> type;
+
+        /**
+         * The name of the object.
+         */
+        private final String name;
+
+        /**
+         * The description of the object.
+         */
+        private final String description;
+
+        /**
+         * The cost of a coterie upgrade, or zero.
+         */
+        private final int cost;
+
+        /**
+         * The hash code of the key.
+         */
+        private final int hash;
+
+        /**
+         * Create the key of an object.
+         * @param value The object.
+         */
+        Key(NamedAndDescribed value) {
+            this.type = value.getClass();
+            this.name = value.getName();
+            this.description = value.getDescription();
+            this.cost = value instanceof CoterieUpgrade upgrade ? upgrade.getCost() : 0;
+            this.hash = Objects.hash(type, name, description, cost);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Key)) return false;
+            Key key = (Key)other;
+            return type == key.type && cost == key.cost && Objects.equals(name, key.name)
+                && Objects.equals(description, key.description);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The weak reference to a canonical instance.
+     */
+    private static final class Entry extends WeakReference<NamedAndDescribed> {
+
+        /**
+         * The key of the instance.
+         */
+        private final Key key;
+
+        /**
+         * Create an entry.
+         * @param key The key of the instance.
+         * @param value The canonical instance.
+         * @param queue The queue of the collected instances.
+         */
+        Entry(Key key, NamedAndDescribed value, ReferenceQueue<NamedAndDescribed> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+    }
+
+    /**
+     * The canonical instances by key.
+     */
+    private final Map<Key, Entry> entries = new HashMap<>();
+
+    /**
+     * The queue of the collected canonical instances.
+     */
+    private final ReferenceQueue<NamedAndDescribed> queue = new ReferenceQueue<>();
+
+    /**
+     * The number of the replaced duplicates.
+     */
+    private long duplicates = 0;
+
+    /**
+     * The estimated number of bytes the replaced duplicates took.
+     */
+    private long savedBytes = 0;
+
+    /**
+     * Get the default interner.
+     * @return The interner shared by the model.
+     */
+    public static CatalogInterner getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Remove the entries of the collected instances.
+     * The caller must hold the monitor of the interner.
+     */
+    private void expunge() {
+        for (Object reference = queue.poll(); reference != null; reference = queue.poll()) {
+            Entry entry = (Entry)reference;
+            if (entries.get(entry.key) == entry) {
+                entries.remove(entry.key);
+            }
+        }
+    }
+
+    /**
+     * Get the canonical instance of a catalog object.
+     * @param <T> The type of the object.
+     * @param value The object.
+     * @return The canonical instance equal to the object. If there is none, a frozen
+     * copy of the object becomes the canonical instance, unless the object is already
+     * frozen. An undefined object gives an undefined value.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T extends NamedAndDescribed> T intern(T value) {
+        if (value == null) return null;
+        expunge();
+        Key key = new Key(value);
+        Entry entry = entries.get(key);
+        NamedAndDescribed canonical = entry == null ? null : entry.get();
+        if (canonical == null) {
+            canonical = value.isFrozen() ? value : value.frozenCopy();
+            entries.put(key, new Entry(key, canonical, queue));
+            return (T)canonical;
+        }
+        if (canonical != value) {
+            duplicates++;
+            savedBytes += estimateSize(value, canonical);
+        }
+        return (T)canonical;
+    }
+
+    /**
+     * Add the canonical instances of catalog objects into a collection.
+     * @param <T> The type of the objects.
+     * @param <C> The type of the collection.
+     * @param values The objects, or an undefined value.
+     * @param target The collection receiving the canonical instances.
+     * @return The given collection.
+     * @throws IllegalArgumentException The target collection was undefined.
+     */
+    public <T extends NamedAndDescribed, C extends Collection<? super T>> C internAll(
+        Collection<? extends T> values, C target) throws IllegalArgumentException {
+        if (target == null) throw new IllegalArgumentException("Invalid target",
+        new NullPointerException("Target must be specified"));
+        if (values != null) {
+            for (T value: values) {
+                target.add(intern(value));
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Estimate the size of a duplicate.
+     * @param duplicate The duplicate.
+     * @param canonical The canonical instance.
+     * @return The estimated size of the duplicate and of its strings not shared
+     * with the canonical instance.
+     */
+    private static long estimateSize(NamedAndDescribed duplicate, NamedAndDescribed canonical) {
+        long result = OBJECT_SIZE;
+        if (duplicate.getName() != null && duplicate.getName() != canonical.getName()) {
+            result += STRING_SIZE + duplicate.getName().length();
+        }
+        if (duplicate.getDescription() != null && duplicate.getDescription() != canonical.getDescription()) {
+            result += STRING_SIZE + duplicate.getDescription().length();
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of the canonical instances.
+     * @return The number of the canonical instances not yet collected.
+     */
+    public synchronized int size() {
+        expunge();
+        return entries.size();
+    }
+
+    /**
+     * Get the number of the replaced duplicates.
+     * @return The number of the objects replaced with a canonical instance.
+     */
+    public synchronized long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Get the estimated heap the interning has saved.
+     * @return The estimated number of bytes the replaced duplicates took.
+     */
+    public synchronized long getSavedBytes() {
+        return savedBytes;
+    }
+}
@@ -6,6 +6,7 @@ import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class Clock extends Named {
@@ -52,6 +53,51 @@ public class Clock extends Named {
          */
         public static final String DEPLETES_EMPTY = "complete-empty";
 
+        /**
+         * The trait bit of {@link #TUG_OF_WAR}.
+         */
+        public static final long TUG_OF_WAR_BIT = ClockTraitRegistry.getBit(TUG_OF_WAR);
+
+        /**
+         * The trait bit of {@link #REGRESS}.
+         */
+        public static final long REGRESS_BIT = ClockTraitRegistry.getBit(REGRESS);
+
+        /**
+         * The trait bit of {@link #LINKED}.
+         */
+        public static final long LINKED_BIT = ClockTraitRegistry.getBit(LINKED);
+
+        /**
+         * The trait bit of {@link #CHAINED}.
+         */
+        public static final long CHAINED_BIT = ClockTraitRegistry.getBit(CHAINED);
+
+        /**
+         * The trait bit of {@link #PROGRESS}.
+         */
+        public static final long PROGRESS_BIT = ClockTraitRegistry.getBit(PROGRESS);
+
+        /**
+         * The trait bit of {@link #COMPLETES_FULL}.
+         */
+        public static final long COMPLETES_FULL_BIT = ClockTraitRegistry.getBit(COMPLETES_FULL);
+
+        /**
+         * The trait bit of {@link #DEPLETES_EMPTY}.
+         */
+        public static final long DEPLETES_EMPTY_BIT = ClockTraitRegistry.getBit(DEPLETES_EMPTY);
+
+        /**
+         * The trait mask of the traits causing the clock complete at maximum.
+         */
+        public static final long COMPLETING_TRAITS = TUG_OF_WAR_BIT | COMPLETES_FULL_BIT;
+
+        /**
+         * The trait mask of the traits causing the clock deplete at minimum.
+         */
+        public static final long DEPLETING_TRAITS = TUG_OF_WAR_BIT | DEPLETES_EMPTY_BIT;
+
         /**
          * A romance clock is a racing clock representing building of a romance. On completion the character gains par-amour.
          */
@@ -98,6 +144,16 @@ public class Clock extends Named {
 
         private java.util.Set<String> traits = new java.util.HashSet<>();
 
+        /**
+         * The trait mask of the traits with a trait bit.
+         */
+        private long traitMask = 0L;
+
+        /**
+         * Does the trait mask contain all traits of the type.
+         */
+        private boolean masked = true;
+
         public ClockType() {
             super();
         }
@@ -127,22 +183,67 @@ public class Clock extends Named {
          * @param description The description of the clock.
          * @param traits The tarits of the clock.
          */
-        @JsonCreator
-        public ClockType(
-            @JsonProperty("name") String name, 
-            @JsonProperty("description") String description, 
-            @JsonProperty("traits") java.util.Collection<String> traits) 
+        public ClockType(String name, String description, java.util.Collection<String> traits) 
+            throws IllegalArgumentException {
+            this(name, description, traits, true);
+        }
+
+        /**
+         * Create a clock with given traits.
+         * @param name The name of the clock.
+         * @param description The description of the clock.
+         * @param traits The tarits of the clock.
+         * @param register Are the traits without a bit registered to the
+         * {@link ClockTraitRegistry}.
+         */
+        ClockType(String name, String description, java.util.Collection<String> traits, boolean register) 
             throws IllegalArgumentException {
             super(name, description);
             if (traits != null) {
                 this.traits.addAll(traits);
+                this.traitMask = register ? ClockTraitRegistry.getMask(this.traits)
+                    : ClockTraitRegistry.getKnownMask(this.traits);
+                this.masked = Long.bitCount(this.traitMask) == this.traits.size();
             }
         }
 
+        /**
+         * Create a clock type read from a document.
+         * The traits of the type are not registered to the {@link ClockTraitRegistry},
+         * so the documents cannot take the trait bits.
+         * @param name The name of the clock.
+         * @param description The description of the clock.
+         * @param traits The tarits of the clock.
+         * @return The created clock type.
+         * @throws IllegalArgumentException The name or the description was invalid.
+         */
+        @JsonCreator
+        static ClockType decode(
+            @JsonProperty("name") String name, 
+            @JsonProperty("description") String description, 
+            @JsonProperty("traits") java.util.Collection<String> traits) 
+            throws IllegalArgumentException {
+            return new ClockType(name, description, traits, false);
+        }
+
 
+        /**
+         * Get the traits of the type.
+         * @return The unmodifiable set of the traits of the type.
+         */
         @JsonGetter("traits")
         public java.util.Set<String> getTraits() {
-            return traits;
+            return java.util.Collections.unmodifiableSet(traits);
+        }
+
+        /**
+         * Get the trait mask of the type.
+         * @return The trait mask containing the trait bits of the traits
+         * of the type.
+         */
+        @JsonIgnore
+        public long getTraitMask() {
+            return traitMask;
         }
 
         /**
@@ -151,7 +252,31 @@ public class Clock extends Named {
          * @return True, if and only if the type contains the given traits.
          */
         public boolean hasTrait(String trait) {
-            return trait != null && getTraits().contains(trait);
+            long bit = ClockTraitRegistry.getBit(trait);
+            if ((traitMask & bit) != 0L) {
+                return true;
+            } else {
+                // The trait registered after the creation of the type has no bit in the mask.
+                return trait != null && !masked && traits.contains(trait);
+            }
+        }
+
+        /**
+         * Does the type have all traits of a trait mask.
+         * @param mask The trait mask of the tested traits.
+         * @return True, if and only if the type has all traits of the mask.
+         */
+        public boolean hasTraits(long mask) {
+            return (traitMask & mask) == mask;
+        }
+
+        /**
+         * Does the type have at least one trait of a trait mask.
+         * @param mask The trait mask of the tested traits.
+         * @return True, if and only if the type has any trait of the mask.
+         */
+        public boolean hasAnyTrait(long mask) {
+            return (traitMask & mask) != 0L;
         }
 
         /**
@@ -219,8 +344,21 @@ public class Clock extends Named {
      */
     private boolean isEnabled = true;
 
+    /**
+     * The event bus the clock publishes its changes into.
+     */
+    private volatile ClockEventBus eventBus;
 
 
+    /**
+     * Create a clock whose state is maintained by a subclass.
+     * The constructor does not set the type, the position, nor the
+     * enabled status of the clock.
+     */
+    protected Clock() {
+        super();
+    }
+
     /**
      * Create a progress clock with a name, a current position,
      * and a full position.
@@ -321,7 +459,9 @@ public class Clock extends Named {
      * @param current The new current proress of the clock.
      */
     public synchronized void setCurrent(int current) {
+        int previous = this.current;
         this.current = current;
+        publishChange(previous, current, getMaximum(), getEventBus());
     }
 
     /**
@@ -377,36 +517,97 @@ public class Clock extends Named {
 
     /**
      * Advance the clock. 
+     * The events of the advancement are published into the event bus of the clock.
+     * @param amount The advancement amount. If value
+     * is negative, the clock regresses.
+     * @return The amount of advancement not used.
+     */
+    public int advance(int amount) {
+        return advance(amount, getEventBus());
+    }
+
+    /**
+     * Advance the clock, and push the events of the advancement into a sink.
      * @param amount The advancement amount. If value
      * is negative, the clock regresses.
+     * @param sink The sink receiving the events of the advancement. An undefined
+     * sink ignores the events.
      * @return The amount of advancement not used.
      */
-    public synchronized int advance(int amount) {
-        if (!advanceBeyondMaximum() && amount >= 0) {
-            // The amouny 
-            if (this.current < getMaximum()) {
-                int unused = Math.max(0, this.current + amount - getMaximum());
-                this.current = this.current + amount - unused;
-                return unused;
+    public synchronized int advance(int amount, ClockEventSink sink) {
+        long result = computeAdvance(this.current, amount, getMinimum(), getMaximum(), 
+            advanceBeyondMaximum(), regressBeyondMinimum());
+        int previous = this.current;
+        this.current = advancedCurrent(result);
+        publishChange(previous, this.current, getMaximum(), sink);
+        return unusedAmount(result);
+    }
+
+    /**
+     * Compute the result of advancing a clock.
+     * The computation is shared by all clock implementations to keep the
+     * advancement semantics identical regardless of the clock state storage.
+     * @param current The current position of the clock.
+     * @param amount The advancement amount. If value is negative, the clock regresses.
+     * @param minimum The minimum of the clock.
+     * @param maximum The maximum of the clock.
+     * @param beyondMaximum Does the clock advance beyond maximum.
+     * @param beyondMinimum Does the clock regress beyond minimum.
+     * @return The packed result containing the new current position, and the unused
+     * amount. The components are acquired with {@link #advancedCurrent(long)} and
+     * {@link #unusedAmount(long)}.
+     */
+    static long computeAdvance(int current, int amount, int minimum, int maximum, 
+        boolean beyondMaximum, boolean beyondMinimum) {
+        if (!beyondMaximum && amount >= 0) {
+            // The amount is capped by the maximum.
+            if (current < maximum) {
+                int unused = Math.max(0, current + amount - maximum);
+                return packAdvance(current + amount - unused, unused);
             }
-        } else if (!regressBeyondMinimum() && amount < 0) {
+        } else if (!beyondMinimum && amount < 0) {
             // Determine the unused amount.
-            if (this.current > getMinimum()) {
-                int unused = this.current +amount;
-                if  (unused < getMinimum()) {
-                    this.current = getMinimum();
-                    return unused;
+            if (current > minimum) {
+                int unused = current + amount;
+                if (unused < minimum) {
+                    return packAdvance(minimum, unused);
                 } else {
-                    this.current = unused;
-                    return 0;
+                    return packAdvance(unused, 0);
                 }
             }
         } else {
             // Just adding the amount to the current..
-            this.current += amount;
-            return 0;
+            return packAdvance(current + amount, 0);
         }
-        return amount;
+        return packAdvance(current, amount);
+    }
+
+    /**
+     * Pack the advancement result.
+     * @param current The new current position.
+     * @param unused The unused amount.
+     * @return The packed advancement result.
+     */
+    private static long packAdvance(int current, int unused) {
+        return ((long)current << 32) | (unused & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the new current position of an advancement result.
+     * @param result The result of {@link #computeAdvance(int, int, int, int, boolean, boolean)}.
+     * @return The current position after the advancement.
+     */
+    static int advancedCurrent(long result) {
+        return (int)(result >> 32);
+    }
+
+    /**
+     * Get the unused amount of an advancement result.
+     * @param result The result of {@link #computeAdvance(int, int, int, int, boolean, boolean)}.
+     * @return The amount of advancement not used.
+     */
+    static int unusedAmount(long result) {
+        return (int)result;
     }
 
     /**
@@ -414,7 +615,7 @@ public class Clock extends Named {
      * @return True, if and only if the clock is completed.
      */
     public synchronized boolean isCompleted() {
-        return getType().hasAnyTrait(ClockType.TUG_OF_WAR, ClockType.COMPLETES_FULL) && getCurrent() >= getMaximum();
+        return getType().hasAnyTrait(ClockType.COMPLETING_TRAITS) && getCurrent() >= getMaximum();
     }
 
     /**
@@ -422,7 +623,7 @@ public class Clock extends Named {
      * @return True, if and only if the clock is depleted.
      */
     public synchronized boolean isDepleted() {
-        return getType().hasAnyTrait(ClockType.TUG_OF_WAR, ClockType.DEPLETES_EMPTY) && getCurrent() <= getMinimum();
+        return getType().hasAnyTrait(ClockType.DEPLETING_TRAITS) && getCurrent() <= getMinimum();
     }
 
     /**
@@ -447,6 +648,83 @@ public class Clock extends Named {
     }
 
 
+    /**
+     * Get the event bus the clock publishes its changes into.
+     * @return The event bus of the clock, or an undefined value, if the
+     * clock does not publish its changes.
+     */
+    @JsonIgnore
+    public ClockEventBus getEventBus() {
+        return this.eventBus;
+    }
+
+    /**
+     * Set the event bus the clock publishes its changes into.
+     * The clock publishes its events while holding its monitor, so a subscriber
+     * of the bus must not change the clock while handling an event.
+     * @param eventBus The new event bus. An undefined value stops the
+     * publishing of the changes.
+     */
+    public void setEventBus(ClockEventBus eventBus) {
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * Publish the events of a change of the current position into a sink.
+     * @param previous The current position before the change.
+     * @param current The current position after the change.
+     * @param maximum The maximum of the clock at the time of the change.
+     * @param sink The sink receiving the events. An undefined sink ignores
+     * the events.
+     */
+    protected void publishChange(int previous, int current, int maximum, ClockEventSink sink) {
+        if (sink != null) {
+            emitChange(sink, this, previous, current, getMinimum(), maximum, getType().getTraitMask());
+        }
+    }
+
+    /**
+     * Push the events of a change of the current position of a clock into a sink.
+     * The advancement or regression event is pushed first, and it is followed by
+     * the completion or depletion event, if the change completed or depleted the clock.
+     * @param sink The sink receiving the events.
+     * @param target The changed clock.
+     * @param previous The current position before the change.
+     * @param current The current position after the change.
+     * @param minimum The minimum of the clock.
+     * @param maximum The maximum of the clock.
+     * @param traits The trait mask of the clock type.
+     */
+    static void emitChange(ClockEventSink sink, Clock target, int previous, int current,
+        int minimum, int maximum, long traits) {
+        if (previous == current) return;
+        if (current > previous) {
+            sink.onClockEvent(ClockEventKind.ADVANCED, target, current - previous);
+        } else {
+            sink.onClockEvent(ClockEventKind.REGRESSED, target, current - previous);
+        }
+        if ((traits & ClockType.COMPLETING_TRAITS) != 0L && previous < maximum && current >= maximum) {
+            sink.completed(target, current - maximum);
+        } else if ((traits & ClockType.DEPLETING_TRAITS) != 0L && previous > minimum && current <= minimum) {
+            sink.depleted(target, current - minimum);
+        }
+    }
+
+    /**
+     * Push the clock events the current clock state causes into a sink.
+     * @param sink The sink receiving the events.
+     * @throws IllegalArgumentException The sink was undefined.
+     */
+    public synchronized void emitClockEvents(ClockEventSink sink) throws IllegalArgumentException {
+        if (sink == null) throw new IllegalArgumentException("Invalid sink",
+        new NullPointerException("Sink must be specified"));
+        if (isCompleted()) {
+            sink.completed(this, getCurrent() - getMaximum());
+        } else if (isDepleted()) {
+            sink.depleted(this, getCurrent() - getMinimum());
+        }
+    }
+
     /**
      * Generate the clock events the current clock state causes.
      * @return The list of clock events the current clock causes.
@@ -459,7 +737,7 @@ public class Clock extends Named {
             return Collections.singletonList(ClockEvent.completedClock(this,getName(), getCurrent() - getMaximum()));
         } else if (isDepleted()) {
             // Creating the clock depleted events.
-            return Collections.singletonList(ClockEvent.depletedClock(this,getName(), getCurrent() + getMinimum()));
+            return Collections.singletonList(ClockEvent.depletedClock(this,getName(), getCurrent() - getMinimum()));
         } else {
             // There si no events to report.
             return Collections.emptyList();
@@ -0,0 +1,177 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A batch of clock advancements.
+ *
+ * The batch collects advancements of clocks, and applies all of them in one pass.
+ * The advancements of the same clock are applied in the order they were added
+ * while holding the monitor of the clock once, and the consecutive advancements
+ * with the same direction are coalesced into a single advancement. The events of
+ * each coalesced advancement are collected as the advancement happens, so only the
+ * changes of the clocks cause events, and advancing an already completed clock does
+ * not repeat its completion. The events are also published into the event bus of
+ * the advanced clock.
+ */
+public class ClockBatch {
+
+    /**
+     * The initial capacity of the batch.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The advanced clocks in the order of addition.
+     */
+    private Clock[] clocks;
+
+    /**
+     * The advancement amounts in the order of addition.
+     */
+    private int[] amounts;
+
+    /**
+     * The number of advancements in the batch.
+     */
+    private int size = 0;
+
+    /**
+     * Create an empty batch.
+     */
+    public ClockBatch() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty batch with an initial capacity.
+     * @param capacity The initial number of advancements the batch holds without
+     * growing.
+     * @throws IllegalArgumentException The capacity was negative.
+     */
+    public ClockBatch(int capacity) throws IllegalArgumentException {
+        if (capacity < 0) throw new IllegalArgumentException("Invalid capacity",
+        new IllegalArgumentException("Negative capacity"));
+        this.clocks = new Clock[Math.max(1, capacity)];
+        this.amounts = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Add an advancement to the batch.
+     * @param clock The advanced clock.
+     * @param amount The advancement amount. If value is negative, the clock regresses.
+     * @return This batch.
+     * @throws IllegalArgumentException The clock was undefined.
+     */
+    public ClockBatch add(Clock clock, int amount) throws IllegalArgumentException {
+        if (clock == null) throw new IllegalArgumentException("Invalid clock",
+        new NullPointerException("Clock must be specified"));
+        if (size == clocks.length) {
+            int capacity = clocks.length * 2;
+            clocks = Arrays.copyOf(clocks, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+        }
+        clocks[size] = clock;
+        amounts[size] = amount;
+        size++;
+        return this;
+    }
+
+    /**
+     * Get the number of advancements in the batch.
+     * @return The number of advancements added since the last clear.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Is the batch empty.
+     * @return True, if and only if the batch has no advancements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all advancements from the batch.
+     */
+    public void clear() {
+        Arrays.fill(clocks, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Apply all advancements of the batch.
+     * The batch is cleared after the application.
+     * @return The combined list of the clock events of the advancements. The events
+     * of a clock are in the order of its advancements, and the clocks are in the
+     * order they were first added to the batch.
+     */
+    public List<ClockEvent> apply() {
+        if (size == 0) return Collections.emptyList();
+
+        // Chain the advancements of each clock in the order of addition.
+        Map<Clock, Integer> first = new IdentityHashMap<>();
+        int[] last = new int[size];
+        int[] next = new int[size];
+        int[] order = new int[size];
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            next[i] = -1;
+            Integer head = first.putIfAbsent(clocks[i], distinct);
+            if (head == null) {
+                order[distinct] = i;
+                last[distinct] = i;
+                distinct++;
+            } else {
+                next[last[head]] = i;
+                last[head] = i;
+            }
+        }
+
+        List<ClockEvent> result = new ArrayList<>();
+        ClockEventSink collector = ClockEventSink.collectInto(result);
+        for (int c = 0; c < distinct; c++) {
+            Clock clock = clocks[order[c]];
+            ClockEventBus bus = clock.getEventBus();
+            ClockEventSink sink = bus == null ? collector
+                : (ClockEventKind kind, Clock target, int excess) -> {
+                    collector.onClockEvent(kind, target, excess);
+                    bus.onClockEvent(kind, target, excess);
+                };
+            synchronized (clock) {
+                int index = order[c];
+                while (index >= 0) {
+                    // Coalesce the run of advancements with same direction.
+                    int amount = amounts[index];
+                    index = next[index];
+                    while (index >= 0 && (amounts[index] < 0) == (amount < 0)
+                        && !overflows(amount, amounts[index])) {
+                        amount += amounts[index];
+                        index = next[index];
+                    }
+                    clock.advance(amount, sink);
+                }
+            }
+        }
+        clear();
+        return result;
+    }
+
+    /**
+     * Does the sum of the amounts overflow.
+     * @param amount The current amount.
+     * @param added The added amount.
+     * @return True, if and only if the sum does not fit into an integer.
+     */
+    private static boolean overflows(int amount, int added) {
+        long sum = (long)amount + added;
+        return sum != (int)sum;
+    }
+}
@@ -0,0 +1,610 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * A board of multi-version clocks.
+ *
+ * Every change of a clock of the board gets the next version of the board. A
+ * {@link Snapshot} of the board reads the state of all clocks at the version the
+ * board had when the snapshot was taken. Taking and reading a snapshot never takes
+ * a lock, so the readers never block the writers.
+ *
+ * A writer only holds the monitor of the changed clock. The versions are claimed
+ * from an atomic counter, and the new state of the clock is installed without a
+ * board-wide lock. The board version is published in the version order, so a
+ * writer waits only for the writers of the earlier versions to finish their
+ * installation before publishing its own version. A snapshot therefore never
+ * reads a version some clock has not yet installed.
+ *
+ * The clocks keep the older versions only as long as an open snapshot may read
+ * them. The older versions are reclaimed when the clocks change, and when the
+ * oldest snapshot is closed.
+ *
+ * The board records the identifiers of the changed clocks of the latest versions
+ * into a bounded change log. The {@link #changesSince(long)} answers the changes
+ * after a version known to a client as a {@link Delta} containing only the changed
+ * clocks, or all clocks, if the change log no longer covers the version.
+ */
+public class ClockBoard {
+
+    /**
+     * A change of a clock.
+     * The name and the type of the clock are only included, if the clock was added,
+     * or either of them was changed.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Change {
+
+        /**
+         * The clock identifier.
+         */
+        private final int id;
+
+        /**
+         * The state of the clock after the change.
+         */
+        private final ClockSnapshot state;
+
+        /**
+         * Does the change include the name and the type.
+         */
+        private final boolean described;
+
+        /**
+         * Create a new change.
+         * @param id The clock identifier.
+         * @param state The state of the clock after the change.
+         * @param described Does the change include the name and the type.
+         */
+        private Change(int id, ClockSnapshot state, boolean described) {
+            this.id = id;
+            this.state = state;
+            this.described = described;
+        }
+
+        /**
+         * Get the identifier of the changed clock.
+         * @return The clock identifier.
+         */
+        @JsonGetter("id")
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * Get the name of the changed clock.
+         * @return The name of the clock, or an undefined value, if the change
+         * does not include the name.
+         */
+        @JsonGetter("name")
+        public String getName() {
+            return described ? state.getName() : null;
+        }
+
+        /**
+         * Get the type of the changed clock.
+         * @return The type of the clock, or an undefined value, if the change
+         * does not include the type.
+         */
+        @JsonGetter("type")
+        public ClockType getType() {
+            return described ? state.getType() : null;
+        }
+
+        /**
+         * Get the current position of the clock after the change.
+         * @return The current position of the clock.
+         */
+        @JsonGetter("current")
+        public int getCurrent() {
+            return state.getCurrent();
+        }
+
+        /**
+         * Get the maximum of the clock after the change.
+         * @return The maximum of the clock.
+         */
+        @JsonGetter("max")
+        public int getMaximum() {
+            return state.getMaximum();
+        }
+
+        /**
+         * Is the clock enabled after the change.
+         * @return True, if and only if the clock is enabled.
+         */
+        @JsonGetter("enabled")
+        public boolean isEnabled() {
+            return state.isEnabled();
+        }
+    }
+
+    /**
+     * The changes of the board between two versions.
+     */
+    public static final class Delta {
+
+        /**
+         * The version the changes start from.
+         */
+        private final long since;
+
+        /**
+         * The version after the changes.
+         */
+        private final long version;
+
+        /**
+         * Does the delta contain all clocks.
+         */
+        private final boolean full;
+
+        /**
+         * The changes of the clocks.
+         */
+        private final List<Change> changes;
+
+        /**
+         * Create a new delta.
+         * @param since The version the changes start from.
+         * @param version The version after the changes.
+         * @param full Does the delta contain all clocks.
+         * @param changes The changes of the clocks.
+         */
+        private Delta(long since, long version, boolean full, List<Change> changes) {
+            this.since = since;
+            this.version = version;
+            this.full = full;
+            this.changes = Collections.unmodifiableList(changes);
+        }
+
+        /**
+         * Get the version the changes start from.
+         * @return The version the changes were requested since.
+         */
+        @JsonGetter("since")
+        public long getSince() {
+            return since;
+        }
+
+        /**
+         * Get the version after the changes.
+         * @return The board version the client has after applying the delta.
+         */
+        @JsonGetter("version")
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Does the delta contain all clocks.
+         * @return True, if and only if the delta is a full snapshot replacing all
+         * clocks known to the client.
+         */
+        @JsonGetter("full")
+        public boolean isFull() {
+            return full;
+        }
+
+        /**
+         * Get the changes of the clocks.
+         * @return The unmodifiable list of the changes in the order of the clock identifiers.
+         */
+        @JsonGetter("changes")
+        public List<Change> getChanges() {
+            return changes;
+        }
+    }
+
+    /**
+     * A consistent point-in-time view of the clocks of the board.
+     * The snapshot has to be closed to allow reclaiming the versions it reads.
+     */
+    public final class Snapshot implements AutoCloseable {
+
+        /**
+         * The version of the snapshot.
+         */
+        private final long version;
+
+        /**
+         * The serial number distinguishing the snapshots of the same version.
+         */
+        private final long serial;
+
+        /**
+         * Is the snapshot closed.
+         */
+        private volatile boolean closed = false;
+
+        /**
+         * Create a new snapshot.
+         * @param version The version of the snapshot.
+         * @param serial The serial number of the snapshot.
+         */
+        private Snapshot(long version, long serial) {
+            this.version = version;
+            this.serial = serial;
+        }
+
+        /**
+         * Get the version of the snapshot.
+         * @return The board version the snapshot reads.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Get the snapshot of a clock.
+         * @param id The clock identifier.
+         * @return The state of the clock at the version of the snapshot, or an undefined
+         * value, if the clock was added to the board after the snapshot was taken.
+         * @throws IllegalArgumentException The clock identifier was invalid.
+         * @throws IllegalStateException The snapshot was closed.
+         */
+        public ClockSnapshot get(int id) throws IllegalArgumentException, IllegalStateException {
+            if (closed) throw new IllegalStateException("Snapshot is closed");
+            return getClock(id).getSnapshot(version);
+        }
+
+        /**
+         * Get the snapshots of all clocks of the board.
+         * @return The unmodifiable list of the states of the clocks existing at the version
+         * of the snapshot in the order of the clock identifiers.
+         * @throws IllegalStateException The snapshot was closed.
+         */
+        public List<ClockSnapshot> getClocks() throws IllegalStateException {
+            if (closed) throw new IllegalStateException("Snapshot is closed");
+            List<ClockSnapshot> result = new ArrayList<>(clocks.size());
+            for (VersionedClock clock: clocks) {
+                ClockSnapshot snapshot = clock.getSnapshot(version);
+                if (snapshot == null) {
+                    // The rest of the clocks were added after the snapshot.
+                    break;
+                }
+                result.add(snapshot);
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        /**
+         * Is the snapshot closed.
+         * @return True, if and only if the snapshot has been closed.
+         */
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Close the snapshot. The versions only the snapshot read are reclaimed.
+         */
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            boolean oldest = readers.iterator().next() == this;
+            readers.remove(this);
+            if (oldest) {
+                reclaim();
+            }
+        }
+    }
+
+    /**
+     * The default capacity of the change log.
+     */
+    public static final int DEFAULT_LOG_CAPACITY = 4096;
+
+    /**
+     * The versions of the change log entries.
+     */
+    private final AtomicLongArray logVersions;
+
+    /**
+     * The changes of the change log entries. The entry contains the clock identifier
+     * shifted left by one, and the lowest bit tells whether the name or the type changed.
+     */
+    private final AtomicIntegerArray logChanges;
+
+    /**
+     * The mask of the change log index.
+     */
+    private final int logMask;
+
+    /**
+     * The clocks of the board in the order of the identifiers.
+     */
+    private final List<VersionedClock> clocks = new CopyOnWriteArrayList<>();
+
+    /**
+     * The last claimed version of the board.
+     */
+    private final AtomicLong claimed = new AtomicLong(0L);
+
+    /**
+     * The current version of the board. All versions up to the current version
+     * have been installed into their clocks.
+     */
+    private volatile long version = 0L;
+
+    /**
+     * The oldest version a new snapshot may read.
+     */
+    private final AtomicLong watermark = new AtomicLong(0L);
+
+    /**
+     * The serial number of the last snapshot.
+     */
+    private final AtomicLong serials = new AtomicLong(0L);
+
+    /**
+     * The open snapshots ordered from the oldest to the newest.
+     */
+    private final ConcurrentSkipListSet<Snapshot> readers = new ConcurrentSkipListSet<>(
+        Comparator.comparingLong((Snapshot snapshot) -> snapshot.version)
+            .thenComparingLong((Snapshot snapshot) -> snapshot.serial));
+
+    /**
+     * Create an empty board with the default change log capacity.
+     */
+    public ClockBoard() {
+        this(DEFAULT_LOG_CAPACITY);
+    }
+
+    /**
+     * Create an empty board.
+     * @param logCapacity The number of the latest versions the change log covers.
+     * The capacity must be a power of two.
+     * @throws IllegalArgumentException The capacity was invalid.
+     */
+    public ClockBoard(int logCapacity) throws IllegalArgumentException {
+        if (logCapacity <= 0 || Integer.bitCount(logCapacity) != 1) {
+            throw new IllegalArgumentException("Invalid capacity",
+            new IllegalArgumentException("Capacity must be a positive power of two"));
+        }
+        this.logVersions = new AtomicLongArray(logCapacity);
+        this.logChanges = new AtomicIntegerArray(logCapacity);
+        this.logMask = logCapacity - 1;
+        for (int i = 0; i < logCapacity; i++) {
+            this.logVersions.set(i, -1L);
+        }
+    }
+
+    /**
+     * Get the current version of the board.
+     * @return The version of the last change of the board.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the number of clocks on the board.
+     * @return The number of clocks.
+     */
+    public int size() {
+        return clocks.size();
+    }
+
+    /**
+     * Add a clock to the board.
+     * A multi-version clock not on any board is added as such. Otherwise, a
+     * multi-version copy of the clock is added.
+     * @param clock The added clock.
+     * @return The clock on the board.
+     * @throws IllegalArgumentException The clock was invalid.
+     */
+    public VersionedClock add(Clock clock) throws IllegalArgumentException {
+        if (clock == null) throw new IllegalArgumentException("Invalid clock",
+        new NullPointerException("Clock must be specified"));
+        VersionedClock result;
+        if (clock instanceof VersionedClock versioned && versioned.getBoard() == null) {
+            result = versioned;
+        } else {
+            result = new VersionedClock(clock);
+        }
+        result.attach(this);
+        return result;
+    }
+
+    /**
+     * Get a clock of the board.
+     * @param id The clock identifier.
+     * @return The clock with the identifier.
+     * @throws IllegalArgumentException The clock identifier was invalid.
+     */
+    public VersionedClock getClock(int id) throws IllegalArgumentException {
+        if (id < 0 || id >= clocks.size()) throw new IllegalArgumentException("Invalid clock identifier",
+        new IndexOutOfBoundsException("No clock with identifier " + id));
+        return clocks.get(id);
+    }
+
+    /**
+     * Get the clocks of the board.
+     * @return The unmodifiable list of the clocks in the order of the identifiers.
+     */
+    public List<VersionedClock> getClocks() {
+        return Collections.unmodifiableList(clocks);
+    }
+
+    /**
+     * Take a snapshot of the current version of the board.
+     * @return The snapshot of the board. The snapshot has to be closed after use.
+     */
+    public Snapshot snapshot() {
+        while (true) {
+            long current = this.version;
+            Snapshot result = new Snapshot(current, serials.incrementAndGet());
+            readers.add(result);
+            if (watermark.get() <= current) {
+                return result;
+            }
+            // The version may have been reclaimed before the registration.
+            readers.remove(result);
+        }
+    }
+
+    /**
+     * Get the changes of the board since a version.
+     * @param since The version known to the client.
+     * @return The delta containing the changed clocks, or all clocks, if the change log no
+     * longer covers the version.
+     * @throws IllegalArgumentException The version was newer than the current version.
+     */
+    public Delta changesSince(long since) throws IllegalArgumentException {
+        try (Snapshot snapshot = snapshot()) {
+            long current = snapshot.getVersion();
+            if (since > current) throw new IllegalArgumentException("Invalid version",
+            new IllegalArgumentException("Version " + since + " is newer than the board version"));
+            BitSet changed = new BitSet();
+            BitSet described = new BitSet();
+            boolean full = since < 0 || current - since > logMask + 1;
+            for (long version = since + 1; !full && version <= current; version++) {
+                int index = (int)(version & logMask);
+                int change = logChanges.get(index);
+                if (logVersions.get(index) != version) {
+                    // The entry has been overwritten by a newer version.
+                    full = true;
+                } else if (change >= 0) {
+                    changed.set(change >>> 1);
+                    if ((change & 1) != 0) described.set(change >>> 1);
+                }
+            }
+            List<Change> changes = new ArrayList<>();
+            if (full) {
+                List<ClockSnapshot> clocks = snapshot.getClocks();
+                for (int id = 0; id < clocks.size(); id++) {
+                    changes.add(new Change(id, clocks.get(id), true));
+                }
+            } else {
+                for (int id = changed.nextSetBit(0); id >= 0; id = changed.nextSetBit(id + 1)) {
+                    changes.add(new Change(id, snapshot.get(id), described.get(id)));
+                }
+            }
+            return new Delta(full ? -1L : since, current, full, changes);
+        }
+    }
+
+    /**
+     * Record a change into the change log.
+     * The caller must be publishing the version, so the entries are written in the
+     * version order.
+     * @param version The version of the change.
+     * @param id The clock identifier, or a negative value, if the version changed no clock.
+     * @param described Did the name or the type change.
+     */
+    private void log(long version, int id, boolean described) {
+        int index = (int)(version & logMask);
+        // The entry is invalidated first, so a reader never accepts a partially written entry.
+        logVersions.set(index, -1L);
+        logChanges.set(index, id < 0 ? -1 : (id << 1) | (described ? 1 : 0));
+        logVersions.set(index, version);
+    }
+
+    /**
+     * Get the oldest version any snapshot may read.
+     * New snapshots are not allowed to read versions older than the returned version.
+     * @return The oldest version the snapshots may read.
+     */
+    private long oldestReadableVersion() {
+        long current = this.version;
+        watermark.accumulateAndGet(current, Math::max);
+        Iterator<Snapshot> iterator = readers.iterator();
+        return iterator.hasNext() ? Math.min(current, iterator.next().version) : current;
+    }
+
+    /**
+     * Reclaim the versions of all clocks no open snapshot reads.
+     */
+    public void reclaim() {
+        long oldest = oldestReadableVersion();
+        for (VersionedClock clock: clocks) {
+            clock.getSnapshot().reclaim(oldest);
+        }
+    }
+
+    /**
+     * Publish a new version of a clock of the board.
+     * The caller must hold the monitor of the clock.
+     * @param clock The changed clock.
+     * @param name The name of the clock.
+     * @param current The current position of the clock.
+     * @param max The maximum of the clock.
+     * @param type The type of the clock.
+     * @param enabled Is the clock enabled.
+     * @param added Is the clock added to the board.
+     */
+    void commit(VersionedClock clock, String name, int current, int max, ClockType type, boolean enabled,
+        boolean added) {
+        ClockSnapshot previous = added ? null : clock.getSnapshot();
+        boolean described = previous == null
+            || !Objects.equals(previous.getName(), name) || previous.getType() != type;
+        ClockSnapshot snapshot = null;
+        long next = 0L;
+        try {
+            if (added) {
+                // The identifiers are assigned in the order of the additions.
+                synchronized (clocks) {
+                    next = claimed.incrementAndGet();
+                    ClockSnapshot installed = new ClockSnapshot(name, current, max, type, enabled, next, previous);
+                    clock.setSnapshot(installed);
+                    clock.setId(clocks.size());
+                    clocks.add(clock);
+                    snapshot = installed;
+                }
+            } else {
+                next = claimed.incrementAndGet();
+                ClockSnapshot installed = new ClockSnapshot(name, current, max, type, enabled, next, previous);
+                clock.setSnapshot(installed);
+                snapshot = installed;
+            }
+        } finally {
+            // A claimed version is always published, so the later writers never wait for it
+            // forever. The version of a failed installation is published without a change.
+            if (next != 0L) {
+                publish(next, snapshot == null ? -1 : clock.getId(), described);
+            }
+        }
+        snapshot.reclaim(oldestReadableVersion());
+    }
+
+    /**
+     * Publish an installed version as the current version of the board.
+     * The versions are published in the version order, so the call waits until
+     * the previous version has been published.
+     * @param next The published version.
+     * @param id The identifier of the changed clock, or a negative value, if the version
+     * changed no clock.
+     * @param described Did the name or the type change.
+     */
+    private void publish(long next, int id, boolean described) {
+        int attempt = 0;
+        while (this.version != next - 1) {
+            if (attempt++ < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+        log(next, id, described);
+        this.version = next;
+    }
+}
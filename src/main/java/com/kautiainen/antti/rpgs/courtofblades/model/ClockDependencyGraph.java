@@ -0,0 +1,428 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The dependency graph of the linked and the chained clocks.
+ *
+ * A chained dependency enables the successor clock when the predecessor clock
+ * completes. A linked dependency advances the linked clock by a number of ticks
+ * when the source clock completes. The completions caused by the linked
+ * dependencies propagate further through the graph.
+ *
+ * The graph is kept acyclic. Each clock has a position in a topological order
+ * of the graph, and adding a dependency only reorders the clocks between the
+ * positions of the source and the target of the dependency. A dependency creating
+ * a cycle is rejected. The propagation of a completion handles the affected clocks
+ * in the topological order, and visits only the clocks reachable from the completed
+ * clock through completed clocks.
+ */
+public class ClockDependencyGraph {
+
+    /**
+     * The kinds of the dependencies.
+     */
+    public enum Dependency {
+        /**
+         * The completion of the predecessor enables the successor.
+         */
+        CHAINED,
+        /**
+         * The completion of the source advances the linked clock.
+         */
+        LINKED
+    }
+
+    /**
+     * A clock of the graph.
+     */
+    private static final class Node {
+
+        /**
+         * The clock of the node.
+         */
+        private final Clock clock;
+
+        /**
+         * The position of the node in the topological order.
+         */
+        private int order;
+
+        /**
+         * The dependencies from the node.
+         */
+        private final List<Edge> successors = new ArrayList<>(2);
+
+        /**
+         * The nodes with a dependency to the node.
+         */
+        private final List<Node> predecessors = new ArrayList<>(2);
+
+        /**
+         * Has the node been visited by the current traversal.
+         */
+        private boolean visited = false;
+
+        /**
+         * Create a new node.
+         * @param clock The clock of the node.
+         * @param order The position of the node in the topological order.
+         */
+        private Node(Clock clock, int order) {
+            this.clock = clock;
+            this.order = order;
+        }
+    }
+
+    /**
+     * A dependency of the graph.
+     */
+    private static final class Edge {
+
+        /**
+         * The target of the dependency.
+         */
+        private final Node target;
+
+        /**
+         * The kind of the dependency.
+         */
+        private final Dependency kind;
+
+        /**
+         * The ticks a linked dependency advances the target.
+         */
+        private final int ticks;
+
+        /**
+         * Create a new dependency.
+         * @param target The target of the dependency.
+         * @param kind The kind of the dependency.
+         * @param ticks The ticks of a linked dependency.
+         */
+        private Edge(Node target, Dependency kind, int ticks) {
+            this.target = target;
+            this.kind = kind;
+            this.ticks = ticks;
+        }
+    }
+
+    /**
+     * The comparator of the nodes by the topological order.
+     */
+    private static final Comparator<Node> TOPOLOGICAL_ORDER = Comparator.comparingInt((Node node) -> node.order);
+
+    /**
+     * The nodes of the clocks.
+     */
+    private final Map<Clock, Node> nodes = new IdentityHashMap<>();
+
+    /**
+     * The position given to the next added clock.
+     */
+    private int nextOrder = 0;
+
+    /**
+     * Create an empty dependency graph.
+     */
+    public ClockDependencyGraph() {
+    }
+
+    /**
+     * Get the node of a clock. The clock is added, if it is not in the graph.
+     * @param clock The clock.
+     * @return The node of the clock.
+     * @throws IllegalArgumentException The clock was undefined.
+     */
+    private Node getOrAddNode(Clock clock) throws IllegalArgumentException {
+        if (clock == null) throw new IllegalArgumentException("Invalid clock",
+        new NullPointerException("Clock must be specified"));
+        Node result = nodes.get(clock);
+        if (result == null) {
+            result = new Node(clock, nextOrder++);
+            nodes.put(clock, result);
+        }
+        return result;
+    }
+
+    /**
+     * Add a clock to the graph.
+     * @param clock The added clock.
+     * @return True, if and only if the clock was not in the graph before.
+     * @throws IllegalArgumentException The clock was undefined.
+     */
+    public synchronized boolean addClock(Clock clock) throws IllegalArgumentException {
+        int size = nodes.size();
+        getOrAddNode(clock);
+        return nodes.size() > size;
+    }
+
+    /**
+     * Does the graph contain a clock.
+     * @param clock The tested clock.
+     * @return True, if and only if the clock is in the graph.
+     */
+    public synchronized boolean containsClock(Clock clock) {
+        return clock != null && nodes.containsKey(clock);
+    }
+
+    /**
+     * Get the number of clocks in the graph.
+     * @return The number of clocks.
+     */
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Remove a clock and its dependencies from the graph.
+     * @param clock The removed clock.
+     * @return True, if and only if the clock was removed.
+     */
+    public synchronized boolean removeClock(Clock clock) {
+        Node node = clock == null ? null : nodes.remove(clock);
+        if (node == null) return false;
+        for (Edge edge: node.successors) {
+            edge.target.predecessors.remove(node);
+        }
+        for (Node predecessor: node.predecessors) {
+            predecessor.successors.removeIf((Edge edge) -> edge.target == node);
+        }
+        return true;
+    }
+
+    /**
+     * Add a chained dependency. The completion of the predecessor enables the successor.
+     * @param predecessor The predecessor clock. The type of the clock must have the trait
+     * {@link ClockType#CHAINED}.
+     * @param successor The successor clock.
+     * @return True, if and only if the dependency was added. The graph has at most one
+     * dependency between two clocks.
+     * @throws IllegalArgumentException Either clock was invalid, or the dependency would
+     * create a cycle.
+     */
+    public synchronized boolean chain(Clock predecessor, Clock successor) throws IllegalArgumentException {
+        if (predecessor != null && !predecessor.getType().hasAnyTrait(ClockType.CHAINED_BIT)) {
+            throw new IllegalArgumentException("Invalid predecessor",
+            new IllegalArgumentException("The clock type is not chained"));
+        }
+        return addDependency(predecessor, successor, Dependency.CHAINED, 0);
+    }
+
+    /**
+     * Add a linked dependency. The completion of the source advances the linked clock.
+     * @param source The source clock. The type of the clock must have the trait
+     * {@link ClockType#LINKED}.
+     * @param linked The linked clock.
+     * @param ticks The number of ticks the linked clock advances on the completion.
+     * @return True, if and only if the dependency was added. The graph has at most one
+     * dependency between two clocks.
+     * @throws IllegalArgumentException Either clock was invalid, or the dependency would
+     * create a cycle.
+     */
+    public synchronized boolean link(Clock source, Clock linked, int ticks) throws IllegalArgumentException {
+        if (source != null && !source.getType().hasAnyTrait(ClockType.LINKED_BIT)) {
+            throw new IllegalArgumentException("Invalid source",
+            new IllegalArgumentException("The clock type is not linked"));
+        }
+        return addDependency(source, linked, Dependency.LINKED, ticks);
+    }
+
+    /**
+     * Add a dependency.
+     * @param source The source clock.
+     * @param target The target clock.
+     * @param kind The kind of the dependency.
+     * @param ticks The ticks of a linked dependency.
+     * @return True, if and only if the dependency was added.
+     * @throws IllegalArgumentException Either clock was invalid, or the dependency would
+     * create a cycle.
+     */
+    private boolean addDependency(Clock source, Clock target, Dependency kind, int ticks)
+    throws IllegalArgumentException {
+        if (source == null || target == null) throw new IllegalArgumentException("Invalid dependency",
+        new NullPointerException("Clocks must be specified"));
+        if (source == target) throw new IllegalArgumentException("Invalid dependency",
+        new IllegalStateException("Dependency creates a cycle"));
+        Node from = getOrAddNode(source);
+        Node to = getOrAddNode(target);
+        for (Edge edge: from.successors) {
+            if (edge.target == to) return false;
+        }
+        if (from.order > to.order) {
+            reorder(from, to);
+        }
+        from.successors.add(new Edge(to, kind, ticks));
+        to.predecessors.add(from);
+        return true;
+    }
+
+    /**
+     * Restore the topological order before adding a dependency from a node to
+     * a node preceding it in the order. Only the nodes between the positions
+     * of the nodes are reordered.
+     * @param from The source of the added dependency.
+     * @param to The target of the added dependency.
+     * @throws IllegalArgumentException The dependency would create a cycle.
+     */
+    private void reorder(Node from, Node to) throws IllegalArgumentException {
+        int upper = from.order;
+        int lower = to.order;
+        List<Node> forward = new ArrayList<>();
+        List<Node> backward = new ArrayList<>();
+        // The nodes marked visited, including the nodes still on the stack.
+        List<Node> marked = new ArrayList<>();
+        try {
+            // Collect the nodes reachable from the target preceding the source.
+            Deque<Node> stack = new ArrayDeque<>();
+            to.visited = true;
+            marked.add(to);
+            stack.push(to);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                forward.add(node);
+                for (Edge edge: node.successors) {
+                    Node next = edge.target;
+                    if (next == from) {
+                        throw new IllegalArgumentException("Invalid dependency",
+                        new IllegalStateException("Dependency creates a cycle"));
+                    } else if (!next.visited && next.order < upper) {
+                        next.visited = true;
+                        marked.add(next);
+                        stack.push(next);
+                    }
+                }
+            }
+            // Collect the nodes reaching the source following the target.
+            from.visited = true;
+            marked.add(from);
+            stack.push(from);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                backward.add(node);
+                for (Node next: node.predecessors) {
+                    if (!next.visited && next.order > lower) {
+                        next.visited = true;
+                        marked.add(next);
+                        stack.push(next);
+                    }
+                }
+            }
+            // Reassign the positions of the collected nodes.
+            forward.sort(TOPOLOGICAL_ORDER);
+            backward.sort(TOPOLOGICAL_ORDER);
+            int[] positions = new int[forward.size() + backward.size()];
+            int index = 0;
+            for (Node node: backward) positions[index++] = node.order;
+            for (Node node: forward) positions[index++] = node.order;
+            Arrays.sort(positions);
+            index = 0;
+            for (Node node: backward) node.order = positions[index++];
+            for (Node node: forward) node.order = positions[index++];
+        } finally {
+            for (Node node: marked) node.visited = false;
+        }
+    }
+
+    /**
+     * Get the clocks depending on a clock.
+     * @param clock The clock.
+     * @param kind The kind of the dependencies.
+     * @return The list of the clocks with a dependency of the given kind from the clock.
+     */
+    public synchronized List<Clock> getDependents(Clock clock, Dependency kind) {
+        Node node = clock == null ? null : nodes.get(clock);
+        if (node == null) return Collections.emptyList();
+        List<Clock> result = new ArrayList<>();
+        for (Edge edge: node.successors) {
+            if (edge.kind == kind) result.add(edge.target.clock);
+        }
+        return result;
+    }
+
+    /**
+     * Advance a clock of the graph, and propagate its completion.
+     * @param clock The advanced clock.
+     * @param amount The advancement amount.
+     * @return The list of the completion events in the topological order.
+     * @throws IllegalArgumentException The clock was not in the graph.
+     */
+    public synchronized List<ClockEvent> advance(Clock clock, int amount) throws IllegalArgumentException {
+        Node node = clock == null ? null : nodes.get(clock);
+        if (node == null) throw new IllegalArgumentException("Invalid clock",
+        new IllegalStateException("Clock is not in the graph"));
+        boolean completed = clock.isCompleted();
+        clock.advance(amount);
+        if (!completed && clock.isCompleted()) {
+            return propagate(node);
+        } else {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Propagate the completion of a clock completed outside the graph.
+     * @param clock The completed clock.
+     * @return The list of the completion events in the topological order. The list starts
+     * with the completion event of the given clock.
+     * @throws IllegalArgumentException The clock was not in the graph, or it was not completed.
+     */
+    public synchronized List<ClockEvent> complete(Clock clock) throws IllegalArgumentException {
+        Node node = clock == null ? null : nodes.get(clock);
+        if (node == null) throw new IllegalArgumentException("Invalid clock",
+        new IllegalStateException("Clock is not in the graph"));
+        if (!clock.isCompleted()) throw new IllegalArgumentException("Invalid clock",
+        new IllegalStateException("Clock is not completed"));
+        return propagate(node);
+    }
+
+    /**
+     * Propagate the completion of a node.
+     * @param start The completed node.
+     * @return The list of the completion events in the topological order.
+     */
+    private List<ClockEvent> propagate(Node start) {
+        List<ClockEvent> result = new ArrayList<>();
+        PriorityQueue<Node> queue = new PriorityQueue<>(TOPOLOGICAL_ORDER);
+        List<Node> queued = new ArrayList<>();
+        start.visited = true;
+        queued.add(start);
+        queue.add(start);
+        try {
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+                Clock clock = node.clock;
+                result.add(ClockEventKind.COMPLETED.createEvent(clock,
+                    Math.max(0, clock.getCurrent() - clock.getMaximum())));
+                for (Edge edge: node.successors) {
+                    Node target = edge.target;
+                    if (edge.kind == Dependency.CHAINED) {
+                        target.clock.setEnabled(true);
+                    } else if (!target.visited && target.clock.isEnabled()) {
+                        boolean completed = target.clock.isCompleted();
+                        target.clock.advance(edge.ticks);
+                        if (!completed && target.clock.isCompleted()) {
+                            target.visited = true;
+                            queued.add(target);
+                            queue.add(target);
+                        }
+                    }
+                }
+            }
+        } finally {
+            for (Node node: queued) node.visited = false;
+        }
+        return result;
+    }
+}
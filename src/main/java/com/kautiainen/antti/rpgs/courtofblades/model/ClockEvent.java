@@ -17,8 +17,9 @@ public interface ClockEvent {
      */
     static ClockEvent completedClock(Clock completedClock) throws IllegalArgumentException {
         try {
+            // The event name is generated when it is first read.
             return new CompletedClockEvent(
-                completedClock, String.format("%s completed", completedClock.getName()), 
+                completedClock, null, 
                 completedClock.getCurrent() - completedClock.getMaximum());
         } catch(IllegalArgumentException | NullPointerException e) {
             throw new IllegalArgumentException("Invalid completed clock", e);
@@ -55,9 +56,10 @@ public interface ClockEvent {
      */
     static ClockEvent depletedClock(Clock depletedClock) throws IllegalArgumentException {
         try {
-            return new CompletedClockEvent(
-                depletedClock, String.format("%s depleteted", depletedClock.getName()), 
-                depletedClock.getCurrent() + depletedClock.getMinimum());
+            // The event name is generated when it is first read.
+            return new DepletedClockEvent(
+                depletedClock, null, 
+                depletedClock.getCurrent() - depletedClock.getMinimum());
         } catch(IllegalArgumentException | NullPointerException e) {
             throw new IllegalArgumentException("Invalid depleteted clock", e);
         }
@@ -0,0 +1,455 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The publish and subscribe bus of the clock events.
+ *
+ * The bus stores the events into a preallocated ring buffer of reusable event
+ * slots. Each published event gets a sequence number, and each subscription
+ * reads the events in the sequence order at its own pace. The producers wait
+ * with the wait strategy of the bus only when the ring buffer is full of events
+ * the slowest subscription has not read yet. Neither the producers nor the
+ * subscriptions take locks, and publishing an event does not allocate.
+ *
+ * The event slots are reused. A subscriber retaining an event after handling
+ * it has to copy it with {@link Event#toClockEvent()}.
+ *
+ * The listeners of the bus receive each event on the publishing thread right
+ * after it is published. Unlike the subscriptions, the listeners never hold back
+ * the producers.
+ */
+public class ClockEventBus implements ClockEventSink {
+
+    /**
+     * The strategy of waiting for the progress of other threads.
+     */
+    @FunctionalInterface
+    public static interface WaitStrategy {
+
+        /**
+         * The strategy spinning on the processor.
+         */
+        public static final WaitStrategy BUSY_SPIN = (int attempt) -> Thread.onSpinWait();
+
+        /**
+         * The strategy spinning for a while, and yielding the processor after that.
+         */
+        public static final WaitStrategy YIELDING = (int attempt) -> {
+            if (attempt < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        };
+
+        /**
+         * The strategy spinning and yielding for a while, and parking the thread
+         * after that.
+         */
+        public static final WaitStrategy PARKING = (int attempt) -> {
+            if (attempt < 100) {
+                Thread.onSpinWait();
+            } else if (attempt < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        };
+
+        /**
+         * Wait once.
+         * @param attempt The number of times the waiting thread has waited for the
+         * same condition before.
+         */
+        public void idle(int attempt);
+    }
+
+    /**
+     * The handler of the events of a subscription.
+     */
+    @FunctionalInterface
+    public static interface Subscriber {
+
+        /**
+         * Handle an event.
+         * @param event The event. The event is only valid during the call.
+         * @param sequence The sequence number of the event.
+         */
+        public void onEvent(Event event, long sequence);
+    }
+
+    /**
+     * A reusable event slot of the ring buffer.
+     */
+    public static final class Event implements ClockEvent {
+
+        /**
+         * The kind of the event.
+         */
+        private ClockEventKind kind;
+
+        /**
+         * The target clock of the event.
+         */
+        private Clock target;
+
+        /**
+         * The excess of the event.
+         */
+        private int excess;
+
+        /**
+         * Create an empty event slot.
+         */
+        private Event() {
+        }
+
+        /**
+         * Get the kind of the event.
+         * @return The kind of the event.
+         */
+        public ClockEventKind getKind() {
+            return kind;
+        }
+
+        /**
+         * Get the name of the event.
+         * @return The name of the event.
+         * @implNote The name is generated on every call.
+         */
+        @Override
+        public String getEventName() {
+            return kind.getEventName(target);
+        }
+
+        @Override
+        public int getExcess() {
+            return excess;
+        }
+
+        @Override
+        public Clock getTarget() {
+            return target;
+        }
+
+        /**
+         * Create a copy of the event which does not change when the slot is reused.
+         * @return The clock event with the kind, the target, and the excess of
+         * the event.
+         */
+        public ClockEvent toClockEvent() {
+            return kind.createEvent(target, excess);
+        }
+    }
+
+    /**
+     * A subscription of the bus.
+     */
+    public class Subscription implements AutoCloseable {
+
+        /**
+         * The subscriber handling the events.
+         */
+        private final Subscriber subscriber;
+
+        /**
+         * The sequence number of the next unread event.
+         */
+        private final AtomicLong next;
+
+        /**
+         * Is the subscription closed.
+         */
+        private volatile boolean closed = false;
+
+        /**
+         * Create a new subscription.
+         * @param subscriber The subscriber handling the events.
+         * @param next The sequence number of the first event.
+         */
+        private Subscription(Subscriber subscriber, long next) {
+            this.subscriber = subscriber;
+            this.next = new AtomicLong(next);
+        }
+
+        /**
+         * Get the sequence number of the next unread event.
+         * @return The sequence number of the next event the subscription reads.
+         */
+        public long getNextSequence() {
+            return next.get();
+        }
+
+        /**
+         * Handle all published events the subscription has not read yet.
+         * The method must not be called by several threads at the same time.
+         * @return The number of the handled events.
+         */
+        public int poll() {
+            if (closed) return 0;
+            long sequence = next.get();
+            int count = 0;
+            int index = (int)(sequence & mask);
+            while (published.get(index) == sequence) {
+                subscriber.onEvent(slots[index], sequence);
+                sequence++;
+                count++;
+                index = (int)(sequence & mask);
+            }
+            if (count > 0) {
+                next.lazySet(sequence);
+            }
+            return count;
+        }
+
+        /**
+         * Wait for events with the wait strategy of the bus, and handle them.
+         * The method must not be called by several threads at the same time.
+         * @return The number of the handled events. The value is zero, if the
+         * subscription was closed.
+         */
+        public int await() {
+            int attempt = 0;
+            int count;
+            while ((count = poll()) == 0 && !closed) {
+                waitStrategy.idle(attempt++);
+            }
+            return count;
+        }
+
+        /**
+         * Is the subscription closed.
+         * @return True, if and only if the subscription no longer reads events.
+         */
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Close the subscription. The closed subscription no longer holds back
+         * the producers.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            subscriptions.remove(this);
+        }
+    }
+
+    /**
+     * The default capacity of the bus.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The event slots of the ring buffer.
+     */
+    private final Event[] slots;
+
+    /**
+     * The sequence numbers of the events published into the slots.
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * The mask of the slot index.
+     */
+    private final int mask;
+
+    /**
+     * The last claimed sequence number.
+     */
+    private final AtomicLong claimed = new AtomicLong(-1L);
+
+    /**
+     * The cached minimum of the next sequences of the subscriptions.
+     */
+    private volatile long gatingSequence = 0L;
+
+    /**
+     * The subscriptions of the bus.
+     */
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * The listeners of the bus. The array is replaced on each change, so publishing
+     * reads it without allocation.
+     */
+    private volatile ClockEventSink[] listeners = new ClockEventSink[0];
+
+    /**
+     * The wait strategy of the bus.
+     */
+    private final WaitStrategy waitStrategy;
+
+    /**
+     * Create a bus with the default capacity and the yielding wait strategy.
+     */
+    public ClockEventBus() {
+        this(DEFAULT_CAPACITY, WaitStrategy.YIELDING);
+    }
+
+    /**
+     * Create a bus.
+     * @param capacity The number of the event slots. The capacity must be a power of two.
+     * @param waitStrategy The wait strategy of the producers and subscriptions.
+     * @throws IllegalArgumentException Either the capacity or the wait strategy was invalid.
+     */
+    public ClockEventBus(int capacity, WaitStrategy waitStrategy) throws IllegalArgumentException {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Invalid capacity",
+            new IllegalArgumentException("Capacity must be a positive power of two"));
+        }
+        if (waitStrategy == null) throw new IllegalArgumentException("Invalid wait strategy",
+        new NullPointerException("Wait strategy must be specified"));
+        this.slots = new Event[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            this.slots[i] = new Event();
+            this.published.set(i, -1L);
+        }
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Get the capacity of the bus.
+     * @return The number of the event slots.
+     */
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * Get the wait strategy of the bus.
+     * @return The wait strategy of the bus.
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    /**
+     * Subscribe the events published after the subscription.
+     * @param subscriber The subscriber handling the events.
+     * @return The subscription reading the events.
+     * @throws IllegalArgumentException The subscriber was undefined.
+     */
+    public Subscription subscribe(Subscriber subscriber) throws IllegalArgumentException {
+        if (subscriber == null) throw new IllegalArgumentException("Invalid subscriber",
+        new NullPointerException("Subscriber must be specified"));
+        Subscription result = new Subscription(subscriber, claimed.get() + 1);
+        subscriptions.add(result);
+        // A producer claiming a sequence before the subscription was added may not
+        // have seen the subscription, so the subscription starts after it.
+        result.next.set(claimed.get() + 1);
+        return result;
+    }
+
+    /**
+     * Add a listener receiving the published events on the publishing thread.
+     * A clock publishes its events while holding its monitor, so a listener must
+     * neither block nor change clocks.
+     * @param listener The added listener.
+     * @throws IllegalArgumentException The listener was undefined.
+     */
+    public synchronized void addListener(ClockEventSink listener) throws IllegalArgumentException {
+        if (listener == null) throw new IllegalArgumentException("Invalid listener",
+        new NullPointerException("Listener must be specified"));
+        ClockEventSink[] result = Arrays.copyOf(listeners, listeners.length + 1);
+        result[listeners.length] = listener;
+        listeners = result;
+    }
+
+    /**
+     * Remove a listener.
+     * @param listener The removed listener.
+     * @return True, if and only if the listener was removed.
+     */
+    public synchronized boolean removeListener(ClockEventSink listener) {
+        ClockEventSink[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                ClockEventSink[] result = new ClockEventSink[current.length - 1];
+                System.arraycopy(current, 0, result, 0, i);
+                System.arraycopy(current, i + 1, result, i, result.length - i);
+                listeners = result;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the minimum of the next sequences of the subscriptions.
+     * @param sequence The sequence number of the published event.
+     * @return The minimum of the next sequences, or the published sequence number,
+     * if it is smaller.
+     * @implNote Without subscriptions the minimum is the published sequence number,
+     * as a subscription created later starts after it. The cached gating sequence
+     * therefore never passes the start of a later subscription.
+     */
+    private long minimumSequence(long sequence) {
+        long result = sequence;
+        for (Subscription subscription: subscriptions) {
+            result = Math.min(result, subscription.next.get());
+        }
+        return result;
+    }
+
+    /**
+     * Publish an event.
+     * The call waits while the ring buffer is full of events the slowest
+     * subscription has not read. A clock publishes its events while holding its
+     * monitor to keep the events of the clock in the order of its changes, so a
+     * subscriber must not advance or set a clock publishing into the same bus
+     * while it handles an event. Such a subscriber would wait for a clock whose
+     * writer waits for the subscriber to free a slot.
+     * @param kind The kind of the event.
+     * @param target The target clock of the event.
+     * @param excess The excess of the event.
+     * @return The sequence number of the published event.
+     * @throws IllegalArgumentException The kind was undefined.
+     */
+    public long publish(ClockEventKind kind, Clock target, int excess) throws IllegalArgumentException {
+        if (kind == null) throw new IllegalArgumentException("Invalid event kind",
+        new NullPointerException("Kind must be specified"));
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint >= gatingSequence) {
+            int attempt = 0;
+            long minimum;
+            while (wrapPoint >= (minimum = minimumSequence(sequence))) {
+                waitStrategy.idle(attempt++);
+            }
+            gatingSequence = minimum;
+        }
+        int index = (int)(sequence & mask);
+        Event slot = slots[index];
+        slot.kind = kind;
+        slot.target = target;
+        slot.excess = excess;
+        published.set(index, sequence);
+        for (ClockEventSink listener: listeners) {
+            listener.onClockEvent(kind, target, excess);
+        }
+        return sequence;
+    }
+
+    /**
+     * Publish a received clock event.
+     * @param kind The kind of the event.
+     * @param clock The target clock of the event.
+     * @param excess The excess of the event.
+     */
+    @Override
+    public void onClockEvent(ClockEventKind kind, Clock clock, int excess) {
+        publish(kind, clock, excess);
+    }
+}
@@ -0,0 +1,383 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * The compact binary encoding of the clock events.
+ *
+ * The events are written into a document of the {@link BinaryModelCodec}. Each
+ * event starts with a tag containing the code of its {@link ClockEventKind}
+ * shifted left by one bit, and the lowest bit marks an event with a name other than
+ * the name the kind generates. The codes are fixed by the codec, so reordering or
+ * adding kinds does not change the meaning of the written events. The tag is followed by the identifier of the target
+ * clock plus one, or zero for an event without target, the zigzag encoded excess,
+ * and the name of a named event. The target clocks are referred to by their
+ * identifiers instead of being written with the events.
+ *
+ * The reader pushes the decoded events into a {@link ClockEventSink} without
+ * creating event objects, or creates the events of the encoded kinds and names.
+ */
+public final class ClockEventCodec {
+
+    /**
+     * The flag of an event with its own name.
+     */
+    private static final int NAMED = 1;
+
+    /**
+     * The code of the advancement events.
+     */
+    private static final int ADVANCED_CODE = 0;
+
+    /**
+     * The code of the regression events.
+     */
+    private static final int REGRESSED_CODE = 1;
+
+    /**
+     * The code of the completion events.
+     */
+    private static final int COMPLETED_CODE = 2;
+
+    /**
+     * The code of the depletion events.
+     */
+    private static final int DEPLETED_CODE = 3;
+
+    /**
+     * The codec has only static members.
+     */
+    private ClockEventCodec() {
+    }
+
+    /**
+     * Get the code of a kind.
+     * @param kind The kind.
+     * @return The code of the kind.
+     */
+    private static int codeOf(ClockEventKind kind) {
+        switch (kind) {
+            case ADVANCED:
+                return ADVANCED_CODE;
+            case REGRESSED:
+                return REGRESSED_CODE;
+            case COMPLETED:
+                return COMPLETED_CODE;
+            case DEPLETED:
+            default:
+                return DEPLETED_CODE;
+        }
+    }
+
+    /**
+     * Get the kind of a code.
+     * @param code The code.
+     * @return The kind with the code.
+     * @throws StreamCorruptedException The code was unknown.
+     */
+    private static ClockEventKind kindOf(int code) throws StreamCorruptedException {
+        switch (code) {
+            case ADVANCED_CODE:
+                return ClockEventKind.ADVANCED;
+            case REGRESSED_CODE:
+                return ClockEventKind.REGRESSED;
+            case COMPLETED_CODE:
+                return ClockEventKind.COMPLETED;
+            case DEPLETED_CODE:
+                return ClockEventKind.DEPLETED;
+            default:
+                throw new StreamCorruptedException("Invalid clock event kind " + code);
+        }
+    }
+
+    /**
+     * The writer of the clock events.
+     *
+     * The writer is a clock event sink writing the received events, so the clocks
+     * may push their events directly into the writer.
+     * The writer is not thread-safe.
+     */
+    public static class Writer implements ClockEventSink {
+
+        /**
+         * The encoder of the document.
+         */
+        private final BinaryModelCodec.Encoder encoder;
+
+        /**
+         * The function giving the identifiers of the target clocks.
+         */
+        private final ToIntFunction<? super Clock> ids;
+
+        /**
+         * The number of the written events.
+         */
+        private long count = 0;
+
+        /**
+         * Create a writer of the events of the clocks of a board.
+         * @param encoder The encoder of the document.
+         * @param board The board of the target clocks.
+         * @throws IllegalArgumentException The encoder or the board was undefined.
+         */
+        public Writer(BinaryModelCodec.Encoder encoder, ClockBoard board) throws IllegalArgumentException {
+            this(encoder, boardIds(board));
+        }
+
+        /**
+         * Create a writer of the events.
+         * @param encoder The encoder of the document.
+         * @param ids The function giving the non-negative identifier of a target clock.
+         * @throws IllegalArgumentException The encoder or the function was undefined.
+         */
+        public Writer(BinaryModelCodec.Encoder encoder, ToIntFunction<? super Clock> ids)
+        throws IllegalArgumentException {
+            if (encoder == null) throw new IllegalArgumentException("Invalid encoder",
+            new NullPointerException("Encoder must be specified"));
+            if (ids == null) throw new IllegalArgumentException("Invalid clock identifiers",
+            new NullPointerException("Clock identifiers must be specified"));
+            this.encoder = encoder;
+            this.ids = ids;
+        }
+
+        /**
+         * Get the number of the written events.
+         * @return The number of the events written by the writer.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Write an event.
+         * @param kind The kind of the event.
+         * @param clock The target clock of the event.
+         * @param excess The excess of the event.
+         * @param name The name of the event, or an undefined value, if the event
+         * has the name its kind generates.
+         * @throws IllegalArgumentException The kind was undefined, or the clock had
+         * no identifier.
+         * @throws IOException The writing failed.
+         */
+        public void write(ClockEventKind kind, Clock clock, int excess, String name)
+        throws IllegalArgumentException, IOException {
+            if (kind == null) throw new IllegalArgumentException("Invalid kind",
+            new NullPointerException("Kind must be specified"));
+            int id = -1;
+            if (clock != null) {
+                id = ids.applyAsInt(clock);
+                if (id < 0) throw new IllegalArgumentException("Invalid clock",
+                new IllegalArgumentException("Clock has no identifier"));
+            }
+            encoder.writeVarInt((codeOf(kind) << 1) | (name == null ? 0 : NAMED));
+            encoder.writeVarInt(id + 1);
+            encoder.writeSignedVarInt(excess);
+            if (name != null) {
+                encoder.writeString(name);
+            }
+            count++;
+        }
+
+        /**
+         * Write an event.
+         * @param event The written event.
+         * @throws IllegalArgumentException The event was undefined, or its target had
+         * no identifier.
+         * @throws IOException The writing failed.
+         */
+        public void write(ClockEvent event) throws IllegalArgumentException, IOException {
+            if (event == null) throw new IllegalArgumentException("Invalid event",
+            new NullPointerException("Event must be specified"));
+            ClockEventKind kind = ClockJsonModule.kindOf(event);
+            Clock target = event.getTarget();
+            String name = null;
+            if (!(event instanceof ClockEventBus.Event)) {
+                name = event.getEventName();
+                if (Objects.equals(name, kind.getEventName(target))) name = null;
+            }
+            write(kind, target, event.getExcess(), name);
+        }
+
+        /**
+         * Write a received event.
+         * @param kind The kind of the event.
+         * @param clock The target clock of the event.
+         * @param excess The excess of the event.
+         * @throws UncheckedIOException The writing failed.
+         */
+        @Override
+        public void onClockEvent(ClockEventKind kind, Clock clock, int excess) {
+            try {
+                write(kind, clock, excess, null);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * The reader of the clock events.
+     * The reader is not thread-safe.
+     */
+    public static class Reader {
+
+        /**
+         * The decoder of the document.
+         */
+        private final BinaryModelCodec.Decoder decoder;
+
+        /**
+         * The function giving the clocks of the identifiers.
+         */
+        private final IntFunction<? extends Clock> clocks;
+
+        /**
+         * The kind of the last read event.
+         */
+        private ClockEventKind kind;
+
+        /**
+         * The target of the last read event.
+         */
+        private Clock target;
+
+        /**
+         * The excess of the last read event.
+         */
+        private int excess;
+
+        /**
+         * The name of the last read event, or an undefined value, if the event
+         * has the name its kind generates.
+         */
+        private String name;
+
+        /**
+         * Create a reader of the events of the clocks of a board.
+         * @param decoder The decoder of the document.
+         * @param board The board of the target clocks.
+         * @throws IllegalArgumentException The decoder or the board was undefined.
+         */
+        public Reader(BinaryModelCodec.Decoder decoder, ClockBoard board) throws IllegalArgumentException {
+            this(decoder, boardClocks(board));
+        }
+
+        /**
+         * Create a reader of the events.
+         * @param decoder The decoder of the document.
+         * @param clocks The function giving the clock of an identifier.
+         * @throws IllegalArgumentException The decoder or the function was undefined.
+         */
+        public Reader(BinaryModelCodec.Decoder decoder, IntFunction<? extends Clock> clocks)
+        throws IllegalArgumentException {
+            if (decoder == null) throw new IllegalArgumentException("Invalid decoder",
+            new NullPointerException("Decoder must be specified"));
+            if (clocks == null) throw new IllegalArgumentException("Invalid clocks",
+            new NullPointerException("Clocks must be specified"));
+            this.decoder = decoder;
+            this.clocks = clocks;
+        }
+
+        /**
+         * Read the next event into the fields of the reader.
+         * @return True, if and only if an event was read.
+         * @throws IOException The reading failed, or the event was invalid.
+         */
+        private boolean readNext() throws IOException {
+            if (!decoder.hasRemaining()) return false;
+            int tag = decoder.readVarInt();
+            kind = kindOf(tag >>> 1);
+            int id = decoder.readVarInt() - 1;
+            try {
+                target = id < 0 ? null : clocks.apply(id);
+            } catch (IllegalArgumentException e) {
+                throw new StreamCorruptedException("Invalid clock identifier " + id);
+            }
+            excess = decoder.readSignedVarInt();
+            name = (tag & NAMED) != 0 ? decoder.readString() : null;
+            return true;
+        }
+
+        /**
+         * Read the next event, and push it into a sink.
+         * The name of a named event is not passed to the sink.
+         * @param sink The sink receiving the event.
+         * @return True, if and only if an event was read.
+         * @throws IllegalArgumentException The sink was undefined.
+         * @throws IOException The reading failed, or the event was invalid.
+         */
+        public boolean next(ClockEventSink sink) throws IllegalArgumentException, IOException {
+            if (sink == null) throw new IllegalArgumentException("Invalid sink",
+            new NullPointerException("Sink must be specified"));
+            if (!readNext()) return false;
+            sink.onClockEvent(kind, target, excess);
+            return true;
+        }
+
+        /**
+         * Read all remaining events, and push them into a sink.
+         * @param sink The sink receiving the events.
+         * @return The number of the read events.
+         * @throws IllegalArgumentException The sink was undefined.
+         * @throws IOException The reading failed, or an event was invalid.
+         */
+        public long replay(ClockEventSink sink) throws IllegalArgumentException, IOException {
+            if (sink == null) throw new IllegalArgumentException("Invalid sink",
+            new NullPointerException("Sink must be specified"));
+            long result = 0;
+            while (readNext()) {
+                sink.onClockEvent(kind, target, excess);
+                result++;
+            }
+            return result;
+        }
+
+        /**
+         * Read the next event.
+         * The named events keep their names, and the other events have the names
+         * their kinds generate.
+         * @return The read event, or an undefined value, if the document has no
+         * more data.
+         * @throws IOException The reading failed, or the event was invalid.
+         */
+        public ClockEvent read() throws IOException {
+            if (!readNext()) return null;
+            try {
+                return kind.createEvent(target, name, excess);
+            } catch (IllegalArgumentException e) {
+                throw new StreamCorruptedException("Invalid clock event: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get the function giving the identifiers of the clocks of a board.
+     * @param board The board.
+     * @return The function giving the identifier of a clock on the board, or -1,
+     * if the clock is not on the board.
+     * @throws IllegalArgumentException The board was undefined.
+     */
+    private static ToIntFunction<Clock> boardIds(ClockBoard board) throws IllegalArgumentException {
+        if (board == null) throw new IllegalArgumentException("Invalid board",
+        new NullPointerException("Board must be specified"));
+        return (Clock clock) -> (clock instanceof VersionedClock versioned && versioned.getBoard() == board)
+            ? versioned.getId() : -1;
+    }
+
+    /**
+     * Get the function giving the clocks of a board.
+     * @param board The board.
+     * @return The function giving the clock of an identifier on the board.
+     * @throws IllegalArgumentException The board was undefined.
+     */
+    private static IntFunction<Clock> boardClocks(ClockBoard board) throws IllegalArgumentException {
+        if (board == null) throw new IllegalArgumentException("Invalid board",
+        new NullPointerException("Board must be specified"));
+        return board::getClock;
+    }
+}
@@ -0,0 +1,89 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+/**
+ * The kinds of the clock events.
+ */
+public enum ClockEventKind {
+    /**
+     * The clock advanced.
+     */
+    ADVANCED("advanced"),
+    /**
+     * The clock regressed.
+     */
+    REGRESSED("regressed"),
+    /**
+     * The clock completed.
+     */
+    COMPLETED("completed"),
+    /**
+     * The clock depleted.
+     */
+    DEPLETED("depleted");
+
+    /**
+     * The verb describing the event.
+     */
+    private final String verb;
+
+    /**
+     * Create a new clock event kind.
+     * @param verb The verb describing the event.
+     */
+    ClockEventKind(String verb) {
+        this.verb = verb;
+    }
+
+    /**
+     * Get the verb describing the event.
+     * @return The verb used in the event names.
+     */
+    public String getVerb() {
+        return this.verb;
+    }
+
+    /**
+     * Get the event name of a clock event of this kind.
+     * @param clock The target clock.
+     * @return The name of the event.
+     */
+    public String getEventName(Clock clock) {
+        String name = clock == null ? null : clock.getName();
+        return String.format("%s %s", name == null ? "Clock" : name, verb);
+    }
+
+    /**
+     * Create a clock event of this kind.
+     * The name of the created event is generated when it is first read.
+     * @param clock The target clock.
+     * @param excess The excess of the event.
+     * @return The created clock event.
+     * @throws IllegalArgumentException The excess was invalid for the kind.
+     */
+    public ClockEvent createEvent(Clock clock, int excess) throws IllegalArgumentException {
+        return createEvent(clock, null, excess);
+    }
+
+    /**
+     * Create a named clock event of this kind.
+     * @param clock The target clock.
+     * @param name The name of the event, or an undefined value, if the name is
+     * generated when it is first read.
+     * @param excess The excess of the event.
+     * @return The created clock event.
+     * @throws IllegalArgumentException The excess was invalid for the kind.
+     */
+    public ClockEvent createEvent(Clock clock, String name, int excess) throws IllegalArgumentException {
+        switch (this) {
+            case ADVANCED:
+                return new ExcessClockEvent.AdvanceClockEvent(clock, name, excess);
+            case REGRESSED:
+                return new ExcessClockEvent.RegressClockEvent(clock, name, excess);
+            case COMPLETED:
+                return new CompletedClockEvent(clock, name, excess);
+            case DEPLETED:
+            default:
+                return new DepletedClockEvent(clock, name, excess);
+        }
+    }
+}
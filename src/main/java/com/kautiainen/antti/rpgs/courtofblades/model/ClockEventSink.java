@@ -0,0 +1,52 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.Collection;
+
+/**
+ * The sink receiving the data of clock events.
+ *
+ * The clocks push the kind, the target, and the excess of their events into a sink
+ * instead of creating event objects. A sink creating the event objects only when
+ * they are needed is acquired with {@link #collectInto(Collection)}.
+ */
+@FunctionalInterface
+public interface ClockEventSink {
+
+    /**
+     * Create a sink collecting the events into a collection.
+     * @param target The collection receiving the events.
+     * @return The sink adding a clock event of each received event into the collection.
+     * @throws IllegalArgumentException The collection was undefined.
+     */
+    static ClockEventSink collectInto(Collection<? super ClockEvent> target) throws IllegalArgumentException {
+        if (target == null) throw new IllegalArgumentException("Invalid target",
+        new NullPointerException("Target must be specified"));
+        return (ClockEventKind kind, Clock clock, int excess) -> target.add(kind.createEvent(clock, excess));
+    }
+
+    /**
+     * Receive a clock event.
+     * @param kind The kind of the event.
+     * @param clock The target clock of the event.
+     * @param excess The excess of the event.
+     */
+    public void onClockEvent(ClockEventKind kind, Clock clock, int excess);
+
+    /**
+     * Receive a clock completion.
+     * @param clock The completed clock.
+     * @param excess The excess of the completion.
+     */
+    default void completed(Clock clock, int excess) {
+        onClockEvent(ClockEventKind.COMPLETED, clock, excess);
+    }
+
+    /**
+     * Receive a clock depletion.
+     * @param clock The depleted clock.
+     * @param excess The excess of the depletion.
+     */
+    default void depleted(Clock clock, int excess) {
+        onClockEvent(ClockEventKind.DEPLETED, clock, excess);
+    }
+}
@@ -0,0 +1,707 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The event-sourced journal of the clocks of a campaign.
+ *
+ * The journal keeps the clocks registered to it, and records each operation on the
+ * clocks as a small record appended to a journal file. The operations are applied to
+ * the clocks in the order they are recorded. The records of concurrent operations are
+ * written and forced to the disk together, and each operation returns after its record
+ * is durable.
+ *
+ * A snapshot stores the state of all clocks, and starts a new journal file. Opening
+ * a journal reads the latest snapshot, and replays the journal file following it.
+ * The clocks of the journal must only be changed through the journal.
+ */
+public class ClockJournal implements AutoCloseable {
+
+    /**
+     * The record type registering a clock.
+     */
+    private static final byte CREATE = 1;
+
+    /**
+     * The record type advancing a clock.
+     */
+    private static final byte ADVANCE = 2;
+
+    /**
+     * The record type setting the current position of a clock.
+     */
+    private static final byte SET_CURRENT = 3;
+
+    /**
+     * The record type setting the enabled status of a clock.
+     */
+    private static final byte SET_ENABLED = 4;
+
+    /**
+     * The magic number of the snapshot file.
+     */
+    private static final int SNAPSHOT_MAGIC = 0x434C4B53;
+
+    /**
+     * The name of the snapshot file.
+     */
+    public static final String SNAPSHOT_FILE = "clocks.snapshot";
+
+    /**
+     * The prefix of the journal file names.
+     */
+    private static final String JOURNAL_PREFIX = "clocks-";
+
+    /**
+     * The suffix of the journal file names.
+     */
+    private static final String JOURNAL_SUFFIX = ".journal";
+
+    /**
+     * The initial size of the record buffers.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The directory of the journal.
+     */
+    private final Path directory;
+
+    /**
+     * The number of operations between the automatic snapshots.
+     */
+    private final int snapshotInterval;
+
+    /**
+     * The clocks by clock identifier.
+     */
+    private final List<Clock> clocks = new ArrayList<>();
+
+    /**
+     * The clock identifiers of the clocks.
+     */
+    private final Map<Clock, Integer> ids = new IdentityHashMap<>();
+
+    /**
+     * The generation of the current journal file.
+     */
+    private long generation;
+
+    /**
+     * The channel of the current journal file.
+     */
+    private FileChannel channel;
+
+    /**
+     * The buffer of the records not yet written.
+     */
+    private ByteBuffer pending = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The spare buffer swapped with the pending buffer on write.
+     */
+    private ByteBuffer spare = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The number of bytes appended to the journal.
+     */
+    private long appended = 0L;
+
+    /**
+     * The number of appended bytes which are durable.
+     */
+    private long durable = 0L;
+
+    /**
+     * Is a thread writing the records.
+     */
+    private boolean writing = false;
+
+    /**
+     * The number of operations since the last snapshot.
+     */
+    private int operations = 0;
+
+    /**
+     * The failure of writing the journal.
+     */
+    private IOException failure = null;
+
+    /**
+     * Create a journal.
+     * @param directory The directory of the journal.
+     * @param snapshotInterval The number of operations between the automatic
+     * snapshots. Zero disables the automatic snapshots.
+     */
+    private ClockJournal(Path directory, int snapshotInterval) {
+        this.directory = directory;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Open a journal without automatic snapshots.
+     * @param directory The directory of the journal.
+     * @return The journal with the clocks restored from the directory.
+     * @throws IOException The journal could not be read.
+     */
+    public static ClockJournal open(Path directory) throws IOException {
+        return open(directory, 0);
+    }
+
+    /**
+     * Open a journal. The clocks are restored from the latest snapshot and the
+     * journal file following it. A partially written record at the end of the
+     * journal file is discarded.
+     * @param directory The directory of the journal.
+     * @param snapshotInterval The number of operations between the automatic snapshots.
+     * Zero disables the automatic snapshots.
+     * @return The journal with the restored clocks.
+     * @throws IOException The journal could not be read.
+     * @throws IllegalArgumentException Either the directory or the interval was invalid.
+     */
+    public static ClockJournal open(Path directory, int snapshotInterval)
+    throws IOException, IllegalArgumentException {
+        if (directory == null) throw new IllegalArgumentException("Invalid directory",
+        new NullPointerException("Directory must be specified"));
+        if (snapshotInterval < 0) throw new IllegalArgumentException("Invalid snapshot interval",
+        new IllegalArgumentException("Negative interval"));
+        Files.createDirectories(directory);
+        ClockJournal result = new ClockJournal(directory, snapshotInterval);
+        result.restore();
+        return result;
+    }
+
+    /**
+     * Get the path of a journal file.
+     * @param generation The generation of the journal file.
+     * @return The path of the journal file.
+     */
+    private Path journalFile(long generation) {
+        return directory.resolve(JOURNAL_PREFIX + generation + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Restore the clocks from the snapshot and the journal file.
+     * @throws IOException The restoring failed.
+     */
+    private void restore() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        generation = 0L;
+        if (Files.exists(snapshot)) {
+            try (FileChannel input = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                ByteBuffer buffer = input.map(FileChannel.MapMode.READ_ONLY, 0, input.size());
+                if (buffer.getInt() != SNAPSHOT_MAGIC) throw new IOException("Invalid snapshot file");
+                generation = buffer.getLong();
+                int count = buffer.getInt();
+                for (int i = 0; i < count; i++) {
+                    if (buffer.get() != CREATE) throw new IOException("Invalid snapshot record");
+                    readCreate(buffer);
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("Corrupted snapshot file", e);
+            }
+        }
+
+        Path journal = journalFile(generation);
+        long valid = 0L;
+        if (Files.exists(journal)) {
+            try (FileChannel input = FileChannel.open(journal, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = input.map(FileChannel.MapMode.READ_ONLY, 0, input.size());
+                valid = replay(buffer);
+            }
+        }
+        channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        channel.truncate(valid);
+        channel.position(valid);
+        deleteOldJournals();
+    }
+
+    /**
+     * Replay the records of a journal file.
+     * @param buffer The contents of the journal file.
+     * @return The length of the complete records.
+     * @throws IOException The journal contained an invalid record.
+     */
+    private long replay(ByteBuffer buffer) throws IOException {
+        int valid = 0;
+        try {
+            while (buffer.hasRemaining()) {
+                byte type = buffer.get();
+                switch (type) {
+                    case CREATE:
+                        readCreate(buffer);
+                        break;
+                    case ADVANCE: {
+                        int id = buffer.getInt();
+                        int amount = buffer.getInt();
+                        getClock(id).advance(amount);
+                        break;
+                    }
+                    case SET_CURRENT: {
+                        int id = buffer.getInt();
+                        int current = buffer.getInt();
+                        getClock(id).setCurrent(current);
+                        break;
+                    }
+                    case SET_ENABLED: {
+                        int id = buffer.getInt();
+                        boolean enabled = buffer.get() != 0;
+                        getClock(id).setEnabled(enabled);
+                        break;
+                    }
+                    default:
+                        // The rest of the file is not a valid record.
+                        return valid;
+                }
+                valid = buffer.position();
+            }
+        } catch (BufferUnderflowException e) {
+            // The last record was partially written.
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupted journal file", e);
+        }
+        return valid;
+    }
+
+    /**
+     * Delete the journal files of the previous generations.
+     * @throws IOException The listing of the directory failed.
+     */
+    private void deleteOldJournals() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+            JOURNAL_PREFIX + "*" + JOURNAL_SUFFIX)) {
+            for (Path file: files) {
+                String name = file.getFileName().toString();
+                try {
+                    long fileGeneration = Long.parseLong(
+                        name.substring(JOURNAL_PREFIX.length(), name.length() - JOURNAL_SUFFIX.length()));
+                    if (fileGeneration < generation) {
+                        Files.deleteIfExists(file);
+                    }
+                } catch (NumberFormatException e) {
+                    // The file is not a journal file.
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the clocks of the journal.
+     * @return The unmodifiable list of the clocks in the order of the clock identifiers.
+     */
+    public synchronized List<Clock> getClocks() {
+        return Collections.unmodifiableList(new ArrayList<>(clocks));
+    }
+
+    /**
+     * Get a clock of the journal.
+     * @param id The clock identifier.
+     * @return The clock with the identifier.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized Clock getClock(int id) throws IllegalArgumentException {
+        if (id < 0 || id >= clocks.size()) throw new IllegalArgumentException("Invalid clock id",
+        new IndexOutOfBoundsException(id));
+        return clocks.get(id);
+    }
+
+    /**
+     * Get the clock identifier of a clock.
+     * @param clock The clock.
+     * @return The clock identifier of the clock, or -1, if the clock is not
+     * in the journal.
+     */
+    public synchronized int getId(Clock clock) {
+        Integer result = clock == null ? null : ids.get(clock);
+        return result == null ? -1 : result;
+    }
+
+    /**
+     * Register a clock to the journal.
+     * @param clock The registered clock.
+     * @return The clock identifier of the clock.
+     * @throws IOException The record could not be written.
+     * @throws IllegalArgumentException The clock was undefined.
+     */
+    public int register(Clock clock) throws IOException, IllegalArgumentException {
+        if (clock == null) throw new IllegalArgumentException("Invalid clock",
+        new NullPointerException("Clock must be specified"));
+        int id;
+        long position;
+        synchronized (this) {
+            checkFailure();
+            Integer existing = ids.get(clock);
+            if (existing != null) return existing;
+            id = addClock(clock);
+            position = appendCreate(clock);
+        }
+        commit(position);
+        return id;
+    }
+
+    /**
+     * Advance a clock of the journal.
+     * @param id The clock identifier.
+     * @param amount The advancement amount.
+     * @return The amount of advancement not used.
+     * @throws IOException The record could not be written.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public int advance(int id, int amount) throws IOException, IllegalArgumentException {
+        int result;
+        long position;
+        synchronized (this) {
+            checkFailure();
+            result = getClock(id).advance(amount);
+            position = append(ADVANCE, id, amount, 9);
+        }
+        commit(position);
+        return result;
+    }
+
+    /**
+     * Set the current position of a clock of the journal.
+     * @param id The clock identifier.
+     * @param current The new current position.
+     * @throws IOException The record could not be written.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public void setCurrent(int id, int current) throws IOException, IllegalArgumentException {
+        long position;
+        synchronized (this) {
+            checkFailure();
+            getClock(id).setCurrent(current);
+            position = append(SET_CURRENT, id, current, 9);
+        }
+        commit(position);
+    }
+
+    /**
+     * Set the enabled status of a clock of the journal.
+     * @param id The clock identifier.
+     * @param enabled The new enabled status.
+     * @throws IOException The record could not be written.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public void setEnabled(int id, boolean enabled) throws IOException, IllegalArgumentException {
+        long position;
+        synchronized (this) {
+            checkFailure();
+            getClock(id).setEnabled(enabled);
+            position = append(SET_ENABLED, id, enabled ? 1 : 0, 6);
+        }
+        commit(position);
+    }
+
+    /**
+     * Throw the failure of the journal.
+     * @throws IOException The journal has failed or closed.
+     */
+    private void checkFailure() throws IOException {
+        if (failure != null) throw new IOException("Journal is not writable", failure);
+    }
+
+    /**
+     * Add a clock to the clocks of the journal.
+     * @param clock The added clock.
+     * @return The clock identifier of the clock.
+     */
+    private int addClock(Clock clock) {
+        int id = clocks.size();
+        clocks.add(clock);
+        ids.put(clock, id);
+        return id;
+    }
+
+    /**
+     * Ensure the pending buffer has room for a record.
+     * @param length The length of the record.
+     */
+    private void reserve(int length) {
+        if (pending.remaining() < length) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + length));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+    }
+
+    /**
+     * Append a fixed length record.
+     * @param type The record type.
+     * @param id The clock identifier.
+     * @param value The value of the record.
+     * @param length The length of the record. The value is written as a byte
+     * for records of six bytes, and as an integer otherwise.
+     * @return The journal position after the record.
+     */
+    private long append(byte type, int id, int value, int length) {
+        reserve(length);
+        pending.put(type).putInt(id);
+        if (length == 6) {
+            pending.put((byte)value);
+        } else {
+            pending.putInt(value);
+        }
+        appended += length;
+        operations++;
+        return appended;
+    }
+
+    /**
+     * Append the record registering a clock.
+     * @param clock The registered clock.
+     * @return The journal position after the record.
+     */
+    private long appendCreate(Clock clock) {
+        int start = pending.position();
+        ByteBuffer record = encodeCreate(clock, getId(clock));
+        reserve(record.remaining());
+        pending.put(record);
+        appended += pending.position() - start;
+        operations++;
+        return appended;
+    }
+
+    /**
+     * Encode the record registering a clock.
+     * @param clock The clock.
+     * @param id The clock identifier.
+     * @return The buffer containing the record.
+     */
+    private static ByteBuffer encodeCreate(Clock clock, int id) {
+        ClockType type = clock.getType();
+        List<byte[]> strings = new ArrayList<>();
+        strings.add(encodeString(clock.getName()));
+        strings.add(encodeString(type.getName()));
+        strings.add(encodeString(type.getDescription()));
+        for (String trait: type.getTraits()) {
+            strings.add(encodeString(trait));
+        }
+        int length = 1 + 4 + 4 + 4 + 1 + 4;
+        for (byte[] string: strings) {
+            length += 4 + (string == null ? 0 : string.length);
+        }
+        ByteBuffer result = ByteBuffer.allocate(length);
+        result.put(CREATE).putInt(id);
+        putString(result, strings.get(0));
+        result.putInt(clock.getCurrent()).putInt(clock.getMaximum()).put((byte)(clock.isEnabled() ? 1 : 0));
+        putString(result, strings.get(1));
+        putString(result, strings.get(2));
+        result.putInt(strings.size() - 3);
+        for (int i = 3; i < strings.size(); i++) {
+            putString(result, strings.get(i));
+        }
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Read the record registering a clock. The record type has already been read.
+     * @param buffer The buffer containing the record.
+     * @throws IOException The record was invalid.
+     */
+    private void readCreate(ByteBuffer buffer) throws IOException {
+        int id = buffer.getInt();
+        String name = getString(buffer);
+        int current = buffer.getInt();
+        int max = buffer.getInt();
+        boolean enabled = buffer.get() != 0;
+        String typeName = getString(buffer);
+        String description = getString(buffer);
+        int traitCount = buffer.getInt();
+        if (traitCount < 0) throw new IOException("Invalid trait count " + traitCount);
+        // Each trait takes at least its length, so a larger count is a torn record.
+        if (traitCount > buffer.remaining() / Integer.BYTES) throw new BufferUnderflowException();
+        List<String> traits = new ArrayList<>(traitCount);
+        for (int i = 0; i < traitCount; i++) {
+            traits.add(getString(buffer));
+        }
+        if (id != clocks.size()) throw new IOException("Invalid clock id " + id);
+        addClock(new Clock(name, current, max, ClockTypeDictionary.canonical(typeName, description, traits), enabled));
+    }
+
+    /**
+     * Encode a string.
+     * @param value The string.
+     * @return The UTF-8 bytes of the string, or an undefined value for an undefined string.
+     */
+    private static byte[] encodeString(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write an encoded string with its length.
+     * @param buffer The target buffer.
+     * @param value The encoded string.
+     */
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(value.length).put(value);
+        }
+    }
+
+    /**
+     * Read a string with its length.
+     * @param buffer The source buffer.
+     * @return The read string.
+     * @throws BufferUnderflowException The buffer ended before the string. The length
+     * is checked before allocating, so a torn record cannot request a huge array.
+     */
+    private static String getString(ByteBuffer buffer) throws BufferUnderflowException {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        if (length > buffer.remaining()) throw new BufferUnderflowException();
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Make the records up to a position durable. The first thread waiting for
+     * the pending records writes and forces all of them, and the other threads
+     * wait for it.
+     * @param position The journal position.
+     * @throws IOException The writing failed.
+     */
+    private void commit(long position) throws IOException {
+        ByteBuffer written;
+        long end;
+        synchronized (this) {
+            while (durable < position && writing) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the journal");
+                }
+            }
+            if (durable >= position) return;
+            checkFailure();
+            writing = true;
+            written = pending;
+            pending = spare;
+            spare = null;
+            end = appended;
+        }
+        IOException error = null;
+        try {
+            written.flip();
+            while (written.hasRemaining()) {
+                channel.write(written);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            synchronized (this) {
+                written.clear();
+                spare = written;
+                writing = false;
+                if (error == null) {
+                    durable = end;
+                } else {
+                    failure = error;
+                }
+                notifyAll();
+            }
+        }
+        if (error != null) throw error;
+        maybeSnapshot();
+    }
+
+    /**
+     * Create a snapshot, if the automatic snapshot interval has passed.
+     * @throws IOException The snapshot failed.
+     */
+    private void maybeSnapshot() throws IOException {
+        if (snapshotInterval > 0) {
+            synchronized (this) {
+                if (operations < snapshotInterval) return;
+            }
+            snapshot();
+        }
+    }
+
+    /**
+     * Create a snapshot of the clocks, and start a new journal file.
+     * @throws IOException The snapshot failed.
+     */
+    public synchronized void snapshot() throws IOException {
+        checkFailure();
+        while (writing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the journal");
+            }
+        }
+        // Write the pending records before the snapshot.
+        pending.flip();
+        while (pending.hasRemaining()) {
+            channel.write(pending);
+        }
+        pending.clear();
+        channel.force(false);
+        durable = appended;
+
+        long next = generation + 1;
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(16);
+            header.putInt(SNAPSHOT_MAGIC).putLong(next).putInt(clocks.size()).flip();
+            while (header.hasRemaining()) output.write(header);
+            for (int id = 0; id < clocks.size(); id++) {
+                ByteBuffer record = encodeCreate(clocks.get(id), id);
+                while (record.hasRemaining()) output.write(record);
+            }
+            output.force(true);
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        channel.close();
+        generation = next;
+        channel = FileChannel.open(journalFile(generation), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        operations = 0;
+        deleteOldJournals();
+    }
+
+    /**
+     * Close the journal. The pending records are written before closing.
+     * @throws IOException The closing failed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null || !channel.isOpen()) return;
+        try {
+            commit(appended);
+        } finally {
+            if (failure == null) failure = new IOException("Journal is closed");
+            channel.close();
+        }
+    }
+}
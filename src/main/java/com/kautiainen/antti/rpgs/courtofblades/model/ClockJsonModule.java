@@ -0,0 +1,521 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The Jackson module of the streaming clock codec.
+ *
+ * The serializers and the deserializers of the module read and write the clocks,
+ * the clock types, and the clock events directly on the token stream without
+ * reflection. The clock is written as an object with the fields <code>name</code>,
+ * <code>current</code>, <code>max</code>, <code>type</code>, and <code>enabled</code>.
+ * The clock type registered in the {@link ClockTypeDictionary} is written as the
+ * string of its name, which does not depend on the order of the registrations. The
+ * documents written before the names wrote the registered type as the number of its
+ * identifier, and the number is still read as the identifier of the running process,
+ * which matches the identifiers of the default types. The other clock types are written once per
+ * document as an object with the fields <code>ref</code>, <code>name</code>,
+ * <code>description</code>, and <code>traits</code>, and their later occurrences
+ * are written as an object with only the document reference <code>ref</code>.
+ * The read clock types equal to a registered type are replaced with the
+ * registered type. The clock event is written
+ * as an object with the fields <code>kind</code>, <code>name</code>,
+ * <code>excess</code>, and <code>target</code>, where the kind is the verb of
+ * the {@link ClockEventKind} of the event. The readers skip unknown fields.
+ */
+public final class ClockJsonModule extends SimpleModule {
+
+    /**
+     * The serial version of the module.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The serializer of the clock types.
+     */
+    public static class ClockTypeSerializer extends StdSerializer<ClockType> {
+
+        /**
+         * The serial version of the serializer.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new clock type serializer.
+         */
+        public ClockTypeSerializer() {
+            super(ClockType.class);
+        }
+
+        @Override
+        public void serialize(ClockType value, JsonGenerator generator, SerializerProvider provider)
+        throws IOException {
+            writeClockType(generator, value, provider);
+        }
+    }
+
+    /**
+     * The deserializer of the clock types.
+     */
+    public static class ClockTypeDeserializer extends StdDeserializer<ClockType> {
+
+        /**
+         * The serial version of the deserializer.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new clock type deserializer.
+         */
+        public ClockTypeDeserializer() {
+            super(ClockType.class);
+        }
+
+        @Override
+        public ClockType deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return readClockType(parser, context);
+        }
+    }
+
+    /**
+     * The serializer of the clocks.
+     */
+    public static class ClockSerializer extends StdSerializer<Clock> {
+
+        /**
+         * The serial version of the serializer.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new clock serializer.
+         */
+        public ClockSerializer() {
+            super(Clock.class);
+        }
+
+        @Override
+        public void serialize(Clock value, JsonGenerator generator, SerializerProvider provider)
+        throws IOException {
+            writeClock(generator, value, provider);
+        }
+    }
+
+    /**
+     * The deserializer of the clocks.
+     */
+    public static class ClockDeserializer extends StdDeserializer<Clock> {
+
+        /**
+         * The serial version of the deserializer.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new clock deserializer.
+         */
+        public ClockDeserializer() {
+            super(Clock.class);
+        }
+
+        @Override
+        public Clock deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return readClock(parser, context);
+        }
+    }
+
+    /**
+     * The serializer of the clock events.
+     */
+    public static class ClockEventSerializer extends StdSerializer<ClockEvent> {
+
+        /**
+         * The serial version of the serializer.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new clock event serializer.
+         */
+        public ClockEventSerializer() {
+            super(ClockEvent.class);
+        }
+
+        @Override
+        public void serialize(ClockEvent value, JsonGenerator generator, SerializerProvider provider)
+        throws IOException {
+            generator.writeStartObject();
+            generator.writeStringField("kind", kindOf(value).getVerb());
+            generator.writeStringField("name", value.getEventName());
+            generator.writeNumberField("excess", value.getExcess());
+            generator.writeFieldName("target");
+            writeClock(generator, value.getTarget(), provider);
+            generator.writeEndObject();
+        }
+    }
+
+    /**
+     * The deserializer of the clock events.
+     */
+    public static class ClockEventDeserializer extends StdDeserializer<ClockEvent> {
+
+        /**
+         * The serial version of the deserializer.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Create a new clock event deserializer.
+         */
+        public ClockEventDeserializer() {
+            super(ClockEvent.class);
+        }
+
+        @Override
+        public ClockEvent deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            ClockEventKind kind = null;
+            String name = null;
+            int excess = 0;
+            Clock target = null;
+            for (JsonToken token = startObject(parser, context); token == JsonToken.FIELD_NAME;
+                token = parser.nextToken()) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "kind":
+                        kind = kindOf(parser.getValueAsString(), context);
+                        break;
+                    case "name":
+                        name = parser.getValueAsString();
+                        break;
+                    case "excess":
+                        excess = parser.getIntValue();
+                        break;
+                    case "target":
+                        target = readClock(parser, context);
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            try {
+                if (kind == null) {
+                    // The events without kind are completions or depletions.
+                    return ClockEvent.create(target, name, excess);
+                }
+                switch (kind) {
+                    case COMPLETED:
+                        return ClockEvent.completedClock(target, name, excess);
+                    case DEPLETED:
+                        return ClockEvent.depletedClock(target, name, excess);
+                    default:
+                        return kind.createEvent(target, name, excess);
+                }
+            } catch (IllegalArgumentException e) {
+                throw context.mappingException(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Create the module.
+     */
+    public ClockJsonModule() {
+        super("ClockJsonModule", Version.unknownVersion());
+        addSerializer(ClockType.class, new ClockTypeSerializer());
+        addDeserializer(ClockType.class, new ClockTypeDeserializer());
+        addSerializer(Clock.class, new ClockSerializer());
+        addDeserializer(Clock.class, new ClockDeserializer());
+        addSerializer(ClockEvent.class, new ClockEventSerializer());
+        addDeserializer(ClockEvent.class, new ClockEventDeserializer());
+    }
+
+    /**
+     * Get the kind of a clock event.
+     * @param event The event.
+     * @return The kind of the event.
+     */
+    static ClockEventKind kindOf(ClockEvent event) {
+        if (event instanceof ClockEventBus.Event slot) {
+            return slot.getKind();
+        } else if (event instanceof ExcessClockEvent.AdvanceClockEvent) {
+            return ClockEventKind.ADVANCED;
+        } else if (event instanceof ExcessClockEvent.RegressClockEvent) {
+            return ClockEventKind.REGRESSED;
+        } else if (event instanceof CompletedClockEvent) {
+            return ClockEventKind.COMPLETED;
+        } else if (event instanceof DepletedClockEvent) {
+            return ClockEventKind.DEPLETED;
+        } else {
+            return event.getExcess() >= 0 ? ClockEventKind.COMPLETED : ClockEventKind.DEPLETED;
+        }
+    }
+
+    /**
+     * Get the clock event kind of a verb.
+     * @param verb The verb of the kind.
+     * @param context The deserialization context.
+     * @return The kind with the verb.
+     * @throws IOException The verb was unknown.
+     */
+    private static ClockEventKind kindOf(String verb, DeserializationContext context) throws IOException {
+        for (ClockEventKind kind: ClockEventKind.values()) {
+            if (kind.getVerb().equals(verb)) return kind;
+        }
+        throw context.mappingException("Unknown clock event kind " + verb);
+    }
+
+    /**
+     * Move the parser to the first field of an object.
+     * @param parser The parser at the start of an object, or at its first field.
+     * @param context The deserialization context.
+     * @return The current token after the start of the object.
+     * @throws IOException The parser was not at an object.
+     */
+    static JsonToken startObject(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            token = parser.nextToken();
+        }
+        if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+            throw context.mappingException("Expected an object");
+        }
+        return token;
+    }
+
+    /**
+     * Get the clock type references of the document being written.
+     * @param provider The serializer provider, or an undefined value, if the document
+     * has no type references.
+     * @return The clock type references of the document, or an undefined value.
+     */
+    private static ClockTypeDictionary.DocumentTypes documentTypes(SerializerProvider provider) {
+        if (provider == null) return null;
+        Object result = provider.getAttribute(ClockTypeDictionary.DocumentTypes.class);
+        if (result == null) {
+            result = new ClockTypeDictionary.DocumentTypes();
+            provider.setAttribute(ClockTypeDictionary.DocumentTypes.class, result);
+        }
+        return (ClockTypeDictionary.DocumentTypes)result;
+    }
+
+    /**
+     * Get the clock type references of the document being read.
+     * @param context The deserialization context.
+     * @return The clock type references of the document.
+     */
+    private static ClockTypeDictionary.DocumentTypes documentTypes(DeserializationContext context) {
+        Object result = context.getAttribute(ClockTypeDictionary.DocumentTypes.class);
+        if (result == null) {
+            result = new ClockTypeDictionary.DocumentTypes();
+            context.setAttribute(ClockTypeDictionary.DocumentTypes.class, result);
+        }
+        return (ClockTypeDictionary.DocumentTypes)result;
+    }
+
+    /**
+     * Write a clock type.
+     * @param generator The generator.
+     * @param type The written type.
+     * @param provider The serializer provider holding the type references of the
+     * document. An undefined provider writes the whole type.
+     * @throws IOException The writing failed.
+     */
+    static void writeClockType(JsonGenerator generator, ClockType type, SerializerProvider provider)
+    throws IOException {
+        if (type == null) {
+            generator.writeNull();
+            return;
+        }
+        String key = ClockTypeDictionary.getKey(type);
+        if (key != null) {
+            generator.writeString(key);
+            return;
+        }
+        ClockTypeDictionary.DocumentTypes types = documentTypes(provider);
+        generator.writeStartObject();
+        if (types != null) {
+            int reference = types.getWritten(type);
+            if (reference >= 0) {
+                generator.writeNumberField("ref", reference);
+                generator.writeEndObject();
+                return;
+            }
+            generator.writeNumberField("ref", types.addWritten(type));
+        }
+        generator.writeStringField("name", type.getName());
+        generator.writeStringField("description", type.getDescription());
+        generator.writeArrayFieldStart("traits");
+        for (String trait: type.getTraits()) {
+            generator.writeString(trait);
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    /**
+     * Read a clock type.
+     * @param parser The parser at the clock type.
+     * @param context The deserialization context.
+     * @return The read clock type, or an undefined value, if the value was null.
+     * @throws IOException The reading failed.
+     */
+    static ClockType readClockType(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken current = parser.getCurrentToken();
+        if (current == JsonToken.VALUE_NULL) return null;
+        try {
+            if (current == JsonToken.VALUE_STRING) {
+                return ClockTypeDictionary.get(parser.getText());
+            } else if (current == JsonToken.VALUE_NUMBER_INT) {
+                return ClockTypeDictionary.get(parser.getIntValue());
+            }
+        } catch (IllegalArgumentException e) {
+            throw context.mappingException(e.getMessage());
+        }
+        Integer reference = null;
+        boolean described = false;
+        String name = null;
+        String description = null;
+        List<String> traits = null;
+        for (JsonToken token = startObject(parser, context); token == JsonToken.FIELD_NAME;
+            token = parser.nextToken()) {
+            String field = parser.getCurrentName();
+            token = parser.nextToken();
+            switch (field) {
+                case "ref":
+                    reference = parser.getIntValue();
+                    break;
+                case "name":
+                    described = true;
+                    name = parser.getValueAsString();
+                    break;
+                case "description":
+                    described = true;
+                    description = parser.getValueAsString();
+                    break;
+                case "traits":
+                    described = true;
+                    if (token == JsonToken.START_ARRAY) {
+                        traits = new ArrayList<>();
+                        while (parser.nextToken() != JsonToken.END_ARRAY) {
+                            traits.add(parser.getValueAsString());
+                        }
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        if (reference == null) {
+            return ClockTypeDictionary.canonical(name, description, traits);
+        }
+        ClockTypeDictionary.DocumentTypes types = documentTypes(context);
+        try {
+            if (!described) return types.getRead(reference);
+        } catch (IllegalArgumentException e) {
+            throw context.mappingException(e.getMessage());
+        }
+        ClockType result = ClockTypeDictionary.canonical(name, description, traits);
+        if (types.addRead(result) != reference) {
+            throw context.mappingException("Invalid clock type reference " + reference);
+        }
+        return result;
+    }
+
+    /**
+     * Write a clock.
+     * @param generator The generator.
+     * @param clock The written clock.
+     * @param provider The serializer provider holding the type references of the
+     * document. An undefined provider writes the whole type of the clock.
+     * @throws IOException The writing failed.
+     */
+    static void writeClock(JsonGenerator generator, Clock clock, SerializerProvider provider) throws IOException {
+        if (clock == null) {
+            generator.writeNull();
+            return;
+        }
+        String name;
+        int current;
+        int max;
+        ClockType type;
+        boolean enabled;
+        synchronized (clock) {
+            name = clock.getName();
+            current = clock.getCurrent();
+            max = clock.getMaximum();
+            type = clock.getType();
+            enabled = clock.isEnabled();
+        }
+        generator.writeStartObject();
+        generator.writeStringField("name", name);
+        generator.writeNumberField("current", current);
+        generator.writeNumberField("max", max);
+        generator.writeFieldName("type");
+        writeClockType(generator, type, provider);
+        generator.writeBooleanField("enabled", enabled);
+        generator.writeEndObject();
+    }
+
+    /**
+     * Read a clock.
+     * A clock without a type is a progress clock, and a clock without an enabled
+     * status is enabled unless it is completed or depleted.
+     * @param parser The parser at the clock.
+     * @param context The deserialization context.
+     * @return The read clock, or an undefined value, if the value was null.
+     * @throws IOException The reading failed.
+     */
+    static Clock readClock(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.VALUE_NULL) return null;
+        String name = null;
+        int current = 0;
+        int max = 0;
+        ClockType type = null;
+        Boolean enabled = null;
+        for (JsonToken token = startObject(parser, context); token == JsonToken.FIELD_NAME;
+            token = parser.nextToken()) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "name":
+                    name = parser.getValueAsString();
+                    break;
+                case "current":
+                    current = parser.getIntValue();
+                    break;
+                case "max":
+                    max = parser.getIntValue();
+                    break;
+                case "type":
+                    type = readClockType(parser, context);
+                    break;
+                case "enabled":
+                    enabled = parser.getBooleanValue();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        try {
+            if (type == null) type = ClockType.PROGRESS_CLOCK;
+            return enabled == null ? new Clock(name, current, max, type)
+                : new Clock(name, current, max, type, enabled);
+        } catch (IllegalArgumentException e) {
+            throw context.mappingException(e.getMessage());
+        }
+    }
+}
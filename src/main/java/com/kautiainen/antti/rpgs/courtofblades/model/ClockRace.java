@@ -0,0 +1,140 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * A race of clocks only one clock may win.
+ *
+ * The race is typically formed of clocks of the type {@link ClockType#RACING_CLOCK}.
+ * The members of the race are advanced through the race. An advancement completing
+ * a member elects the member as the winner with a single compare-and-set, and an
+ * advancement which would complete a member after the winner has been elected is
+ * rejected. Each advancement only holds the monitor of the advanced member, so the
+ * advancements of different members do not block each other. After the election
+ * the other members are disabled.
+ */
+public class ClockRace {
+
+    /**
+     * The members of the race.
+     */
+    private final List<Clock> members;
+
+    /**
+     * The set of the members of the race.
+     */
+    private final Set<Clock> memberSet;
+
+    /**
+     * The winner of the race.
+     */
+    private final AtomicReference<Clock> winner = new AtomicReference<>();
+
+    /**
+     * Create a new race.
+     * If a member has already completed, the first completed member wins the race.
+     * @param members The members of the race.
+     * @throws IllegalArgumentException The members were invalid.
+     */
+    public ClockRace(Collection<? extends Clock> members) throws IllegalArgumentException {
+        if (members == null || members.isEmpty()) throw new IllegalArgumentException("Invalid members",
+        new IllegalArgumentException("Race requires members"));
+        Set<Clock> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Clock member: members) {
+            if (member == null) throw new IllegalArgumentException("Invalid members",
+            new NullPointerException("Member must be specified"));
+            set.add(member);
+        }
+        this.members = Collections.unmodifiableList(new ArrayList<>(set));
+        this.memberSet = set;
+        for (Clock member: this.members) {
+            if (member.isCompleted() && winner.compareAndSet(null, member)) {
+                disableLosers(member);
+                break;
+            }
+        }
+    }
+
+    /**
+     * Get the members of the race.
+     * @return The unmodifiable list of the members.
+     */
+    public List<Clock> getMembers() {
+        return members;
+    }
+
+    /**
+     * Get the winner of the race.
+     * @return The winner of the race, if the race has been won.
+     */
+    public Optional<Clock> getWinner() {
+        return Optional.ofNullable(winner.get());
+    }
+
+    /**
+     * Has the race been won.
+     * @return True, if and only if the race has a winner.
+     */
+    public boolean isDecided() {
+        return winner.get() != null;
+    }
+
+    /**
+     * Advance a member of the race.
+     * @param member The advanced member.
+     * @param amount The advancement amount. If value is negative, the clock regresses.
+     * @return The completion event of the member, if the advancement won the race.
+     * Otherwise, an empty value. Only the advancement winning the race returns an event.
+     * @throws IllegalArgumentException The clock was not a member of the race.
+     */
+    public Optional<ClockEvent> advance(Clock member, int amount) throws IllegalArgumentException {
+        if (member == null || !memberSet.contains(member)) throw new IllegalArgumentException("Invalid member",
+        new IllegalArgumentException("Clock is not a member of the race"));
+        ClockEvent result = null;
+        synchronized (member) {
+            if (winner.get() != null || member.isDisabled()) {
+                // The race is over, or the member is not racing.
+                return Optional.empty();
+            }
+            int current = member.getCurrent();
+            int maximum = member.getMaximum();
+            long advanced = Clock.computeAdvance(current, amount, member.getMinimum(), maximum,
+                member.advanceBeyondMaximum(), member.regressBeyondMinimum());
+            boolean completes = member.getType().hasAnyTrait(ClockType.COMPLETING_TRAITS)
+                && current < maximum && Clock.advancedCurrent(advanced) >= maximum;
+            if (completes && !winner.compareAndSet(null, member)) {
+                // Another member won the race.
+                return Optional.empty();
+            }
+            member.advance(amount);
+            if (completes) {
+                result = ClockEventKind.COMPLETED.createEvent(member, member.getCurrent() - maximum);
+            }
+        }
+        if (result != null) {
+            disableLosers(member);
+        }
+        return Optional.ofNullable(result);
+    }
+
+    /**
+     * Disable all members except the winner.
+     * @param winner The winner of the race.
+     */
+    private void disableLosers(Clock winner) {
+        for (Clock member: members) {
+            if (member != winner) {
+                member.setEnabled(false);
+            }
+        }
+    }
+}
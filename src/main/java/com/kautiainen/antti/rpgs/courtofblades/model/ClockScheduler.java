@@ -0,0 +1,467 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The scheduler advancing clocks on real-world schedules.
+ *
+ * The scheduler keeps the timers in a hierarchical timer wheel. Each level of the
+ * wheel has {@link #SLOTS} slots, and a slot of a level spans all slots of the level
+ * below it. The timers are kept in doubly linked lists of the slots, so scheduling
+ * and cancelling a timer take constant time regardless of the number of timers in
+ * a slot. When time passes a slot of a higher level, its timers are moved to the
+ * lower levels.
+ *
+ * The clocks of the timers expiring during one call of {@link #advanceTo(long)} are
+ * advanced together with a {@link ClockBatch}, and the resulting clock events are
+ * delivered to the listener of the scheduler as one list.
+ */
+public class ClockScheduler {
+
+    /**
+     * The schedule of the timer.
+     */
+    @FunctionalInterface
+    public static interface Schedule {
+
+        /**
+         * Create a schedule repeating at a fixed rate.
+         * @param period The period of the schedule.
+         * @return The schedule repeating with the given period.
+         * @throws IllegalArgumentException The period was not positive.
+         */
+        static Schedule fixedRate(Duration period) throws IllegalArgumentException {
+            if (period == null || period.isNegative() || period.isZero()) {
+                throw new IllegalArgumentException("Invalid period",
+                new IllegalArgumentException("Period must be positive"));
+            }
+            final long millis = Math.max(1L, period.toMillis());
+            return (long previous) -> previous + millis;
+        }
+
+        /**
+         * Create a schedule repeating daily at a time of day.
+         * @param time The time of day.
+         * @param zone The time zone of the time.
+         * @return The schedule repeating daily at the given time.
+         * @throws IllegalArgumentException Either the time or the zone was undefined.
+         */
+        static Schedule daily(LocalTime time, ZoneId zone) throws IllegalArgumentException {
+            if (time == null || zone == null) throw new IllegalArgumentException("Invalid schedule",
+            new NullPointerException("Time and zone must be specified"));
+            return (long previous) -> {
+                ZonedDateTime last = Instant.ofEpochMilli(previous).atZone(zone);
+                ZonedDateTime result = last.with(time);
+                if (!result.isAfter(last)) {
+                    result = last.plusDays(1).with(time);
+                }
+                return result.toInstant().toEpochMilli();
+            };
+        }
+
+        /**
+         * Create a schedule repeating weekly at a day of week and a time of day.
+         * @param day The day of the week.
+         * @param time The time of day.
+         * @param zone The time zone of the time.
+         * @return The schedule repeating weekly at the given time.
+         * @throws IllegalArgumentException Any of the given parameters was undefined.
+         */
+        static Schedule weekly(DayOfWeek day, LocalTime time, ZoneId zone) throws IllegalArgumentException {
+            if (day == null || time == null || zone == null) throw new IllegalArgumentException("Invalid schedule",
+            new NullPointerException("Day, time and zone must be specified"));
+            return (long previous) -> {
+                ZonedDateTime last = Instant.ofEpochMilli(previous).atZone(zone);
+                ZonedDateTime result = last.with(TemporalAdjusters.nextOrSame(day)).with(time);
+                if (!result.isAfter(last)) {
+                    result = last.with(TemporalAdjusters.next(day)).with(time);
+                }
+                return result.toInstant().toEpochMilli();
+            };
+        }
+
+        /**
+         * Get the next time of the schedule.
+         * @param previous The previous time of the schedule in milliseconds since the epoch.
+         * @return The next time of the schedule in milliseconds since the epoch. A value not
+         * after the previous time ends the schedule.
+         */
+        public long next(long previous);
+    }
+
+    /**
+     * A scheduled advancement of a clock.
+     */
+    public final class Timer {
+
+        /**
+         * The advanced clock.
+         */
+        private final Clock clock;
+
+        /**
+         * The advancement amount.
+         */
+        private final int amount;
+
+        /**
+         * The schedule of the timer.
+         */
+        private final Schedule schedule;
+
+        /**
+         * The next time of the timer in milliseconds since the epoch.
+         */
+        private long deadline;
+
+        /**
+         * The tick of the next time of the timer.
+         */
+        private long deadlineTick;
+
+        /**
+         * The index of the slot containing the timer, or -1, if the timer is
+         * not in the wheel.
+         */
+        private int slot = -1;
+
+        /**
+         * The previous timer of the slot.
+         */
+        private Timer previous;
+
+        /**
+         * The next timer of the slot.
+         */
+        private Timer next;
+
+        /**
+         * Create a new timer.
+         * @param clock The advanced clock.
+         * @param amount The advancement amount.
+         * @param schedule The schedule of the timer.
+         */
+        private Timer(Clock clock, int amount, Schedule schedule) {
+            this.clock = clock;
+            this.amount = amount;
+            this.schedule = schedule;
+        }
+
+        /**
+         * Get the advanced clock.
+         * @return The clock the timer advances.
+         */
+        public Clock getClock() {
+            return clock;
+        }
+
+        /**
+         * Get the advancement amount.
+         * @return The amount the timer advances the clock.
+         */
+        public int getAmount() {
+            return amount;
+        }
+
+        /**
+         * Get the next time of the timer.
+         * @return The next time of the timer in milliseconds since the epoch.
+         */
+        public long getDeadline() {
+            synchronized (ClockScheduler.this) {
+                return deadline;
+            }
+        }
+
+        /**
+         * Is the timer scheduled.
+         * @return True, if and only if the timer will advance its clock again.
+         */
+        public boolean isScheduled() {
+            synchronized (ClockScheduler.this) {
+                return slot >= 0;
+            }
+        }
+
+        /**
+         * Cancel the timer.
+         * @return True, if and only if the timer was scheduled.
+         */
+        public boolean cancel() {
+            synchronized (ClockScheduler.this) {
+                if (slot < 0) return false;
+                unlink(this);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * The number of bits of the slot index of a level.
+     */
+    private static final int SLOT_BITS = 6;
+
+    /**
+     * The number of slots of a level.
+     */
+    public static final int SLOTS = 1 << SLOT_BITS;
+
+    /**
+     * The mask of the slot index.
+     */
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    /**
+     * The number of levels of the wheel.
+     */
+    public static final int LEVELS = 4;
+
+    /**
+     * The number of ticks the wheel spans.
+     */
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    /**
+     * The first timers of the slots of all levels.
+     */
+    private final Timer[] heads = new Timer[LEVELS * SLOTS];
+
+    /**
+     * The length of a tick in milliseconds.
+     */
+    private final long tickMillis;
+
+    /**
+     * The start time of the first tick in milliseconds since the epoch.
+     */
+    private final long startMillis;
+
+    /**
+     * The listener receiving the clock events of the advancements.
+     */
+    private final Consumer<List<ClockEvent>> listener;
+
+    /**
+     * The current tick.
+     */
+    private long currentTick = 0L;
+
+    /**
+     * The number of scheduled timers.
+     */
+    private int size = 0;
+
+    /**
+     * Create a scheduler starting at the current time.
+     * @param tickMillis The length of a tick in milliseconds.
+     * @param listener The listener receiving the clock events of the advancements.
+     * @throws IllegalArgumentException The tick length was not positive.
+     */
+    public ClockScheduler(long tickMillis, Consumer<List<ClockEvent>> listener) throws IllegalArgumentException {
+        this(tickMillis, System.currentTimeMillis(), listener);
+    }
+
+    /**
+     * Create a scheduler.
+     * @param tickMillis The length of a tick in milliseconds.
+     * @param startMillis The start time of the scheduler in milliseconds since the epoch.
+     * @param listener The listener receiving the clock events of the advancements.
+     * An undefined listener ignores the events.
+     * @throws IllegalArgumentException The tick length was not positive.
+     */
+    public ClockScheduler(long tickMillis, long startMillis, Consumer<List<ClockEvent>> listener)
+    throws IllegalArgumentException {
+        if (tickMillis <= 0) throw new IllegalArgumentException("Invalid tick length",
+        new IllegalArgumentException("Tick length must be positive"));
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.listener = listener;
+    }
+
+    /**
+     * Get the current time of the scheduler.
+     * @return The time of the current tick in milliseconds since the epoch.
+     */
+    public synchronized long getCurrentTime() {
+        return startMillis + currentTick * tickMillis;
+    }
+
+    /**
+     * Get the number of scheduled timers.
+     * @return The number of scheduled timers.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Schedule a clock advancement.
+     * @param clock The advanced clock.
+     * @param amount The advancement amount.
+     * @param schedule The schedule of the advancement. The first advancement happens at
+     * the time the schedule gives for the current time of the scheduler.
+     * @return The timer of the advancement.
+     * @throws IllegalArgumentException Either the clock or the schedule was undefined.
+     */
+    public synchronized Timer schedule(Clock clock, int amount, Schedule schedule)
+    throws IllegalArgumentException {
+        if (clock == null) throw new IllegalArgumentException("Invalid clock",
+        new NullPointerException("Clock must be specified"));
+        if (schedule == null) throw new IllegalArgumentException("Invalid schedule",
+        new NullPointerException("Schedule must be specified"));
+        Timer result = new Timer(clock, amount, schedule);
+        long now = getCurrentTime();
+        long deadline = schedule.next(now);
+        if (deadline > now) {
+            setDeadline(result, deadline);
+            insert(result);
+        }
+        return result;
+    }
+
+    /**
+     * Set the deadline of a timer.
+     * @param timer The timer.
+     * @param deadline The new deadline in milliseconds since the epoch.
+     */
+    private void setDeadline(Timer timer, long deadline) {
+        timer.deadline = deadline;
+        long elapsed = deadline - startMillis;
+        long tick = elapsed <= 0 ? 0 : (elapsed + tickMillis - 1) / tickMillis;
+        timer.deadlineTick = Math.max(currentTick + 1, tick);
+    }
+
+    /**
+     * Insert a timer into the slot of its deadline.
+     * @param timer The inserted timer.
+     */
+    private void insert(Timer timer) {
+        long ticks = timer.deadlineTick - currentTick;
+        int index;
+        if (ticks < 0) {
+            // The timer expires at the current tick.
+            index = (int)(currentTick & SLOT_MASK);
+        } else if (ticks >= SPAN) {
+            // The timer is placed to the farthest slot, and moved again when it is reached.
+            index = (LEVELS - 1) * SLOTS + (int)(((currentTick + SPAN - 1) >>> (SLOT_BITS * (LEVELS - 1))) & SLOT_MASK);
+        } else {
+            int level = 0;
+            while (ticks >= (1L << (SLOT_BITS * (level + 1)))) {
+                level++;
+            }
+            index = level * SLOTS + (int)((timer.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        }
+        timer.slot = index;
+        timer.previous = null;
+        timer.next = heads[index];
+        if (timer.next != null) timer.next.previous = timer;
+        heads[index] = timer;
+        size++;
+    }
+
+    /**
+     * Remove a timer from its slot.
+     * @param timer The removed timer.
+     */
+    private void unlink(Timer timer) {
+        if (timer.previous == null) {
+            heads[timer.slot] = timer.next;
+        } else {
+            timer.previous.next = timer.next;
+        }
+        if (timer.next != null) timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+        timer.slot = -1;
+        size--;
+    }
+
+    /**
+     * Remove all timers of a slot.
+     * @param index The index of the slot.
+     * @return The first timer of the removed timers linked with the next timers.
+     */
+    private Timer takeSlot(int index) {
+        Timer result = heads[index];
+        heads[index] = null;
+        for (Timer timer = result; timer != null; timer = timer.next) {
+            timer.slot = -1;
+            size--;
+        }
+        return result;
+    }
+
+    /**
+     * Advance the time of the scheduler, and advance the clocks of the expired timers.
+     * The clock events of the advancements are delivered to the listener as one list.
+     * @param nowMillis The new time in milliseconds since the epoch.
+     * @return The clock events of the advancements.
+     */
+    public List<ClockEvent> advanceTo(long nowMillis) {
+        ClockBatch batch = new ClockBatch();
+        synchronized (this) {
+            long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+            while (currentTick < targetTick) {
+                currentTick++;
+                // Move the timers of the reached higher level slots to the lower levels.
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                        int index = level * SLOTS + (int)((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+                        Timer timer = takeSlot(index);
+                        while (timer != null) {
+                            Timer next = timer.next;
+                            insert(timer);
+                            timer = next;
+                        }
+                    }
+                }
+                // Expire the timers of the current slot.
+                Timer timer = takeSlot((int)(currentTick & SLOT_MASK));
+                while (timer != null) {
+                    Timer next = timer.next;
+                    timer.next = null;
+                    timer.previous = null;
+                    batch.add(timer.clock, timer.amount);
+                    long deadline = timer.schedule.next(timer.deadline);
+                    if (deadline > timer.deadline) {
+                        setDeadline(timer, deadline);
+                        insert(timer);
+                    }
+                    timer = next;
+                }
+            }
+        }
+        if (batch.isEmpty()) return Collections.emptyList();
+        List<ClockEvent> result = batch.apply();
+        if (listener != null && !result.isEmpty()) {
+            listener.accept(result);
+        }
+        return result;
+    }
+
+    /**
+     * Start advancing the scheduler with the system time once per tick.
+     * @param executor The executor running the advancements.
+     * @return The future of the periodic advancement. Cancelling the future stops
+     * the scheduler.
+     * @throws IllegalArgumentException The executor was undefined.
+     */
+    public ScheduledFuture<?> start(ScheduledExecutorService executor) throws IllegalArgumentException {
+        if (executor == null) throw new IllegalArgumentException("Invalid executor",
+        new NullPointerException("Executor must be specified"));
+        return executor.scheduleAtFixedRate(() -> advanceTo(System.currentTimeMillis()),
+            tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+}
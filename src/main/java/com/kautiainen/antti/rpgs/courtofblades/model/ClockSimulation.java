@@ -0,0 +1,621 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The Monte Carlo simulation of the clock completion odds.
+ *
+ * The simulation takes the state of a set of clocks, and a roll distribution of
+ * the advancement amounts of each clock. On each roll every clock still running
+ * advances by an amount drawn from its distribution. The clocks follow the
+ * semantics of {@link Clock}: a negative amount regresses the clock, a clock with
+ * a completing trait completes when it reaches its maximum, and a clock with a
+ * depleting trait depletes when it reaches its minimum. A tug-of-war clock may
+ * thus both complete and deplete. The first clock of a race completing wins the
+ * race, and stops the other members of the race. If several members complete on
+ * the same roll, the member added first wins.
+ *
+ * The trials are split over fork/join tasks. Each task has its own random stream
+ * split from the stream of its parent, and the split structure only depends on the
+ * number of trials, so the results of a seed are the same regardless of the
+ * parallelism. A trial only uses primitive arrays allocated once per task.
+ */
+public class ClockSimulation {
+
+    /**
+     * A discrete distribution of the advancement amounts of a roll.
+     */
+    public static final class RollDistribution {
+
+        /**
+         * The amounts of the outcomes.
+         */
+        private final int[] amounts;
+
+        /**
+         * The cumulative probabilities of the outcomes.
+         */
+        private final double[] cumulative;
+
+        /**
+         * Create a distribution of the outcome amounts with relative weights.
+         * @param amounts The advancement amounts of the outcomes.
+         * @param weights The relative weights of the outcomes.
+         * @return The distribution of the amounts.
+         * @throws IllegalArgumentException The amounts or the weights were invalid.
+         */
+        public static RollDistribution of(int[] amounts, double[] weights) throws IllegalArgumentException {
+            if (amounts == null || weights == null) throw new IllegalArgumentException("Invalid distribution",
+            new NullPointerException("Amounts and weights must be specified"));
+            if (amounts.length == 0 || amounts.length != weights.length) {
+                throw new IllegalArgumentException("Invalid distribution",
+                new IllegalArgumentException("Each outcome requires an amount and a weight"));
+            }
+            double total = 0.0;
+            for (double weight: weights) {
+                if (!(weight >= 0.0) || Double.isInfinite(weight)) {
+                    throw new IllegalArgumentException("Invalid distribution",
+                    new IllegalArgumentException("Weights must be finite and non-negative"));
+                }
+                total += weight;
+            }
+            if (total <= 0.0) throw new IllegalArgumentException("Invalid distribution",
+            new IllegalArgumentException("Total weight must be positive"));
+            double[] cumulative = new double[weights.length];
+            double sum = 0.0;
+            for (int i = 0; i < weights.length; i++) {
+                sum += weights[i];
+                cumulative[i] = sum / total;
+            }
+            cumulative[cumulative.length - 1] = 1.0;
+            return new RollDistribution(amounts.clone(), cumulative);
+        }
+
+        /**
+         * Create a distribution always giving the same amount.
+         * @param amount The advancement amount.
+         * @return The distribution with a single outcome.
+         */
+        public static RollDistribution constant(int amount) {
+            return new RollDistribution(new int[] { amount }, new double[] { 1.0 });
+        }
+
+        /**
+         * Create a new distribution.
+         * @param amounts The amounts of the outcomes.
+         * @param cumulative The cumulative probabilities of the outcomes.
+         */
+        private RollDistribution(int[] amounts, double[] cumulative) {
+            this.amounts = amounts;
+            this.cumulative = cumulative;
+        }
+
+        /**
+         * Get the number of the outcomes.
+         * @return The number of the outcomes.
+         */
+        public int size() {
+            return amounts.length;
+        }
+
+        /**
+         * Get the amount of an outcome.
+         * @param index The index of the outcome.
+         * @return The advancement amount of the outcome.
+         */
+        public int getAmount(int index) {
+            return amounts[index];
+        }
+
+        /**
+         * Get the probability of an outcome.
+         * @param index The index of the outcome.
+         * @return The probability of the outcome.
+         */
+        public double getProbability(int index) {
+            return index == 0 ? cumulative[0] : cumulative[index] - cumulative[index - 1];
+        }
+
+        /**
+         * Get the expected advancement amount.
+         * @return The mean of the amounts weighted by the probabilities.
+         */
+        public double getMean() {
+            double result = 0.0;
+            for (int i = 0; i < amounts.length; i++) {
+                result += amounts[i] * getProbability(i);
+            }
+            return result;
+        }
+
+        /**
+         * Draw an advancement amount.
+         * @param random The random stream.
+         * @return The drawn amount.
+         */
+        public int sample(SplittableRandom random) {
+            double value = random.nextDouble();
+            int low = 0;
+            int high = cumulative.length - 1;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (cumulative[middle] > value) {
+                    high = middle;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return amounts[low];
+        }
+    }
+
+    /**
+     * The result of a simulation.
+     */
+    public static final class Result {
+
+        /**
+         * The number of the trials.
+         */
+        private final long trials;
+
+        /**
+         * The number of the trials completing each clock.
+         */
+        private final long[] completions;
+
+        /**
+         * The number of the trials depleting each clock.
+         */
+        private final long[] depletions;
+
+        /**
+         * The sum of the rolls until the completion of each clock.
+         */
+        private final long[] completionRolls;
+
+        /**
+         * Create a new result.
+         * @param trials The number of the trials.
+         * @param completions The number of completions of each clock.
+         * @param depletions The number of depletions of each clock.
+         * @param completionRolls The sum of the rolls until completion of each clock.
+         */
+        private Result(long trials, long[] completions, long[] depletions, long[] completionRolls) {
+            this.trials = trials;
+            this.completions = completions;
+            this.depletions = depletions;
+            this.completionRolls = completionRolls;
+        }
+
+        /**
+         * Get the number of the trials.
+         * @return The number of the simulated trials.
+         */
+        public long getTrials() {
+            return trials;
+        }
+
+        /**
+         * Get the number of the clocks.
+         * @return The number of the simulated clocks.
+         */
+        public int size() {
+            return completions.length;
+        }
+
+        /**
+         * Get the probability of a clock completing within the simulated rolls.
+         * @param index The index of the clock in the simulation.
+         * @return The fraction of the trials completing the clock.
+         */
+        public double getCompletionProbability(int index) {
+            return trials == 0 ? 0.0 : (double)completions[index] / trials;
+        }
+
+        /**
+         * Get the probability of a clock depleting within the simulated rolls.
+         * @param index The index of the clock in the simulation.
+         * @return The fraction of the trials depleting the clock.
+         */
+        public double getDepletionProbability(int index) {
+            return trials == 0 ? 0.0 : (double)depletions[index] / trials;
+        }
+
+        /**
+         * Get the expected number of rolls until a clock completes.
+         * @param index The index of the clock in the simulation.
+         * @return The mean number of rolls of the trials completing the clock, or
+         * not-a-number, if no trial completed the clock.
+         */
+        public double getExpectedRolls(int index) {
+            return completions[index] == 0 ? Double.NaN : (double)completionRolls[index] / completions[index];
+        }
+    }
+
+    /**
+     * The fork/join task running a range of trials.
+     */
+    private static final class Trials extends RecursiveTask<long[][]> {
+
+        /**
+         * The serialization version of the task.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The simulated state.
+         */
+        private final transient Simulated state;
+
+        /**
+         * The number of the trials of the task.
+         */
+        private final long count;
+
+        /**
+         * The maximum number of rolls of a trial.
+         */
+        private final int maxRolls;
+
+        /**
+         * The random stream of the task.
+         */
+        private final transient SplittableRandom random;
+
+        /**
+         * Create a new task.
+         * @param state The simulated state.
+         * @param count The number of the trials of the task.
+         * @param maxRolls The maximum number of rolls of a trial.
+         * @param random The random stream of the task.
+         */
+        private Trials(Simulated state, long count, int maxRolls, SplittableRandom random) {
+            this.state = state;
+            this.count = count;
+            this.maxRolls = maxRolls;
+            this.random = random;
+        }
+
+        @Override
+        protected long[][] compute() {
+            if (count > SPLIT_THRESHOLD) {
+                long half = count >>> 1;
+                Trials first = new Trials(state, half, maxRolls, random.split());
+                Trials second = new Trials(state, count - half, maxRolls, random.split());
+                first.fork();
+                long[][] result = second.compute();
+                long[][] other = first.join();
+                for (int row = 0; row < result.length; row++) {
+                    for (int i = 0; i < result[row].length; i++) {
+                        result[row][i] += other[row][i];
+                    }
+                }
+                return result;
+            } else {
+                return state.run(count, maxRolls, random);
+            }
+        }
+    }
+
+    /**
+     * The number of trials a task runs without splitting.
+     */
+    private static final long SPLIT_THRESHOLD = 4096;
+
+    /**
+     * The initial capacity of the clock arrays.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The number of the added clocks.
+     */
+    private int size = 0;
+
+    /**
+     * The initial current positions of the clocks.
+     */
+    private int[] currents = new int[INITIAL_CAPACITY];
+
+    /**
+     * The maximums of the clocks.
+     */
+    private int[] maximums = new int[INITIAL_CAPACITY];
+
+    /**
+     * The trait masks of the clock types.
+     */
+    private long[] traits = new long[INITIAL_CAPACITY];
+
+    /**
+     * The initial enabled status of the clocks.
+     */
+    private boolean[] enabled = new boolean[INITIAL_CAPACITY];
+
+    /**
+     * The roll distributions of the clocks.
+     */
+    private RollDistribution[] distributions = new RollDistribution[INITIAL_CAPACITY];
+
+    /**
+     * The race index of the clocks, or -1 for the clocks not in a race.
+     */
+    private int[] races = new int[INITIAL_CAPACITY];
+
+    /**
+     * The indexes of the added clocks.
+     */
+    private final Map<Clock, Integer> indexes = new IdentityHashMap<>();
+
+    /**
+     * The number of the races.
+     */
+    private int raceCount = 0;
+
+    /**
+     * Create an empty simulation.
+     */
+    public ClockSimulation() {
+    }
+
+    /**
+     * Get the number of the clocks.
+     * @return The number of the simulated clocks.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Grow the clock arrays to hold one more clock.
+     */
+    private void ensureCapacity() {
+        if (size == currents.length) {
+            int capacity = currents.length * 2;
+            currents = Arrays.copyOf(currents, capacity);
+            maximums = Arrays.copyOf(maximums, capacity);
+            traits = Arrays.copyOf(traits, capacity);
+            enabled = Arrays.copyOf(enabled, capacity);
+            distributions = Arrays.copyOf(distributions, capacity);
+            races = Arrays.copyOf(races, capacity);
+        }
+    }
+
+    /**
+     * Add a clock to the simulation.
+     * The simulation uses the state of the clock at the time of the addition.
+     * @param clock The added clock.
+     * @param distribution The distribution of the advancement amounts of the clock.
+     * @return The index of the clock in the simulation.
+     * @throws IllegalArgumentException The clock or the distribution was invalid.
+     */
+    public synchronized int add(Clock clock, RollDistribution distribution) throws IllegalArgumentException {
+        if (clock == null) throw new IllegalArgumentException("Invalid clock",
+        new NullPointerException("Clock must be specified"));
+        if (distribution == null) throw new IllegalArgumentException("Invalid distribution",
+        new NullPointerException("Distribution must be specified"));
+        if (indexes.containsKey(clock)) throw new IllegalArgumentException("Invalid clock",
+        new IllegalArgumentException("Clock is already in the simulation"));
+        if (clock.getMinimum() != 0 || clock.advanceBeyondMaximum() || clock.regressBeyondMinimum()) {
+            throw new IllegalArgumentException("Invalid clock",
+            new UnsupportedOperationException("Only clocks with the default bounds are supported"));
+        }
+        ensureCapacity();
+        int result = size;
+        synchronized (clock) {
+            ClockType type = clock.getType();
+            currents[result] = clock.getCurrent();
+            maximums[result] = clock.getMaximum();
+            traits[result] = type.getTraitMask();
+            enabled[result] = clock.isEnabled() && !clock.isCompleted() && !clock.isDepleted();
+        }
+        distributions[result] = distribution;
+        races[result] = -1;
+        indexes.put(clock, result);
+        size++;
+        return result;
+    }
+
+    /**
+     * Make added clocks a race only one of them may win.
+     * @param members The members of the race.
+     * @return The index of the race.
+     * @throws IllegalArgumentException The members were invalid.
+     */
+    public synchronized int addRace(Collection<? extends Clock> members) throws IllegalArgumentException {
+        if (members == null || members.isEmpty()) throw new IllegalArgumentException("Invalid members",
+        new IllegalArgumentException("Race requires members"));
+        int[] memberIndexes = new int[members.size()];
+        int count = 0;
+        for (Clock member: members) {
+            Integer index = indexes.get(member);
+            if (index == null) throw new IllegalArgumentException("Invalid members",
+            new IllegalArgumentException("Member is not in the simulation"));
+            if (races[index] >= 0) throw new IllegalArgumentException("Invalid members",
+            new IllegalArgumentException("Member is already in a race"));
+            memberIndexes[count++] = index;
+        }
+        int result = raceCount++;
+        for (int i = 0; i < count; i++) {
+            races[memberIndexes[i]] = result;
+        }
+        return result;
+    }
+
+    /**
+     * Run the simulation in the common fork/join pool.
+     * @param trials The number of the trials.
+     * @param maxRolls The number of rolls of each trial.
+     * @param seed The seed of the random stream.
+     * @return The result of the simulation.
+     * @throws IllegalArgumentException The number of trials or rolls was negative.
+     */
+    public Result run(long trials, int maxRolls, long seed) throws IllegalArgumentException {
+        return run(trials, maxRolls, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Run the simulation.
+     * @param trials The number of the trials.
+     * @param maxRolls The number of rolls of each trial.
+     * @param seed The seed of the random stream.
+     * @param pool The fork/join pool running the trials.
+     * @return The result of the simulation.
+     * @throws IllegalArgumentException Any of the given parameters was invalid.
+     */
+    public Result run(long trials, int maxRolls, long seed, ForkJoinPool pool) throws IllegalArgumentException {
+        if (trials < 0 || maxRolls < 0) throw new IllegalArgumentException("Invalid simulation",
+        new IllegalArgumentException("Trials and rolls must be non-negative"));
+        if (pool == null) throw new IllegalArgumentException("Invalid pool",
+        new NullPointerException("Pool must be specified"));
+        Simulated state = snapshot();
+        long[][] counts = pool.invoke(new Trials(state, trials, maxRolls, new SplittableRandom(seed)));
+        return new Result(trials, counts[0], counts[1], counts[2]);
+    }
+
+    /**
+     * Create an immutable copy of the simulated state.
+     * @return The copy of the simulation with primitive state.
+     */
+    private synchronized Simulated snapshot() {
+        Simulated result = new Simulated(Arrays.copyOf(currents, size), Arrays.copyOf(maximums, size),
+            Arrays.copyOf(traits, size), Arrays.copyOf(enabled, size), Arrays.copyOf(distributions, size),
+            Arrays.copyOf(races, size), raceCount);
+        for (int i = 0; i < size; i++) {
+            if (result.races[i] >= 0 && (result.traits[i] & ClockType.COMPLETING_TRAITS) != 0L
+                && result.currents[i] >= result.maximums[i]) {
+                // A member completed before the simulation has won its race.
+                result.decided[result.races[i]] = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The primitive copy of the simulated state.
+     */
+    private static final class Simulated {
+
+        /**
+         * The initial current positions of the clocks.
+         */
+        private final int[] currents;
+
+        /**
+         * The maximums of the clocks.
+         */
+        private final int[] maximums;
+
+        /**
+         * The trait masks of the clock types.
+         */
+        private final long[] traits;
+
+        /**
+         * The initial running status of the clocks.
+         */
+        private final boolean[] enabled;
+
+        /**
+         * The roll distributions of the clocks.
+         */
+        private final RollDistribution[] distributions;
+
+        /**
+         * The race indexes of the clocks.
+         */
+        private final int[] races;
+
+        /**
+         * Are the races decided before the first roll.
+         */
+        private final boolean[] decided;
+
+        /**
+         * Create a new simulated state.
+         * @param currents The initial current positions of the clocks.
+         * @param maximums The maximums of the clocks.
+         * @param traits The trait masks of the clock types.
+         * @param enabled The initial running status of the clocks.
+         * @param distributions The roll distributions of the clocks.
+         * @param races The race indexes of the clocks.
+         * @param raceCount The number of the races.
+         */
+        private Simulated(int[] currents, int[] maximums, long[] traits, boolean[] enabled,
+            RollDistribution[] distributions, int[] races, int raceCount) {
+            this.currents = currents;
+            this.maximums = maximums;
+            this.traits = traits;
+            this.enabled = enabled;
+            this.distributions = distributions;
+            this.races = races;
+            this.decided = new boolean[raceCount];
+        }
+
+        /**
+         * Run trials.
+         * @param count The number of the trials.
+         * @param maxRolls The number of rolls of each trial.
+         * @param random The random stream.
+         * @return The completion counts, the depletion counts, and the sums of the rolls
+         * until completion of each clock.
+         */
+        private long[][] run(long count, int maxRolls, SplittableRandom random) {
+            final int size = currents.length;
+            long[][] result = new long[3][size];
+            long[] completions = result[0];
+            long[] depletions = result[1];
+            long[] completionRolls = result[2];
+            int[] current = new int[size];
+            boolean[] running = new boolean[size];
+            boolean[] decided = new boolean[this.decided.length];
+            for (long trial = 0; trial < count; trial++) {
+                System.arraycopy(currents, 0, current, 0, size);
+                System.arraycopy(enabled, 0, running, 0, size);
+                System.arraycopy(this.decided, 0, decided, 0, decided.length);
+                int active = 0;
+                for (int i = 0; i < size; i++) {
+                    if (running[i]) active++;
+                }
+                for (int roll = 1; roll <= maxRolls && active > 0; roll++) {
+                    for (int i = 0; i < size; i++) {
+                        if (!running[i]) continue;
+                        int race = races[i];
+                        if (race >= 0 && decided[race]) {
+                            // Another member won the race.
+                            running[i] = false;
+                            active--;
+                            continue;
+                        }
+                        int previous = current[i];
+                        int maximum = maximums[i];
+                        int next = Clock.advancedCurrent(Clock.computeAdvance(previous,
+                            distributions[i].sample(random), 0, maximum, false, false));
+                        current[i] = next;
+                        if ((traits[i] & ClockType.COMPLETING_TRAITS) != 0L && previous < maximum && next >= maximum) {
+                            completions[i]++;
+                            completionRolls[i] += roll;
+                            running[i] = false;
+                            active--;
+                            if (race >= 0) decided[race] = true;
+                        } else if ((traits[i] & ClockType.DEPLETING_TRAITS) != 0L && previous > 0 && next <= 0) {
+                            depletions[i]++;
+                            running[i] = false;
+                            active--;
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import com.fasterxml.jackson.annotation.JsonGetter;
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * An immutable version of the state of a clock.
+ *
+ * The snapshots of a {@link VersionedClock} form a chain from the newest version
+ * to the older versions still needed by the readers. The snapshot follows the
+ * semantics of {@link Clock} with the default minimum of zero.
+ */
+public final class ClockSnapshot {
+
+    /**
+     * The name of the clock.
+     */
+    private final String name;
+
+    /**
+     * The current position of the clock.
+     */
+    private final int current;
+
+    /**
+     * The maximum of the clock.
+     */
+    private final int max;
+
+    /**
+     * The type of the clock.
+     */
+    private final ClockType type;
+
+    /**
+     * Is the clock enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * The version of the snapshot.
+     */
+    private final long version;
+
+    /**
+     * The previous version of the clock, or an undefined value, if no reader
+     * needs the previous versions.
+     */
+    private volatile ClockSnapshot previous;
+
+    /**
+     * Create a new snapshot.
+     * @param name The name of the clock.
+     * @param current The current position of the clock.
+     * @param max The maximum of the clock.
+     * @param type The type of the clock.
+     * @param enabled Is the clock enabled.
+     * @param version The version of the snapshot.
+     * @param previous The previous version of the clock.
+     */
+    ClockSnapshot(String name, int current, int max, ClockType type, boolean enabled,
+        long version, ClockSnapshot previous) {
+        this.name = name;
+        this.current = current;
+        this.max = max;
+        this.type = type;
+        this.enabled = enabled;
+        this.version = version;
+        this.previous = previous;
+    }
+
+    /**
+     * Get the name of the clock.
+     * @return The name of the clock.
+     */
+    @JsonGetter("name")
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Get the current position of the clock.
+     * @return The current position of the clock.
+     */
+    @JsonGetter("current")
+    public int getCurrent() {
+        return current;
+    }
+
+    /**
+     * Get the maximum of the clock.
+     * @return The maximum of the clock.
+     */
+    @JsonGetter("max")
+    public int getMaximum() {
+        return max;
+    }
+
+    /**
+     * Get the type of the clock.
+     * @return The type of the clock.
+     */
+    @JsonGetter("type")
+    public ClockType getType() {
+        return type;
+    }
+
+    /**
+     * Is the clock enabled.
+     * @return True, if and only if the clock is enabled.
+     */
+    @JsonGetter("enabled")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Get the version of the snapshot.
+     * @return The version of the snapshot.
+     */
+    @JsonGetter("version")
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Is the clock completed.
+     * @return True, if and only if the clock is completed.
+     */
+    public boolean isCompleted() {
+        return type != null && type.hasAnyTrait(ClockType.COMPLETING_TRAITS) && current >= max;
+    }
+
+    /**
+     * Is the clock depleted.
+     * @return True, if and only if the clock is depleted.
+     */
+    public boolean isDepleted() {
+        return type != null && type.hasAnyTrait(ClockType.DEPLETING_TRAITS) && current <= 0;
+    }
+
+    /**
+     * Get the previous version of the clock.
+     * @return The previous version, or an undefined value, if the previous
+     * versions have been reclaimed.
+     */
+    ClockSnapshot getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Get the newest version of the clock not newer than a version.
+     * @param version The version.
+     * @return The newest snapshot of the chain starting from this snapshot with a version
+     * at most the given version, or an undefined value, if the chain has no such snapshot.
+     */
+    ClockSnapshot at(long version) {
+        ClockSnapshot result = this;
+        while (result != null && result.version > version) {
+            result = result.previous;
+        }
+        return result;
+    }
+
+    /**
+     * Reclaim the versions no reader needs.
+     * @param oldest The oldest version a reader may read.
+     */
+    void reclaim(long oldest) {
+        ClockSnapshot retained = this;
+        ClockSnapshot older;
+        while (retained.version > oldest && (older = retained.previous) != null) {
+            retained = older;
+        }
+        if (retained.previous != null) {
+            retained.previous = null;
+        }
+    }
+}
@@ -0,0 +1,559 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * A store of clocks keeping the clock state in primitive columns.
+ *
+ * The clocks of the store are addressed by a clock identifier assigned when the
+ * clock is added. The current position, the maximum, the type identifier, and the
+ * enabled status of each clock are stored in parallel arrays instead of clock
+ * objects. The clocks of the store follow the semantics of {@link Clock} with the
+ * default minimum of zero, and neither advance beyond maximum nor regress beyond
+ * minimum.
+ *
+ * The store supports at most 256 distinct clock types. The trait masks of the
+ * types are kept in a table indexed by the type identifier.
+ */
+public class ClockStore {
+
+    /**
+     * The maximum number of distinct clock types.
+     */
+    public static final int MAX_TYPES = 256;
+
+    /**
+     * The initial capacity of the store.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * The names of the clocks.
+     */
+    private String[] names;
+
+    /**
+     * The current positions of the clocks.
+     */
+    private int[] current;
+
+    /**
+     * The maximums of the clocks.
+     */
+    private int[] max;
+
+    /**
+     * The type identifiers of the clocks.
+     */
+    private byte[] types;
+
+    /**
+     * The enabled status of the clocks.
+     */
+    private final BitSet enabled = new BitSet();
+
+    /**
+     * The number of clocks in the store.
+     */
+    private int size = 0;
+
+    /**
+     * The clock types by type identifier.
+     */
+    private final List<ClockType> typeTable = new ArrayList<>();
+
+    /**
+     * The type identifiers of the clock types.
+     */
+    private final Map<ClockType, Integer> typeIds = new IdentityHashMap<>();
+
+    /**
+     * The trait masks of the types by type identifier.
+     */
+    private final long[] typeMasks = new long[MAX_TYPES];
+
+    /**
+     * Create an empty clock store.
+     */
+    public ClockStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an empty clock store with an initial capacity.
+     * @param capacity The number of clocks the store holds without growing.
+     * @throws IllegalArgumentException The capacity was negative.
+     */
+    public ClockStore(int capacity) throws IllegalArgumentException {
+        if (capacity < 0) throw new IllegalArgumentException("Invalid capacity",
+        new IllegalArgumentException("Negative capacity"));
+        int initial = Math.max(1, capacity);
+        this.names = new String[initial];
+        this.current = new int[initial];
+        this.max = new int[initial];
+        this.types = new byte[initial];
+    }
+
+    /**
+     * Get the type identifier of a clock type. The type is stored, if
+     * it has not been stored before.
+     * @param type The clock type.
+     * @return The type identifier of the type.
+     * @throws IllegalArgumentException The type was undefined, or the store
+     * has no room for a new type.
+     */
+    private int typeId(ClockType type) throws IllegalArgumentException {
+        if (type == null) throw new IllegalArgumentException("Invalid clock type",
+        new NullPointerException("Type must be specified"));
+        Integer id = typeIds.get(type);
+        if (id == null) {
+            if (typeTable.size() >= MAX_TYPES) {
+                throw new IllegalArgumentException("Invalid clock type",
+                new IllegalStateException("Too many clock types"));
+            }
+            id = typeTable.size();
+            typeTable.add(type);
+            typeIds.put(type, id);
+            typeMasks[id] = type.getTraitMask();
+        }
+        return id;
+    }
+
+    /**
+     * Check the validity of a clock identifier.
+     * @param id The clock identifier.
+     * @throws IllegalArgumentException The identifier does not belong to the store.
+     */
+    private void checkId(int id) throws IllegalArgumentException {
+        if (id < 0 || id >= size) throw new IllegalArgumentException("Invalid clock id",
+        new IndexOutOfBoundsException(id));
+    }
+
+    /**
+     * Add a clock to the store.
+     * The clock will be enabled unless it is either completed or depleted.
+     * @param name The name of the clock.
+     * @param current The current position of the clock.
+     * @param max The maximum position of a full clock.
+     * @param type The type of the clock.
+     * @return The clock identifier of the added clock.
+     * @throws IllegalArgumentException Any of the given parameters were invalid.
+     */
+    public synchronized int add(String name, int current, int max, ClockType type)
+    throws IllegalArgumentException {
+        int typeId = typeId(type);
+        int id = append(name, current, max, typeId);
+        enabled.set(id, !isCompleted(id) && !isDepleted(id));
+        return id;
+    }
+
+    /**
+     * Add a copy of a clock to the store.
+     * @param clock The copied clock.
+     * @return The clock identifier of the added clock.
+     * @throws IllegalArgumentException The clock was invalid.
+     */
+    public synchronized int add(Clock clock) throws IllegalArgumentException {
+        if (clock == null) throw new IllegalArgumentException("Invalid clock",
+        new NullPointerException("Clock must be specified"));
+        int id = append(clock.getName(), clock.getCurrent(), clock.getMaximum(), typeId(clock.getType()));
+        enabled.set(id, clock.isEnabled());
+        return id;
+    }
+
+    /**
+     * Append a clock to the columns.
+     * @param name The name of the clock.
+     * @param current The current position.
+     * @param max The maximum.
+     * @param typeId The type identifier.
+     * @return The clock identifier of the appended clock.
+     */
+    private int append(String name, int current, int max, int typeId) {
+        if (size == this.current.length) {
+            int capacity = size * 2;
+            this.names = Arrays.copyOf(this.names, capacity);
+            this.current = Arrays.copyOf(this.current, capacity);
+            this.max = Arrays.copyOf(this.max, capacity);
+            this.types = Arrays.copyOf(this.types, capacity);
+        }
+        int id = size++;
+        this.names[id] = name;
+        this.current[id] = current;
+        this.max[id] = max;
+        this.types[id] = (byte)typeId;
+        return id;
+    }
+
+    /**
+     * Get the number of clocks in the store.
+     * @return The number of clocks.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Get the name of a clock.
+     * @param id The clock identifier.
+     * @return The name of the clock.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized String getName(int id) throws IllegalArgumentException {
+        checkId(id);
+        return names[id];
+    }
+
+    /**
+     * Set the name of a clock.
+     * @param id The clock identifier.
+     * @param name The new name of the clock.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized void setName(int id, String name) throws IllegalArgumentException {
+        checkId(id);
+        names[id] = name;
+    }
+
+    /**
+     * Get the type of a clock.
+     * @param id The clock identifier.
+     * @return The type of the clock.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized ClockType getType(int id) throws IllegalArgumentException {
+        checkId(id);
+        return typeTable.get(types[id] & 0xFF);
+    }
+
+    /**
+     * Set the type of a clock.
+     * @param id The clock identifier.
+     * @param type The new type of the clock.
+     * @throws IllegalArgumentException The identifier or the type was invalid.
+     */
+    public synchronized void setType(int id, ClockType type) throws IllegalArgumentException {
+        checkId(id);
+        types[id] = (byte)typeId(type);
+    }
+
+    /**
+     * Get the current position of a clock.
+     * @param id The clock identifier.
+     * @return The current position of the clock.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized int getCurrent(int id) throws IllegalArgumentException {
+        checkId(id);
+        return current[id];
+    }
+
+    /**
+     * Set the current position of a clock.
+     * @param id The clock identifier.
+     * @param current The new current position of the clock.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized void setCurrent(int id, int current) throws IllegalArgumentException {
+        checkId(id);
+        this.current[id] = current;
+    }
+
+    /**
+     * Get the maximum of a clock.
+     * @param id The clock identifier.
+     * @return The maximum of the clock.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized int getMaximum(int id) throws IllegalArgumentException {
+        checkId(id);
+        return max[id];
+    }
+
+    /**
+     * Set the maximum of a clock.
+     * @param id The clock identifier.
+     * @param maximum The new maximum of the clock.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized void setMaximum(int id, int maximum) throws IllegalArgumentException {
+        checkId(id);
+        this.max[id] = maximum;
+    }
+
+    /**
+     * Is a clock enabled.
+     * @param id The clock identifier.
+     * @return True, if and only if the clock is enabled.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized boolean isEnabled(int id) throws IllegalArgumentException {
+        checkId(id);
+        return enabled.get(id);
+    }
+
+    /**
+     * Set the enabled status of a clock.
+     * @param id The clock identifier.
+     * @param enabled The enabled status of the clock.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized void setEnabled(int id, boolean enabled) throws IllegalArgumentException {
+        checkId(id);
+        this.enabled.set(id, enabled);
+    }
+
+    /**
+     * Advance a clock.
+     * @param id The clock identifier.
+     * @param amount The advancement amount. If value
+     * is negative, the clock regresses.
+     * @return The amount of advancement not used.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized int advance(int id, int amount) throws IllegalArgumentException {
+        return advance(id, amount, null, null);
+    }
+
+    /**
+     * Advance a clock, and push the events of the advancement into a sink.
+     * @param id The clock identifier.
+     * @param amount The advancement amount. If value
+     * is negative, the clock regresses.
+     * @param sink The sink receiving the events. The target of the events is
+     * a clock view of the advanced clock.
+     * @return The amount of advancement not used.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized int advance(int id, int amount, ClockEventSink sink) throws IllegalArgumentException {
+        return advance(id, amount, null, sink);
+    }
+
+    /**
+     * Advance a clock, and push the events of the advancement into a sink.
+     * @param id The clock identifier.
+     * @param amount The advancement amount.
+     * @param target The clock view used as the target of the events. An undefined
+     * target is replaced with a new clock view, if an event is pushed.
+     * @param sink The sink receiving the events. An undefined sink ignores the events.
+     * @return The amount of advancement not used.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    private int advance(int id, int amount, Clock target, ClockEventSink sink) throws IllegalArgumentException {
+        checkId(id);
+        int previous = current[id];
+        long result = Clock.computeAdvance(previous, amount, 0, max[id], false, false);
+        current[id] = Clock.advancedCurrent(result);
+        if (sink != null && previous != current[id]) {
+            Clock.emitChange(sink, target == null ? new ClockView(this, id) : target, previous, current[id],
+                0, max[id], typeMasks[types[id] & 0xFF]);
+        }
+        return Clock.unusedAmount(result);
+    }
+
+    /**
+     * Is a clock completed.
+     * @param id The clock identifier.
+     * @return True, if and only if the clock is completed.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized boolean isCompleted(int id) throws IllegalArgumentException {
+        checkId(id);
+        return (typeMasks[types[id] & 0xFF] & ClockType.COMPLETING_TRAITS) != 0L && current[id] >= max[id];
+    }
+
+    /**
+     * Is a clock depleted.
+     * @param id The clock identifier.
+     * @return True, if and only if the clock is depleted.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized boolean isDepleted(int id) throws IllegalArgumentException {
+        checkId(id);
+        return (typeMasks[types[id] & 0xFF] & ClockType.DEPLETING_TRAITS) != 0L && current[id] <= 0;
+    }
+
+    /**
+     * Get the completed clocks.
+     * @return The set of clock identifiers of the completed clocks.
+     */
+    public synchronized BitSet getCompletedClocks() {
+        long[] words = new long[(size + 63) >>> 6];
+        for (int word = 0, base = 0; word < words.length; word++, base += 64) {
+            long bits = 0L;
+            int end = Math.min(64, size - base);
+            for (int bit = 0; bit < end; bit++) {
+                int id = base + bit;
+                boolean completed = (typeMasks[types[id] & 0xFF] & ClockType.COMPLETING_TRAITS) != 0L
+                    & current[id] >= max[id];
+                bits |= (completed ? 1L : 0L) << bit;
+            }
+            words[word] = bits;
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Get the depleted clocks.
+     * @return The set of clock identifiers of the depleted clocks.
+     */
+    public synchronized BitSet getDepletedClocks() {
+        long[] words = new long[(size + 63) >>> 6];
+        for (int word = 0, base = 0; word < words.length; word++, base += 64) {
+            long bits = 0L;
+            int end = Math.min(64, size - base);
+            for (int bit = 0; bit < end; bit++) {
+                int id = base + bit;
+                boolean depleted = (typeMasks[types[id] & 0xFF] & ClockType.DEPLETING_TRAITS) != 0L
+                    & current[id] <= 0;
+                bits |= (depleted ? 1L : 0L) << bit;
+            }
+            words[word] = bits;
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * Get the enabled clocks.
+     * @return The set of clock identifiers of the enabled clocks.
+     */
+    public synchronized BitSet getEnabledClocks() {
+        return (BitSet)enabled.clone();
+    }
+
+    /**
+     * Get a clock view of a stored clock.
+     * The view does not hold any clock state, and all its operations are
+     * performed on the store.
+     * @param id The clock identifier.
+     * @return The clock view of the stored clock.
+     * @throws IllegalArgumentException The identifier was invalid.
+     */
+    public synchronized Clock getClock(int id) throws IllegalArgumentException {
+        checkId(id);
+        return new ClockView(this, id);
+    }
+
+    /**
+     * The clock view of a stored clock.
+     */
+    private static class ClockView extends Clock {
+
+        /**
+         * The store of the clock.
+         */
+        private final ClockStore store;
+
+        /**
+         * The clock identifier.
+         */
+        private final int id;
+
+        /**
+         * Create a view of a stored clock.
+         * @param store The store of the clock.
+         * @param id The clock identifier.
+         */
+        ClockView(ClockStore store, int id) {
+            super();
+            this.store = store;
+            this.id = id;
+        }
+
+        @Override
+        public String getName() {
+            return store.getName(id);
+        }
+
+        @Override
+        public void setName(String name) throws IllegalArgumentException {
+            // The super constructor sets the name before the view is attached.
+            if (store != null) store.setName(id, name);
+        }
+
+        @Override
+        public ClockType getType() {
+            return store.getType(id);
+        }
+
+        @Override
+        public void setType(ClockType type) throws IllegalArgumentException {
+            store.setType(id, type);
+        }
+
+        @Override
+        public int getCurrent() {
+            return store.getCurrent(id);
+        }
+
+        @Override
+        public void setCurrent(int current) {
+            store.setCurrent(id, current);
+        }
+
+        @Override
+        public int getMaximum() {
+            return store.getMaximum(id);
+        }
+
+        @Override
+        public void setMaximum(int maximum) {
+            store.setMaximum(id, maximum);
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return store.isEnabled(id);
+        }
+
+        @Override
+        public boolean isDisabled() {
+            return !store.isEnabled(id);
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            store.setEnabled(id, enabled);
+        }
+
+        @Override
+        public int advance(int amount, ClockEventSink sink) {
+            synchronized (store) {
+                return store.advance(id, amount, this, sink);
+            }
+        }
+
+        @Override
+        public boolean isCompleted() {
+            return store.isCompleted(id);
+        }
+
+        @Override
+        public boolean isDepleted() {
+            return store.isDepleted(id);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(store) * 31 + id;
+        }
+
+        /**
+         * Clock views are equal, if they view the same stored clock.
+         * @param other The other object.
+         * @return True, if and only if the other is a view of the same clock.
+         */
+        @Override
+        public boolean equals(Object other) {
+            if (other == this) return true;
+            return (other instanceof ClockView view) && view.store == store && view.id == id;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The registry of the clock traits.
+ *
+ * The registry assigns each registered trait a bit of a trait mask. The standard
+ * traits of {@link ClockType} are registered first, and custom traits get the
+ * following bits until all {@link #MAX_TRAITS} bits are taken. The traits
+ * registered after that have no bit, and the clock types test them by name.
+ *
+ * The bits are never released, so the traits of the clock types read from
+ * documents are not registered. The decoded types use the bits of the already
+ * registered traits with {@link #getKnownMask(Collection)}, and test their other
+ * traits by name.
+ */
+public final class ClockTraitRegistry {
+
+    /**
+     * The maximum number of traits with a bit.
+     */
+    public static final int MAX_TRAITS = Long.SIZE;
+
+    /**
+     * The bits of the registered traits.
+     */
+    private static final Map<String, Long> BITS = new ConcurrentHashMap<>();
+
+    /**
+     * The trait names by bit index.
+     */
+    private static final AtomicReferenceArray<String> NAMES = new AtomicReferenceArray<>(MAX_TRAITS);
+
+    /**
+     * The number of registered traits.
+     */
+    private static int count = 0;
+
+    static {
+        register(ClockType.TUG_OF_WAR);
+        register(ClockType.REGRESS);
+        register(ClockType.LINKED);
+        register(ClockType.CHAINED);
+        register(ClockType.PROGRESS);
+        register(ClockType.COMPLETES_FULL);
+        register(ClockType.DEPLETES_EMPTY);
+    }
+
+    /**
+     * The registry has no instances.
+     */
+    private ClockTraitRegistry() {
+    }
+
+    /**
+     * Register a trait.
+     * @param trait The registered trait.
+     * @return The bit of the trait. If the registry has no free bits left,
+     * the trait gets no bit, and zero is returned.
+     * @throws IllegalArgumentException The trait was undefined.
+     */
+    public static synchronized long register(String trait) throws IllegalArgumentException {
+        if (trait == null) throw new IllegalArgumentException("Invalid trait",
+        new NullPointerException("Trait must be specified"));
+        Long bit = BITS.get(trait);
+        if (bit != null) {
+            return bit;
+        } else if (count < MAX_TRAITS) {
+            long result = 1L << count;
+            NAMES.set(count, trait);
+            count++;
+            BITS.put(trait, result);
+            return result;
+        } else {
+            return 0L;
+        }
+    }
+
+    /**
+     * Get the bit of a trait.
+     * @param trait The trait.
+     * @return The bit of the trait, or zero, if the trait has no bit.
+     */
+    public static long getBit(String trait) {
+        if (trait == null) return 0L;
+        Long bit = BITS.get(trait);
+        return bit == null ? 0L : bit;
+    }
+
+    /**
+     * Get the trait mask of a collection of traits. All traits of the
+     * collection are registered.
+     * @param traits The traits.
+     * @return The trait mask containing the bits of the traits with a bit.
+     * @throws IllegalArgumentException The collection contained an undefined trait.
+     */
+    public static long getMask(Collection<String> traits) throws IllegalArgumentException {
+        long mask = 0L;
+        if (traits != null) {
+            for (String trait: traits) {
+                mask |= register(trait);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Get the trait mask of the registered traits of a collection of traits.
+     * The traits of the collection are not registered.
+     * @param traits The traits.
+     * @return The trait mask containing the bits of the traits with a bit.
+     */
+    public static long getKnownMask(Collection<String> traits) {
+        long mask = 0L;
+        if (traits != null) {
+            for (String trait: traits) {
+                mask |= getBit(trait);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Get the trait names of a trait mask.
+     * @param mask The trait mask.
+     * @return The list of the names of the traits in the mask.
+     */
+    public static List<String> getNames(long mask) {
+        List<String> result = new ArrayList<>(Long.bitCount(mask));
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            String name = NAMES.get(Long.numberOfTrailingZeros(rest));
+            if (name != null) result.add(name);
+        }
+        return result;
+    }
+}
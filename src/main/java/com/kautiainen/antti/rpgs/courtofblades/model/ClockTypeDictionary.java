@@ -0,0 +1,297 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The dictionary of the clock types.
+ *
+ * The dictionary assigns each registered clock type an identifier. The
+ * default clock types of {@link Clock#CLOCK_TYPES} and the
+ * {@link ClockType#REGRESS_CLOCK} are registered first in their declaration order,
+ * and the custom types registered by the application get the following identifiers.
+ * The identifiers depend on the order of the registrations, and they are valid only
+ * within the running process.
+ *
+ * The serialized clocks refer to the registered types by the name of the type,
+ * which does not depend on the order of the registrations. The first registered
+ * type with a name owns the name, and the other registered types with the same name
+ * are serialized in full. The readers resolve the types equal to a registered type
+ * into the canonical shared instance of the registered type.
+ */
+public final class ClockTypeDictionary {
+
+    /**
+     * The registered types by identifier.
+     */
+    private static final List<ClockType> TYPES = new CopyOnWriteArrayList<>();
+
+    /**
+     * The identifiers of the registered type instances.
+     */
+    private static final Map<ClockType, Integer> IDS = new ConcurrentHashMap<>();
+
+    /**
+     * The registered types by their content.
+     */
+    private static final Map<Key, ClockType> CANONICAL = new ConcurrentHashMap<>();
+
+    /**
+     * The registered types by their names.
+     */
+    private static final Map<String, ClockType> NAMES = new ConcurrentHashMap<>();
+
+    static {
+        for (ClockType type: Clock.CLOCK_TYPES) {
+            register(type);
+        }
+        register(ClockType.REGRESS_CLOCK);
+    }
+
+    /**
+     * The dictionary has no instances.
+     */
+    private ClockTypeDictionary() {
+    }
+
+    /**
+     * The content of a clock type.
+     */
+    private static final class Key {
+
+        /**
+         * The name of the type.
+         */
+        private final String name;
+
+        /**
+         * The description of the type.
+         */
+        private final String description;
+
+        /**
+         * The traits of the type.
+         */
+        private final Set<String> traits;
+
+        /**
+         * Create a key.
+         * @param name The name of the type.
+         * @param description The description of the type.
+         * @param traits The traits of the type.
+         */
+        Key(String name, String description, Set<String> traits) {
+            this.name = name;
+            this.description = description;
+            this.traits = traits;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Key)) return false;
+            Key key = (Key)other;
+            return Objects.equals(name, key.name) && Objects.equals(description, key.description)
+                && traits.equals(key.traits);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, description, traits);
+        }
+    }
+
+    /**
+     * Create the key of a clock type.
+     * @param type The clock type.
+     * @return The key of the content of the type.
+     */
+    private static Key keyOf(ClockType type) {
+        return new Key(type.getName(), type.getDescription(), type.getTraits());
+    }
+
+    /**
+     * Register a clock type.
+     * A type equal to an already registered type is not registered, and it gets
+     * the identifier of the registered type.
+     * @param type The registered type.
+     * @return The identifier of the type.
+     * @throws IllegalArgumentException The type was undefined.
+     */
+    public static synchronized int register(ClockType type) throws IllegalArgumentException {
+        if (type == null) throw new IllegalArgumentException("Invalid clock type",
+        new NullPointerException("Type must be specified"));
+        Integer id = IDS.get(type);
+        if (id != null) return id;
+        Key key = keyOf(type);
+        ClockType canonical = CANONICAL.get(key);
+        if (canonical != null) return IDS.get(canonical);
+        int result = TYPES.size();
+        TYPES.add(type);
+        IDS.put(type, result);
+        CANONICAL.put(key, type);
+        if (type.getName() != null) NAMES.putIfAbsent(type.getName(), type);
+        return result;
+    }
+
+    /**
+     * Get the identifier of a clock type.
+     * @param type The clock type.
+     * @return The identifier of the registered type instance, or -1, if the
+     * instance is not registered.
+     */
+    public static int getId(ClockType type) {
+        if (type == null) return -1;
+        Integer id = IDS.get(type);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Get a registered clock type.
+     * @param id The identifier of the type.
+     * @return The registered type with the identifier.
+     * @throws IllegalArgumentException The identifier was not registered.
+     */
+    public static ClockType get(int id) throws IllegalArgumentException {
+        if (id < 0 || id >= TYPES.size()) throw new IllegalArgumentException("Invalid clock type id",
+        new IndexOutOfBoundsException("No clock type with id " + id));
+        return TYPES.get(id);
+    }
+
+    /**
+     * Get the name referring to a registered clock type.
+     * @param type The clock type.
+     * @return The name of the type, if the instance is the registered type owning
+     * the name, or an undefined value otherwise.
+     */
+    public static String getKey(ClockType type) {
+        if (type == null || type.getName() == null) return null;
+        return NAMES.get(type.getName()) == type ? type.getName() : null;
+    }
+
+    /**
+     * Get a clock type by name.
+     * @param name The name of the type.
+     * @return The registered type owning the name, or the clock type of the
+     * current {@link GameCatalog} with the name, if no registered type has the name.
+     * @throws IllegalArgumentException Neither the dictionary nor the current
+     * catalog had a type with the name.
+     */
+    public static ClockType get(String name) throws IllegalArgumentException {
+        ClockType result = name == null ? null : NAMES.get(name);
+        if (result == null && name != null) result = GameCatalog.getCurrent().getClockType(name);
+        if (result == null) throw new IllegalArgumentException("Invalid clock type name",
+        new NoSuchElementException("No clock type with name " + name));
+        return result;
+    }
+
+    /**
+     * Get the number of the registered types.
+     * @return The number of the registered types.
+     */
+    public static int size() {
+        return TYPES.size();
+    }
+
+    /**
+     * Get the canonical instance of a clock type.
+     * @param type The clock type.
+     * @return The registered type equal to the given type, or the given type, if
+     * no registered type is equal to it.
+     */
+    public static ClockType canonical(ClockType type) {
+        if (type == null || IDS.containsKey(type)) return type;
+        ClockType result = CANONICAL.get(keyOf(type));
+        return result == null ? type : result;
+    }
+
+    /**
+     * Get the canonical clock type with a content.
+     * @param name The name of the type.
+     * @param description The description of the type.
+     * @param traits The traits of the type.
+     * @return The registered type with the content, or a new type, if no registered
+     * type has the content. The traits of the new type are not registered to the
+     * {@link ClockTraitRegistry}.
+     */
+    public static ClockType canonical(String name, String description, Collection<String> traits) {
+        Set<String> traitSet = traits == null ? new HashSet<>() : new HashSet<>(traits);
+        ClockType result = CANONICAL.get(new Key(name, description, traitSet));
+        return result == null ? ClockType.decode(name, description, traitSet) : result;
+    }
+
+    /**
+     * The clock type references of a single document.
+     *
+     * The registered types are referred to by their names. The other types
+     * get a document reference when they are first written, and the later
+     * occurrences refer to the document reference.
+     */
+    public static class DocumentTypes {
+
+        /**
+         * The document references of the written types.
+         */
+        private final Map<ClockType, Integer> written = new IdentityHashMap<>();
+
+        /**
+         * The read types by document reference.
+         */
+        private final List<ClockType> read = new ArrayList<>();
+
+        /**
+         * Get the document reference of a written type.
+         * @param type The written type.
+         * @return The document reference of the type, or -1, if the type has not
+         * been written.
+         */
+        public int getWritten(ClockType type) {
+            Integer result = written.get(type);
+            return result == null ? -1 : result;
+        }
+
+        /**
+         * Add a type written into the document.
+         * @param type The written type.
+         * @return The document reference of the type.
+         */
+        public int addWritten(ClockType type) {
+            int result = written.size();
+            written.put(type, result);
+            return result;
+        }
+
+        /**
+         * Get a type read from the document.
+         * @param reference The document reference of the type.
+         * @return The type with the reference.
+         * @throws IllegalArgumentException The reference was unknown.
+         */
+        public ClockType getRead(int reference) throws IllegalArgumentException {
+            if (reference < 0 || reference >= read.size()) throw new IllegalArgumentException("Invalid clock type reference",
+            new IndexOutOfBoundsException("No clock type with reference " + reference));
+            return read.get(reference);
+        }
+
+        /**
+         * Add a type read from the document.
+         * @param type The read type.
+         * @return The document reference of the type.
+         */
+        public int addRead(ClockType type) {
+            read.add(type);
+            return read.size() - 1;
+        }
+    }
+}
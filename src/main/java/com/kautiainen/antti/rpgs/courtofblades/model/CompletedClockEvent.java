@@ -19,5 +19,10 @@ public class CompletedClockEvent extends SimpleClockEvent {
         super.setExcess(excess);
     }
 
+    @Override
+    protected String createEventName() {
+        return ClockEventKind.COMPLETED.getEventName(getTarget());
+    }
+
     
 }
\ No newline at end of file
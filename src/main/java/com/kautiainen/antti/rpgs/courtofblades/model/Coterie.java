@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Predicate;
 
 /**
@@ -55,10 +56,11 @@ public class Coterie extends Named implements SpecialAbilityContainer {
     private HouseModel house = null;
 
     /**
-     * The colleciton of the abilities.
-     * TODO: Replace this with validating list refusing all values the coterie does not allow.
+     * The colleciton of the abilities indexed by the name. The list refuses all values
+     * the coterie does not allow, and holds the frozen canonical instances of the
+     * added abilities, whether they are added through the coterie or the list.
      */
-    private List<SpecialAbility> abilities = new java.util.ArrayList<>();
+    private final SpecialAbilityList abilities = new SpecialAbilityList(this::validSpecialAbility);
     
     /**
      * Create an uninitialized coterie.
@@ -123,9 +125,8 @@ public class Coterie extends Named implements SpecialAbilityContainer {
         if (specialAbilities == null) {
             this.removeSpecialAbilities();
         } else if (validSpecialAbilities(specialAbilities)) {
-            if (removeSpecialAbilities()) {
-                addSpecialAbilities(specialAbilities);
-            }
+            removeSpecialAbilities();
+            addSpecialAbilities(specialAbilities);
         } else {
             throw new IllegalArgumentException(INVALID_ABILITIES_MESSAGE);
         }
@@ -140,6 +141,26 @@ public class Coterie extends Named implements SpecialAbilityContainer {
     public Predicate<? super SpecialAbility> getEquivalentFilter(SpecialAbility seeked) {
         return SpecialAbilityContainer.super.getEquivalentFilter(seeked);
     }
+
+    @Override
+    public boolean removeSpecialAbility(SpecialAbility ability) {
+        return validSpecialAbility(ability) && abilities.remove(ability);
+    }
+
+    @Override
+    public boolean hasSpecialAbility(SpecialAbility ability) {
+        return validSpecialAbility(ability) && abilities.contains(ability);
+    }
+
+    @Override
+    public Optional<SpecialAbility> getSpecialAbility(String name) {
+        return Optional.ofNullable(abilities.getByName(name));
+    }
+
+    @Override
+    public Optional<SpecialAbility> getSpecialAbility(SpecialAbility seeked) {
+        return validSpecialAbility(seeked) ? getSpecialAbility(seeked.getName()) : Optional.empty();
+    }
     
     
 
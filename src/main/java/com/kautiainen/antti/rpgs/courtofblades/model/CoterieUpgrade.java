@@ -46,9 +46,11 @@ public class CoterieUpgrade extends NamedAndDescribed {
      * Set the upgrade cost.
      * @param cost The new coterie upgrade cost.
      * @throws IllegalArgumentException The given coterie upgrade cost was negative.
+     * @throws UnsupportedOperationException The coterie upgrade was frozen.
      */
     @JsonProperty
-    public void setCost(int cost) throws IllegalArgumentException {
+    public void setCost(int cost) throws IllegalArgumentException, UnsupportedOperationException {
+        checkModifiable();
         if (cost < 0) throw new IllegalArgumentException("Negative cost is not allowed");
         this.cost = cost;
     }
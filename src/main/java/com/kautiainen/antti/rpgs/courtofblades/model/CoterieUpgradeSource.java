@@ -30,7 +30,7 @@ public abstract class CoterieUpgradeSource {
     @SuppressWarnings("")
     public CoterieUpgradeSource(CoterieUpgradeSource source) {
         this();
-        if (source != null) {
+        if (source != null && source.getCoterieUpgrades() != null) {
             this.setCoterieUpgrades(new HashSet<>(source.getCoterieUpgrades()));
         }
     }
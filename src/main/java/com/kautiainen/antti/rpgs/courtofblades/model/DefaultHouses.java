@@ -1,157 +1,123 @@
 package com.kautiainen.antti.rpgs.courtofblades.model;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.net.URL;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.function.Function;
-import java.lang.System.Logger.Level;
-import java.util.stream.Collectors;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.HealerType;
 import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.Resource;
 
 /**
  * Class containing the default houses.
  *
+ * The default houses are defined in the JSON resource <code>houses.json</code>,
+ * which the build compiles into the binary snapshot <code>houses.bin</code>. The
+ * houses are loaded from the snapshot, and each house is decoded when it is first
+ * read. Without the snapshot the houses are read from the JSON resource.
+ *
  * @author kautsu
  */
 public class DefaultHouses {
-    
-  
-    public static final java.util.List<HouseModel> HOUSES;
-    
 
-    public static Optional<Resource> getPrimaryDomain(String houseName) {
-        Optional<HouseModel> house = HOUSES.stream().filter( entry -> (houseName.equals(entry.getName()))).findFirst();
-        try {
-            return Optional.ofNullable(house.get().getStrengths().iterator().next());
-        } catch(Exception e) {
-            return Optional.empty();
-        }
-    }
+    /**
+     * The name of the JSON resource of the default houses.
+     */
+    public static final String JSON_RESOURCE = "houses.json";
 
-    public static Optional<HealerType> getHealerType(String houseName) {
-        Optional<HouseModel> house = HOUSES.stream().filter( entry -> (houseName.equals(entry.getName()))).findFirst();
-        try {
-            return Optional.ofNullable(house.get().getHealer());
-        } catch(Exception e) {
-            return Optional.empty();
-        }
-    }
+    /**
+     * The name of the snapshot resource of the default houses.
+     */
+    public static final String SNAPSHOT_RESOURCE = "houses.bin";
 
-    static  {
-    
-        java.util.List<HouseModel> result = new java.util.ArrayList<>();
-        //TODO: Replace generation of the houses with generation from JSON/XML resource.
-        List<String> houseNames = Arrays.asList("Corvetto", "Bastion", "Battalia", "Erlanda", "Lovell", "Al-Mari");
-        
-        /**
-         * Function getting the house name from the list model of house data.
-         */
-        Function<List<?>, String> getHouseName = (List<?> list) -> {
-            try {
-                return (String)list.get(0);
-            } catch(Exception e) {
-                return null;
-            }
-        };
+    /**
+     * The logger of the default houses.
+     */
+    private static final Logger LOGGER = System.getLogger(DefaultHouses.class.getName());
 
-        /**
-         * Function getting the primary resource from the list model of house data.
-         */
-        Function<List<?>, Resource> getPrimaryResource = (List<?> list) -> {
-            try {
-                return (Resource)list.get(1);
-            } catch(Exception e) {
-                return null;
-            }
-        };
-        /**
-         * Function getting the healer type of the list model of house data.
-         */
-        Function<List<?>, HealerType> getHealerType = (List<?> list) -> {
-            try {
-                return (HealerType)list.get(2);
-            } catch(Exception e) {
-                return null;
-            }
-        };
+    /**
+     * The default houses.
+     */
+    public static final java.util.List<HouseModel> HOUSES = loadHouses();
+
+    /**
+     * The holder of the catalog index of the default houses. The catalog is
+     * created on its first use.
+     */
+    private static final class CatalogHolder {
 
         /**
-         * Function getting the special feature from the list model of house data.
-         */
-        Function<List<?>, SpecialFeature> getSpecialFeature = (List<?> list) -> {
-            try {
-                return (SpecialFeature)list.get(3);
-            } catch(Exception e) {
-                return null;
-            }
-        };
-        /**
-         * Function getting the coterie upgrades from the list model of house data.
+         * The catalog index of the default houses.
          */
-        @SuppressWarnings("unchecked")
-        Function<List<?>, java.util.Set<CoterieUpgrade>> getCoterieUpgrades = (List<?> list) -> {
-            try {
-                java.util.Set<CoterieUpgrade> upgrades = new java.util.HashSet<>();
-                upgrades.addAll(Optional.ofNullable((java.util.List<CoterieUpgrade>)list.get(4)).orElse(Collections.emptyList()));
-                return upgrades;
-            } catch(Exception e) {
-                return null;
-            }
-        };
-
-        @SuppressWarnings("unchecked")
-        Function<List<?>, java.util.Set<SpecialAbility>> getSpecialAbilities = (List<?> list) -> {
-            try {
-                java.util.Set<SpecialAbility> abilities = new java.util.HashSet<>();
-                abilities.addAll(Optional.ofNullable((java.util.List<SpecialAbility>)list.get(5)).orElse(Collections.emptyList()));
-                return abilities;
-            } catch(Exception e) {
-                return null;
-            }
-        };
-        Function<List<?>, List<?>> toList = (List<?> list) -> (list);
+        private static final HouseCatalog CATALOG = new HouseCatalog(HOUSES);
+    }
 
+    /**
+     * Get the catalog index of the default houses.
+     * @return The catalog of the default houses.
+     */
+    public static HouseCatalog getCatalog() {
+        return CatalogHolder.CATALOG;
+    }
 
-        /**
-         * The house data in list model. 
-         */
-        final java.util.Map<String, List<?>> houseData = Arrays.asList(
-            (List<?>)Arrays.asList("Corvetto", Resource.Magic, HealerType.Grace, null, Arrays.asList()), 
-            (List<?>)Arrays.asList("Al-Mari", Resource.Supply, HealerType.Physician, null, Arrays.asList()),
-            (List<?>)Arrays.asList("Lovell", Resource.Intelligence, HealerType.Grace, null, Arrays.asList()),
-            (List<?>)Arrays.asList("Bastien", Resource.Transport, HealerType.Grace, null, Arrays.asList()),
-            (List<?>)Arrays.asList("Battalia",Resource.Force,  HealerType.Physician, null, Arrays.asList()),
-            (List<?>)Arrays.asList("Erlanda", Resource.Wealth, HealerType.Physician, null, Arrays.asList())
-        ).stream().collect(Collectors.toMap(getHouseName, toList));
+    /**
+     * Get the primary domain of a house of the current game catalog.
+     * The current catalog contains the default houses unless a reloaded catalog
+     * has replaced it.
+     * @param houseName The name of the house.
+     * @return The primary domain of the house, or an empty value, if there is no
+     * house with the name.
+     * @see GameCatalog#getCurrent()
+     */
+    public static Optional<Resource> getPrimaryDomain(String houseName) {
+        return GameCatalog.getCurrent().getHouses().getPrimaryDomain(houseName);
+    }
 
-        // TODO: Replaced section end.
+    /**
+     * Get the healer type of a house of the current game catalog.
+     * The current catalog contains the default houses unless a reloaded catalog
+     * has replaced it.
+     * @param houseName The name of the house.
+     * @return The healer type of the house, or an empty value, if there is no
+     * house with the name.
+     * @see GameCatalog#getCurrent()
+     */
+    public static Optional<HealerType> getHealerType(String houseName) {
+        return GameCatalog.getCurrent().getHouses().getHealerType(houseName);
+    }
 
-        // Create houses from the house data.
-        for (String houseName : houseNames) {
-            List<?> data = houseData.get(houseName);
-            if (data != null) {
-                try {
-                    HouseModel house = new HouseModel(); 
-                    house.setName(getHouseName.apply(data));
-                    house.setStrengths(Collections.singleton(getPrimaryResource.apply(data)));
-                    house.setHealer(getHealerType.apply(data));
-                    house.setSpecialFeature(getSpecialFeature.apply(data));
-                    house.setCoterieUpgrades(getCoterieUpgrades.apply(data));
-                    house.setSpecialAbilities(getSpecialAbilities.apply(data));
-                    result.add(house);
-                } catch(Exception e) {
-                    System.getLogger("foo").log(Level.INFO, String.format("House with corrupted data: %s", houseName), e);
-                }
-            } else {
-                    System.getLogger("foo").log(Level.INFO, String.format("House without data: %s", houseName));
+    /**
+     * Load the default houses.
+     * @return The unmodifiable list of the default houses. If neither resource
+     * can be read, the list is empty.
+     */
+    private static List<HouseModel> loadHouses() {
+        URL snapshot = DefaultHouses.class.getResource(SNAPSHOT_RESOURCE);
+        if (snapshot != null) {
+            try {
+                return HouseSnapshot.load(snapshot);
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, String.format("Corrupted house snapshot: %s", snapshot), e);
+            }
+        }
+        URL json = DefaultHouses.class.getResource(JSON_RESOURCE);
+        if (json != null) {
+            try (InputStream input = json.openStream()) {
+                List<HouseModel> result = new ObjectMapper().readValue(input,
+                    new TypeReference<List<HouseModel>>() {});
+                return Collections.unmodifiableList(result);
+            } catch (IOException e) {
+                LOGGER.log(Level.INFO, String.format("Corrupted house data: %s", json), e);
             }
+        } else {
+            LOGGER.log(Level.INFO, "No default house data");
         }
-        
-        HOUSES = java.util.Collections.unmodifiableList(result);
-        
+        return Collections.emptyList();
     }
-    
 }
@@ -19,5 +19,10 @@ public class DepletedClockEvent extends SimpleClockEvent {
         super.setExcess(excess);
     }
 
+    @Override
+    protected String createEventName() {
+        return ClockEventKind.DEPLETED.getEventName(getTarget());
+    }
+
     
 }
\ No newline at end of file
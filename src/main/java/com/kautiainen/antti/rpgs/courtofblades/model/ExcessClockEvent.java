@@ -13,11 +13,27 @@ public class ExcessClockEvent extends SimpleClockEvent {
     public static class AdvanceClockEvent extends ExcessClockEvent {
         
         public static String getEventName(Clock clock) {
-            return String.format("% advanced", Optional.ofNullable(clock.getName()).orElse("Clock"));
+            return String.format("%s advanced", Optional.ofNullable(clock.getName()).orElse("Clock"));
         }
         
         public AdvanceClockEvent(Clock clock, int amount) throws IllegalArgumentException {
-            super(clock, getEventName(clock), amount);
+            super(clock, null, amount);
+        }
+
+        /**
+         * Create a named advancement event.
+         * @param clock The advanced clock.
+         * @param name The name of the event, or an undefined value for the generated name.
+         * @param amount The advanced amount.
+         * @throws IllegalArgumentException The amount was negative.
+         */
+        public AdvanceClockEvent(Clock clock, String name, int amount) throws IllegalArgumentException {
+            super(clock, name, amount);
+        }
+
+        @Override
+        protected String createEventName() {
+            return getEventName(getTarget());
         }
 
         @Override
@@ -37,11 +53,27 @@ public class ExcessClockEvent extends SimpleClockEvent {
     public static class RegressClockEvent extends ExcessClockEvent {
 
         public static String getEventName(Clock clock) {
-            return String.format("% regressed", Optional.ofNullable(clock.getName()).orElse("Clock"));
+            return String.format("%s regressed", Optional.ofNullable(clock.getName()).orElse("Clock"));
         }
 
         public RegressClockEvent(Clock clock, int amount) throws IllegalArgumentException {
-            super(clock, getEventName(clock), amount);
+            super(clock, null, amount);
+        }
+
+        /**
+         * Create a named regression event.
+         * @param clock The regressed clock.
+         * @param name The name of the event, or an undefined value for the generated name.
+         * @param amount The regressed amount.
+         * @throws IllegalArgumentException The amount was positive.
+         */
+        public RegressClockEvent(Clock clock, String name, int amount) throws IllegalArgumentException {
+            super(clock, name, amount);
+        }
+
+        @Override
+        protected String createEventName() {
+            return getEventName(getTarget());
         }
 
         @Override
@@ -0,0 +1,204 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * An immutable version of the game data definitions.
+ *
+ * The catalog contains the houses, the clock types, and the coterie upgrades of a
+ * single version of the game data. The catalog is validated when it is created:
+ * every definition must have a name, and the names of the definitions of a kind
+ * must be unique. The catalog reflects the state of the definitions at its creation.
+ *
+ * The current catalog of the application is held by {@link #getCurrent()}, and
+ * the lookups of the default houses and the clock types by name read it. It starts
+ * with the default catalog, and a {@link ReloadableCatalog} publishes its reloaded
+ * catalogs into it.
+ */
+public final class GameCatalog {
+
+    /**
+     * The holder of the current catalog. The default catalog is created on the
+     * first use of the current catalog.
+     */
+    private static final class CurrentHolder {
+
+        /**
+         * The current catalog.
+         */
+        private static final AtomicReference<GameCatalog> CURRENT = new AtomicReference<>(createDefault());
+    }
+
+    /**
+     * The version of the catalog.
+     */
+    private final long version;
+
+    /**
+     * The houses of the catalog.
+     */
+    private final HouseCatalog houses;
+
+    /**
+     * The clock types in the catalog order.
+     */
+    private final List<ClockType> clockTypes;
+
+    /**
+     * The clock types by name.
+     */
+    private final Map<String, ClockType> clockTypesByName = new HashMap<>();
+
+    /**
+     * The coterie upgrades in the catalog order.
+     */
+    private final List<CoterieUpgrade> coterieUpgrades;
+
+    /**
+     * The coterie upgrades by name.
+     */
+    private final Map<String, CoterieUpgrade> coterieUpgradesByName = new HashMap<>();
+
+    /**
+     * Create a catalog.
+     * @param version The version of the catalog.
+     * @param houses The houses.
+     * @param clockTypes The clock types.
+     * @param coterieUpgrades The coterie upgrades.
+     * @throws IllegalArgumentException Any collection was undefined, or any
+     * definition was invalid.
+     */
+    public GameCatalog(long version, Collection<? extends HouseModel> houses,
+        Collection<? extends ClockType> clockTypes, Collection<? extends CoterieUpgrade> coterieUpgrades)
+        throws IllegalArgumentException {
+        if (clockTypes == null) throw new IllegalArgumentException("Invalid clock types",
+        new NullPointerException("Clock types must be specified"));
+        if (coterieUpgrades == null) throw new IllegalArgumentException("Invalid coterie upgrades",
+        new NullPointerException("Coterie upgrades must be specified"));
+        this.version = version;
+        this.houses = new HouseCatalog(houses);
+        Map<String, HouseModel> houseNames = new HashMap<>();
+        for (HouseModel house: this.houses.getHouses()) {
+            checkName("house", house.getName(), houseNames.put(house.getName(), house));
+        }
+        List<ClockType> types = new ArrayList<>(clockTypes.size());
+        for (ClockType type: clockTypes) {
+            if (type == null) throw new IllegalArgumentException("Invalid clock types",
+            new NullPointerException("Clock type must be specified"));
+            checkName("clock type", type.getName(), clockTypesByName.put(type.getName(), type));
+            types.add(type);
+        }
+        this.clockTypes = Collections.unmodifiableList(types);
+        List<CoterieUpgrade> upgrades = new ArrayList<>(coterieUpgrades.size());
+        for (CoterieUpgrade upgrade: coterieUpgrades) {
+            if (upgrade == null) throw new IllegalArgumentException("Invalid coterie upgrades",
+            new NullPointerException("Coterie upgrade must be specified"));
+            checkName("coterie upgrade", upgrade.getName(),
+                coterieUpgradesByName.put(upgrade.getName(), upgrade));
+            upgrades.add(upgrade);
+        }
+        this.coterieUpgrades = Collections.unmodifiableList(upgrades);
+    }
+
+    /**
+     * Check the name of a definition.
+     * @param kind The kind of the definition.
+     * @param name The name of the definition.
+     * @param previous The previous definition with the name.
+     * @throws IllegalArgumentException The name was undefined or a duplicate.
+     */
+    private static void checkName(String kind, String name, Object previous) throws IllegalArgumentException {
+        if (name == null) throw new IllegalArgumentException("Invalid " + kind,
+        new NullPointerException("Name must be specified"));
+        if (previous != null) throw new IllegalArgumentException("Invalid " + kind,
+        new IllegalArgumentException("Duplicate name " + name));
+    }
+
+    /**
+     * Create the catalog of the default definitions.
+     * @return The catalog of the default houses and the default clock types
+     * without coterie upgrades at version zero.
+     */
+    public static GameCatalog createDefault() {
+        return new GameCatalog(0L, DefaultHouses.HOUSES, Clock.CLOCK_TYPES, Collections.emptyList());
+    }
+
+    /**
+     * Get the current catalog.
+     * @return The current catalog of the application.
+     */
+    public static GameCatalog getCurrent() {
+        return CurrentHolder.CURRENT.get();
+    }
+
+    /**
+     * Set the current catalog.
+     * @param catalog The new current catalog.
+     * @throws IllegalArgumentException The catalog was undefined.
+     */
+    public static void setCurrent(GameCatalog catalog) throws IllegalArgumentException {
+        if (catalog == null) throw new IllegalArgumentException("Invalid catalog",
+        new NullPointerException("Catalog must be specified"));
+        CurrentHolder.CURRENT.set(catalog);
+    }
+
+    /**
+     * Get the version of the catalog.
+     * @return The version of the catalog.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the houses of the catalog.
+     * @return The house catalog of the catalog.
+     */
+    public HouseCatalog getHouses() {
+        return houses;
+    }
+
+    /**
+     * Get the clock types of the catalog.
+     * @return The unmodifiable list of the clock types in the catalog order.
+     */
+    public List<ClockType> getClockTypes() {
+        return clockTypes;
+    }
+
+    /**
+     * Get a clock type.
+     * @param name The name of the clock type.
+     * @return The clock type with the name, or an undefined value, if the catalog
+     * has no clock type with the name.
+     */
+    public ClockType getClockType(String name) {
+        return name == null ? null : clockTypesByName.get(name);
+    }
+
+    /**
+     * Get the coterie upgrades of the catalog.
+     * @return The unmodifiable list of the coterie upgrades in the catalog order.
+     */
+    public List<CoterieUpgrade> getCoterieUpgrades() {
+        return coterieUpgrades;
+    }
+
+    /**
+     * Get a coterie upgrade.
+     * @param name The name of the coterie upgrade.
+     * @return The coterie upgrade with the name, or an undefined value, if the
+     * catalog has no coterie upgrade with the name.
+     */
+    public CoterieUpgrade getCoterieUpgrade(String name) {
+        return name == null ? null : coterieUpgradesByName.get(name);
+    }
+}
@@ -0,0 +1,241 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.HealerType;
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.Resource;
+
+/**
+ * The immutable index of a catalog of houses.
+ *
+ * The catalog indexes the houses by the exact name, by the name ignoring the case,
+ * by the strengths, and by the healer type. The results of the name lookups are
+ * computed when the catalog is created, so the lookups are hash lookups, and a
+ * missing house gives an empty result. The lookups ignoring the case fold the
+ * name the same way as {@link String#CASE_INSENSITIVE_ORDER}, and allocate only
+ * when the looked up name is not already folded. The index reflects the state of the houses
+ * at the creation of the catalog. If several houses have the same name, the first
+ * of them is found by the name.
+ */
+public final class HouseCatalog {
+
+    /**
+     * The houses in the catalog order.
+     */
+    private final List<HouseModel> houses;
+
+    /**
+     * The houses by the exact name.
+     */
+    private final Map<String, Optional<HouseModel>> byName = new HashMap<>();
+
+    /**
+     * The houses by the case folded name.
+     */
+    private final Map<String, Optional<HouseModel>> byNameIgnoreCase = new HashMap<>();
+
+    /**
+     * The primary domains by the exact house name.
+     */
+    private final Map<String, Optional<Resource>> primaryDomains = new HashMap<>();
+
+    /**
+     * The healer types by the exact house name.
+     */
+    private final Map<String, Optional<HealerType>> healerTypes = new HashMap<>();
+
+    /**
+     * The houses by the strength.
+     */
+    private final Map<Resource, List<HouseModel>> byStrength = new EnumMap<>(Resource.class);
+
+    /**
+     * The houses by the healer type.
+     */
+    private final Map<HealerType, List<HouseModel>> byHealerType = new EnumMap<>(HealerType.class);
+
+    /**
+     * Create a catalog of houses.
+     * @param houses The houses of the catalog.
+     * @throws IllegalArgumentException The houses, or any house, was undefined.
+     */
+    public HouseCatalog(Collection<? extends HouseModel> houses) throws IllegalArgumentException {
+        if (houses == null) throw new IllegalArgumentException("Invalid houses",
+        new NullPointerException("Houses must be specified"));
+        List<HouseModel> list = new ArrayList<>(houses.size());
+        Map<Resource, List<HouseModel>> strengths = new EnumMap<>(Resource.class);
+        Map<HealerType, List<HouseModel>> healers = new EnumMap<>(HealerType.class);
+        for (Resource resource: Resource.values()) {
+            strengths.put(resource, new ArrayList<>());
+        }
+        for (HealerType healer: HealerType.values()) {
+            healers.put(healer, new ArrayList<>());
+        }
+        for (HouseModel house: houses) {
+            if (house == null) throw new IllegalArgumentException("Invalid houses",
+            new NullPointerException("House must be specified"));
+            list.add(house);
+            String name = house.getName();
+            if (name != null && !byName.containsKey(name)) {
+                Optional<HouseModel> found = Optional.of(house);
+                byName.put(name, found);
+                byNameIgnoreCase.putIfAbsent(fold(name), found);
+                primaryDomains.put(name, Optional.ofNullable(primaryDomainOf(house)));
+                healerTypes.put(name, Optional.ofNullable(house.getHealer()));
+            }
+            Set<Resource> houseStrengths = house.getStrengths();
+            if (houseStrengths != null) {
+                for (Resource resource: houseStrengths) {
+                    if (resource != null) strengths.get(resource).add(house);
+                }
+            }
+            if (house.getHealer() != null) {
+                healers.get(house.getHealer()).add(house);
+            }
+        }
+        this.houses = Collections.unmodifiableList(list);
+        for (Map.Entry<Resource, List<HouseModel>> entry: strengths.entrySet()) {
+            byStrength.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+        for (Map.Entry<HealerType, List<HouseModel>> entry: healers.entrySet()) {
+            byHealerType.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+        }
+    }
+
+    /**
+     * Fold the case of a name.
+     * Two names are equal ignoring the case, if and only if their folded names are
+     * equal.
+     * @param name The name.
+     * @return The name with each character converted to upper case and then to
+     * lower case. A name already folded is returned as is.
+     */
+    static String fold(String name) {
+        int length = name.length();
+        int index = 0;
+        while (index < length) {
+            char c = name.charAt(index);
+            if (Character.toLowerCase(Character.toUpperCase(c)) != c) break;
+            index++;
+        }
+        if (index == length) return name;
+        char[] result = name.toCharArray();
+        for (; index < length; index++) {
+            result[index] = Character.toLowerCase(Character.toUpperCase(result[index]));
+        }
+        return new String(result);
+    }
+
+    /**
+     * Get the primary domain of a house.
+     * @param house The house.
+     * @return The first strength of the house, or an undefined value, if the house
+     * has no strengths.
+     */
+    private static Resource primaryDomainOf(HouseModel house) {
+        Set<Resource> strengths = house.getStrengths();
+        if (strengths == null) return null;
+        Iterator<Resource> iterator = strengths.iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * Get the houses of the catalog.
+     * @return The unmodifiable list of the houses in the catalog order.
+     */
+    public List<HouseModel> getHouses() {
+        return houses;
+    }
+
+    /**
+     * Get the number of the houses.
+     * @return The number of the houses in the catalog.
+     */
+    public int size() {
+        return houses.size();
+    }
+
+    /**
+     * Get a house by name.
+     * @param name The name of the house.
+     * @return The house with the name, or an empty value, if the catalog has no
+     * house with the name.
+     */
+    public Optional<HouseModel> getHouse(String name) {
+        if (name == null) return Optional.empty();
+        return byName.getOrDefault(name, Optional.empty());
+    }
+
+    /**
+     * Get a house by name ignoring the case of the name.
+     * @param name The name of the house.
+     * @return The house with the name, or an empty value, if the catalog has no
+     * house with the name.
+     */
+    public Optional<HouseModel> getHouseIgnoreCase(String name) {
+        if (name == null) return Optional.empty();
+        return byNameIgnoreCase.getOrDefault(fold(name), Optional.empty());
+    }
+
+    /**
+     * Does the catalog contain a house.
+     * @param name The name of the house.
+     * @return True, if and only if the catalog has a house with the name.
+     */
+    public boolean contains(String name) {
+        return name != null && byName.containsKey(name);
+    }
+
+    /**
+     * Get the primary domain of a house.
+     * @param name The name of the house.
+     * @return The primary domain of the house with the name, or an empty value,
+     * if the catalog has no house with the name, or the house has no domain.
+     */
+    public Optional<Resource> getPrimaryDomain(String name) {
+        if (name == null) return Optional.empty();
+        return primaryDomains.getOrDefault(name, Optional.empty());
+    }
+
+    /**
+     * Get the healer type of a house.
+     * @param name The name of the house.
+     * @return The healer type of the house with the name, or an empty value,
+     * if the catalog has no house with the name, or the house has no healer type.
+     */
+    public Optional<HealerType> getHealerType(String name) {
+        if (name == null) return Optional.empty();
+        return healerTypes.getOrDefault(name, Optional.empty());
+    }
+
+    /**
+     * Get the houses with a strength.
+     * @param strength The strength.
+     * @return The unmodifiable list of the houses with the strength in the catalog
+     * order.
+     */
+    public List<HouseModel> getHouses(Resource strength) {
+        if (strength == null) return Collections.emptyList();
+        return byStrength.get(strength);
+    }
+
+    /**
+     * Get the houses with a healer type.
+     * @param healer The healer type.
+     * @return The unmodifiable list of the houses with the healer type in the
+     * catalog order.
+     */
+    public List<HouseModel> getHouses(HealerType healer) {
+        if (healer == null) return Collections.emptyList();
+        return byHealerType.get(healer);
+    }
+}
@@ -163,10 +163,14 @@ public class HouseModel extends CoterieUpgradeSource {
 
     /**
      * Set the special abilities available to the coteries from house.
-     * @param abilities
+     * The house keeps a set of the shared canonical instances of the
+     * abilities of the {@link CatalogInterner}, and the given abilities stay
+     * modifiable.
+     * @param abilities The special abilities, or an undefined value.
      */
     public void setSpecialAbilities(Set<SpecialAbility> abilities) {
-        this.specialAbilities = abilities;
+        this.specialAbilities = abilities == null ? null
+            : CatalogInterner.getDefault().internAll(abilities, new HashSet<>());
     }
 
 }
@@ -0,0 +1,270 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The precompiled binary snapshot of a house catalog.
+ *
+ * The snapshot starts with the magic number, the format version, and the number of
+ * the houses. It is followed by the offsets of the houses and the end of the last
+ * house, and each house is a document of the {@link BinaryModelCodec} of its own.
+ * The snapshot is an unmodifiable list decoding each house when it is first read.
+ *
+ * The snapshot files larger than {@link #MAP_THRESHOLD} are memory-mapped, and the
+ * smaller files are read into memory. A mapped file must not be truncated while it
+ * is in use, as the access to the truncated part of the mapping crashes the virtual
+ * machine. The build rewrites the snapshot in the class output directory, so the
+ * small snapshots of the development builds are never mapped, and
+ * {@link #main(String[])} replaces the snapshot file instead of truncating it.
+ *
+ * The build compiles the JSON resource of the default houses into a snapshot with
+ * {@link #main(String[])}.
+ */
+public final class HouseSnapshot extends AbstractList<HouseModel> implements RandomAccess {
+
+    /**
+     * The magic number starting a snapshot.
+     */
+    public static final int MAGIC = 0x434F4248;
+
+    /**
+     * The current format version.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * The size in bytes above which a snapshot file is memory-mapped instead of
+     * being read into memory.
+     */
+    public static final long MAP_THRESHOLD = 1L << 20;
+
+    /**
+     * The size of the header before the offsets.
+     */
+    private static final int HEADER_SIZE = Integer.BYTES + 1 + Integer.BYTES;
+
+    /**
+     * The data of the snapshot.
+     */
+    private final ByteBuffer data;
+
+    /**
+     * The number of the houses.
+     */
+    private final int size;
+
+    /**
+     * The decoded houses.
+     */
+    private final AtomicReferenceArray<HouseModel> houses;
+
+    /**
+     * Create a snapshot of data.
+     * @param data The data of the snapshot.
+     * @throws IOException The header of the snapshot was invalid.
+     */
+    private HouseSnapshot(ByteBuffer data) throws IOException {
+        if (data.remaining() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new StreamCorruptedException("Not a house snapshot");
+        }
+        if (data.get(Integer.BYTES) != FORMAT_VERSION) {
+            throw new StreamCorruptedException("Unsupported format version " + data.get(Integer.BYTES));
+        }
+        int count = data.getInt(Integer.BYTES + 1);
+        if (count < 0 || data.remaining() < HEADER_SIZE + (long)(count + 1) * Integer.BYTES
+            || data.getInt(offsetPosition(count)) > data.remaining()) {
+            throw new StreamCorruptedException("Invalid house snapshot size");
+        }
+        this.data = data;
+        this.size = count;
+        this.houses = new AtomicReferenceArray<>(count);
+    }
+
+    /**
+     * Get the position of the offset of a house.
+     * @param index The index of the house.
+     * @return The position of the offset of the house.
+     */
+    private static int offsetPosition(int index) {
+        return HEADER_SIZE + index * Integer.BYTES;
+    }
+
+    /**
+     * Create a snapshot of data.
+     * @param data The data of the snapshot. The snapshot reads the data from its
+     * position to its limit, and does not change the buffer.
+     * @return The snapshot of the data.
+     * @throws IllegalArgumentException The data was undefined.
+     * @throws IOException The data was not a valid snapshot.
+     */
+    public static HouseSnapshot of(ByteBuffer data) throws IllegalArgumentException, IOException {
+        if (data == null) throw new IllegalArgumentException("Invalid data",
+        new NullPointerException("Data must be specified"));
+        return new HouseSnapshot(data.slice());
+    }
+
+    /**
+     * Map a snapshot file.
+     * @param file The snapshot file.
+     * @return The snapshot of the file.
+     * @throws IllegalArgumentException The file was undefined.
+     * @throws IOException The mapping failed, or the file was not a valid snapshot.
+     */
+    public static HouseSnapshot map(Path file) throws IllegalArgumentException, IOException {
+        if (file == null) throw new IllegalArgumentException("Invalid file",
+        new NullPointerException("File must be specified"));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new HouseSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Load a snapshot resource. A file resource larger than {@link #MAP_THRESHOLD}
+     * is memory-mapped, and the other resources are read into memory.
+     * @param resource The snapshot resource.
+     * @return The snapshot of the resource.
+     * @throws IllegalArgumentException The resource was undefined.
+     * @throws IOException The reading failed, or the resource was not a valid snapshot.
+     */
+    public static HouseSnapshot load(URL resource) throws IllegalArgumentException, IOException {
+        if (resource == null) throw new IllegalArgumentException("Invalid resource",
+        new NullPointerException("Resource must be specified"));
+        if ("file".equals(resource.getProtocol())) {
+            try {
+                Path file = Paths.get(resource.toURI());
+                if (Files.size(file) > MAP_THRESHOLD) return map(file);
+            } catch (URISyntaxException e) {
+                // The resource is read as a stream.
+            }
+        }
+        try (InputStream input = resource.openStream()) {
+            return new HouseSnapshot(ByteBuffer.wrap(input.readAllBytes()));
+        }
+    }
+
+    /**
+     * Write a snapshot of houses.
+     * @param houses The houses.
+     * @return The buffer containing the snapshot.
+     * @throws IllegalArgumentException The houses, or any house, was undefined.
+     * @throws IOException The encoding failed.
+     */
+    public static ByteBuffer write(List<? extends HouseModel> houses) throws IllegalArgumentException, IOException {
+        if (houses == null) throw new IllegalArgumentException("Invalid houses",
+        new NullPointerException("Houses must be specified"));
+        int count = houses.size();
+        ByteBuffer result = ByteBuffer.allocate(offsetPosition(count + 1) + 64 * count);
+        result.putInt(MAGIC).put((byte)FORMAT_VERSION).putInt(count);
+        result.position(offsetPosition(count + 1));
+        for (int i = 0; i < count; i++) {
+            HouseModel house = houses.get(i);
+            if (house == null) throw new IllegalArgumentException("Invalid houses",
+            new NullPointerException("House must be specified"));
+            int offset = result.position();
+            BinaryModelCodec.Encoder encoder = new BinaryModelCodec.Encoder(result);
+            encoder.writeHouse(house);
+            result = encoder.getBuffer();
+            result.putInt(offsetPosition(i), offset);
+        }
+        result.putInt(offsetPosition(count), result.position());
+        result.flip();
+        return result;
+    }
+
+    /**
+     * Compile the JSON house catalog into a snapshot.
+     * The snapshot is written into a temporary file replacing the snapshot file, so
+     * the running virtual machines mapping the old snapshot keep reading it.
+     * @param args The path of the JSON catalog containing an array of houses, and
+     * the path of the written snapshot.
+     * @throws IOException The reading of the catalog or the writing of the
+     * snapshot failed.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: HouseSnapshot <houses.json> <houses.bin>");
+            System.exit(2);
+        }
+        List<HouseModel> houses = new ObjectMapper().readValue(Paths.get(args[0]).toFile(),
+            new TypeReference<List<HouseModel>>() {});
+        Path target = Paths.get(args[1]);
+        if (target.getParent() != null) Files.createDirectories(target.getParent());
+        ByteBuffer snapshot = write(houses);
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (snapshot.hasRemaining()) {
+                channel.write(snapshot);
+            }
+        }
+        try {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Get a house. The house is decoded when it is first read.
+     * @param index The index of the house.
+     * @return The house at the index.
+     * @throws IndexOutOfBoundsException The index was invalid.
+     * @throws IllegalStateException The data of the house was invalid.
+     */
+    @Override
+    public HouseModel get(int index) throws IndexOutOfBoundsException, IllegalStateException {
+        HouseModel result = houses.get(index);
+        if (result == null) {
+            result = decode(index);
+            if (!houses.compareAndSet(index, null, result)) {
+                result = houses.get(index);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Decode a house.
+     * @param index The index of the house.
+     * @return The decoded house.
+     * @throws IllegalStateException The data of the house was invalid.
+     */
+    private HouseModel decode(int index) throws IllegalStateException {
+        int start = data.getInt(offsetPosition(index));
+        int end = data.getInt(offsetPosition(index + 1));
+        try {
+            if (start < offsetPosition(size + 1) || end < start) {
+                throw new StreamCorruptedException("Invalid house offset");
+            }
+            ByteBuffer house = data.duplicate();
+            house.limit(end).position(start);
+            return new BinaryModelCodec.Decoder(house.slice()).readHouse();
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid house snapshot", e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,467 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * A registry of clocks with secondary indexes.
+ *
+ * The registry indexes its clocks by the clock type, by the status, and by the
+ * enabled status and the type together. The enabled clocks which have not yet
+ * completed are also ordered by the remaining ticks until the completion. The
+ * indexes are updated incrementally when the clocks are changed through the
+ * registry.
+ *
+ * The registry listens to the {@link ClockEventBus} of each clock it had when it was
+ * added, so the advancements of the clocks made elsewhere, for example with
+ * {@link Clock#advance(int)}, a {@link ClockBatch}, or a {@link ClockScheduler}, are
+ * indexed before the next query. The listener only records the changed clocks, and
+ * the queries index them. A clock without an event bus, and the changes publishing
+ * no events, such as changing the enabled status, the type, or the maximum directly,
+ * have to be updated with {@link #update(Clock)}.
+ *
+ * The queries return copies, so their cost depends only on the size of the
+ * result, and the top-k query takes logarithmic time in the number of clocks.
+ */
+public class IndexedClockRegistry {
+
+    /**
+     * The statuses of the clocks.
+     */
+    public enum Status {
+        /**
+         * The clock is enabled.
+         */
+        ENABLED,
+        /**
+         * The clock is disabled.
+         */
+        DISABLED,
+        /**
+         * The clock is completed.
+         */
+        COMPLETED,
+        /**
+         * The clock is depleted.
+         */
+        DEPLETED
+    }
+
+    /**
+     * The indexed state of a clock.
+     */
+    private static final class Entry {
+
+        /**
+         * The clock.
+         */
+        private final Clock clock;
+
+        /**
+         * The serial number ordering the clocks with the same remaining ticks.
+         */
+        private final long serial;
+
+        /**
+         * The indexed type.
+         */
+        private ClockType type;
+
+        /**
+         * The indexed remaining ticks.
+         */
+        private int remaining;
+
+        /**
+         * The indexed enabled status.
+         */
+        private boolean enabled;
+
+        /**
+         * The indexed completed status.
+         */
+        private boolean completed;
+
+        /**
+         * The indexed depleted status.
+         */
+        private boolean depleted;
+
+        /**
+         * The event bus the registry listens for the changes of the clock.
+         */
+        private ClockEventBus bus;
+
+        /**
+         * Create a new entry.
+         * @param clock The clock.
+         * @param serial The serial number of the entry.
+         */
+        private Entry(Clock clock, long serial) {
+            this.clock = clock;
+            this.serial = serial;
+        }
+
+        /**
+         * Is the clock pending completion.
+         * @return True, if and only if the clock is enabled and not completed.
+         */
+        private boolean isPending() {
+            return enabled && !completed;
+        }
+    }
+
+    /**
+     * The entries of the clocks.
+     */
+    private final Map<Clock, Entry> entries = new IdentityHashMap<>();
+
+    /**
+     * The entries by the clock type.
+     */
+    private final Map<ClockType, Set<Entry>> byType = new IdentityHashMap<>();
+
+    /**
+     * The enabled entries by the clock type.
+     */
+    private final Map<ClockType, Set<Entry>> enabledByType = new IdentityHashMap<>();
+
+    /**
+     * The entries by the status.
+     */
+    private final Map<Status, Set<Entry>> byStatus = new EnumMap<>(Status.class);
+
+    /**
+     * The pending entries ordered by the remaining ticks.
+     */
+    private final TreeSet<Entry> byRemaining = new TreeSet<>(
+        Comparator.comparingInt((Entry entry) -> entry.remaining).thenComparingLong((Entry entry) -> entry.serial));
+
+    /**
+     * The serial number of the last entry.
+     */
+    private long serials = 0L;
+
+    /**
+     * The clocks changed since they were indexed. The set is guarded by its own monitor,
+     * which is never held while taking other locks.
+     */
+    private final Set<Clock> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * The number of the clocks publishing into the listened event buses.
+     */
+    private final Map<ClockEventBus, Integer> buses = new IdentityHashMap<>();
+
+    /**
+     * The listener recording the changed clocks from the event buses.
+     */
+    private final ClockEventSink listener = (ClockEventKind kind, Clock clock, int excess) -> {
+        synchronized (changed) {
+            changed.add(clock);
+        }
+    };
+
+    /**
+     * Create an empty registry.
+     */
+    public IndexedClockRegistry() {
+        for (Status status: Status.values()) {
+            byStatus.put(status, new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Get the number of the clocks.
+     * @return The number of the clocks in the registry.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Does the registry contain a clock.
+     * @param clock The clock.
+     * @return True, if and only if the clock is in the registry.
+     */
+    public synchronized boolean contains(Clock clock) {
+        return entries.containsKey(clock);
+    }
+
+    /**
+     * Add a clock to the registry.
+     * @param clock The added clock.
+     * @return True, if and only if the clock was added. The value is false, if the
+     * clock was already in the registry.
+     * @throws IllegalArgumentException The clock was undefined.
+     */
+    public synchronized boolean add(Clock clock) throws IllegalArgumentException {
+        Entry entry = entries.get(validClock(clock));
+        if (entry != null) return false;
+        entry = new Entry(clock, ++serials);
+        entries.put(clock, entry);
+        entry.bus = clock.getEventBus();
+        if (entry.bus != null && buses.merge(entry.bus, 1, Integer::sum) == 1) {
+            entry.bus.addListener(listener);
+        }
+        synchronized (clock) {
+            index(entry);
+        }
+        return true;
+    }
+
+    /**
+     * Remove a clock from the registry.
+     * @param clock The removed clock.
+     * @return True, if and only if the clock was removed.
+     */
+    public synchronized boolean remove(Clock clock) {
+        Entry entry = entries.remove(clock);
+        if (entry == null) return false;
+        unindex(entry);
+        if (entry.bus != null && buses.merge(entry.bus, -1, Integer::sum) == 0) {
+            buses.remove(entry.bus);
+            entry.bus.removeListener(listener);
+        }
+        return true;
+    }
+
+    /**
+     * Update the indexes of a clock changed outside the registry.
+     * @param clock The changed clock.
+     * @throws IllegalArgumentException The clock was not in the registry.
+     */
+    public synchronized void update(Clock clock) throws IllegalArgumentException {
+        Entry entry = getEntry(clock);
+        synchronized (clock) {
+            reindex(entry);
+        }
+    }
+
+    /**
+     * Advance a clock, and update its indexes.
+     * @param clock The advanced clock.
+     * @param amount The advancement amount. If value is negative, the clock regresses.
+     * @return The amount of advancement not used.
+     * @throws IllegalArgumentException The clock was not in the registry.
+     */
+    public synchronized int advance(Clock clock, int amount) throws IllegalArgumentException {
+        Entry entry = getEntry(clock);
+        synchronized (clock) {
+            int result = clock.advance(amount);
+            reindex(entry);
+            return result;
+        }
+    }
+
+    /**
+     * Set the enabled status of a clock, and update its indexes.
+     * @param clock The changed clock.
+     * @param enabled The new enabled status.
+     * @throws IllegalArgumentException The clock was not in the registry.
+     */
+    public synchronized void setEnabled(Clock clock, boolean enabled) throws IllegalArgumentException {
+        Entry entry = getEntry(clock);
+        synchronized (clock) {
+            clock.setEnabled(enabled);
+            reindex(entry);
+        }
+    }
+
+    /**
+     * Get the clocks of a type.
+     * @param type The clock type.
+     * @return The list of the clocks of the type.
+     */
+    public synchronized List<Clock> getClocks(ClockType type) {
+        refresh();
+        return toClocks(byType.get(type));
+    }
+
+    /**
+     * Get the enabled clocks of a type.
+     * @param type The clock type.
+     * @return The list of the enabled clocks of the type.
+     */
+    public synchronized List<Clock> getEnabledClocks(ClockType type) {
+        refresh();
+        return toClocks(enabledByType.get(type));
+    }
+
+    /**
+     * Get the clocks with a status.
+     * @param status The status.
+     * @return The list of the clocks with the status.
+     */
+    public synchronized List<Clock> getClocks(Status status) {
+        refresh();
+        return status == null ? Collections.emptyList() : toClocks(byStatus.get(status));
+    }
+
+    /**
+     * Get the enabled clocks closest to completion.
+     * Only the enabled clocks which have not completed are included.
+     * @param count The maximum number of the returned clocks.
+     * @return The list of at most the given number of clocks ordered by the remaining
+     * ticks until the completion.
+     */
+    public synchronized List<Clock> getClosestToCompletion(int count) {
+        refresh();
+        List<Clock> result = new ArrayList<>(Math.max(0, Math.min(count, byRemaining.size())));
+        Iterator<Entry> iterator = byRemaining.iterator();
+        while (result.size() < count && iterator.hasNext()) {
+            result.add(iterator.next().clock);
+        }
+        return result;
+    }
+
+    /**
+     * Index the clocks the listened event buses reported changed.
+     * The caller must hold the monitor of the registry.
+     */
+    private void refresh() {
+        Clock[] clocks;
+        synchronized (changed) {
+            if (changed.isEmpty()) return;
+            clocks = changed.toArray(new Clock[changed.size()]);
+            changed.clear();
+        }
+        for (Clock clock: clocks) {
+            Entry entry = entries.get(clock);
+            if (entry != null) {
+                synchronized (clock) {
+                    reindex(entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * Validate a clock.
+     * @param clock The validated clock.
+     * @return The valid clock.
+     * @throws IllegalArgumentException The clock was undefined.
+     */
+    private static Clock validClock(Clock clock) throws IllegalArgumentException {
+        if (clock == null) throw new IllegalArgumentException("Invalid clock",
+        new NullPointerException("Clock must be specified"));
+        return clock;
+    }
+
+    /**
+     * Get the entry of a clock.
+     * @param clock The clock.
+     * @return The entry of the clock.
+     * @throws IllegalArgumentException The clock was not in the registry.
+     */
+    private Entry getEntry(Clock clock) throws IllegalArgumentException {
+        Entry result = entries.get(validClock(clock));
+        if (result == null) throw new IllegalArgumentException("Invalid clock",
+        new IllegalArgumentException("Clock is not in the registry"));
+        return result;
+    }
+
+    /**
+     * Get the clocks of the entries.
+     * @param source The entries, or an undefined value for no entries.
+     * @return The list of the clocks of the entries.
+     */
+    private static List<Clock> toClocks(Set<Entry> source) {
+        if (source == null || source.isEmpty()) return Collections.emptyList();
+        List<Clock> result = new ArrayList<>(source.size());
+        for (Entry entry: source) {
+            result.add(entry.clock);
+        }
+        return result;
+    }
+
+    /**
+     * Get the status of an entry.
+     * @param entry The entry.
+     * @return The status of the entry.
+     */
+    private static Status statusOf(Entry entry) {
+        if (entry.completed) return Status.COMPLETED;
+        if (entry.depleted) return Status.DEPLETED;
+        return entry.enabled ? Status.ENABLED : Status.DISABLED;
+    }
+
+    /**
+     * Read the state of the clock of an entry, and add the entry to the indexes.
+     * The caller must hold the monitor of the clock.
+     * @param entry The indexed entry.
+     */
+    private void index(Entry entry) {
+        Clock clock = entry.clock;
+        entry.type = clock.getType();
+        entry.remaining = clock.getMaximum() - clock.getCurrent();
+        entry.enabled = clock.isEnabled();
+        entry.completed = clock.isCompleted();
+        entry.depleted = clock.isDepleted();
+        byType.computeIfAbsent(entry.type, (ClockType key) -> new LinkedHashSet<>()).add(entry);
+        if (entry.enabled) {
+            enabledByType.computeIfAbsent(entry.type, (ClockType key) -> new LinkedHashSet<>()).add(entry);
+        }
+        byStatus.get(statusOf(entry)).add(entry);
+        if (entry.isPending()) {
+            byRemaining.add(entry);
+        }
+    }
+
+    /**
+     * Remove an entry from the indexes with the indexed state.
+     * @param entry The removed entry.
+     */
+    private void unindex(Entry entry) {
+        removeFrom(byType, entry);
+        if (entry.enabled) {
+            removeFrom(enabledByType, entry);
+        }
+        byStatus.get(statusOf(entry)).remove(entry);
+        if (entry.isPending()) {
+            byRemaining.remove(entry);
+        }
+    }
+
+    /**
+     * Remove an entry from a type index.
+     * @param index The type index.
+     * @param entry The removed entry.
+     */
+    private static void removeFrom(Map<ClockType, Set<Entry>> index, Entry entry) {
+        Set<Entry> entries = index.get(entry.type);
+        if (entries != null && entries.remove(entry) && entries.isEmpty()) {
+            index.remove(entry.type);
+        }
+    }
+
+    /**
+     * Update the indexes of an entry whose clock has changed.
+     * The caller must hold the monitor of the clock.
+     * @param entry The updated entry.
+     */
+    private void reindex(Entry entry) {
+        Clock clock = entry.clock;
+        if (entry.type == clock.getType()
+            && entry.remaining == clock.getMaximum() - clock.getCurrent()
+            && entry.enabled == clock.isEnabled()
+            && entry.completed == clock.isCompleted()
+            && entry.depleted == clock.isDepleted()) {
+            // The indexed state has not changed.
+            return;
+        }
+        unindex(entry);
+        index(entry);
+    }
+}
@@ -1,14 +1,23 @@
 package com.kautiainen.antti.rpgs.courtofblades.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
  * An entities with both name and description.
+ *
+ * The shared canonical instances of the {@link CatalogInterner} are frozen copies of
+ * the interned entities, and a frozen entity rejects all modifications.
  */
-public class NamedAndDescribed extends Named {
+public class NamedAndDescribed extends Named implements Cloneable {
 
     private String description;
 
+    /**
+     * Is the entity frozen.
+     */
+    private volatile boolean frozen;
+
     /**
      * Create an entity without name nor description.
      */
@@ -41,12 +50,59 @@ public class NamedAndDescribed extends Named {
     /**
      * Set the description of the special ability. 
      * @param description The new descripotion of the special ability.
+     * @throws UnsupportedOperationException The entity was frozen.
      */
     @JsonProperty
-    public void setDescription(String description) {
+    public void setDescription(String description) throws UnsupportedOperationException {
+        checkModifiable();
         this.description = description;
     }
 
+    /**
+     * Set the name of the entity.
+     * @param name The new name.
+     * @throws IllegalArgumentException The given name is not a valid name.
+     * @throws UnsupportedOperationException The entity was frozen.
+     */
+    @Override
+    @JsonProperty
+    public void setName(String name) throws IllegalArgumentException, UnsupportedOperationException {
+        checkModifiable();
+        super.setName(name);
+    }
+
+    /**
+     * Is the entity frozen.
+     * @return True, if and only if the entity rejects all modifications.
+     */
+    @JsonIgnore
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Create a frozen copy of the entity. The entity itself stays modifiable.
+     * @return The frozen copy of the same class with the same values.
+     */
+    NamedAndDescribed frozenCopy() {
+        try {
+            NamedAndDescribed result = (NamedAndDescribed)super.clone();
+            result.frozen = true;
+            return result;
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("Uncloneable entity", e);
+        }
+    }
+
+    /**
+     * Check the entity may be modified.
+     * @throws UnsupportedOperationException The entity was frozen.
+     */
+    protected void checkModifiable() throws UnsupportedOperationException {
+        if (frozen) throw new UnsupportedOperationException("Shared catalog entity " + getName()
+            + " cannot be modified");
+    }
+
 
 
 }
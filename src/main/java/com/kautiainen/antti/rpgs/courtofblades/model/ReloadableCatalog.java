@@ -0,0 +1,256 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.io.IOException;
+import java.lang.System.Logger;
+import java.lang.System.Logger.Level;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The holder of the current version of the game data catalog.
+ *
+ * The holder reloads the definitions from the files of a directory, validates them
+ * by creating a new {@link GameCatalog}, and publishes the new catalog by replacing
+ * the current catalog reference. The readers get the current catalog without
+ * locking, and a reader keeps a consistent view of the version it got while newer
+ * versions are published. An invalid reload leaves the current catalog in place.
+ * The holder created with only the directory publishes its catalogs also as the
+ * current catalog of the application, {@link GameCatalog#getCurrent()}.
+ *
+ * The directory contains the files {@link #HOUSES_FILE}, {@link #CLOCK_TYPES_FILE},
+ * and {@link #COTERIE_UPGRADES_FILE}, each containing a JSON array of the
+ * definitions. A missing file gives the default houses, the default clock types,
+ * or no coterie upgrades. The loaded clock types equal to a type of the
+ * {@link ClockTypeDictionary} are replaced with the registered type, and the
+ * loaded coterie upgrades, special abilities, experience triggers, and special
+ * features with the canonical instances of the {@link CatalogInterner}.
+ */
+public class ReloadableCatalog {
+
+    /**
+     * The name of the file of the houses.
+     */
+    public static final String HOUSES_FILE = "houses.json";
+
+    /**
+     * The name of the file of the clock types.
+     */
+    public static final String CLOCK_TYPES_FILE = "clock-types.json";
+
+    /**
+     * The name of the file of the coterie upgrades.
+     */
+    public static final String COTERIE_UPGRADES_FILE = "coterie-upgrades.json";
+
+    /**
+     * The logger of the background reloads.
+     */
+    private static final Logger LOGGER = System.getLogger(ReloadableCatalog.class.getName());
+
+    /**
+     * The directory of the definitions.
+     */
+    private final Path directory;
+
+    /**
+     * The mapper reading the definitions.
+     */
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * The current catalog.
+     */
+    private final AtomicReference<GameCatalog> current;
+
+    /**
+     * The listener of the published catalogs, or an undefined value.
+     */
+    private final Consumer<GameCatalog> listener;
+
+    /**
+     * The modification times of the files of the current catalog.
+     */
+    private FileTime[] modified = new FileTime[3];
+
+    /**
+     * Create a catalog holder starting with the current catalog of the application,
+     * and publishing the reloaded catalogs as the current catalog of the application.
+     * @param directory The directory of the definitions.
+     * @throws IllegalArgumentException The directory was undefined.
+     */
+    public ReloadableCatalog(Path directory) throws IllegalArgumentException {
+        this(directory, GameCatalog.getCurrent(), GameCatalog::setCurrent);
+    }
+
+    /**
+     * Create a catalog holder.
+     * @param directory The directory of the definitions.
+     * @param initial The initial catalog.
+     * @param listener The listener receiving each published catalog, or an
+     * undefined value.
+     * @throws IllegalArgumentException The directory or the initial catalog was
+     * undefined.
+     */
+    public ReloadableCatalog(Path directory, GameCatalog initial, Consumer<GameCatalog> listener)
+    throws IllegalArgumentException {
+        if (directory == null) throw new IllegalArgumentException("Invalid directory",
+        new NullPointerException("Directory must be specified"));
+        if (initial == null) throw new IllegalArgumentException("Invalid catalog",
+        new NullPointerException("Catalog must be specified"));
+        this.directory = directory;
+        this.current = new AtomicReference<>(initial);
+        this.listener = listener;
+    }
+
+    /**
+     * Get the current catalog.
+     * @return The current version of the catalog.
+     */
+    public GameCatalog get() {
+        return current.get();
+    }
+
+    /**
+     * Get the directory of the definitions.
+     * @return The directory the definitions are loaded from.
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the modification times of the definition files.
+     * @return The modification times of the files, with an undefined value for
+     * a missing file.
+     * @throws IOException The reading of a modification time failed.
+     */
+    private FileTime[] getModificationTimes() throws IOException {
+        String[] names = { HOUSES_FILE, CLOCK_TYPES_FILE, COTERIE_UPGRADES_FILE };
+        FileTime[] result = new FileTime[names.length];
+        for (int i = 0; i < names.length; i++) {
+            Path file = directory.resolve(names[i]);
+            result[i] = Files.exists(file) ? Files.getLastModifiedTime(file) : null;
+        }
+        return result;
+    }
+
+    /**
+     * Read the definitions of a file.
+     * @param <T> The type of the definitions.
+     * @param name The name of the file.
+     * @param type The type of the list of the definitions.
+     * @return The definitions of the file, or an undefined value, if the file does
+     * not exist.
+     * @throws IOException The reading failed.
+     */
+    private <T> List<T> read(String name, TypeReference<List<T>> type) throws IOException {
+        Path file = directory.resolve(name);
+        if (!Files.exists(file)) return null;
+        List<T> result = mapper.readValue(file.toFile(), type);
+        if (result == null) throw new IOException("Invalid definitions in " + file);
+        return result;
+    }
+
+    /**
+     * Load and publish a new version of the catalog.
+     * @return The published catalog.
+     * @throws IOException The reading of the definitions failed.
+     * @throws IllegalArgumentException The definitions were invalid.
+     */
+    public synchronized GameCatalog reload() throws IOException, IllegalArgumentException {
+        FileTime[] times = getModificationTimes();
+        List<HouseModel> houses = read(HOUSES_FILE, new TypeReference<List<HouseModel>>() {});
+        List<ClockType> types = read(CLOCK_TYPES_FILE, new TypeReference<List<ClockType>>() {});
+        List<CoterieUpgrade> upgrades = read(COTERIE_UPGRADES_FILE, new TypeReference<List<CoterieUpgrade>>() {});
+        CatalogInterner interner = CatalogInterner.getDefault();
+        if (houses != null) {
+            for (HouseModel house: houses) {
+                if (house == null) continue;
+                if (house.getCoterieUpgrades() != null) {
+                    house.setCoterieUpgrades(interner.internAll(house.getCoterieUpgrades(), new HashSet<>()));
+                }
+                house.setUniqueXpTrigger(interner.intern(house.getUniqueXpTrigger()));
+                house.setSpecialFeature(interner.intern(house.getSpecialFeature()));
+            }
+        }
+        if (upgrades != null) {
+            upgrades = interner.internAll(upgrades, new ArrayList<>(upgrades.size()));
+        }
+        Collection<ClockType> clockTypes = Clock.CLOCK_TYPES;
+        if (types != null) {
+            List<ClockType> canonical = new ArrayList<>(types.size());
+            for (ClockType type: types) {
+                canonical.add(ClockTypeDictionary.canonical(type));
+            }
+            clockTypes = canonical;
+        }
+        GameCatalog result = new GameCatalog(current.get().getVersion() + 1,
+            houses == null ? DefaultHouses.HOUSES : houses, clockTypes,
+            upgrades == null ? List.of() : upgrades);
+        current.set(result);
+        modified = times;
+        if (listener != null) listener.accept(result);
+        return result;
+    }
+
+    /**
+     * Reload the catalog, if any definition file has changed since the last reload.
+     * @return True, if and only if a new catalog was published.
+     * @throws IOException The reading of the definitions failed.
+     * @throws IllegalArgumentException The definitions were invalid.
+     */
+    public synchronized boolean reloadIfChanged() throws IOException, IllegalArgumentException {
+        FileTime[] times = getModificationTimes();
+        if (Arrays.equals(times, modified)) return false;
+        try {
+            reload();
+        } finally {
+            // A failed version is not retried until its files change again.
+            modified = times;
+        }
+        return true;
+    }
+
+    /**
+     * Start reloading the changed definitions in the background.
+     * The failed reloads are logged, and the current catalog is kept. Any exception
+     * of a reload, including the exceptions of the listener, is logged instead of
+     * cancelling the periodic check.
+     * @param executor The executor running the reloads.
+     * @param periodMillis The interval of checking the definition files in milliseconds.
+     * @return The future of the periodic check.
+     * @throws IllegalArgumentException The executor was undefined, or the period was
+     * not positive.
+     */
+    public ScheduledFuture<?> start(ScheduledExecutorService executor, long periodMillis)
+    throws IllegalArgumentException {
+        if (executor == null) throw new IllegalArgumentException("Invalid executor",
+        new NullPointerException("Executor must be specified"));
+        if (periodMillis <= 0) throw new IllegalArgumentException("Invalid period",
+        new IllegalArgumentException("Period must be positive"));
+        return executor.scheduleWithFixedDelay(() -> {
+            try {
+                reloadIfChanged();
+            } catch (IOException | IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, String.format("Invalid game data in %s", directory), e);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.ERROR, String.format("Reloading game data in %s failed", directory), e);
+            }
+        }, 0L, periodMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -33,11 +33,28 @@ public abstract class SimpleClockEvent implements ClockEvent {
         setExcess(excess);
     }
 
+    /**
+     * Get the name of the event.
+     * @return The name of the event. If the event was created without a name,
+     * the name created with {@link #createEventName()} on the first call.
+     */
     @JsonGetter("name")
     public String getEventName() {
+        if (this.name == null) {
+            this.name = createEventName();
+        }
         return this.name;
     }
 
+    /**
+     * Create the name of an event created without a name.
+     * @return The created event name.
+     * @implNote The default implementation returns an undefined value.
+     */
+    protected String createEventName() {
+        return null;
+    }
+
     private void setEventName(String name) throws IllegalArgumentException {
         this.name = name;
     }
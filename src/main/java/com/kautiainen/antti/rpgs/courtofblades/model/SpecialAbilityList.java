@@ -0,0 +1,259 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * The list of special abilities indexed by the name.
+ *
+ * The list keeps the abilities in the insertion order, and indexes them by the name,
+ * so finding, testing, and removing an ability by the name or by an equal ability
+ * takes constant time without allocations. As special abilities with the same name
+ * are equal, the list contains at most one ability with a name, and adding an equal
+ * ability does not change the list. The list rejects the abilities its validator
+ * does not accept.
+ *
+ * The index keys an ability on its name. The list holds the shared canonical
+ * instances of the {@link CatalogInterner} in place of the added abilities, and as
+ * the canonical instances are frozen, a held ability cannot be renamed behind the
+ * index. The added ability itself stays modifiable, and renaming it does not change
+ * the list.
+ *
+ * The positional operations take linear time. The list is not thread-safe.
+ */
+public class SpecialAbilityList extends AbstractList<SpecialAbility> {
+
+    /**
+     * The abilities by the name in the insertion order.
+     */
+    private final Map<String, SpecialAbility> abilities = new LinkedHashMap<>();
+
+    /**
+     * The validator of the added abilities.
+     */
+    private final Predicate<? super SpecialAbility> validator;
+
+    /**
+     * Create a list accepting all defined abilities.
+     */
+    public SpecialAbilityList() {
+        this((SpecialAbility ability) -> (ability != null));
+    }
+
+    /**
+     * Create a list with a validator.
+     * @param validator The validator accepting the abilities of the list.
+     * @throws IllegalArgumentException The validator was undefined.
+     */
+    public SpecialAbilityList(Predicate<? super SpecialAbility> validator) throws IllegalArgumentException {
+        if (validator == null) throw new IllegalArgumentException("Invalid validator",
+        new NullPointerException("Validator must be specified"));
+        this.validator = validator;
+    }
+
+    /**
+     * Check the validity of an ability.
+     * @param ability The ability.
+     * @return The canonical instance of the ability held by the list.
+     * @throws IllegalArgumentException The validator rejected the ability.
+     */
+    private SpecialAbility validate(SpecialAbility ability) throws IllegalArgumentException {
+        if (!validator.test(ability)) {
+            throw new IllegalArgumentException(SpecialAbilityContainer.VALUE_REJECTED_MESSAGE);
+        }
+        return CatalogInterner.getDefault().intern(ability);
+    }
+
+    /**
+     * Get an ability by the name.
+     * @param name The name of the ability.
+     * @return The ability with the name, or an undefined value, if the list has no
+     * ability with the name.
+     */
+    public SpecialAbility getByName(String name) {
+        return abilities.get(name);
+    }
+
+    /**
+     * Does the list contain an ability with a name.
+     * @param name The name of the ability.
+     * @return True, if and only if the list contains an ability with the name.
+     */
+    public boolean containsName(String name) {
+        return abilities.containsKey(name);
+    }
+
+    /**
+     * Remove an ability by the name.
+     * @param name The name of the removed ability.
+     * @return The removed ability, or an undefined value, if the list had no ability
+     * with the name.
+     */
+    public SpecialAbility removeByName(String name) {
+        if (!abilities.containsKey(name)) return null;
+        modCount++;
+        return abilities.remove(name);
+    }
+
+    /**
+     * Add an ability to the end of the list.
+     * @param ability The added ability.
+     * @return True, if and only if the ability was added. An ability equal to an
+     * ability of the list is not added.
+     * @throws IllegalArgumentException The validator rejected the ability.
+     */
+    @Override
+    public boolean add(SpecialAbility ability) throws IllegalArgumentException {
+        SpecialAbility held = validate(ability);
+        if (abilities.containsKey(held.getName())) return false;
+        abilities.put(held.getName(), held);
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Insert an ability into the list.
+     * @param index The index of the inserted ability.
+     * @param ability The inserted ability.
+     * @throws IllegalArgumentException The validator rejected the ability, or the
+     * list contained an equal ability.
+     * @throws IndexOutOfBoundsException The index was invalid.
+     */
+    @Override
+    public void add(int index, SpecialAbility ability) throws IllegalArgumentException, IndexOutOfBoundsException {
+        if (index < 0 || index > size()) throw new IndexOutOfBoundsException(index);
+        SpecialAbility held = validate(ability);
+        if (abilities.containsKey(held.getName())) throw new IllegalArgumentException(
+            SpecialAbilityContainer.INVALID_ABILITY_MESSAGE,
+            new IllegalArgumentException("Duplicate ability " + held.getName()));
+        List<SpecialAbility> values = new ArrayList<>(abilities.values());
+        values.add(index, held);
+        rebuild(values);
+    }
+
+    /**
+     * Replace an ability of the list.
+     * @param index The index of the replaced ability.
+     * @param ability The new ability.
+     * @return The replaced ability.
+     * @throws IllegalArgumentException The validator rejected the ability, or another
+     * ability of the list was equal to it.
+     * @throws IndexOutOfBoundsException The index was invalid.
+     */
+    @Override
+    public SpecialAbility set(int index, SpecialAbility ability)
+    throws IllegalArgumentException, IndexOutOfBoundsException {
+        List<SpecialAbility> values = new ArrayList<>(abilities.values());
+        SpecialAbility result = values.get(index);
+        SpecialAbility held = validate(ability);
+        SpecialAbility existing = abilities.get(held.getName());
+        if (existing != null && existing != result) throw new IllegalArgumentException(
+            SpecialAbilityContainer.INVALID_ABILITY_MESSAGE,
+            new IllegalArgumentException("Duplicate ability " + held.getName()));
+        values.set(index, held);
+        rebuild(values);
+        return result;
+    }
+
+    /**
+     * Replace the contents of the list.
+     * @param values The abilities in the new order.
+     */
+    private void rebuild(List<SpecialAbility> values) {
+        abilities.clear();
+        for (SpecialAbility value: values) {
+            abilities.put(value.getName(), value);
+        }
+        modCount++;
+    }
+
+    @Override
+    public SpecialAbility get(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+        Iterator<SpecialAbility> iterator = abilities.values().iterator();
+        for (int i = 0; i < index; i++) {
+            iterator.next();
+        }
+        return iterator.next();
+    }
+
+    @Override
+    public SpecialAbility remove(int index) throws IndexOutOfBoundsException {
+        SpecialAbility result = get(index);
+        abilities.remove(result.getName());
+        modCount++;
+        return result;
+    }
+
+    @Override
+    public boolean remove(Object value) {
+        if (!contains(value)) return false;
+        abilities.remove(((SpecialAbility)value).getName());
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        return value instanceof SpecialAbility ability && abilities.containsKey(ability.getName());
+    }
+
+    @Override
+    public int indexOf(Object value) {
+        if (!contains(value)) return -1;
+        String name = ((SpecialAbility)value).getName();
+        int index = 0;
+        for (String key: abilities.keySet()) {
+            if (Objects.equals(key, name)) return index;
+            index++;
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object value) {
+        return indexOf(value);
+    }
+
+    @Override
+    public Iterator<SpecialAbility> iterator() {
+        Iterator<SpecialAbility> values = abilities.values().iterator();
+        return new Iterator<SpecialAbility>() {
+
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public SpecialAbility next() {
+                return values.next();
+            }
+
+            @Override
+            public void remove() {
+                values.remove();
+                modCount++;
+            }
+        };
+    }
+
+    @Override
+    public void clear() {
+        if (!abilities.isEmpty()) {
+            abilities.clear();
+            modCount++;
+        }
+    }
+
+    @Override
+    public int size() {
+        return abilities.size();
+    }
+}
@@ -0,0 +1,346 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * A multi-version clock.
+ *
+ * Each change of the clock publishes a new immutable {@link ClockSnapshot}. The
+ * readers read the newest snapshot without taking the monitor of the clock, so
+ * reading never blocks the writers, and all values read from one snapshot are
+ * consistent. The writers still hold the monitor of the clock during the change.
+ *
+ * A clock added to a {@link ClockBoard} gets its versions from the board, and
+ * keeps the older versions the open snapshots of the board still read.
+ */
+public class VersionedClock extends Clock {
+
+    /**
+     * The newest snapshot of the clock.
+     * The field has no initializer as the super constructor sets the state.
+     */
+    private volatile ClockSnapshot head;
+
+    /**
+     * The board of the clock, or an undefined value, if the clock is not on
+     * a board.
+     * The field has no initializer as the super constructor may not reset it.
+     */
+    private volatile ClockBoard board;
+
+    /**
+     * The identifier of the clock on its board.
+     */
+    private int id;
+
+    /**
+     * Create a progress clock with a name, a current position,
+     * and a full position.
+     * @param name The name of the clock.
+     * @param current The current position of the clock.
+     * @param max The maximum position of a full clock.
+     */
+    public VersionedClock(String name, int current, int max) {
+        super(name, current, max);
+    }
+
+    /**
+     * Create a clock with a name, a current position,
+     * a maximum number of ticks, and a type.
+     * The clock will be enabled unless it is either completed
+     * or depleted.
+     * @param name The name of the clock.
+     * @param current The current position of the clock.
+     * @param max The maximum position of a full clock.
+     * @param type The type of the clock.
+     * @throws IllegalArgumentException Any of hte given parameters were invalid.
+     */
+    public VersionedClock(String name, int current, int max, ClockType type) throws IllegalArgumentException {
+        super(name, current, max, type);
+    }
+
+    /**
+     * Create a clock with a name, a current position,
+     * a maximum number of ticks, a type, and an enabled status.
+     * @param name The name of the clock.
+     * @param current The current position of the clock.
+     * @param max The maximum position of a full clock.
+     * @param type The type of the clock.
+     * @param enabled Is the clock enabled.
+     * @throws IllegalArgumentException Any of hte given parameters were invalid.
+     */
+    @JsonCreator
+    public VersionedClock(
+        @JsonProperty("name") String name,
+        @JsonProperty("current") int current,
+        @JsonProperty("max") int max,
+        @JsonProperty("type") ClockType type,
+        @JsonProperty("enabled") boolean enabled) throws IllegalArgumentException {
+        super(name, current, max, type, enabled);
+    }
+
+    /**
+     * Create a multi-version copy of a clock.
+     * @param clock The copied clock.
+     * @throws IllegalArgumentException The clock was invalid.
+     */
+    public VersionedClock(Clock clock) throws IllegalArgumentException {
+        this(clock.getName(), clock.getCurrent(), clock.getMaximum(), clock.getType(), clock.isEnabled());
+    }
+
+    /**
+     * Get the newest snapshot of the clock.
+     * @return The snapshot of the current state of the clock.
+     */
+    @JsonIgnore
+    public ClockSnapshot getSnapshot() {
+        return head;
+    }
+
+    /**
+     * Get the snapshot of the clock at a version.
+     * @param version The version.
+     * @return The newest snapshot with a version at most the given version, or an
+     * undefined value, if the clock did not exist at the version, or the version
+     * has been reclaimed.
+     */
+    public ClockSnapshot getSnapshot(long version) {
+        return head.at(version);
+    }
+
+    /**
+     * Get the board of the clock.
+     * @return The board of the clock, or an undefined value, if the clock is not
+     * on a board.
+     */
+    @JsonIgnore
+    public ClockBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Get the identifier of the clock on its board.
+     * @return The clock identifier, or -1, if the clock is not on a board.
+     */
+    @JsonIgnore
+    public synchronized int getId() {
+        return board == null ? -1 : id;
+    }
+
+    /**
+     * Set the identifier of the clock on its board.
+     * @param id The clock identifier.
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Set the newest snapshot of the clock.
+     * @param snapshot The new newest snapshot.
+     */
+    void setSnapshot(ClockSnapshot snapshot) {
+        this.head = snapshot;
+    }
+
+    /**
+     * Attach the clock to a board, and publish its state with a version of the board.
+     * @param board The board.
+     * @throws IllegalArgumentException The clock was already on a board.
+     */
+    synchronized void attach(ClockBoard board) throws IllegalArgumentException {
+        if (this.board != null) throw new IllegalArgumentException("Invalid clock",
+        new IllegalStateException("Clock is already on a board"));
+        this.board = board;
+        ClockSnapshot old = this.head;
+        board.commit(this, old.getName(), old.getCurrent(), old.getMaximum(), old.getType(), old.isEnabled(), true);
+    }
+
+    /**
+     * Publish a new version of the clock.
+     * The caller must hold the monitor of the clock.
+     * @param name The name of the clock.
+     * @param current The current position of the clock.
+     * @param max The maximum of the clock.
+     * @param type The type of the clock.
+     * @param enabled Is the clock enabled.
+     */
+    private void commit(String name, int current, int max, ClockType type, boolean enabled) {
+        ClockBoard target = this.board;
+        if (target == null) {
+            // A clock without board has no readers of the older versions.
+            ClockSnapshot old = this.head;
+            this.head = new ClockSnapshot(name, current, max, type, enabled,
+                old == null ? 0L : old.getVersion() + 1, null);
+        } else {
+            target.commit(this, name, current, max, type, enabled, false);
+        }
+    }
+
+    /**
+     * Get the newest snapshot, or the initial state, if the clock is under construction.
+     * @return The newest snapshot of the clock.
+     */
+    private ClockSnapshot current() {
+        ClockSnapshot result = this.head;
+        return result == null ? new ClockSnapshot(null, 0, 0, null, true, 0L, null) : result;
+    }
+
+    @Override
+    public String getName() {
+        ClockSnapshot snapshot = this.head;
+        return snapshot == null ? null : snapshot.getName();
+    }
+
+    @Override
+    public synchronized void setName(String name) {
+        ClockSnapshot old = current();
+        commit(name, old.getCurrent(), old.getMaximum(), old.getType(), old.isEnabled());
+    }
+
+    @Override
+    public ClockType getType() {
+        return current().getType();
+    }
+
+    @Override
+    public synchronized void setType(ClockType type) throws IllegalArgumentException {
+        if (type == null) throw new IllegalArgumentException("Invalid clock type",
+        new NullPointerException("Type must be specified"));
+        ClockSnapshot old = current();
+        commit(old.getName(), old.getCurrent(), old.getMaximum(), type, old.isEnabled());
+    }
+
+    @Override
+    public int getCurrent() {
+        return current().getCurrent();
+    }
+
+    @Override
+    public synchronized void setCurrent(int current) {
+        ClockSnapshot old = current();
+        commit(old.getName(), current, old.getMaximum(), old.getType(), old.isEnabled());
+        publishChange(old.getCurrent(), current, old.getMaximum(), getEventBus());
+    }
+
+    @Override
+    public int getMaximum() {
+        return current().getMaximum();
+    }
+
+    @Override
+    public synchronized void setMaximum(int maximum) {
+        ClockSnapshot old = current();
+        commit(old.getName(), old.getCurrent(), maximum, old.getType(), old.isEnabled());
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return current().isEnabled();
+    }
+
+    @Override
+    public boolean isDisabled() {
+        return !current().isEnabled();
+    }
+
+    @Override
+    public synchronized void setEnabled(boolean enabled) {
+        ClockSnapshot old = current();
+        commit(old.getName(), old.getCurrent(), old.getMaximum(), old.getType(), enabled);
+    }
+
+    @Override
+    public boolean hasCompleted() {
+        ClockSnapshot snapshot = current();
+        return snapshot.getCurrent() >= snapshot.getMaximum();
+    }
+
+    @Override
+    public boolean advanceBeyondMaximum() {
+        return false;
+    }
+
+    @Override
+    public boolean regressBeyondMinimum() {
+        return false;
+    }
+
+    @Override
+    public int getMinimum() {
+        return 0;
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return current().isCompleted();
+    }
+
+    @Override
+    public boolean isDepleted() {
+        return current().isDepleted();
+    }
+
+    /**
+     * Advance the clock, and push the events of the advancement into a sink.
+     * @param amount The advancement amount. If value
+     * is negative, the clock regresses.
+     * @param sink The sink receiving the events of the advancement. An undefined
+     * sink ignores the events.
+     * @return The amount of advancement not used.
+     */
+    @Override
+    public synchronized int advance(int amount, ClockEventSink sink) {
+        ClockSnapshot old = current();
+        long result = computeAdvance(old.getCurrent(), amount, getMinimum(), old.getMaximum(),
+            advanceBeyondMaximum(), regressBeyondMinimum());
+        int advanced = advancedCurrent(result);
+        if (advanced != old.getCurrent()) {
+            commit(old.getName(), advanced, old.getMaximum(), old.getType(), old.isEnabled());
+            publishChange(old.getCurrent(), advanced, old.getMaximum(), sink);
+        }
+        return unusedAmount(result);
+    }
+
+    /**
+     * Push the clock events the current clock state causes into a sink.
+     * @param sink The sink receiving the events.
+     * @throws IllegalArgumentException The sink was undefined.
+     * @implNote The events are generated from a single snapshot.
+     */
+    @Override
+    public void emitClockEvents(ClockEventSink sink) throws IllegalArgumentException {
+        if (sink == null) throw new IllegalArgumentException("Invalid sink",
+        new NullPointerException("Sink must be specified"));
+        ClockSnapshot snapshot = current();
+        if (snapshot.isCompleted()) {
+            sink.completed(this, snapshot.getCurrent() - snapshot.getMaximum());
+        } else if (snapshot.isDepleted()) {
+            sink.depleted(this, snapshot.getCurrent() - getMinimum());
+        }
+    }
+
+    /**
+     * Generate the clock events the current clock state causes.
+     * @return The list of clock events the current clock causes.
+     * @implNote The events are generated from a single snapshot.
+     */
+    @Override
+    protected List<ClockEvent> getClockEvents() {
+        ClockSnapshot snapshot = current();
+        if (snapshot.isCompleted()) {
+            return Collections.singletonList(
+                ClockEvent.completedClock(this, snapshot.getName(), snapshot.getCurrent() - snapshot.getMaximum()));
+        } else if (snapshot.isDepleted()) {
+            return Collections.singletonList(
+                ClockEvent.depletedClock(this, snapshot.getName(), snapshot.getCurrent() + getMinimum()));
+        } else {
+            return Collections.emptyList();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.ActionRollResolver.EffectLevel;
+import com.kautiainen.antti.rpgs.courtofblades.model.ActionRollResolver.RollOutcome;
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The tests of the action roll resolver.
+ */
+public class ActionRollResolverTest {
+
+    /**
+     * Roll the outcomes of a stream.
+     * @param random The random stream.
+     * @param dice The number of dice in the pools.
+     * @param count The number of the rolls.
+     * @return The ordinals of the rolled outcomes.
+     */
+    private static int[] rollAll(SplittableRandom random, int dice, int count) {
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = ActionRollResolver.roll(dice, random).ordinal();
+        }
+        return result;
+    }
+
+    @Test
+    public void testSeededStreamsAreReproducible() {
+        ActionRollResolver resolver = new ActionRollResolver(42L);
+        assertEquals(42L, resolver.getSeed());
+        int[] first = rollAll(resolver.createStream(3L), 3, 200);
+        assertTrue(Arrays.equals(first, rollAll(new ActionRollResolver(42L).createStream(3L), 3, 200)));
+        // The adjacent identifiers and the other seeds give other streams.
+        assertNotEquals(resolver.createStream(3L).nextLong(), resolver.createStream(4L).nextLong());
+        assertNotEquals(resolver.createStream(3L).nextLong(), new ActionRollResolver(43L).createStream(3L).nextLong());
+        int[] pools = {0, 1, 2, 3, 4, 5};
+        EffectLevel[] effects = {EffectLevel.LIMITED, EffectLevel.STANDARD, EffectLevel.GREAT,
+            EffectLevel.STANDARD, EffectLevel.ZERO, EffectLevel.EXTREME};
+        int[] amounts = new int[pools.length];
+        int[] again = new int[pools.length];
+        byte[] outcomes = new byte[pools.length];
+        byte[] outcomesAgain = new byte[pools.length];
+        assertEquals(ActionRollResolver.resolve(pools, effects, amounts, outcomes, pools.length,
+            resolver.createStream(9L)),
+            ActionRollResolver.resolve(pools, effects, again, outcomesAgain, pools.length, resolver.createStream(9L)));
+        assertTrue(Arrays.equals(amounts, again));
+        assertTrue(Arrays.equals(outcomes, outcomesAgain));
+    }
+
+    @Test
+    public void testZeroDiceNeverCriticalAndTakesLowest() {
+        SplittableRandom random = new ActionRollResolver(7L).createStream(0L);
+        int[] counts = new int[RollOutcome.values().length];
+        int rolls = 36_000;
+        for (int outcome: rollAll(random, 0, rolls)) {
+            counts[outcome]++;
+        }
+        assertEquals(0, counts[RollOutcome.CRITICAL_SUCCESS.ordinal()]);
+        assertEquals(0.0, ActionRollResolver.getProbability(0, RollOutcome.CRITICAL_SUCCESS));
+        // The lowest of two dice is a six only once in 36 rolls.
+        for (RollOutcome outcome: RollOutcome.values()) {
+            assertEquals(ActionRollResolver.getProbability(0, outcome), (double)counts[outcome.ordinal()] / rolls,
+                0.01, outcome.name());
+        }
+        assertThrows(IllegalArgumentException.class, () -> ActionRollResolver.roll(-1, random));
+    }
+
+    @Test
+    public void testCriticalSuccessIncreasesEffect() {
+        for (EffectLevel effect: EffectLevel.values()) {
+            assertEquals(0, ActionRollResolver.ticks(RollOutcome.FAILURE, effect));
+            assertEquals(effect.getTicks(), ActionRollResolver.ticks(RollOutcome.PARTIAL_SUCCESS, effect));
+            assertEquals(effect.getTicks(), ActionRollResolver.ticks(RollOutcome.FULL_SUCCESS, effect));
+            assertEquals(effect.increased().getTicks(), ActionRollResolver.ticks(RollOutcome.CRITICAL_SUCCESS, effect));
+        }
+        assertEquals(3, ActionRollResolver.ticks(RollOutcome.CRITICAL_SUCCESS, EffectLevel.STANDARD));
+        assertSame(EffectLevel.EXTREME, EffectLevel.EXTREME.increased());
+        assertSame(EffectLevel.ZERO, EffectLevel.ZERO.reduced());
+        // The resolved amounts follow the resolved outcomes.
+        int count = 500;
+        int[] pools = new int[count];
+        EffectLevel[] effects = new EffectLevel[count];
+        Arrays.fill(pools, 6);
+        Arrays.fill(effects, EffectLevel.STANDARD);
+        int[] amounts = new int[count];
+        byte[] outcomes = new byte[count];
+        ActionRollResolver.resolve(pools, effects, amounts, outcomes, count, new ActionRollResolver(5L).createStream(1L));
+        boolean critical = false;
+        for (int i = 0; i < count; i++) {
+            RollOutcome outcome = RollOutcome.values()[outcomes[i]];
+            critical |= outcome == RollOutcome.CRITICAL_SUCCESS;
+            assertEquals(ActionRollResolver.ticks(outcome, EffectLevel.STANDARD), amounts[i]);
+        }
+        assertTrue(critical);
+    }
+
+    @Test
+    public void testProbabilitiesSumToOne() {
+        for (int dice = 0; dice <= 10; dice++) {
+            double sum = 0.0;
+            for (RollOutcome outcome: RollOutcome.values()) {
+                double probability = ActionRollResolver.getProbability(dice, outcome);
+                assertTrue(probability >= 0.0 && probability <= 1.0);
+                sum += probability;
+            }
+            assertEquals(1.0, sum, 1e-12, "Dice " + dice);
+        }
+        assertEquals(1.0 / 6, ActionRollResolver.getProbability(1, RollOutcome.FULL_SUCCESS), 1e-12);
+        assertEquals(0.0, ActionRollResolver.getProbability(1, RollOutcome.CRITICAL_SUCCESS), 1e-12);
+        assertEquals(1.0 / 36, ActionRollResolver.getProbability(2, RollOutcome.CRITICAL_SUCCESS), 1e-12);
+        assertThrows(IllegalArgumentException.class, () -> ActionRollResolver.getProbability(-1, RollOutcome.FAILURE));
+        assertThrows(IllegalArgumentException.class, () -> ActionRollResolver.getProbability(1, null));
+    }
+
+    @Test
+    public void testApplyEmitsOneCompletionPerClock() {
+        Clock clock = new Clock("Target", 0, 4, ClockType.LINKED_CLOCK);
+        Clock other = new Clock("Other", 0, 4, ClockType.LINKED_CLOCK);
+        List<ClockEvent> events = ActionRollResolver.apply(new Clock[] {clock, other, clock, clock},
+            new int[] {3, 0, 2, 1}, 4);
+        assertEquals(4, clock.getCurrent());
+        assertEquals(0, other.getCurrent());
+        assertEquals(2, events.size());
+        assertInstanceOf(CompletedClockEvent.class, events.get(1));
+        assertThrows(IllegalArgumentException.class, () -> ActionRollResolver.apply(new Clock[1], new int[1], 2));
+    }
+}
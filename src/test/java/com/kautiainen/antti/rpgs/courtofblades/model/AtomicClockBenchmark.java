@@ -0,0 +1,111 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The contention benchmark of the lock-free clock against the synchronized clock.
+ *
+ * The benchmark advances and regresses a single shared clock from 1 to 64 threads,
+ * and reads the clock state between the writes, and prints the operations per
+ * millisecond of both implementations. The benchmark is not a test, and it is run
+ * with
+ * <pre>
+ * mvn -B test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.kautiainen.antti.rpgs.courtofblades.model.AtomicClockBenchmark
+ * </pre>
+ * The duration of a measurement in milliseconds, and the number of the reads per
+ * write are given with the arguments, or with the system properties
+ * {@code benchmark.millis} and {@code benchmark.reads}.
+ */
+public final class AtomicClockBenchmark {
+
+    /**
+     * The thread counts of the measurements.
+     */
+    private static final int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+
+    /**
+     * The sink of the read values preventing the elimination of the reads.
+     */
+    static volatile int consumed;
+
+    /**
+     * The benchmark has no instances.
+     */
+    private AtomicClockBenchmark() {
+    }
+
+    /**
+     * Measure the throughput of a clock.
+     * @param clock The shared clock.
+     * @param threads The number of the threads.
+     * @param millis The duration of the measurement in milliseconds.
+     * @param reads The number of the reads per write.
+     * @return The number of the operations per millisecond.
+     * @throws InterruptedException The measurement was interrupted.
+     */
+    static double measure(Clock clock, int threads, long millis, int reads) throws InterruptedException {
+        LongAdder operations = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        long[] deadline = new long[1];
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int amount = (i % 2 == 0) ? 1 : -1;
+            workers[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long count = 0;
+                int sum = 0;
+                while (System.nanoTime() < deadline[0]) {
+                    for (int batch = 0; batch < 64; batch++) {
+                        clock.advance(amount, null);
+                        clock.advance(-amount, null);
+                        for (int read = 0; read < reads; read++) {
+                            sum += clock.getCurrent();
+                        }
+                    }
+                    count += 64 * (2 + reads);
+                }
+                consumed = sum;
+                operations.add(count);
+            });
+            workers[i].start();
+        }
+        long started = System.nanoTime();
+        deadline[0] = started + millis * 1_000_000L;
+        start.countDown();
+        for (Thread worker: workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - started) / 1e6;
+        return operations.sum() / elapsed;
+    }
+
+    /**
+     * Run the benchmark.
+     * @param args The duration of a measurement in milliseconds, and the number of the
+     * reads per write.
+     * @throws InterruptedException The benchmark was interrupted.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : Long.getLong("benchmark.millis", 1000L);
+        int reads = args.length > 1 ? Integer.parseInt(args[1]) : Integer.getInteger("benchmark.reads", 2);
+        // Warming up both implementations.
+        measure(new Clock("Warmup", 500, 1000, ClockType.WARRING_CLOCK), 4, millis, reads);
+        measure(new AtomicClock("Warmup", 500, 1000, ClockType.WARRING_CLOCK), 4, millis, reads);
+        System.out.printf("%8s %16s %16s %8s%n", "threads", "Clock ops/ms", "AtomicClock ops/ms", "ratio");
+        for (int threads: THREADS) {
+            double locked = measure(new Clock("Locked", 500, 1000, ClockType.WARRING_CLOCK),
+                threads, millis, reads);
+            double atomic = measure(new AtomicClock("Atomic", 500, 1000, ClockType.WARRING_CLOCK),
+                threads, millis, reads);
+            System.out.printf("%8d %16.0f %16.0f %8.2f%n", threads, locked, atomic, atomic / locked);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The tests of the lock-free clock.
+ */
+public class AtomicClockTest {
+
+    /**
+     * The number of the advancing threads.
+     */
+    private static final int THREADS = 16;
+
+    /**
+     * The number of the advancements of a thread.
+     */
+    private static final int ADVANCES = 10_000;
+
+    /**
+     * Run a task in many threads starting at the same time.
+     * @param threads The number of the threads.
+     * @param task The task of a thread receiving the index of the thread.
+     * @throws Exception Any thread failed.
+     */
+    static void runConcurrently(int threads, java.util.function.IntConsumer task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++) {
+                final int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.accept(index);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future: futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPackedStateRoundTrip() {
+        for (int current: new int[] { Integer.MIN_VALUE, -5, 0, 7, Integer.MAX_VALUE }) {
+            for (int max: new int[] { 0, 8, Integer.MAX_VALUE }) {
+                for (boolean enabled: new boolean[] { true, false }) {
+                    long state = AtomicClock.pack(current, max, enabled);
+                    assertEquals(current, AtomicClock.current(state));
+                    assertEquals(max, AtomicClock.maximum(state));
+                    assertEquals(enabled, AtomicClock.enabled(state));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentAdvancesLoseNoUpdates() throws Exception {
+        int total = THREADS * ADVANCES;
+        AtomicClock clock = new AtomicClock("Shared", 0, total, ClockType.LINKED_CLOCK);
+        AtomicInteger completions = new AtomicInteger();
+        AtomicLong advanced = new AtomicLong();
+        ClockEventSink sink = (ClockEventKind kind, Clock target, int excess) -> {
+            if (kind == ClockEventKind.COMPLETED) {
+                completions.incrementAndGet();
+            } else if (kind == ClockEventKind.ADVANCED) {
+                advanced.addAndGet(excess);
+            }
+        };
+        runConcurrently(THREADS, (int index) -> {
+            for (int i = 0; i < ADVANCES; i++) {
+                assertEquals(0, clock.advance(1, sink));
+            }
+        });
+        assertEquals(total, clock.getCurrent());
+        assertEquals(total, advanced.get());
+        assertEquals(1, completions.get());
+        assertTrue(clock.isCompleted());
+    }
+
+    @Test
+    public void testConcurrentOverflowReturnsUnusedTicks() throws Exception {
+        int maximum = THREADS * ADVANCES;
+        AtomicClock clock = new AtomicClock("Overflow", 0, maximum, ClockType.LINKED_CLOCK);
+        AtomicLong unused = new AtomicLong();
+        AtomicInteger completions = new AtomicInteger();
+        ClockEventSink sink = (ClockEventKind kind, Clock target, int excess) -> {
+            if (kind == ClockEventKind.COMPLETED) completions.incrementAndGet();
+        };
+        runConcurrently(THREADS, (int index) -> {
+            for (int i = 0; i < ADVANCES; i++) {
+                unused.addAndGet(clock.advance(3, sink));
+            }
+        });
+        assertEquals(maximum, clock.getCurrent());
+        assertEquals(3L * THREADS * ADVANCES - maximum, unused.get());
+        assertEquals(1, completions.get());
+    }
+
+    @Test
+    public void testConcurrentAdvanceAndRegressBalance() throws Exception {
+        AtomicClock clock = new AtomicClock("Balance", 100, 200, ClockType.WARRING_CLOCK);
+        runConcurrently(THREADS, (int index) -> {
+            int amount = (index % 2 == 0) ? 1 : -1;
+            for (int i = 0; i < ADVANCES; i++) {
+                clock.advance(amount, null);
+                clock.advance(-amount, null);
+            }
+        });
+        assertEquals(100, clock.getCurrent());
+        assertEquals(200, clock.getMaximum());
+        assertFalse(clock.isCompleted());
+    }
+
+    @Test
+    public void testCopyKeepsState() {
+        Clock source = new Clock("Source", 3, 8, ClockType.LINKED_CLOCK, false);
+        AtomicClock copy = new AtomicClock(source);
+        assertEquals("Source", copy.getName());
+        assertEquals(3, copy.getCurrent());
+        assertEquals(8, copy.getMaximum());
+        assertFalse(copy.isEnabled());
+        assertEquals(ClockType.LINKED_CLOCK, copy.getType());
+    }
+}
@@ -0,0 +1,212 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.BinaryModelCodec.Decoder;
+import com.kautiainen.antti.rpgs.courtofblades.model.BinaryModelCodec.Encoder;
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.HealerType;
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.Resource;
+
+/**
+ * The tests of the binary model codec.
+ */
+public class BinaryModelCodecTest {
+
+    /**
+     * Create a decoder of the data written into a buffer.
+     * @param encoder The encoder writing into a buffer.
+     * @return The decoder of the written data.
+     * @throws IOException The document header was invalid.
+     */
+    private static Decoder decoderOf(Encoder encoder) throws IOException {
+        ByteBuffer buffer = encoder.getBuffer();
+        buffer.flip();
+        return new Decoder(buffer);
+    }
+
+    /**
+     * Create a decoder of a document with a header followed by bytes.
+     * @param body The bytes following the header.
+     * @return The decoder of the document.
+     * @throws IOException The document header was invalid.
+     */
+    private static Decoder decoderOf(int... body) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(5 + body.length);
+        buffer.putInt(BinaryModelCodec.MAGIC).put((byte)BinaryModelCodec.FORMAT_VERSION);
+        for (int value: body) {
+            buffer.put((byte)value);
+        }
+        buffer.flip();
+        return new Decoder(buffer);
+    }
+
+    /**
+     * Create a house with every optional value.
+     * @return The house.
+     */
+    private static HouseModel createHouse() {
+        HouseModel result = new HouseModel("Tester", Resource.Magic, HealerType.Physician);
+        result.setStrengths(Set.of(Resource.Magic, Resource.Supply));
+        result.setUniqueXpTrigger(new XpTrigger("Test", "Run the tests"));
+        result.setSpecialFeature(new SpecialFeature("Coverage", "Covers the codec"));
+        result.setSpecialAbilities(Set.of(new SpecialAbility("Probe", "Probes the codec")));
+        CoterieUpgrade upgrade = new CoterieUpgrade("Bench", "A test bench");
+        upgrade.setCost(2);
+        result.setCoterieUpgrades(Set.of(upgrade));
+        return result;
+    }
+
+    @Test
+    public void testClocksRoundTrip() throws Exception {
+        List<Clock> clocks = ClockJsonModuleBenchmark.createClocks(40);
+        clocks.get(2).setEnabled(false);
+        Encoder encoder = new Encoder(ByteBuffer.allocate(16));
+        for (Clock clock: clocks) {
+            encoder.writeClock(clock);
+        }
+        encoder.writeClock(null);
+        Decoder decoder = decoderOf(encoder);
+        assertEquals(BinaryModelCodec.FORMAT_VERSION, decoder.getVersion());
+        for (Clock clock: clocks) {
+            Clock read = decoder.readClock();
+            ClockJsonModuleTest.assertSameState(clock, read);
+            if (ClockTypeDictionary.getId(clock.getType()) >= 0) {
+                assertSame(clock.getType(), read.getType());
+            }
+        }
+        assertNull(decoder.readClock());
+        assertFalse(decoder.hasRemaining());
+    }
+
+    @Test
+    public void testModelRoundTripThroughChannels() throws Exception {
+        HouseModel house = createHouse();
+        Coterie coterie = new Coterie("Crew");
+        coterie.setHouse(house);
+        coterie.setType(new CoterieType());
+        coterie.getType().setName("Testers");
+        coterie.setUpgrades(List.of(new CoterieUpgrade("Bench", "A test bench")));
+        coterie.addSpecialAbility(new CoterieAbility("Together", "Tests together"));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Encoder encoder = new Encoder(Channels.newChannel(output), 16);
+        encoder.writeHouse(house);
+        encoder.writeCoterie(coterie);
+        encoder.writeCoterie(new Coterie("Empty"));
+        encoder.flush();
+        Decoder decoder = new Decoder(Channels.newChannel(new ByteArrayInputStream(output.toByteArray())), 16);
+        HouseModel readHouse = decoder.readHouse();
+        assertEquals(house.getName(), readHouse.getName());
+        assertEquals(house.getStrengths(), readHouse.getStrengths());
+        assertEquals(house.getHealer(), readHouse.getHealer());
+        assertEquals(house.getUniqueXpTrigger().getDescription(), readHouse.getUniqueXpTrigger().getDescription());
+        assertEquals(house.getSpecialFeature().getName(), readHouse.getSpecialFeature().getName());
+        assertEquals(house.getSpecialAbilities(), readHouse.getSpecialAbilities());
+        assertEquals(2, readHouse.getCoterieUpgrades().iterator().next().getCost());
+        Coterie readCoterie = decoder.readCoterie();
+        assertEquals("Crew", readCoterie.getName());
+        assertEquals("Testers", readCoterie.getType().getName());
+        assertEquals("Tester", readCoterie.getHouse().getName());
+        assertEquals(1, readCoterie.getUpgrades().size());
+        assertTrue(readCoterie.getSpecialAbility("Together").isPresent());
+        Coterie empty = decoder.readCoterie();
+        assertEquals("Empty", empty.getName());
+        assertNull(empty.getType());
+        assertNull(empty.getHouse());
+        assertFalse(decoder.hasRemaining());
+    }
+
+    @Test
+    public void testNegativeLengthsAreRejected() throws Exception {
+        // A new string with the length -1.
+        Decoder string = decoderOf(1, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F);
+        assertThrows(StreamCorruptedException.class, string::readString);
+        // A string reference decoding to a negative index.
+        Decoder reference = decoderOf(0xFF, 0xFF, 0xFF, 0xFF, 0x0F);
+        assertThrows(StreamCorruptedException.class, reference::readString);
+        // A coterie type with the upgrade count -2.
+        Decoder type = decoderOf(1, 0, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F);
+        assertThrows(StreamCorruptedException.class, type::readCoterieType);
+        // A variable length integer longer than five bytes.
+        Decoder overlong = decoderOf(0x80, 0x80, 0x80, 0x80, 0x80, 0x01);
+        assertThrows(StreamCorruptedException.class, overlong::readVarInt);
+    }
+
+    @Test
+    public void testHugeLengthsAreRejectedBeforeAllocating() throws Exception {
+        // A new string with the length of nearly 2 GB.
+        Decoder string = decoderOf(1, 0xFF, 0xFF, 0xFF, 0xFF, 0x07, 'A');
+        assertThrows(StreamCorruptedException.class, string::readString);
+        // A new clock type with a huge trait count.
+        Decoder type = decoderOf(1, 0, 0, 0xFF, 0xFF, 0xFF, 0xFF, 0x07);
+        assertThrows(StreamCorruptedException.class, type::readClockType);
+        // A coterie "C" without type and house with a huge upgrade count.
+        Decoder coterie = decoderOf(1, 1, 1, 'C', 0, 0, 0xFF, 0xFF, 0xFF, 0xFF, 0x07);
+        assertThrows(StreamCorruptedException.class, coterie::readCoterie);
+        // The count of an empty collection at the end of the document is valid.
+        assertTrue(decoderOf(1, 0, 1).readCoterieType().getCoterieUpgrades().isEmpty());
+        byte[] document = { 0x43, 0x4F, 0x42, 0x44, (byte)BinaryModelCodec.FORMAT_VERSION,
+            1, (byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x07, 'A' };
+        Decoder channel = new Decoder(Channels.newChannel(new ByteArrayInputStream(document)), 16);
+        assertThrows(StreamCorruptedException.class, channel::readString);
+        // A length within the maximum document size reads only the data of the channel.
+        document[6] = (byte)0x80;
+        document[7] = (byte)0x80;
+        document[8] = (byte)0x80;
+        document[9] = 0x01;
+        document[10] = 'B';
+        Decoder truncated = new Decoder(Channels.newChannel(new ByteArrayInputStream(document)), 16);
+        assertThrows(EOFException.class, truncated::readString);
+    }
+
+    @Test
+    public void testVersionTwoTypeIdentifiersAreStillRead() throws Exception {
+        int id = ClockTypeDictionary.getId(ClockType.LINKED_CLOCK);
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putInt(BinaryModelCodec.MAGIC).put((byte)2);
+        // A present enabled clock "A" at 0 of 4 with the identifier of the type.
+        buffer.put(new byte[] { 1, 1, 1, 1, 'A', 0, 8, (byte)((id << 1) + 2) });
+        buffer.flip();
+        Decoder decoder = new Decoder(buffer);
+        assertEquals(2, decoder.getVersion());
+        Clock clock = decoder.readClock();
+        assertEquals("A", clock.getName());
+        assertEquals(4, clock.getMaximum());
+        assertSame(ClockType.LINKED_CLOCK, clock.getType());
+    }
+
+    @Test
+    public void testRegisteredTypesAreWrittenByName() throws Exception {
+        ClockType registered = new ClockType("Binary Registered", "A registered clock", ClockType.COMPLETES_FULL);
+        ClockTypeDictionary.register(registered);
+        Encoder encoder = new Encoder(ByteBuffer.allocate(64));
+        encoder.writeClockType(registered);
+        encoder.writeClockType(registered);
+        Decoder decoder = decoderOf(encoder);
+        assertSame(registered, decoder.readClockType());
+        assertSame(registered, decoder.readClockType());
+        // The name is written once, and the description is not written at all.
+        String written = new String(encoder.getBuffer().array(), 0, encoder.getBuffer().limit(),
+            StandardCharsets.ISO_8859_1);
+        assertEquals(written.indexOf("Binary Registered"), written.lastIndexOf("Binary Registered"));
+        assertFalse(written.contains("A registered clock"));
+    }
+}
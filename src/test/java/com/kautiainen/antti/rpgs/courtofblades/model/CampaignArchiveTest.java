@@ -0,0 +1,178 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.HealerType;
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.Resource;
+
+/**
+ * The tests of the campaign archive.
+ */
+public class CampaignArchiveTest {
+
+    /**
+     * The number of the entities of each kind in the archive.
+     */
+    private static final int COUNT = 30;
+
+    /**
+     * Create the archived entities.
+     * The entities are clocks, coteries, and houses in turn, and every third coterie
+     * has no type, house, or upgrades.
+     * @return The entities.
+     */
+    private static List<Object> createEntities() {
+        List<Clock> clocks = ClockJsonModuleBenchmark.createClocks(COUNT);
+        List<Object> result = new ArrayList<>(3 * COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            HouseModel house = new HouseModel("House " + i, Resource.values()[i % 6], HealerType.values()[i % 2]);
+            house.setUniqueXpTrigger(new XpTrigger("Trigger " + i, "Earn experience"));
+            house.setSpecialFeature(new SpecialFeature("Feature " + i, "A feature"));
+            Coterie coterie = new Coterie("Coterie " + i);
+            if (i % 3 != 0) {
+                coterie.setHouse(house);
+                CoterieType type = new CoterieType();
+                type.setName("Type " + i % 4);
+                coterie.setType(type);
+                coterie.setUpgrades(List.of(new CoterieUpgrade("Upgrade " + i % 5, "An upgrade")));
+                coterie.addSpecialAbility(new CoterieAbility("Ability " + i % 5, "An ability"));
+            }
+            result.add(clocks.get(i));
+            result.add(coterie);
+            result.add(house);
+        }
+        return result;
+    }
+
+    /**
+     * Write the entities into an archive.
+     * @param entities The entities.
+     * @return The archive.
+     * @throws IOException The writing failed.
+     */
+    private static byte[] export(List<Object> entities) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (CampaignArchive.Writer writer = new CampaignArchive.Writer(output)) {
+            for (Object entity: entities) {
+                writer.write(entity);
+            }
+            assertEquals(entities.size(), writer.getCount());
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Get the name of an archived entity.
+     * @param entity The entity.
+     * @return The name of the entity.
+     */
+    private static String nameOf(Object entity) {
+        if (entity instanceof Clock clock) return clock.getName();
+        if (entity instanceof Named named) return named.getName();
+        return ((HouseModel)entity).getName();
+    }
+
+    /**
+     * Assert the imported entities equal the exported entities.
+     * @param expected The exported entities.
+     * @param actual The imported entities.
+     */
+    private static void assertImported(List<Object> expected, List<Object> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Object exported = expected.get(i);
+            Object imported = actual.get(i);
+            assertEquals(exported.getClass(), imported.getClass());
+            if (exported instanceof Clock clock) {
+                ClockJsonModuleTest.assertSameState(clock, (Clock)imported);
+            } else if (exported instanceof Coterie coterie) {
+                Coterie read = (Coterie)imported;
+                assertEquals(coterie.getName(), read.getName());
+                if (coterie.getHouse() == null) {
+                    assertNull(read.getType());
+                    assertNull(read.getHouse());
+                    assertNull(read.getUpgrades());
+                    assertTrue(read.getSpecialAbilities().isEmpty());
+                } else {
+                    assertEquals(coterie.getType().getName(), read.getType().getName());
+                    assertEquals(coterie.getHouse().getName(), read.getHouse().getName());
+                    assertEquals(coterie.getUpgrades().get(0).getName(), read.getUpgrades().get(0).getName());
+                    assertEquals(coterie.getSpecialAbilities(), read.getSpecialAbilities());
+                }
+            } else {
+                HouseModel house = (HouseModel)exported;
+                HouseModel read = (HouseModel)imported;
+                assertEquals(house.getName(), read.getName());
+                assertEquals(house.getStrengths(), read.getStrengths());
+                assertEquals(house.getHealer(), read.getHealer());
+                assertEquals(house.getUniqueXpTrigger().getName(), read.getUniqueXpTrigger().getName());
+                assertEquals(house.getSpecialFeature().getName(), read.getSpecialFeature().getName());
+            }
+        }
+    }
+
+    @Test
+    public void testSequentialRoundTrip() throws Exception {
+        List<Object> entities = createEntities();
+        List<Object> imported = new ArrayList<>();
+        long count = CampaignArchive.importEntities(new ByteArrayInputStream(export(entities)),
+            CampaignArchive.createMapper(), imported::add);
+        assertEquals(entities.size(), count);
+        assertImported(entities, imported);
+    }
+
+    @Test
+    public void testParallelRoundTrip() throws Exception {
+        List<Object> entities = createEntities();
+        byte[] archive = export(entities);
+        ObjectMapper mapper = CampaignArchive.createMapper();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Object> ordered = new ArrayList<>();
+            CampaignArchive.importEntities(new ByteArrayInputStream(archive), mapper, ordered::add, pool, 7, true);
+            assertImported(entities, ordered);
+            List<Object> unordered = new ArrayList<>();
+            CampaignArchive.importEntities(new ByteArrayInputStream(archive), mapper, unordered::add, pool, 7, false);
+            // The unordered import keeps the entities, but not their order.
+            List<Object> expected = new ArrayList<>(entities);
+            expected.sort(Comparator.comparing(CampaignArchiveTest::nameOf));
+            unordered.sort(Comparator.comparing(CampaignArchiveTest::nameOf));
+            assertImported(expected, unordered);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testNullsAndInvalidLines() throws Exception {
+        String archive = "{\"coterie\":{\"name\":\"Crew\",\"upgrades\":null,\"type\":null,\"house\":null,"
+            + "\"abilities\":null}}\n\n{\"coterie\":{\"name\":\"Nulls\",\"upgrades\":[null],\"abilities\":[null]}}\n";
+        List<Object> imported = new ArrayList<>();
+        CampaignArchive.importEntities(new ByteArrayInputStream(archive.getBytes(StandardCharsets.UTF_8)),
+            CampaignArchive.createMapper(), imported::add);
+        assertEquals(2, imported.size());
+        assertNull(((Coterie)imported.get(0)).getHouse());
+        assertEquals(1, ((Coterie)imported.get(1)).getUpgrades().size());
+        assertTrue(((Coterie)imported.get(1)).getSpecialAbilities().isEmpty());
+        byte[] invalid = "{\"clock\":{\"name\":\"A\"}}\n{\"dragon\":{}}\n".getBytes(StandardCharsets.UTF_8);
+        IOException failure = assertThrows(IOException.class, () -> CampaignArchive.importEntities(
+            new ByteArrayInputStream(invalid), CampaignArchive.createMapper(), (Object entity) -> { }));
+        assertTrue(failure.getMessage().contains("line 2"));
+    }
+}
@@ -0,0 +1,88 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.HealerType;
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.Resource;
+
+/**
+ * The tests of the catalog interner.
+ */
+public class CatalogInternerTest {
+
+    @Test
+    public void testSettersKeepMutableObjectsOfTheHolder() {
+        HouseModel first = new HouseModel("First", Resource.Wealth, HealerType.Grace);
+        HouseModel second = new HouseModel("Second", Resource.Magic, HealerType.Physician);
+        first.setUniqueXpTrigger(new XpTrigger("Duel", "Win a duel"));
+        second.setUniqueXpTrigger(new XpTrigger("Duel", "Win a duel"));
+        first.getUniqueXpTrigger().setDescription("Homebrew duel");
+        assertEquals("Win a duel", second.getUniqueXpTrigger().getDescription());
+        HouseModel third = new HouseModel("Third", Resource.Supply, HealerType.Grace);
+        third.setUniqueXpTrigger(new XpTrigger("Duel", "Win a duel"));
+        assertEquals("Win a duel", third.getUniqueXpTrigger().getDescription());
+    }
+
+    @Test
+    public void testCanonicalInstanceIsFrozen() {
+        CatalogInterner interner = new CatalogInterner();
+        XpTrigger trigger = new XpTrigger("Duel", "Win a duel");
+        XpTrigger canonical = interner.intern(trigger);
+        assertNotSame(trigger, canonical);
+        assertTrue(canonical.isFrozen());
+        assertSame(canonical, interner.intern(trigger));
+        assertSame(canonical, interner.intern(canonical));
+        assertSame(canonical, interner.intern(new XpTrigger("Duel", "Win a duel")));
+        assertThrows(UnsupportedOperationException.class, () -> canonical.setDescription("Homebrew duel"));
+        assertThrows(UnsupportedOperationException.class, () -> canonical.setName("Brawl"));
+        assertEquals("Win a duel", interner.intern(new XpTrigger("Duel", "Win a duel")).getDescription());
+        CoterieUpgrade vault = new CoterieUpgrade("Vault", "A hidden vault");
+        vault.setCost(2);
+        CoterieUpgrade upgrade = interner.intern(vault);
+        assertThrows(UnsupportedOperationException.class, () -> upgrade.setCost(1));
+        assertEquals(2, upgrade.getCost());
+        assertSame(CoterieUpgrade.class, upgrade.getClass());
+        // The interned objects stay modifiable.
+        trigger.setDescription("Homebrew duel");
+        vault.setCost(3);
+        assertEquals("Win a duel", canonical.getDescription());
+        assertEquals(2, upgrade.getCost());
+    }
+
+    @Test
+    public void testAssignedAbilitiesAreInterned() {
+        Coterie first = new Coterie("First");
+        Coterie second = new Coterie("Second");
+        CoterieAbility added = new CoterieAbility("Ghost", "Move unseen");
+        first.addSpecialAbility(added);
+        second.addSpecialAbility(new CoterieAbility("Ghost", "Move unseen"));
+        SpecialAbility ability = first.getSpecialAbility("Ghost").get();
+        assertSame(ability, second.getSpecialAbility("Ghost").get());
+        assertTrue(ability.isFrozen());
+        assertSame(CoterieAbility.class, ability.getClass());
+        // The instance of the caller stays modifiable, and the coteries do not share it.
+        assertNotSame(added, ability);
+        assertFalse(added.isFrozen());
+        added.setDescription("Homebrew ghost");
+        assertEquals("Move unseen", second.getSpecialAbility("Ghost").get().getDescription());
+        HouseModel house = new HouseModel("House", Resource.Force, HealerType.Grace);
+        SpecialAbility unshared = new SpecialAbility("Ghost", "Move unseen");
+        house.setSpecialAbilities(Set.of(unshared));
+        SpecialAbility held = house.getSpecialAbilities().iterator().next();
+        assertTrue(held.isFrozen());
+        assertFalse(unshared.isFrozen());
+        unshared.setDescription("Homebrew ghost");
+        assertSame(held, CatalogInterner.getDefault().intern(new SpecialAbility("Ghost", "Move unseen")));
+        assertNotSame(ability, held);
+        assertFalse(new SpecialAbility("Ghost", "Move unseen").isFrozen());
+    }
+}
@@ -0,0 +1,68 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+import com.kautiainen.antti.rpgs.courtofblades.model.ExcessClockEvent.AdvanceClockEvent;
+import com.kautiainen.antti.rpgs.courtofblades.model.ExcessClockEvent.RegressClockEvent;
+
+/**
+ * The tests of the clock batch.
+ */
+public class ClockBatchTest {
+
+    @Test
+    public void testSameDirectionAdvancementsAreCoalesced() {
+        Clock first = new Clock("First", 0, 10, ClockType.LINKED_CLOCK);
+        Clock second = new Clock("Second", 0, 10, ClockType.LINKED_CLOCK);
+        ClockBatch batch = new ClockBatch(1);
+        batch.add(first, 1).add(second, 2).add(first, 2).add(first, 3);
+        assertEquals(4, batch.size());
+        List<ClockEvent> events = batch.apply();
+        assertTrue(batch.isEmpty());
+        assertEquals(6, first.getCurrent());
+        assertEquals(2, second.getCurrent());
+        // The clocks are in the order of their first addition, and each run is one event.
+        assertEquals(2, events.size());
+        assertSame(first, events.get(0).getTarget());
+        assertEquals(6, events.get(0).getExcess());
+        assertSame(second, events.get(1).getTarget());
+        assertEquals(2, events.get(1).getExcess());
+    }
+
+    @Test
+    public void testMixedSignsAreAppliedInOrder() {
+        Clock clock = new Clock("Tug", 2, 4, ClockType.WARRING_CLOCK);
+        List<ClockEvent> events = new ClockBatch().add(clock, 1).add(clock, 1).add(clock, -1)
+            .add(clock, -3).add(clock, 2).apply();
+        assertEquals(2, clock.getCurrent());
+        // The clock completes, then depletes, and advances again.
+        assertEquals(5, events.size());
+        assertInstanceOf(AdvanceClockEvent.class, events.get(0));
+        assertInstanceOf(CompletedClockEvent.class, events.get(1));
+        assertInstanceOf(RegressClockEvent.class, events.get(2));
+        assertEquals(-4, events.get(2).getExcess());
+        assertInstanceOf(DepletedClockEvent.class, events.get(3));
+        assertInstanceOf(AdvanceClockEvent.class, events.get(4));
+    }
+
+    @Test
+    public void testCompletedClockDoesNotRepeatCompletion() {
+        Clock clock = new Clock("Done", 0, 4, ClockType.LINKED_CLOCK);
+        clock.advance(4);
+        assertTrue(clock.isCompleted());
+        assertTrue(new ClockBatch().add(clock, 1).apply().isEmpty());
+        assertEquals(4, clock.getCurrent());
+
+        Clock pending = new Clock("Pending", 2, 4, ClockType.LINKED_CLOCK);
+        List<ClockEvent> events = new ClockBatch().add(pending, 2).add(pending, 1).apply();
+        assertEquals(1, events.stream().filter((ClockEvent event) -> event instanceof CompletedClockEvent).count());
+    }
+}
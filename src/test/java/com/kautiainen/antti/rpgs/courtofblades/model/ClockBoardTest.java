@@ -0,0 +1,144 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.ClockBoard.Delta;
+import com.kautiainen.antti.rpgs.courtofblades.model.ClockBoard.Snapshot;
+
+/**
+ * The tests of the multi-version clock board.
+ */
+public class ClockBoardTest {
+
+    @Test
+    public void testSnapshotKeepsPointInTimeState() {
+        ClockBoard board = new ClockBoard();
+        VersionedClock first = board.add(new Clock("First", 0, 10));
+        try (Snapshot before = board.snapshot()) {
+            first.advance(3);
+            VersionedClock second = board.add(new Clock("Second", 1, 4));
+            assertEquals(0, before.get(0).getCurrent());
+            assertNull(before.get(second.getId()));
+            assertEquals(1, before.getClocks().size());
+            try (Snapshot after = board.snapshot()) {
+                assertEquals(3, after.get(0).getCurrent());
+                assertEquals(2, after.getClocks().size());
+            }
+        }
+        assertEquals(3L, board.getVersion());
+    }
+
+    @Test
+    public void testConcurrentWritersPublishEveryVersionInOrder() throws Exception {
+        final int writers = 4;
+        final int advances = 2_000;
+        ClockBoard board = new ClockBoard(16);
+        for (int i = 0; i < writers; i++) {
+            board.add(new Clock("Clock " + i, 0, advances));
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            int[] last = new int[writers];
+            while (running.get() && failure.get() == null) {
+                try (Snapshot snapshot = board.snapshot()) {
+                    List<ClockSnapshot> clocks = snapshot.getClocks();
+                    long total = 0;
+                    for (int id = 0; id < writers; id++) {
+                        ClockSnapshot clock = clocks.get(id);
+                        total += clock.getCurrent();
+                        if (clock.getVersion() > snapshot.getVersion()) {
+                            failure.set("Snapshot read a newer version");
+                        }
+                        if (clock.getCurrent() < last[id]) {
+                            failure.set("Clock " + id + " went backwards");
+                        }
+                        last[id] = clock.getCurrent();
+                    }
+                    // Each version after the additions advances one clock by one tick.
+                    if (total != snapshot.getVersion() - writers) {
+                        failure.set("Snapshot " + snapshot.getVersion() + " saw " + total + " ticks");
+                    }
+                    Thread.yield();
+                }
+            }
+        });
+        reader.start();
+        AtomicClockTest.runConcurrently(writers, (int index) -> {
+            VersionedClock clock = board.getClock(index);
+            for (int i = 0; i < advances; i++) {
+                clock.advance(1);
+            }
+        });
+        running.set(false);
+        reader.join();
+        assertNull(failure.get());
+        assertEquals(writers + (long)writers * advances, board.getVersion());
+        try (Snapshot snapshot = board.snapshot()) {
+            for (int id = 0; id < writers; id++) {
+                assertEquals(advances, snapshot.get(id).getCurrent());
+            }
+        }
+    }
+
+    @Test
+    public void testChangesSince() {
+        ClockBoard board = new ClockBoard(4);
+        VersionedClock first = board.add(new Clock("First", 0, 10));
+        VersionedClock second = board.add(new Clock("Second", 0, 10));
+        long known = board.getVersion();
+        first.advance(1);
+        first.advance(1);
+        Delta delta = board.changesSince(known);
+        assertFalse(delta.isFull());
+        assertEquals(1, delta.getChanges().size());
+        assertEquals(board.getVersion(), delta.getVersion());
+        for (int i = 0; i < 5; i++) {
+            second.advance(1);
+        }
+        Delta full = board.changesSince(known);
+        assertTrue(full.isFull());
+        assertEquals(2, full.getChanges().size());
+    }
+
+    @Test
+    public void testFailedInstallationPublishesItsVersion() {
+        ClockBoard board = new ClockBoard(4);
+        AtomicBoolean failing = new AtomicBoolean(false);
+        VersionedClock broken = board.add(new VersionedClock("Broken", 0, 10) {
+            @Override
+            void setSnapshot(ClockSnapshot snapshot) {
+                if (failing != null && failing.get()) throw new IllegalStateException("Installation failed");
+                super.setSnapshot(snapshot);
+            }
+        });
+        VersionedClock healthy = board.add(new Clock("Healthy", 0, 10));
+        long known = board.getVersion();
+        failing.set(true);
+        assertThrows(IllegalStateException.class, () -> broken.advance(1));
+        assertEquals(known + 1, board.getVersion());
+        // The later writers are not blocked by the failed version.
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> healthy.advance(2));
+        assertEquals(known + 2, board.getVersion());
+        assertEquals(0, broken.getCurrent());
+        Delta delta = board.changesSince(known);
+        assertFalse(delta.isFull());
+        assertEquals(1, delta.getChanges().size());
+        try (Snapshot snapshot = board.snapshot()) {
+            assertEquals(0, snapshot.get(broken.getId()).getCurrent());
+            assertEquals(2, snapshot.get(healthy.getId()).getCurrent());
+        }
+    }
+}
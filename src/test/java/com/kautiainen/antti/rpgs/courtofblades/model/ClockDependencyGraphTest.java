@@ -0,0 +1,107 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+import com.kautiainen.antti.rpgs.courtofblades.model.ClockDependencyGraph.Dependency;
+
+/**
+ * The tests of the clock dependency graph.
+ */
+public class ClockDependencyGraphTest {
+
+    /**
+     * Create a linked clock.
+     * @param name The name of the clock.
+     * @param max The maximum of the clock.
+     * @return The created clock.
+     */
+    private static Clock linked(String name, int max) {
+        return new Clock(name, 0, max, ClockType.LINKED_CLOCK);
+    }
+
+    @Test
+    public void testRejectedCycleDoesNotBreakPropagation() {
+        ClockDependencyGraph graph = new ClockDependencyGraph();
+        Clock a = linked("A", 4);
+        Clock b = linked("B", 4);
+        Clock c = linked("C", 4);
+        Clock d = linked("D", 4);
+        graph.link(a, b, 2);
+        graph.link(a, c, 2);
+        graph.link(c, d, 2);
+        assertThrows(IllegalArgumentException.class, () -> graph.link(d, a, 1));
+        assertTrue(graph.getDependents(d, Dependency.LINKED).isEmpty());
+        List<ClockEvent> events = graph.advance(a, 4);
+        assertEquals(1, events.size());
+        assertEquals(2, b.getCurrent());
+        assertEquals(2, c.getCurrent());
+        events = graph.advance(c, 2);
+        assertEquals(1, events.size());
+        assertEquals(2, d.getCurrent());
+    }
+
+    @Test
+    public void testRejectedCycleDoesNotBreakReordering() {
+        ClockDependencyGraph graph = new ClockDependencyGraph();
+        Clock a = linked("A", 1);
+        Clock b = linked("B", 1);
+        Clock c = linked("C", 1);
+        Clock d = linked("D", 1);
+        graph.link(a, b, 1);
+        graph.link(b, c, 1);
+        assertThrows(IllegalArgumentException.class, () -> graph.link(c, a, 1));
+        // The dependency moves the last clock before the first clock.
+        assertTrue(graph.link(d, a, 1));
+        List<ClockEvent> events = graph.advance(d, 1);
+        assertEquals(4, events.size());
+        assertSame(d, events.get(0).getTarget());
+        assertSame(a, events.get(1).getTarget());
+        assertSame(b, events.get(2).getTarget());
+        assertSame(c, events.get(3).getTarget());
+    }
+
+    @Test
+    public void testPropagationFollowsTopologicalOrder() {
+        ClockDependencyGraph graph = new ClockDependencyGraph();
+        Clock last = linked("Last", 2);
+        Clock middle = linked("Middle", 1);
+        Clock first = linked("First", 1);
+        // The dependencies are added against the order of addition.
+        graph.link(middle, last, 1);
+        graph.link(first, middle, 1);
+        graph.link(first, last, 1);
+        List<ClockEvent> events = graph.advance(first, 1);
+        assertEquals(3, events.size());
+        assertSame(first, events.get(0).getTarget());
+        assertSame(middle, events.get(1).getTarget());
+        assertSame(last, events.get(2).getTarget());
+        assertTrue(graph.advance(first, 1).isEmpty());
+    }
+
+    @Test
+    public void testChainedClockIsEnabled() {
+        ClockDependencyGraph graph = new ClockDependencyGraph();
+        Clock predecessor = linked("Predecessor", 2);
+        Clock successor = linked("Successor", 2);
+        successor.setEnabled(false);
+        assertTrue(graph.chain(predecessor, successor));
+        assertFalse(graph.chain(predecessor, successor));
+        assertEquals(List.of(successor), graph.getDependents(predecessor, Dependency.CHAINED));
+        graph.advance(predecessor, 2);
+        assertTrue(successor.isEnabled());
+        assertEquals(0, successor.getCurrent());
+        assertThrows(IllegalArgumentException.class,
+            () -> graph.chain(new Clock("Plain", 0, 2, ClockType.PROGRESS_CLOCK), successor));
+        assertTrue(graph.removeClock(successor));
+        assertTrue(graph.getDependents(predecessor, Dependency.CHAINED).isEmpty());
+    }
+}
@@ -0,0 +1,162 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.ClockEventBus.Subscription;
+import com.kautiainen.antti.rpgs.courtofblades.model.ClockEventBus.WaitStrategy;
+
+/**
+ * The tests of the ring-buffer event bus.
+ */
+public class ClockEventBusTest {
+
+    /**
+     * The time limit of waiting for the other threads in milliseconds.
+     */
+    private static final long TIMEOUT_MILLIS = 10_000L;
+
+    @Test
+    public void testSubscriptionAfterWrapGatesProducers() throws Exception {
+        ClockEventBus bus = new ClockEventBus(4, WaitStrategy.YIELDING);
+        Clock clock = new Clock("Clock", 0, 8);
+        for (int i = 0; i < 5; i++) {
+            bus.publish(ClockEventKind.ADVANCED, clock, -1);
+        }
+        List<Integer> received = new ArrayList<>();
+        Subscription subscription = bus.subscribe(
+            (ClockEventBus.Event event, long sequence) -> received.add(event.getExcess()));
+        AtomicInteger publishedCount = new AtomicInteger();
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < 12; i++) {
+                bus.publish(ClockEventKind.ADVANCED, clock, i);
+                publishedCount.incrementAndGet();
+            }
+        });
+        producer.start();
+        // The producer fills the ring, and waits for the subscription.
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (publishedCount.get() < 4 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Thread.sleep(100);
+        assertEquals(4, publishedCount.get());
+        assertTrue(producer.isAlive());
+        while (received.size() < 12 && System.currentTimeMillis() < deadline) {
+            if (subscription.poll() == 0) Thread.sleep(1);
+        }
+        producer.join(TIMEOUT_MILLIS);
+        assertFalse(producer.isAlive());
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, received);
+    }
+
+    @Test
+    public void testConcurrentProducersDeliverAllEventsInOrder() throws Exception {
+        final int producers = 4;
+        final int events = 10_000;
+        ClockEventBus bus = new ClockEventBus(64, WaitStrategy.YIELDING);
+        Clock[] clocks = new Clock[producers];
+        for (int i = 0; i < producers; i++) {
+            clocks[i] = new Clock("Clock " + i, 0, events);
+        }
+        int subscribers = 2;
+        int[][] lastExcess = new int[subscribers][producers];
+        int[] counts = new int[subscribers];
+        boolean[] ordered = { true, true };
+        List<Subscription> subscriptions = new ArrayList<>();
+        for (int s = 0; s < subscribers; s++) {
+            final int subscriberIndex = s;
+            java.util.Arrays.fill(lastExcess[s], -1);
+            subscriptions.add(bus.subscribe((ClockEventBus.Event event, long sequence) -> {
+                int producer = Integer.parseInt(event.getTarget().getName().substring(6));
+                if (event.getExcess() != lastExcess[subscriberIndex][producer] + 1) {
+                    ordered[subscriberIndex] = false;
+                }
+                lastExcess[subscriberIndex][producer] = event.getExcess();
+                counts[subscriberIndex]++;
+            }));
+        }
+        List<Thread> consumers = new ArrayList<>();
+        for (int s = 0; s < subscribers; s++) {
+            final int subscriberIndex = s;
+            final Subscription subscription = subscriptions.get(s);
+            Thread consumer = new Thread(() -> {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS);
+                while (counts[subscriberIndex] < producers * events && System.nanoTime() < deadline) {
+                    if (subscription.poll() == 0) Thread.yield();
+                }
+            });
+            consumer.start();
+            consumers.add(consumer);
+        }
+        AtomicClockTest.runConcurrently(producers, (int index) -> {
+            for (int i = 0; i < events; i++) {
+                bus.publish(ClockEventKind.ADVANCED, clocks[index], i);
+            }
+        });
+        for (Thread consumer: consumers) {
+            consumer.join(TIMEOUT_MILLIS);
+        }
+        for (int s = 0; s < subscribers; s++) {
+            assertEquals(producers * events, counts[s]);
+            assertTrue(ordered[s]);
+        }
+    }
+
+    @Test
+    public void testClosedSubscriptionReleasesProducers() {
+        ClockEventBus bus = new ClockEventBus(2, WaitStrategy.BUSY_SPIN);
+        Clock clock = new Clock("Clock", 0, 8);
+        Subscription subscription = bus.subscribe((ClockEventBus.Event event, long sequence) -> { });
+        bus.publish(ClockEventKind.ADVANCED, clock, 1);
+        bus.publish(ClockEventKind.ADVANCED, clock, 2);
+        subscription.close();
+        assertEquals(2L, bus.publish(ClockEventKind.ADVANCED, clock, 3));
+        assertEquals(0, subscription.poll());
+    }
+
+    @Test
+    public void testClockPublishesChanges() {
+        ClockEventBus bus = new ClockEventBus(8, WaitStrategy.YIELDING);
+        List<ClockEvent> received = new ArrayList<>();
+        Subscription subscription = bus.subscribe(
+            (ClockEventBus.Event event, long sequence) -> received.add(event.toClockEvent()));
+        Clock clock = new Clock("Linked", 2, 4, Clock.ClockType.LINKED_CLOCK);
+        clock.setEventBus(bus);
+        assertEquals(1, clock.advance(3));
+        assertEquals(2, subscription.poll());
+        assertEquals(2, received.get(0).getExcess());
+        assertTrue(received.get(1) instanceof CompletedClockEvent);
+        assertEquals(0, received.get(1).getExcess());
+    }
+
+    @Test
+    public void testListenersDoNotHoldBackProducers() {
+        ClockEventBus bus = new ClockEventBus(2, WaitStrategy.BUSY_SPIN);
+        Clock clock = new Clock("Clock", 0, 8);
+        List<Integer> received = new ArrayList<>();
+        ClockEventSink listener = (ClockEventKind kind, Clock target, int excess) -> received.add(excess);
+        bus.addListener(listener);
+        // Without subscriptions the listener receives more events than the ring holds.
+        for (int i = 0; i < 5; i++) {
+            bus.publish(ClockEventKind.ADVANCED, clock, i);
+        }
+        assertEquals(List.of(0, 1, 2, 3, 4), received);
+        assertTrue(bus.removeListener(listener));
+        assertFalse(bus.removeListener(listener));
+        bus.publish(ClockEventKind.ADVANCED, clock, 5);
+        assertEquals(5, received.size());
+    }
+}
@@ -0,0 +1,106 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.BinaryModelCodec.Decoder;
+import com.kautiainen.antti.rpgs.courtofblades.model.BinaryModelCodec.Encoder;
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The tests of the binary clock event codec.
+ */
+public class ClockEventCodecTest {
+
+    /**
+     * The target clocks by identifier.
+     */
+    private final List<Clock> clocks = List.of(
+        new Clock("First", 2, 6, ClockType.LINKED_CLOCK),
+        new Clock("Second", 3, 4, ClockType.WARRING_CLOCK));
+
+    /**
+     * Create a decoder of the data written into a buffer.
+     * @param encoder The encoder writing into a buffer.
+     * @return The decoder of the written data.
+     * @throws IOException The document header was invalid.
+     */
+    private static Decoder decoderOf(Encoder encoder) throws IOException {
+        ByteBuffer buffer = encoder.getBuffer();
+        buffer.flip();
+        return new Decoder(buffer);
+    }
+
+    @Test
+    public void testEventsRoundTrip() throws Exception {
+        List<ClockEvent> events = List.of(
+            ClockEventKind.ADVANCED.createEvent(clocks.get(0), 2),
+            ClockEventKind.ADVANCED.createEvent(clocks.get(0), "First pushed", 1),
+            ClockEventKind.REGRESSED.createEvent(clocks.get(1), -1),
+            ClockEventKind.REGRESSED.createEvent(clocks.get(1), "Second slipped", -3),
+            ClockEvent.completedClock(clocks.get(0), "First done", 4),
+            ClockEvent.depletedClock(clocks.get(1), null, -2),
+            ClockEventKind.COMPLETED.createEvent(null, "Nothing", 0));
+        Encoder encoder = new Encoder(ByteBuffer.allocate(16));
+        ClockEventCodec.Writer writer = new ClockEventCodec.Writer(encoder, clocks::indexOf);
+        for (ClockEvent event: events) {
+            writer.write(event);
+        }
+        assertEquals(events.size(), writer.getCount());
+        ClockEventCodec.Reader reader = new ClockEventCodec.Reader(decoderOf(encoder), clocks::get);
+        for (ClockEvent event: events) {
+            ClockEvent read = reader.read();
+            assertSame(event.getClass(), read.getClass());
+            assertSame(event.getTarget(), read.getTarget());
+            assertEquals(event.getExcess(), read.getExcess());
+            assertEquals(event.getEventName(), read.getEventName());
+        }
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void testSinkReplayAndKindCodes() throws Exception {
+        Encoder encoder = new Encoder(ByteBuffer.allocate(64));
+        ClockEventCodec.Writer writer = new ClockEventCodec.Writer(encoder, clocks::indexOf);
+        writer.onClockEvent(ClockEventKind.ADVANCED, clocks.get(0), 1);
+        writer.onClockEvent(ClockEventKind.REGRESSED, clocks.get(1), -1);
+        writer.onClockEvent(ClockEventKind.COMPLETED, clocks.get(0), 0);
+        writer.onClockEvent(ClockEventKind.DEPLETED, clocks.get(1), 0);
+        byte[] written = encoder.getBuffer().array();
+        // The fixed codes of the kinds follow the five byte header.
+        assertEquals(0 << 1, written[5]);
+        assertEquals(1 << 1, written[8]);
+        assertEquals(2 << 1, written[11]);
+        assertEquals(3 << 1, written[14]);
+        List<String> received = new ArrayList<>();
+        ClockEventCodec.Reader reader = new ClockEventCodec.Reader(decoderOf(encoder), clocks::get);
+        long count = reader.replay((ClockEventKind kind, Clock clock, int excess) ->
+            received.add(kind.getVerb() + " " + clock.getName() + " " + excess));
+        assertEquals(4L, count);
+        assertEquals(List.of("advanced First 1", "regressed Second -1", "completed First 0", "depleted Second 0"),
+            received);
+    }
+
+    @Test
+    public void testInvalidEventsAreRejected() throws Exception {
+        Encoder encoder = new Encoder(ByteBuffer.allocate(16));
+        ClockEventCodec.Writer writer = new ClockEventCodec.Writer(encoder, clocks::indexOf);
+        assertThrows(IllegalArgumentException.class,
+            () -> writer.onClockEvent(ClockEventKind.ADVANCED, new Clock("Stranger", 0, 4), 1));
+        encoder.writeVarInt(4 << 1);
+        encoder.writeVarInt(0);
+        encoder.writeVarInt(0);
+        ClockEventCodec.Reader reader = new ClockEventCodec.Reader(decoderOf(encoder), clocks::get);
+        assertThrows(StreamCorruptedException.class, reader::read);
+    }
+}
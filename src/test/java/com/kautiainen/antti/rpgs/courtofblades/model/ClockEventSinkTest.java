@@ -0,0 +1,86 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+import com.kautiainen.antti.rpgs.courtofblades.model.ExcessClockEvent.AdvanceClockEvent;
+import com.kautiainen.antti.rpgs.courtofblades.model.ExcessClockEvent.RegressClockEvent;
+
+/**
+ * The tests of the clock event sink.
+ */
+public class ClockEventSinkTest {
+
+    @Test
+    public void testCollectIntoEmitsOnlyTransitions() {
+        for (Clock clock: List.of(new Clock("Plain", 0, 4, ClockType.LINKED_CLOCK),
+            new AtomicClock("Atomic", 0, 4, ClockType.LINKED_CLOCK))) {
+            List<ClockEvent> events = new ArrayList<>();
+            ClockEventSink sink = ClockEventSink.collectInto(events);
+            assertEquals(1, clock.advance(5, sink));
+            assertEquals(2, events.size());
+            assertInstanceOf(AdvanceClockEvent.class, events.get(0));
+            assertEquals(4, events.get(0).getExcess());
+            assertInstanceOf(CompletedClockEvent.class, events.get(1));
+            assertEquals(0, events.get(1).getExcess());
+            events.clear();
+            clock.advance(2, sink);
+            clock.advance(0, sink);
+            assertTrue(events.isEmpty());
+            clock.advance(-1, sink);
+            assertEquals(1, events.size());
+            assertInstanceOf(RegressClockEvent.class, events.get(0));
+            assertEquals(-1, events.get(0).getExcess());
+        }
+        assertThrows(IllegalArgumentException.class, () -> ClockEventSink.collectInto(null));
+    }
+
+    @Test
+    public void testNamesAreCreatedWhenRead() {
+        Clock clock = new Clock("Before", 0, 2, ClockType.LINKED_CLOCK);
+        List<ClockEvent> events = new ArrayList<>();
+        clock.advance(2, ClockEventSink.collectInto(events));
+        clock.setName("After");
+        assertEquals(ClockEventKind.ADVANCED.getEventName(clock), events.get(0).getEventName());
+        assertEquals("After completed", events.get(1).getEventName());
+        // The name is kept once it has been read.
+        clock.setName("Later");
+        assertEquals("After completed", events.get(1).getEventName());
+        assertEquals("Later completed", ClockEvent.completedClock(clock).getEventName());
+    }
+
+    @Test
+    public void testDepletionExcessIsRelativeToMinimum() {
+        Clock clock = new Clock("Raised", 5, 10, ClockType.REGRESS_CLOCK) {
+            @Override
+            public synchronized int getMinimum() {
+                return 2;
+            }
+        };
+        List<ClockEvent> events = new ArrayList<>();
+        clock.advance(-4, ClockEventSink.collectInto(events));
+        assertEquals(2, clock.getCurrent());
+        assertTrue(clock.isDepleted());
+        assertEquals(2, events.size());
+        assertEquals(-3, events.get(0).getExcess());
+        assertInstanceOf(DepletedClockEvent.class, events.get(1));
+        assertEquals(0, events.get(1).getExcess());
+        ClockEvent depleted = ClockEvent.depletedClock(clock);
+        assertInstanceOf(DepletedClockEvent.class, depleted);
+        assertEquals(0, depleted.getExcess());
+        List<ClockEvent> state = clock.getClockEvents();
+        assertEquals(1, state.size());
+        assertEquals(0, state.get(0).getExcess());
+        List<ClockEvent> emitted = new ArrayList<>();
+        clock.emitClockEvents(ClockEventSink.collectInto(emitted));
+        assertEquals(0, emitted.get(0).getExcess());
+    }
+}
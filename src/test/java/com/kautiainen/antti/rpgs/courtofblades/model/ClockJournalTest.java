@@ -0,0 +1,113 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The tests of the event-sourced clock journal.
+ */
+public class ClockJournalTest {
+
+    /**
+     * The directory of the journal.
+     */
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testReplayRestoresClocks() throws Exception {
+        ClockType custom = new ClockType("Custom", "A custom clock", Clock.ClockType.COMPLETES_FULL, "Homebrew");
+        try (ClockJournal journal = ClockJournal.open(directory)) {
+            int first = journal.register(new Clock("First", 0, 8, ClockType.LINKED_CLOCK));
+            int second = journal.register(new Clock("Second", 2, 6, custom));
+            journal.advance(first, 3);
+            journal.advance(first, 2);
+            journal.setCurrent(second, 5);
+            journal.setEnabled(second, false);
+        }
+        try (ClockJournal journal = ClockJournal.open(directory)) {
+            assertEquals(2, journal.getClocks().size());
+            Clock first = journal.getClock(0);
+            assertEquals("First", first.getName());
+            assertEquals(5, first.getCurrent());
+            assertEquals(8, first.getMaximum());
+            assertSame(ClockType.LINKED_CLOCK, first.getType());
+            Clock second = journal.getClock(1);
+            assertEquals(5, second.getCurrent());
+            assertFalse(second.isEnabled());
+            assertEquals("Custom", second.getType().getName());
+            assertEquals(custom.getTraits(), second.getType().getTraits());
+        }
+    }
+
+    @Test
+    public void testSnapshotAndFollowingJournal() throws Exception {
+        try (ClockJournal journal = ClockJournal.open(directory)) {
+            int id = journal.register(new Clock("Clock", 0, 100));
+            journal.advance(id, 10);
+            journal.snapshot();
+            journal.advance(id, 5);
+        }
+        try (ClockJournal journal = ClockJournal.open(directory)) {
+            assertEquals(15, journal.getClock(0).getCurrent());
+            assertTrue(Files.exists(directory.resolve(ClockJournal.SNAPSHOT_FILE)));
+            assertFalse(Files.exists(directory.resolve("clocks-0.journal")));
+        }
+    }
+
+    @Test
+    public void testTornRecordWithHugeLengthIsDiscarded() throws Exception {
+        try (ClockJournal journal = ClockJournal.open(directory)) {
+            int id = journal.register(new Clock("Clock", 0, 10));
+            journal.advance(id, 4);
+        }
+        Path file = directory.resolve("clocks-0.journal");
+        long valid = Files.size(file);
+        // A clock registration torn after a corrupted name length.
+        ByteBuffer torn = ByteBuffer.allocate(9).put((byte)1).putInt(1).putInt(Integer.MAX_VALUE - 8);
+        Files.write(file, torn.array(), StandardOpenOption.APPEND);
+        try (ClockJournal journal = ClockJournal.open(directory)) {
+            assertEquals(1, journal.getClocks().size());
+            assertEquals(4, journal.getClock(0).getCurrent());
+            assertEquals(valid, Files.size(file));
+            journal.advance(0, 1);
+        }
+        try (ClockJournal journal = ClockJournal.open(directory)) {
+            assertEquals(5, journal.getClock(0).getCurrent());
+        }
+    }
+
+    @Test
+    public void testConcurrentOperationsAreDurable() throws Exception {
+        final int threads = 8;
+        final int operations = 200;
+        try (ClockJournal journal = ClockJournal.open(directory, 500)) {
+            int id = journal.register(new Clock("Shared", 0, threads * operations));
+            AtomicClockTest.runConcurrently(threads, (int index) -> {
+                try {
+                    for (int i = 0; i < operations; i++) {
+                        journal.advance(id, 1);
+                    }
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+            assertEquals(threads * operations, journal.getClock(id).getCurrent());
+        }
+        try (ClockJournal journal = ClockJournal.open(directory)) {
+            assertEquals(threads * operations, journal.getClock(0).getCurrent());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The benchmark of the streaming clock module against the annotation-driven
+ * serialization of the clocks.
+ *
+ * The benchmark writes a list of clocks with a plain object mapper and with an object
+ * mapper using the {@link ClockJsonModule}, and reads the list back with the module,
+ * and prints the milliseconds per round. The plain object mapper cannot read the
+ * clocks, as the clock has conflicting creators. The benchmark is not a test, and it
+ * is run with
+ * <pre>
+ * mvn -B test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.kautiainen.antti.rpgs.courtofblades.model.ClockJsonModuleBenchmark
+ * </pre>
+ * The number of the clocks, and the number of the measured rounds are given with the
+ * arguments, or with the system properties {@code benchmark.clocks} and
+ * {@code benchmark.rounds}.
+ */
+public final class ClockJsonModuleBenchmark {
+
+    /**
+     * The types of the benchmarked clocks.
+     */
+    private static final ClockType[] TYPES = {
+        ClockType.PROGRESS_CLOCK, ClockType.LINKED_CLOCK, ClockType.RACING_CLOCK, ClockType.WARRING_CLOCK,
+        new ClockType("Custom", "A custom clock", Clock.ClockType.COMPLETES_FULL, "Homebrew")
+    };
+
+    /**
+     * The sink of the results preventing the elimination of the work.
+     */
+    static volatile int consumed;
+
+    /**
+     * The benchmark has no instances.
+     */
+    private ClockJsonModuleBenchmark() {
+    }
+
+    /**
+     * Create the benchmarked clocks.
+     * @param count The number of the clocks.
+     * @return The clocks.
+     */
+    static List<Clock> createClocks(int count) {
+        List<Clock> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int max = 4 + i % 9;
+            result.add(new Clock("Clock " + i, i % (max + 1), max, TYPES[i % TYPES.length]));
+        }
+        return result;
+    }
+
+    /**
+     * Run the benchmark.
+     * @param args The number of the clocks, and the number of the measured rounds.
+     * @throws Exception The benchmark failed.
+     */
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : Integer.getInteger("benchmark.clocks", 10_000);
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : Integer.getInteger("benchmark.rounds", 50);
+        List<Clock> clocks = createClocks(count);
+        ObjectMapper plain = new ObjectMapper();
+        ObjectMapper module = new ObjectMapper().registerModule(new ClockJsonModule());
+        TypeReference<List<Clock>> listType = new TypeReference<List<Clock>>() { };
+        byte[] written = module.writeValueAsBytes(clocks);
+        // Warming up all measured operations.
+        for (int round = 0; round < rounds; round++) {
+            consumed += plain.writeValueAsBytes(clocks).length;
+            consumed += module.writeValueAsBytes(clocks).length;
+            consumed += module.<List<Clock>>readValue(written, listType).size();
+        }
+        long started = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            consumed += plain.writeValueAsBytes(clocks).length;
+        }
+        double plainWrite = (System.nanoTime() - started) / 1e6 / rounds;
+        started = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            consumed += module.writeValueAsBytes(clocks).length;
+        }
+        double moduleWrite = (System.nanoTime() - started) / 1e6 / rounds;
+        started = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            consumed += module.<List<Clock>>readValue(written, listType).size();
+        }
+        double moduleRead = (System.nanoTime() - started) / 1e6 / rounds;
+        System.out.printf("%d clocks, %d rounds%n", count, rounds);
+        System.out.printf("%-24s %10.3f ms%n", "plain write", plainWrite);
+        System.out.printf("%-24s %10.3f ms%n", "module write", moduleWrite);
+        System.out.printf("%-24s %10.3f ms%n", "module read", moduleRead);
+        System.out.printf("%-24s %10.2f%n", "write ratio", plainWrite / moduleWrite);
+    }
+}
@@ -0,0 +1,118 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The tests of the streaming clock module.
+ */
+public class ClockJsonModuleTest {
+
+    /**
+     * The object mapper with the clock module.
+     */
+    private final ObjectMapper mapper = new ObjectMapper().registerModule(new ClockJsonModule());
+
+    /**
+     * Assert the clocks have equal state.
+     * @param expected The expected clock.
+     * @param actual The actual clock.
+     */
+    static void assertSameState(Clock expected, Clock actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCurrent(), actual.getCurrent());
+        assertEquals(expected.getMaximum(), actual.getMaximum());
+        assertEquals(expected.isEnabled(), actual.isEnabled());
+        assertEquals(expected.getType().getName(), actual.getType().getName());
+        assertEquals(expected.getType().getDescription(), actual.getType().getDescription());
+        assertEquals(expected.getType().getTraits(), actual.getType().getTraits());
+    }
+
+    @Test
+    public void testClocksRoundTrip() throws Exception {
+        List<Clock> clocks = ClockJsonModuleBenchmark.createClocks(50);
+        clocks.get(3).setEnabled(false);
+        String json = mapper.writeValueAsString(clocks);
+        List<Clock> read = mapper.readValue(json, new TypeReference<List<Clock>>() { });
+        assertEquals(clocks.size(), read.size());
+        for (int i = 0; i < clocks.size(); i++) {
+            assertSameState(clocks.get(i), read.get(i));
+        }
+        assertSame(ClockType.LINKED_CLOCK, read.get(1).getType());
+        // The custom type is written once, and shared by the read clocks.
+        assertSame(read.get(4).getType(), read.get(9).getType());
+        assertEquals(json.indexOf("\"Homebrew\""), json.lastIndexOf("\"Homebrew\""));
+    }
+
+    @Test
+    public void testDefaultsAndUnknownFields() throws Exception {
+        Clock clock = mapper.readValue(
+            "{\"name\":\"Plain\",\"current\":4,\"max\":4,\"extra\":{\"nested\":[1,2]}}", Clock.class);
+        assertSame(ClockType.PROGRESS_CLOCK, clock.getType());
+        assertEquals(4, clock.getCurrent());
+        assertNull(mapper.readValue("null", Clock.class));
+        assertThrows(JsonMappingException.class,
+            () -> mapper.readValue("{\"name\":\"Broken\",\"current\":1,\"max\":4,\"type\":\"?\"}", Clock.class));
+    }
+
+    @Test
+    public void testEventsRoundTrip() throws Exception {
+        Clock clock = new Clock("Target", 2, 6, ClockType.LINKED_CLOCK);
+        List<ClockEvent> events = List.of(
+            ClockEventKind.ADVANCED.createEvent(clock, 2),
+            ClockEventKind.ADVANCED.createEvent(clock, "Target pushed", 1),
+            ClockEventKind.REGRESSED.createEvent(clock, -1),
+            ClockEvent.completedClock(clock, "Target done", 3),
+            ClockEvent.depletedClock(clock, "Target gone", -2));
+        for (ClockEvent event: events) {
+            ClockEvent read = mapper.readValue(mapper.writeValueAsString(event), ClockEvent.class);
+            assertSame(event.getClass(), read.getClass());
+            assertEquals(ClockJsonModule.kindOf(event), ClockJsonModule.kindOf(read));
+            assertEquals(event.getEventName(), read.getEventName());
+            assertEquals(event.getExcess(), read.getExcess());
+            assertSameState(clock, read.getTarget());
+        }
+        assertTrue(mapper.writeValueAsString(events.get(0)).contains("\"kind\":\"advanced\""));
+        assertFalse(mapper.writeValueAsString(events.get(2)).contains("\"ref\""));
+    }
+
+    @Test
+    public void testRegisteredTypesAreWrittenByName() throws Exception {
+        ClockType registered = new ClockType("Json Registered", "A registered clock", ClockType.COMPLETES_FULL);
+        ClockTypeDictionary.register(registered);
+        ClockType shadowed = new ClockType("Json Registered", "Another clock with the same name");
+        ClockTypeDictionary.register(shadowed);
+        String json = mapper.writeValueAsString(List.of(
+            new Clock("Linked", 0, 4, ClockType.LINKED_CLOCK),
+            new Clock("Registered", 0, 4, registered),
+            new Clock("Shadowed", 0, 4, shadowed)));
+        assertTrue(json.contains("\"type\":\"Linked\""));
+        assertTrue(json.contains("\"type\":\"Json Registered\""));
+        assertTrue(json.contains("\"Another clock with the same name\""));
+        List<Clock> read = mapper.readValue(json, new TypeReference<List<Clock>>() { });
+        assertSame(ClockType.LINKED_CLOCK, read.get(0).getType());
+        assertSame(registered, read.get(1).getType());
+        assertSame(shadowed, read.get(2).getType());
+    }
+
+    @Test
+    public void testNumericTypeIdentifiersAreStillRead() throws Exception {
+        int id = ClockTypeDictionary.getId(ClockType.RACING_CLOCK);
+        Clock clock = mapper.readValue("{\"name\":\"Old\",\"current\":1,\"max\":4,\"type\":" + id + "}",
+            Clock.class);
+        assertSame(ClockType.RACING_CLOCK, clock.getType());
+    }
+}
@@ -0,0 +1,97 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The tests of the clock race.
+ */
+public class ClockRaceTest {
+
+    /**
+     * Create the members of a race.
+     * @param count The number of the members.
+     * @param maximum The maximum of the members.
+     * @return The racing clocks.
+     */
+    private static List<Clock> createMembers(int count, int maximum) {
+        List<Clock> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(new Clock("Racer " + i, 0, maximum, ClockType.RACING_CLOCK));
+        }
+        return result;
+    }
+
+    @Test
+    public void testConcurrentAdvancesElectExactlyOneWinner() throws Exception {
+        final int rounds = 200;
+        final int threads = 8;
+        for (int round = 0; round < rounds; round++) {
+            List<Clock> members = createMembers(6, 20);
+            ClockRace race = new ClockRace(members);
+            AtomicInteger wins = new AtomicInteger();
+            AtomicReference<ClockEvent> winningEvent = new AtomicReference<>();
+            AtomicClockTest.runConcurrently(threads, (int index) -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (!race.isDecided()) {
+                    Clock member = members.get(random.nextInt(members.size()));
+                    Optional<ClockEvent> event = race.advance(member, random.nextInt(1, 4));
+                    if (event.isPresent()) {
+                        wins.incrementAndGet();
+                        winningEvent.set(event.get());
+                    }
+                }
+                // The advancements after the election are rejected.
+                for (Clock member: members) {
+                    assertFalse(race.advance(member, 5).isPresent());
+                }
+            });
+            assertEquals(1, wins.get());
+            Clock winner = race.getWinner().get();
+            assertSame(winner, winningEvent.get().getTarget());
+            assertTrue(winner.isCompleted());
+            assertTrue(winner.isEnabled());
+            for (Clock member: members) {
+                if (member != winner) {
+                    assertTrue(member.isDisabled());
+                    assertFalse(member.isCompleted());
+                    assertTrue(member.getCurrent() < member.getMaximum());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testCompletedMemberWinsOnCreation() {
+        List<Clock> members = createMembers(3, 4);
+        members.get(1).setCurrent(4);
+        ClockRace race = new ClockRace(members);
+        assertSame(members.get(1), race.getWinner().get());
+        assertTrue(members.get(0).isDisabled());
+        assertTrue(members.get(2).isDisabled());
+        assertFalse(race.advance(members.get(0), 4).isPresent());
+        assertEquals(0, members.get(0).getCurrent());
+    }
+
+    @Test
+    public void testNonMemberIsRejected() {
+        ClockRace race = new ClockRace(createMembers(2, 4));
+        assertThrows(IllegalArgumentException.class,
+            () -> race.advance(new Clock("Outsider", 0, 4, ClockType.RACING_CLOCK), 1));
+        assertThrows(IllegalArgumentException.class, () -> new ClockRace(List.of()));
+    }
+}
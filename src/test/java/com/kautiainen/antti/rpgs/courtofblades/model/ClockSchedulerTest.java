@@ -0,0 +1,110 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.ClockScheduler.Schedule;
+import com.kautiainen.antti.rpgs.courtofblades.model.ClockScheduler.Timer;
+
+/**
+ * The tests of the timer wheel scheduler.
+ */
+public class ClockSchedulerTest {
+
+    @Test
+    public void testFixedRateTimersExpireOnTimeAcrossLevels() {
+        ClockScheduler scheduler = new ClockScheduler(1L, 0L, null);
+        SplittableRandom random = new SplittableRandom(42L);
+        int count = 2_000;
+        long[] periods = new long[count];
+        List<Clock> clocks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            // The periods reach all levels of the wheel.
+            periods[i] = 1L + random.nextLong(i % 4 == 0 ? 300_000L : 5_000L);
+            Clock clock = new Clock("Clock " + i, 0, Integer.MAX_VALUE);
+            clocks.add(clock);
+            scheduler.schedule(clock, 1, Schedule.fixedRate(Duration.ofMillis(periods[i])));
+        }
+        assertEquals(count, scheduler.size());
+        long now = 0L;
+        while (now < 600_000L) {
+            now += 1L + random.nextLong(20_000L);
+            scheduler.advanceTo(now);
+            for (int i = 0; i < count; i++) {
+                assertEquals(now / periods[i], clocks.get(i).getCurrent(), "Clock " + i + " at " + now);
+            }
+        }
+        assertEquals(count, scheduler.size());
+    }
+
+    @Test
+    public void testTimerBeyondWheelSpan() {
+        ClockScheduler scheduler = new ClockScheduler(1L, 0L, null);
+        Clock clock = new Clock("Far", 0, 10);
+        long period = (1L << (6 * ClockScheduler.LEVELS)) + 12_345L;
+        scheduler.schedule(clock, 1, Schedule.fixedRate(Duration.ofMillis(period)));
+        scheduler.advanceTo(period - 1);
+        assertEquals(0, clock.getCurrent());
+        scheduler.advanceTo(period);
+        assertEquals(1, clock.getCurrent());
+    }
+
+    @Test
+    public void testCancelRemovesTimer() {
+        ClockScheduler scheduler = new ClockScheduler(1L, 0L, null);
+        Clock kept = new Clock("Kept", 0, 100);
+        Clock cancelled = new Clock("Cancelled", 0, 100);
+        Timer keptTimer = scheduler.schedule(kept, 1, Schedule.fixedRate(Duration.ofMillis(10)));
+        Timer cancelledTimer = scheduler.schedule(cancelled, 1, Schedule.fixedRate(Duration.ofMillis(10)));
+        scheduler.advanceTo(25L);
+        assertTrue(cancelledTimer.cancel());
+        assertFalse(cancelledTimer.cancel());
+        assertFalse(cancelledTimer.isScheduled());
+        assertTrue(keptTimer.isScheduled());
+        assertEquals(1, scheduler.size());
+        scheduler.advanceTo(100L);
+        assertEquals(10, kept.getCurrent());
+        assertEquals(2, cancelled.getCurrent());
+    }
+
+    @Test
+    public void testEventsAreDeliveredAsOneBatch() {
+        List<List<ClockEvent>> batches = new ArrayList<>();
+        ClockScheduler scheduler = new ClockScheduler(1L, 0L, batches::add);
+        Clock first = new Clock("First", 0, 2, Clock.ClockType.LINKED_CLOCK);
+        Clock second = new Clock("Second", 0, 4, Clock.ClockType.LINKED_CLOCK);
+        scheduler.schedule(first, 1, Schedule.fixedRate(Duration.ofMillis(5)));
+        scheduler.schedule(second, 2, Schedule.fixedRate(Duration.ofMillis(5)));
+        List<ClockEvent> events = scheduler.advanceTo(10L);
+        assertEquals(1, batches.size());
+        assertEquals(events, batches.get(0));
+        assertEquals(2, first.getCurrent());
+        assertEquals(4, second.getCurrent());
+        long completions = events.stream().filter((ClockEvent event) -> event instanceof CompletedClockEvent).count();
+        assertEquals(2L, completions);
+        assertTrue(scheduler.advanceTo(10L).isEmpty());
+        assertEquals(1, batches.size());
+    }
+
+    @Test
+    public void testDailySchedule() {
+        long minute = 60_000L;
+        ClockScheduler scheduler = new ClockScheduler(minute, 0L, null);
+        Clock clock = new Clock("Project", 0, 10, Clock.ClockType.LONG_TERM_CLOCK);
+        scheduler.schedule(clock, 1, Schedule.daily(LocalTime.NOON, ZoneOffset.UTC));
+        scheduler.advanceTo(12 * 60 * minute - 1);
+        assertEquals(0, clock.getCurrent());
+        scheduler.advanceTo(3 * 24 * 60 * minute);
+        assertEquals(3, clock.getCurrent());
+    }
+}
@@ -0,0 +1,75 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+import com.kautiainen.antti.rpgs.courtofblades.model.ClockSimulation.Result;
+import com.kautiainen.antti.rpgs.courtofblades.model.ClockSimulation.RollDistribution;
+
+/**
+ * The tests of the Monte Carlo clock simulation.
+ */
+public class ClockSimulationTest {
+
+    /**
+     * Create a simulation of a progress clock, a tug-of-war clock, and a race.
+     * @return The simulation.
+     */
+    private static ClockSimulation createSimulation() {
+        ClockSimulation result = new ClockSimulation();
+        result.add(new Clock("Certain", 0, 4, ClockType.LINKED_CLOCK), RollDistribution.constant(1));
+        result.add(new Clock("Tug", 2, 4, ClockType.WARRING_CLOCK),
+            RollDistribution.of(new int[] { -1, 1 }, new double[] { 1.0, 1.0 }));
+        Clock first = new Clock("First", 0, 6, ClockType.RACING_CLOCK);
+        Clock second = new Clock("Second", 0, 6, ClockType.RACING_CLOCK);
+        RollDistribution roll = RollDistribution.of(new int[] { 0, 1, 2 }, new double[] { 1.0, 2.0, 1.0 });
+        result.add(first, roll);
+        result.add(second, roll);
+        result.addRace(List.of(first, second));
+        return result;
+    }
+
+    @Test
+    public void testResultsAreDeterministicRegardlessOfParallelism() {
+        ClockSimulation simulation = createSimulation();
+        Result serial = simulation.run(50_000, 20, 7L, new ForkJoinPool(1));
+        Result parallel = simulation.run(50_000, 20, 7L, new ForkJoinPool(4));
+        assertEquals(simulation.size(), serial.size());
+        for (int i = 0; i < serial.size(); i++) {
+            assertEquals(serial.getCompletionProbability(i), parallel.getCompletionProbability(i));
+            assertEquals(serial.getDepletionProbability(i), parallel.getDepletionProbability(i));
+        }
+    }
+
+    @Test
+    public void testProbabilities() {
+        Result result = createSimulation().run(100_000, 40, 11L);
+        assertEquals(1.0, result.getCompletionProbability(0));
+        assertEquals(4.0, result.getExpectedRolls(0));
+        // A symmetric walk from the middle completes and depletes equally often.
+        assertEquals(0.5, result.getCompletionProbability(1), 0.01);
+        assertEquals(0.5, result.getDepletionProbability(1), 0.01);
+        // Exactly one member wins each race, and the first member wins the ties.
+        assertEquals(1.0, result.getCompletionProbability(2) + result.getCompletionProbability(3), 1e-9);
+        assertTrue(result.getCompletionProbability(2) > result.getCompletionProbability(3));
+    }
+
+    @Test
+    public void testManyClocksGrowTheState() {
+        ClockSimulation simulation = new ClockSimulation();
+        for (int i = 0; i < 100; i++) {
+            simulation.add(new Clock("Clock " + i, 0, 1 + i % 5, ClockType.LINKED_CLOCK), RollDistribution.constant(1));
+        }
+        Result result = simulation.run(1_000, 5, 3L);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(1.0, result.getCompletionProbability(i));
+            assertEquals(1 + i % 5, result.getExpectedRolls(i));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The tests of the struct-of-arrays clock store.
+ */
+public class ClockStoreTest {
+
+    /**
+     * The clock types of the tests.
+     */
+    private static final ClockType[] TYPES = {
+        ClockType.LINKED_CLOCK, ClockType.WARRING_CLOCK, ClockType.RACING_CLOCK,
+        ClockType.DANGER_CLOCK, ClockType.REGRESS_CLOCK, ClockType.LONG_TERM_CLOCK
+    };
+
+    /**
+     * Create a sink recording the kinds and the excesses of the events.
+     * @param log The list receiving the events.
+     * @return The recording sink.
+     */
+    private static ClockEventSink record(List<String> log) {
+        return (ClockEventKind kind, Clock clock, int excess) -> log.add(kind + " " + excess);
+    }
+
+    @Test
+    public void testStoreAndViewBehaveLikeClock() {
+        SplittableRandom random = new SplittableRandom(13L);
+        ClockStore store = new ClockStore(2);
+        List<Clock> clocks = new ArrayList<>();
+        for (int i = 0; i < 24; i++) {
+            int max = 1 + random.nextInt(8);
+            Clock clock = new Clock("Clock " + i, random.nextInt(max + 1), max, TYPES[i % TYPES.length]);
+            assertEquals(i, store.add(clock));
+            clocks.add(clock);
+        }
+        for (int round = 0; round < 2_000; round++) {
+            int id = random.nextInt(clocks.size());
+            int amount = random.nextInt(-5, 6);
+            Clock clock = clocks.get(id);
+            List<String> expected = new ArrayList<>();
+            List<String> actual = new ArrayList<>();
+            int unused = clock.advance(amount, record(expected));
+            if (round % 2 == 0) {
+                assertEquals(unused, store.advance(id, amount, record(actual)));
+            } else {
+                assertEquals(unused, store.getClock(id).advance(amount, record(actual)));
+            }
+            assertEquals(expected, actual);
+            assertEquals(clock.getCurrent(), store.getCurrent(id));
+            assertEquals(clock.isCompleted(), store.isCompleted(id));
+            assertEquals(clock.isDepleted(), store.isDepleted(id));
+            Clock view = store.getClock(id);
+            assertEquals(clock.getCurrent(), view.getCurrent());
+            assertEquals(clock.isCompleted(), view.isCompleted());
+            assertEquals(clock.isDepleted(), view.isDepleted());
+        }
+    }
+
+    @Test
+    public void testCompleteAndDepleteEvents() {
+        ClockStore store = new ClockStore();
+        int id = store.add("Tug", 2, 4, ClockType.WARRING_CLOCK);
+        List<String> events = new ArrayList<>();
+        assertEquals(1, store.advance(id, 3, record(events)));
+        assertTrue(store.isCompleted(id));
+        assertEquals(List.of("ADVANCED 2", "COMPLETED 0"), events);
+        events.clear();
+        assertEquals(2, store.advance(id, 2, record(events)));
+        assertTrue(events.isEmpty());
+        assertEquals(-1, store.advance(id, -5, record(events)));
+        assertTrue(store.isDepleted(id));
+        assertEquals(List.of("REGRESSED -4", "DEPLETED 0"), events);
+    }
+
+    @Test
+    public void testBulkScans() {
+        ClockStore store = new ClockStore();
+        BitSet completed = new BitSet();
+        BitSet depleted = new BitSet();
+        BitSet enabled = new BitSet();
+        // More than two words of clocks.
+        for (int id = 0; id < 150; id++) {
+            ClockType type = TYPES[id % TYPES.length];
+            int state = (id / TYPES.length) % 3;
+            int current = state == 0 ? 0 : state == 1 ? 5 : 2;
+            Clock clock = new Clock("Clock " + id, current, 5, type);
+            clock.setEnabled(id % 4 != 0);
+            assertEquals(id, store.add(clock));
+            if (clock.isCompleted()) completed.set(id);
+            if (clock.isDepleted()) depleted.set(id);
+            if (clock.isEnabled()) enabled.set(id);
+        }
+        assertFalse(completed.isEmpty());
+        assertFalse(depleted.isEmpty());
+        assertEquals(completed, store.getCompletedClocks());
+        assertEquals(depleted, store.getDepletedClocks());
+        assertEquals(enabled, store.getEnabledClocks());
+        store.setEnabled(0, true);
+        assertTrue(store.getEnabledClocks().get(0));
+        store.advance(149, 5);
+        assertEquals(store.isCompleted(149), store.getCompletedClocks().get(149));
+    }
+}
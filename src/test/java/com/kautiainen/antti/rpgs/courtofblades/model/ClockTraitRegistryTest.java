@@ -0,0 +1,56 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+
+/**
+ * The tests of the clock trait registry.
+ */
+public class ClockTraitRegistryTest {
+
+    @Test
+    public void testDecodedTraitsAreNotRegistered() throws Exception {
+        ClockType read = new ObjectMapper().readValue(
+            "{\"name\":\"Read\",\"description\":\"A read type\",\"traits\":[\"Read trait\",\"linked\"]}",
+            ClockType.class);
+        assertEquals(0L, ClockTraitRegistry.getBit("Read trait"));
+        assertTrue(read.hasTrait("Read trait"));
+        assertTrue(read.hasTrait(ClockType.LINKED));
+        assertTrue(read.hasAnyTrait(ClockType.LINKED_BIT));
+        ClockType decoded = ClockTypeDictionary.canonical("Decoded", "A decoded type", List.of("Decoded trait"));
+        assertEquals(0L, ClockTraitRegistry.getBit("Decoded trait"));
+        assertTrue(decoded.hasTrait("Decoded trait"));
+        // A later registration does not hide the trait of the decoded type.
+        ClockTraitRegistry.register("Decoded trait");
+        assertTrue(decoded.hasTrait("Decoded trait"));
+        assertFalse(decoded.hasTrait("Read trait"));
+    }
+
+    @Test
+    public void testCustomTraitsAfterBitsAreExhausted() {
+        for (int i = 0; i < ClockTraitRegistry.MAX_TRAITS; i++) {
+            ClockTraitRegistry.register("Exhausting trait " + i);
+        }
+        assertEquals(0L, ClockTraitRegistry.register("Overflowing trait"));
+        ClockType type = new ClockType("Overflowing", "A type with too many traits",
+            ClockType.PROGRESS, ClockType.COMPLETES_FULL, "Overflowing trait");
+        assertEquals(ClockType.PROGRESS_BIT | ClockType.COMPLETES_FULL_BIT, type.getTraitMask());
+        assertTrue(type.hasTrait("Overflowing trait"));
+        assertTrue(type.hasTrait(ClockType.PROGRESS));
+        assertFalse(type.hasTrait("Missing trait"));
+        assertFalse(type.hasTrait(ClockType.LINKED));
+        assertTrue(type.hasTraits(ClockType.PROGRESS, "Overflowing trait"));
+        assertTrue(ClockTraitRegistry.getNames(type.getTraitMask()).contains(ClockType.PROGRESS));
+        Clock clock = new Clock("Overflowing", 0, 2, type);
+        clock.advance(2);
+        assertTrue(clock.isCompleted());
+    }
+}
@@ -0,0 +1,72 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.HealerType;
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.Resource;
+
+/**
+ * The tests of the house catalog.
+ */
+public class HouseCatalogTest {
+
+    /**
+     * The first house.
+     */
+    private final HouseModel first = new HouseModel("Vale", Resource.Magic, HealerType.Grace);
+
+    /**
+     * The house with the same name ignoring the case.
+     */
+    private final HouseModel second = new HouseModel("VALE", Resource.Force, HealerType.Physician);
+
+    /**
+     * The house with a name outside the ASCII characters.
+     */
+    private final HouseModel third = new HouseModel("Äänekoski", Resource.Wealth, HealerType.Grace);
+
+    /**
+     * The catalog of the houses.
+     */
+    private final HouseCatalog catalog = new HouseCatalog(List.of(first, second, third));
+
+    @Test
+    public void testNameLookups() {
+        assertSame(first, catalog.getHouse("Vale").get());
+        assertSame(second, catalog.getHouse("VALE").get());
+        assertFalse(catalog.getHouse("vale").isPresent());
+        assertTrue(catalog.contains("Äänekoski"));
+        assertEquals(Resource.Force, catalog.getPrimaryDomain("VALE").get());
+        assertEquals(HealerType.Grace, catalog.getHealerType("Äänekoski").get());
+        assertFalse(catalog.getHouse(null).isPresent());
+    }
+
+    @Test
+    public void testNameLookupsIgnoringCase() {
+        // The first house with the name ignoring the case is found.
+        assertSame(first, catalog.getHouseIgnoreCase("vale").get());
+        assertSame(first, catalog.getHouseIgnoreCase("VaLe").get());
+        assertSame(third, catalog.getHouseIgnoreCase("äänekoski").get());
+        assertSame(third, catalog.getHouseIgnoreCase("ÄÄNEKOSKI").get());
+        assertFalse(catalog.getHouseIgnoreCase("Valen").isPresent());
+        assertFalse(catalog.getHouseIgnoreCase(null).isPresent());
+        String folded = "vale";
+        assertSame(folded, HouseCatalog.fold(folded));
+        assertEquals(0, String.CASE_INSENSITIVE_ORDER.compare(HouseCatalog.fold("ÄäKkΣσς"), "ÄäKkΣσς"));
+    }
+
+    @Test
+    public void testAttributeIndexes() {
+        assertEquals(List.of(first, third), catalog.getHouses(HealerType.Grace));
+        assertEquals(List.of(second), catalog.getHouses(Resource.Force));
+        assertTrue(catalog.getHouses(Resource.Supply).isEmpty());
+        assertEquals(3, catalog.size());
+    }
+}
@@ -0,0 +1,115 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.HealerType;
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.Resource;
+
+/**
+ * The tests of the house snapshot.
+ */
+public class HouseSnapshotTest {
+
+    /**
+     * The directory of the snapshot files.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Create houses.
+     * @param count The number of the houses.
+     * @return The houses.
+     */
+    private static List<HouseModel> createHouses(int count) {
+        List<HouseModel> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            HouseModel house = new HouseModel("House " + i, Resource.values()[i % 6], HealerType.values()[i % 2]);
+            house.setSpecialFeature(new SpecialFeature("Feature " + i, "A feature of the house"));
+            result.add(house);
+        }
+        return result;
+    }
+
+    /**
+     * Write a snapshot file.
+     * @param file The file.
+     * @param houses The houses of the snapshot.
+     * @throws Exception The writing failed.
+     */
+    private static void writeFile(Path file, List<HouseModel> houses) throws Exception {
+        ByteBuffer data = HouseSnapshot.write(houses);
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        Files.write(file, bytes);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<HouseModel> houses = createHouses(20);
+        HouseSnapshot snapshot = HouseSnapshot.of(HouseSnapshot.write(houses));
+        assertEquals(houses.size(), snapshot.size());
+        for (int i = 0; i < houses.size(); i++) {
+            HouseModel read = snapshot.get(i);
+            assertEquals(houses.get(i).getName(), read.getName());
+            assertEquals(houses.get(i).getStrengths(), read.getStrengths());
+            assertEquals(houses.get(i).getHealer(), read.getHealer());
+            assertEquals(houses.get(i).getSpecialFeature().getName(), read.getSpecialFeature().getName());
+            assertSame(read, snapshot.get(i));
+        }
+        assertThrows(StreamCorruptedException.class, () -> HouseSnapshot.of(ByteBuffer.allocate(16)));
+    }
+
+    @Test
+    public void testSmallFileIsReadIntoMemory() throws Exception {
+        Path file = directory.resolve("houses.bin");
+        writeFile(file, createHouses(3));
+        HouseSnapshot snapshot = HouseSnapshot.load(file.toUri().toURL());
+        // A truncated file does not affect a snapshot read into memory.
+        Files.write(file, new byte[0]);
+        assertEquals("House 2", snapshot.get(2).getName());
+    }
+
+    @Test
+    public void testMainReplacesSnapshotFile() throws Exception {
+        Path json = directory.resolve("houses.json");
+        Files.writeString(json, "[{\"name\":\"First\",\"strengths\":[\"Magic\"],\"healer\":\"Grace\"}]");
+        Path file = directory.resolve("houses.bin");
+        writeFile(file, createHouses(400));
+        assertTrue(Files.size(file) > 0);
+        HouseSnapshot mapped = HouseSnapshot.map(file);
+        HouseSnapshot.main(new String[] { json.toString(), file.toString() });
+        // The mapping of the replaced file remains readable.
+        assertEquals("House 399", mapped.get(399).getName());
+        HouseSnapshot replaced = HouseSnapshot.load(file.toUri().toURL());
+        assertEquals(1, replaced.size());
+        assertEquals("First", replaced.get(0).getName());
+        assertEquals(List.of("houses.bin", "houses.json"), Files.list(directory)
+            .map((Path path) -> path.getFileName().toString()).sorted().toList());
+    }
+
+    @Test
+    public void testDefaultHousesIncludeBastion() {
+        assertInstanceOf(HouseSnapshot.class, DefaultHouses.HOUSES);
+        HouseModel bastion = DefaultHouses.getCatalog().getHouse("Bastion").get();
+        assertEquals(Set.of(Resource.Transport), bastion.getStrengths());
+        assertEquals(Resource.Transport, DefaultHouses.getPrimaryDomain("Bastion").get());
+        assertEquals(HealerType.Grace, DefaultHouses.getHealerType("Bastion").get());
+        assertEquals(6, DefaultHouses.HOUSES.size());
+    }
+}
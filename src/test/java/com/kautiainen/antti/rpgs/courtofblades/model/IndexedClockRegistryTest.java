@@ -0,0 +1,105 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.Clock.ClockType;
+import com.kautiainen.antti.rpgs.courtofblades.model.ClockScheduler.Schedule;
+import com.kautiainen.antti.rpgs.courtofblades.model.IndexedClockRegistry.Status;
+
+/**
+ * The tests of the indexed clock registry.
+ */
+public class IndexedClockRegistryTest {
+
+    @Test
+    public void testClosestToCompletion() {
+        IndexedClockRegistry registry = new IndexedClockRegistry();
+        Clock far = new Clock("Far", 0, 8, ClockType.LINKED_CLOCK);
+        Clock near = new Clock("Near", 5, 6, ClockType.LINKED_CLOCK);
+        Clock tied = new Clock("Tied", 3, 4, ClockType.LINKED_CLOCK);
+        Clock middle = new Clock("Middle", 1, 4, ClockType.PROGRESS_CLOCK);
+        Clock disabled = new Clock("Disabled", 3, 4, ClockType.LINKED_CLOCK);
+        disabled.setEnabled(false);
+        for (Clock clock: List.of(far, near, tied, middle, disabled)) {
+            assertTrue(registry.add(clock));
+        }
+        assertFalse(registry.add(far));
+        assertEquals(5, registry.size());
+        // The clocks with the same remaining ticks are in the order of addition.
+        assertEquals(List.of(near, tied, middle), registry.getClosestToCompletion(3));
+        assertEquals(List.of(near, tied, middle, far), registry.getClosestToCompletion(10));
+        assertTrue(registry.getClosestToCompletion(0).isEmpty());
+        registry.advance(near, 1);
+        registry.advance(far, 6);
+        assertEquals(List.of(tied, far, middle), registry.getClosestToCompletion(3));
+        registry.setEnabled(disabled, true);
+        assertEquals(List.of(tied, disabled), registry.getClosestToCompletion(2));
+        assertTrue(registry.remove(tied));
+        assertFalse(registry.contains(tied));
+        assertEquals(List.of(disabled, far), registry.getClosestToCompletion(2));
+    }
+
+    @Test
+    public void testStatusAndTypeQueries() {
+        IndexedClockRegistry registry = new IndexedClockRegistry();
+        Clock progress = new Clock("Progress", 0, 2, ClockType.LINKED_CLOCK);
+        Clock regress = new Clock("Regress", 2, 2, ClockType.REGRESS_CLOCK);
+        Clock other = new Clock("Other", 0, 2, ClockType.LINKED_CLOCK);
+        registry.add(progress);
+        registry.add(regress);
+        registry.add(other);
+        assertEquals(List.of(progress, regress, other), registry.getClocks(Status.ENABLED));
+        assertEquals(List.of(progress, other), registry.getClocks(ClockType.LINKED_CLOCK));
+        registry.advance(progress, 2);
+        registry.advance(regress, -2);
+        registry.setEnabled(other, false);
+        assertEquals(List.of(progress), registry.getClocks(Status.COMPLETED));
+        assertEquals(List.of(regress), registry.getClocks(Status.DEPLETED));
+        assertEquals(List.of(other), registry.getClocks(Status.DISABLED));
+        assertTrue(registry.getClocks(Status.ENABLED).isEmpty());
+        assertEquals(List.of(progress), registry.getEnabledClocks(ClockType.LINKED_CLOCK));
+        assertTrue(registry.getClocks((Status)null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> registry.advance(new Clock("Outsider", 0, 2), 1));
+    }
+
+    @Test
+    public void testChangesThroughEventBusAreIndexed() {
+        ClockEventBus bus = new ClockEventBus(4, ClockEventBus.WaitStrategy.YIELDING);
+        IndexedClockRegistry registry = new IndexedClockRegistry();
+        Clock direct = new Clock("Direct", 0, 10, ClockType.LINKED_CLOCK);
+        Clock batched = new Clock("Batched", 0, 10, ClockType.LINKED_CLOCK);
+        Clock scheduled = new Clock("Scheduled", 0, 10, ClockType.LINKED_CLOCK);
+        Clock silent = new Clock("Silent", 0, 10, ClockType.LINKED_CLOCK);
+        for (Clock clock: List.of(direct, batched, scheduled)) {
+            clock.setEventBus(bus);
+        }
+        for (Clock clock: List.of(direct, batched, scheduled, silent)) {
+            registry.add(clock);
+        }
+        direct.advance(9);
+        new ClockBatch().add(batched, 4).add(batched, 4).apply();
+        ClockScheduler scheduler = new ClockScheduler(1L, 0L, null);
+        scheduler.schedule(scheduled, 3, Schedule.fixedRate(Duration.ofMillis(10)));
+        scheduler.advanceTo(20L);
+        silent.advance(7);
+        // The clock without an event bus is indexed only when it is updated.
+        assertEquals(List.of(direct, batched, scheduled), registry.getClosestToCompletion(3));
+        registry.update(silent);
+        assertEquals(List.of(direct, batched, silent), registry.getClosestToCompletion(3));
+        direct.advance(1);
+        assertEquals(List.of(direct), registry.getClocks(Status.COMPLETED));
+        // A removed clock is no longer indexed.
+        registry.remove(batched);
+        batched.advance(2);
+        assertFalse(registry.getClocks(Status.COMPLETED).contains(batched));
+        assertEquals(3, registry.size());
+    }
+}
@@ -0,0 +1,112 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.HealerType;
+import com.kautiainen.antti.rpgs.courtofblades.model.HouseModel.Resource;
+
+/**
+ * The tests of the reloadable game data catalog.
+ */
+public class ReloadableCatalogTest {
+
+    /**
+     * The directory of the definitions.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Write the houses file with a house.
+     * @param name The name of the house.
+     * @param modified The modification time of the file in milliseconds.
+     * @throws Exception The writing failed.
+     */
+    private void writeHouses(String name, long modified) throws Exception {
+        Path file = directory.resolve(ReloadableCatalog.HOUSES_FILE);
+        Files.writeString(file, "[{\"name\":\"" + name + "\",\"strengths\":[\"Supply\"],\"healer\":\"Physician\"}]");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    }
+
+    @Test
+    public void testFailingListenerDoesNotStopReloads() throws Exception {
+        List<GameCatalog> published = new CopyOnWriteArrayList<>();
+        ReloadableCatalog catalog = new ReloadableCatalog(directory, GameCatalog.createDefault(),
+            (GameCatalog loaded) -> {
+                published.add(loaded);
+                if (published.size() == 1) throw new IllegalStateException("Listener failed");
+            });
+        writeHouses("First", 1_000L);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            ScheduledFuture<?> future = catalog.start(executor, 5L);
+            long deadline = System.nanoTime() + 30_000_000_000L;
+            while (published.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(5L);
+            }
+            writeHouses("Second", 2_000L);
+            while (published.size() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(5L);
+            }
+            assertFalse(future.isDone());
+            assertEquals(2, published.size());
+            assertTrue(catalog.get().getHouses().contains("Second"));
+            assertEquals(2L, catalog.get().getVersion());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidReloadKeepsCatalog() throws Exception {
+        ReloadableCatalog catalog = new ReloadableCatalog(directory, GameCatalog.createDefault(), null);
+        writeHouses("Valid", 1_000L);
+        assertTrue(catalog.reloadIfChanged());
+        assertFalse(catalog.reloadIfChanged());
+        Files.writeString(directory.resolve(ReloadableCatalog.COTERIE_UPGRADES_FILE),
+            "[{\"name\":\"Twice\"},{\"name\":\"Twice\"}]");
+        assertThrows(IllegalArgumentException.class, catalog::reload);
+        assertTrue(catalog.get().getHouses().contains("Valid"));
+        assertEquals(1L, catalog.get().getVersion());
+    }
+
+    @Test
+    public void testReloadsArePublishedAsCurrentCatalog() throws Exception {
+        GameCatalog original = GameCatalog.getCurrent();
+        try {
+            writeHouses("Reloaded", 1_000L);
+            Files.writeString(directory.resolve(ReloadableCatalog.CLOCK_TYPES_FILE),
+                "[{\"name\":\"Reloaded Clock\",\"description\":\"A reloaded clock\",\"traits\":[\"complete-full\"]}]");
+            ReloadableCatalog catalog = new ReloadableCatalog(directory);
+            assertSame(original, catalog.get());
+            assertFalse(DefaultHouses.getPrimaryDomain("Reloaded").isPresent());
+            GameCatalog reloaded = catalog.reload();
+            assertSame(reloaded, GameCatalog.getCurrent());
+            assertEquals(Resource.Supply, DefaultHouses.getPrimaryDomain("Reloaded").get());
+            assertEquals(HealerType.Physician, DefaultHouses.getHealerType("Reloaded").get());
+            assertFalse(DefaultHouses.getPrimaryDomain("Corvetto").isPresent());
+            assertSame(reloaded.getClockType("Reloaded Clock"), ClockTypeDictionary.get("Reloaded Clock"));
+            // The registered types are still found by name.
+            assertSame(Clock.ClockType.LINKED_CLOCK, ClockTypeDictionary.get("Linked"));
+        } finally {
+            GameCatalog.setCurrent(original);
+        }
+        assertEquals(Resource.Magic, DefaultHouses.getPrimaryDomain("Corvetto").get());
+    }
+}
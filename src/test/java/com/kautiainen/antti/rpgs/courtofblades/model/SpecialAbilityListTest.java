@@ -0,0 +1,143 @@
+package com.kautiainen.antti.rpgs.courtofblades.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The tests of the special ability list and its use by the coterie.
+ */
+public class SpecialAbilityListTest {
+
+    /**
+     * Get the names of the abilities of a list.
+     * @param list The list.
+     * @return The names of the abilities in the order of the list.
+     */
+    private static List<String> namesOf(List<SpecialAbility> list) {
+        List<String> result = new ArrayList<>();
+        for (SpecialAbility ability: list) {
+            result.add(ability.getName());
+        }
+        return result;
+    }
+
+    @Test
+    public void testOrderAndDuplicates() {
+        SpecialAbilityList list = new SpecialAbilityList();
+        assertTrue(list.add(new SpecialAbility("Ghost", "Move unseen")));
+        assertTrue(list.add(new SpecialAbility("Blade", "Fight well")));
+        assertTrue(list.add(new SpecialAbility("Arcane", "Know secrets")));
+        assertFalse(list.add(new SpecialAbility("Blade", "Another description")));
+        assertEquals(List.of("Ghost", "Blade", "Arcane"), namesOf(list));
+        assertEquals("Fight well", list.getByName("Blade").getDescription());
+        assertEquals(1, list.indexOf(new SpecialAbility("Blade", null)));
+        assertEquals(-1, list.indexOf(new SpecialAbility("Missing", null)));
+        assertThrows(IllegalArgumentException.class, () -> list.add(0, new SpecialAbility("Arcane", null)));
+        assertThrows(IllegalArgumentException.class, () -> list.set(0, new SpecialAbility("Arcane", null)));
+        assertThrows(IllegalArgumentException.class, () -> list.add(null));
+        assertThrows(IllegalArgumentException.class, () -> new SpecialAbilityList(null));
+        assertEquals(3, list.size());
+        assertSame(list.get(2), list.removeByName("Arcane"));
+        assertNull(list.removeByName("Arcane"));
+        assertFalse(list.containsName("Arcane"));
+    }
+
+    @Test
+    public void testPositionalOperationsReindex() {
+        SpecialAbilityList list = new SpecialAbilityList();
+        list.add(new SpecialAbility("Ghost", "Move unseen"));
+        list.add(new SpecialAbility("Blade", "Fight well"));
+        list.add(0, new SpecialAbility("Arcane", "Know secrets"));
+        list.add(3, new SpecialAbility("Last", "Comes last"));
+        assertEquals(List.of("Arcane", "Ghost", "Blade", "Last"), namesOf(list));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.add(5, new SpecialAbility("Far", null)));
+        assertEquals("Ghost", list.set(1, new SpecialAbility("Shadow", "Hide well")).getName());
+        assertEquals(List.of("Arcane", "Shadow", "Blade", "Last"), namesOf(list));
+        assertFalse(list.containsName("Ghost"));
+        assertEquals("Hide well", list.getByName("Shadow").getDescription());
+        // Replacing an ability with an equal ability keeps its position.
+        list.set(2, new SpecialAbility("Blade", "Fight better"));
+        assertEquals(2, list.indexOf(new SpecialAbility("Blade", null)));
+        assertEquals("Fight better", list.getByName("Blade").getDescription());
+        assertEquals("Arcane", list.remove(0).getName());
+        assertTrue(list.remove(new SpecialAbility("Last", null)));
+        assertEquals(List.of("Shadow", "Blade"), namesOf(list));
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        SpecialAbilityList list = new SpecialAbilityList();
+        for (String name: List.of("A", "B", "C")) {
+            list.add(new SpecialAbility(name, null));
+        }
+        Iterator<SpecialAbility> iterator = list.iterator();
+        iterator.next();
+        iterator.next();
+        iterator.remove();
+        assertEquals(List.of("A", "C"), namesOf(list));
+        assertFalse(list.containsName("B"));
+        list.removeIf((SpecialAbility ability) -> "A".equals(ability.getName()));
+        assertEquals(List.of("C"), namesOf(list));
+        list.clear();
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void testHeldAbilitiesCannotBeRenamed() {
+        SpecialAbilityList list = new SpecialAbilityList();
+        SpecialAbility added = new SpecialAbility("Ghost", "Move unseen");
+        list.add(added);
+        SpecialAbility replacing = new SpecialAbility("Blade", "Fight well");
+        list.set(0, replacing);
+        SpecialAbility inserted = new SpecialAbility("Arcane", "Know secrets");
+        list.add(0, inserted);
+        for (SpecialAbility held: list) {
+            assertTrue(held.isFrozen());
+            assertThrows(UnsupportedOperationException.class, () -> held.setName("Renamed"));
+        }
+        // Renaming the added ability does not change the list.
+        replacing.setName("Renamed");
+        inserted.setName("Renamed too");
+        assertEquals(List.of("Arcane", "Blade"), namesOf(list));
+        assertTrue(list.contains(new SpecialAbility("Blade", null)));
+        assertFalse(list.contains(replacing));
+    }
+
+    @Test
+    public void testCoterieAbilities() {
+        Coterie coterie = new Coterie("Crew");
+        CoterieAbility raw = new CoterieAbility("Ghost", "Move unseen");
+        List<SpecialAbility> list = coterie.getSpecialAbilities();
+        // The abilities added through the list are held like the abilities added through the coterie.
+        assertTrue(list.add(raw));
+        assertTrue(coterie.addSpecialAbility(new CoterieAbility("Blade", "Fight well")));
+        raw.setName("Renamed");
+        assertTrue(coterie.hasSpecialAbility(new CoterieAbility("Ghost", null)));
+        assertFalse(coterie.hasSpecialAbility(raw));
+        assertEquals("Move unseen", coterie.getSpecialAbility("Ghost").get().getDescription());
+        assertEquals(List.of("Ghost", "Blade"), namesOf(list));
+        // The validator of the coterie rejects the plain special abilities.
+        SpecialAbility plain = new SpecialAbility("Plain", "Not a coterie ability");
+        assertThrows(IllegalArgumentException.class, () -> list.add(plain));
+        assertThrows(IllegalArgumentException.class, () -> list.set(0, plain));
+        assertThrows(IllegalArgumentException.class, () -> coterie.addSpecialAbility(plain));
+        assertFalse(coterie.hasSpecialAbility(new SpecialAbility("Ghost", null)));
+        assertFalse(coterie.getSpecialAbility(new SpecialAbility("Ghost", null)).isPresent());
+        assertTrue(coterie.getSpecialAbility(new CoterieAbility("Ghost", null)).isPresent());
+        assertFalse(coterie.removeSpecialAbility(new SpecialAbility("Ghost", null)));
+        assertTrue(coterie.removeSpecialAbility(new CoterieAbility("Ghost", null)));
+        assertFalse(coterie.removeSpecialAbility(new CoterieAbility("Ghost", null)));
+        assertFalse(coterie.getSpecialAbility("Ghost").isPresent());
+        assertEquals(List.of("Blade"), namesOf(list));
+    }
+}